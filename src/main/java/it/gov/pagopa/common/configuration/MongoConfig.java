@@ -1,10 +1,12 @@
 package it.gov.pagopa.common.configuration;
 
 import com.mongodb.lang.NonNull;
+import it.gov.pagopa.common.mongo.MongoConnectionPoolMonitor;
 import it.gov.pagopa.common.utils.CommonConstants;
 import lombok.Getter;
 import lombok.Setter;
 import org.bson.types.Decimal128;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -17,8 +19,10 @@ import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -59,8 +63,19 @@ public class MongoConfig {
     }
 
     @Bean
-    public MongoCustomConversions mongoCustomConversions() {
-        return new MongoCustomConversions(Arrays.asList(
+    public MongoConnectionPoolMonitor mongoConnectionPoolMonitor() {
+        return new MongoConnectionPoolMonitor();
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolMonitorCustomizer(MongoConnectionPoolMonitor mongoConnectionPoolMonitor) {
+        return builder -> builder.applyToConnectionPoolSettings(
+                connectionPool -> connectionPool.addConnectionPoolListener(mongoConnectionPoolMonitor));
+    }
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(ObjectProvider<MongoConverterContributor> contributors) {
+        List<Object> converters = new ArrayList<>(Arrays.asList(
                 // BigDecimal support
                 new BigDecimalDecimal128Converter(),
                 new Decimal128BigDecimalConverter(),
@@ -69,6 +84,8 @@ public class MongoConfig {
                 new OffsetDateTimeWriteConverter(),
                 new OffsetDateTimeReadConverter()
         ));
+        contributors.orderedStream().forEach(contributor -> converters.addAll(contributor.converters()));
+        return new MongoCustomConversions(converters);
     }
 
     @WritingConverter
@@ -0,0 +1,20 @@
+package it.gov.pagopa.common.configuration;
+
+import java.util.List;
+
+/**
+ * <p>Extension point to register additional converters in the {@code MongoCustomConversions}
+ * built by {@link MongoConfig}.</p>
+ *
+ * <p>Declare an implementation as a bean; contributions are added after the common converters,
+ * in bean order.</p>
+ */
+@FunctionalInterface
+public interface MongoConverterContributor {
+
+    /**
+     * @return converters to register (Spring {@code Converter}, {@code GenericConverter} or
+     * {@code ConverterFactory} instances)
+     */
+    List<?> converters();
+}
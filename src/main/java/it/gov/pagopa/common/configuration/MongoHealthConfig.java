@@ -1,5 +1,8 @@
 package it.gov.pagopa.common.configuration;
 
+import it.gov.pagopa.common.mongo.index.MongoIndexBootstrap;
+import it.gov.pagopa.common.mongo.index.MongoIndexHealthIndicator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
@@ -10,5 +13,10 @@ public class MongoHealthConfig {
     public CustomReactiveMongoHealthIndicator customMongoHealthIndicator(ReactiveMongoTemplate reactiveMongoTemplate) {
         return new CustomReactiveMongoHealthIndicator(reactiveMongoTemplate);
     }
-}
 
+    @Bean
+    public MongoIndexHealthIndicator mongoIndexesHealthIndicator(MongoIndexBootstrap mongoIndexBootstrap,
+                                                                 @Value("${app.mongoIndexes.requiredForReadiness:true}") boolean requiredForReadiness) {
+        return new MongoIndexHealthIndicator(mongoIndexBootstrap, requiredForReadiness);
+    }
+}
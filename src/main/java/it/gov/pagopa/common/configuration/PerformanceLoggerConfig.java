@@ -0,0 +1,36 @@
+package it.gov.pagopa.common.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.gov.pagopa.common.reactive.utils.PerformanceLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Binds {@link PerformanceLogger} to the application {@link MeterRegistry}, so its timers are exposed by the
+ * actuator {@code metrics} endpoint.
+ *
+ * <p>Configuration:</p>
+ * <ul>
+ *   <li><code>app.performanceLog.logEnabled</code>: write the {@code [PERFORMANCE_LOG]} line</li>
+ *   <li><code>app.performanceLog.logSampleRate</code>: fraction of the timings logged, between 0 and 1</li>
+ *   <li><code>app.performanceLog.slosMs</code>: comma separated SLO buckets, in milliseconds</li>
+ * </ul>
+ */
+@Configuration
+public class PerformanceLoggerConfig {
+
+    @Bean
+    public PerformanceLogger.Settings performanceLoggerSettings(MeterRegistry meterRegistry,
+                                                                @Value("${app.performanceLog.logEnabled:true}") boolean logEnabled,
+                                                                @Value("${app.performanceLog.logSampleRate:1.0}") double logSampleRate,
+                                                                @Value("${app.performanceLog.slosMs:}") long[] slosMs) {
+        PerformanceLogger.Settings settings = new PerformanceLogger.Settings(meterRegistry, logEnabled, logSampleRate,
+                Arrays.stream(slosMs).mapToObj(Duration::ofMillis).toList());
+        PerformanceLogger.configure(settings);
+        return settings;
+    }
+}
@@ -3,16 +3,20 @@ package it.gov.pagopa.common.configuration;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http2AllocationStrategy;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,6 +29,10 @@ import java.util.concurrent.TimeUnit;
  *
  * <p>Also adds mandatory connect / read / write timeouts that Netty does not
  * set by default, preventing thread hangs in reactive pipelines.
+ *
+ * <p>With {@code rest-client.http2.enabled} the client speaks HTTP/2 instead, multiplexing
+ * up to {@code rest-client.http2.maxConcurrentStreams} requests on each of at most
+ * {@code rest-client.http2.maxConnections} connections per host, see {@link Http2Mode}.
  */
 @Configuration
 public class WebClientConfig {
@@ -86,6 +94,17 @@ public class WebClientConfig {
     /** Period of the background eviction task that removes stale connections proactively. */
     private static final Duration EVICT_IN_BACKGROUND = Duration.ofSeconds(30);
 
+    /** Name of the shared pool, used as {@code name} tag of its metrics. */
+    static final String POOL_NAME = "emd-citizen-http-pool";
+
+    /** HTTP/2 transport selected by {@code rest-client.http2.mode}. */
+    public enum Http2Mode {
+        /** HTTP/2 over TLS, negotiated through ALPN, falling back to HTTP/1.1 if the server does not support it. */
+        H2,
+        /** Cleartext HTTP/2 with prior knowledge: the server must accept HTTP/2 without upgrade. */
+        H2C
+    }
+
     /**
      * Exposes a pre-configured {@link WebClient.Builder} bean.
      *
@@ -119,19 +138,30 @@ public class WebClientConfig {
      * connection pool for the entire application.
      *
      * @param connectionProvider the shared pool provider
+     * @param http2Enabled if HTTP/2 has to be used instead of HTTP/1.1
+     * @param http2Mode HTTP/2 transport, see {@link Http2Mode}
      * @return configured {@link HttpClient}
      */
     @Bean
-    public HttpClient httpClient(ConnectionProvider connectionProvider) {
-        return HttpClient.create(connectionProvider)
+    public HttpClient httpClient(ConnectionProvider connectionProvider,
+                                 @Value("${rest-client.http2.enabled:false}") boolean http2Enabled,
+                                 @Value("${rest-client.http2.mode:h2c}") String http2Mode) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
                 // TCP handshake timeout
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
                 // End-to-end response timeout
                 .responseTimeout(RESPONSE_TIMEOUT)
-                // Read / Write timeouts injected into the Netty pipeline
+                // Read / Write timeouts injected into the Netty pipeline (per stream with HTTP/2)
                 .doOnConnected(conn -> conn
                         .addHandlerLast(new ReadTimeoutHandler(IO_TIMEOUT_SECONDS, TimeUnit.SECONDS))
                         .addHandlerLast(new WriteTimeoutHandler(IO_TIMEOUT_SECONDS, TimeUnit.SECONDS)));
+        if (!http2Enabled) {
+            return httpClient;
+        }
+        return switch (Http2Mode.valueOf(http2Mode.toUpperCase(Locale.ROOT))) {
+            case H2 -> httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+            case H2C -> httpClient.protocol(HttpProtocol.H2C);
+        };
     }
 
     /**
@@ -147,12 +177,22 @@ public class WebClientConfig {
      * different names and inject them by qualifier into dedicated {@link HttpClient}
      * beans.
      *
+     * <p>With HTTP/2 the pool holds at most {@code http2MaxConnections} connections per
+     * host, each carrying up to {@code http2MaxConcurrentStreams} requests (or fewer, if the
+     * server advertises a lower limit). Besides the connection gauges, its metrics then
+     * report the active and pending streams.
+     *
+     * @param http2Enabled if HTTP/2 has to be used instead of HTTP/1.1
+     * @param http2MaxConnections maximum HTTP/2 connections per remote host
+     * @param http2MaxConcurrentStreams maximum concurrent requests on each HTTP/2 connection
      * @return the shared {@link ConnectionProvider}
      */
     @Bean
-    public ConnectionProvider connectionProvider() {
-        return ConnectionProvider
-                .builder("emd-citizen-http-pool")
+    public ConnectionProvider connectionProvider(@Value("${rest-client.http2.enabled:false}") boolean http2Enabled,
+                                                 @Value("${rest-client.http2.maxConnections:4}") int http2MaxConnections,
+                                                 @Value("${rest-client.http2.maxConcurrentStreams:100}") int http2MaxConcurrentStreams) {
+        ConnectionProvider.Builder builder = ConnectionProvider
+                .builder(POOL_NAME)
                 // ── Pool sizing ────────────────────────────────────────────────────────
                 // maxConnections is PER REMOTE HOST. With N connectors pointing to N
                 // different back-ends, each back-end gets its own isolated bucket of
@@ -168,8 +208,15 @@ public class WebClientConfig {
                 // Proactively remove idle/expired connections in background.
                 .evictInBackground(EVICT_IN_BACKGROUND)
                 // Expose Reactor Netty pool metrics via Micrometer.
-                .metrics(true)
-                .build();
+                .metrics(true);
+        if (http2Enabled) {
+            // Replaces maxConnections: few connections, many streams each.
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(http2MaxConnections)
+                    .maxConcurrentStreams(http2MaxConcurrentStreams)
+                    .minConnections(1)
+                    .build());
+        }
+        return builder.build();
     }
 }
-
@@ -0,0 +1,82 @@
+package it.gov.pagopa.common.mongo;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import it.gov.pagopa.common.utils.DecayingAverage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link ConnectionPoolListener} tracking how much the Mongo connection pool is saturated: the operations waiting for a
+ * connection, the connections checked out, and the average time waited to obtain a connection (exponentially weighted,
+ * so that it follows the recent trend, and decaying while no connection is requested, so that an idle pool drops
+ * towards 0 instead of keeping its last wait time).
+ */
+public class MongoConnectionPoolMonitor implements ConnectionPoolListener {
+
+    /** Weight of the last sample inside the average wait time */
+    private static final double WAIT_TIME_ALPHA = 0.2;
+    /** Time after which the average wait time halves, if no connection is requested */
+    private static final Duration WAIT_TIME_IDLE_HALF_LIFE = Duration.ofSeconds(5);
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final DecayingAverage averageWaitMillis;
+
+    public MongoConnectionPoolMonitor() {
+        this(System::nanoTime);
+    }
+
+    MongoConnectionPoolMonitor(LongSupplier nanoClock) {
+        this.averageWaitMillis = new DecayingAverage(WAIT_TIME_ALPHA, WAIT_TIME_IDLE_HALF_LIFE, nanoClock);
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waiting.decrementAndGet();
+        checkedOut.incrementAndGet();
+        recordWait(event.getElapsedTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waiting.decrementAndGet();
+        recordWait(event.getElapsedTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    private void recordWait(long waitMillis) {
+        averageWaitMillis.record(waitMillis);
+    }
+
+    /** Operations currently waiting for a connection */
+    public int getWaiting() {
+        return Math.max(0, waiting.get());
+    }
+
+    /** Connections currently checked out of the pool */
+    public int getCheckedOut() {
+        return Math.max(0, checkedOut.get());
+    }
+
+    /** Average time waited to obtain a connection */
+    public double getAverageWaitMillis() {
+        return averageWaitMillis.get();
+    }
+}
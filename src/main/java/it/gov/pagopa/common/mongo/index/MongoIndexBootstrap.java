@@ -0,0 +1,281 @@
+package it.gov.pagopa.common.mongo.index;
+
+import com.mongodb.MongoCommandException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Creates and verifies the indexes declared by the {@link MongoIndexContributor} beans.</p>
+ *
+ * <p>This component provides:</p>
+ * <ul>
+ *   <li><b>Background creation:</b> missing indexes are created once the application is ready, without delaying startup</li>
+ *   <li><b>Verification:</b> indexes are checked with {@code listIndexes} after creation and periodically afterwards,
+ *   so an index dropped at runtime is detected</li>
+ *   <li><b>Metrics:</b> {@code mongo.index.present} (1/0) and {@code mongo.index.size} (bytes) gauges,
+ *   tagged by collection and index</li>
+ *   <li><b>Health:</b> statuses are exposed by {@link MongoIndexHealthIndicator}, which keeps readiness
+ *   down until every index required for readiness is present</li>
+ * </ul>
+ *
+ * <b>Configuration</b>
+ * <ul>
+ *   <li><code>app.mongoIndexes.createMissing</code>: create missing indexes (otherwise they are only verified)</li>
+ *   <li><code>app.mongoIndexes.verifyIntervalMs</code>: periodic verification interval</li>
+ * </ul>
+ *
+ * <p>Index builds on existing data run on the server and only hold exclusive locks at their
+ * beginning and end. An index that exists with different options is never replaced: it is
+ * reported as {@link MongoIndexStatus#CONFLICTING} and must be fixed manually.</p>
+ */
+@Component
+@Slf4j
+public class MongoIndexBootstrap {
+
+    private static final String METRIC_PRESENT = "mongo.index.present";
+    private static final String METRIC_SIZE = "mongo.index.size";
+    private static final int NAMESPACE_NOT_FOUND = 26;
+    /** Options compared even when not declared, since an existing one changes the index behaviour */
+    private static final Set<String> BEHAVIOURAL_OPTIONS = Set.of("unique", "sparse", "expireAfterSeconds", "partialFilterExpression");
+    /** Options not affecting the index behaviour */
+    private static final Set<String> IGNORED_OPTIONS = Set.of("name", "background");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean createMissing;
+    private final Map<RequiredMongoIndex, IndexState> states = new LinkedHashMap<>();
+
+    public MongoIndexBootstrap(ReactiveMongoTemplate mongoTemplate,
+                               ObjectProvider<MongoIndexContributor> contributors,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.mongoIndexes.createMissing:true}") boolean createMissing) {
+        this.mongoTemplate = mongoTemplate;
+        this.createMissing = createMissing;
+
+        contributors.orderedStream()
+                .flatMap(contributor -> contributor.requiredIndexes().stream())
+                .forEach(index -> states.put(index, registerGauges(meterRegistry, index)));
+    }
+
+    /**
+     * <p>Creates the missing indexes in background, then verifies them.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        verify()
+                .flatMap(statuses -> createMissing ? createMissingIndexes(statuses).then(verify()) : Mono.just(statuses))
+                .subscribe(
+                        statuses -> { },
+                        error -> log.error("[MONGO-INDEX-BOOTSTRAP] Index bootstrap failed", error));
+    }
+
+    /**
+     * <p>Periodic verification, detecting indexes dropped or rebuilt at runtime.</p>
+     */
+    @Scheduled(fixedDelayString = "${app.mongoIndexes.verifyIntervalMs:300000}",
+            initialDelayString = "${app.mongoIndexes.verifyIntervalMs:300000}")
+    public void scheduledVerification() {
+        verify().subscribe(
+                statuses -> { },
+                error -> log.error("[MONGO-INDEX-BOOTSTRAP] Index verification failed", error));
+    }
+
+    /**
+     * <p>Verifies every required index against {@code listIndexes} and refreshes statuses, sizes and gauges.</p>
+     *
+     * @return {@code Mono} emitting the status of every required index
+     */
+    public Mono<Map<RequiredMongoIndex, MongoIndexStatus>> verify() {
+        Map<String, List<RequiredMongoIndex>> byCollection = states.keySet().stream()
+                .collect(Collectors.groupingBy(RequiredMongoIndex::collection, LinkedHashMap::new, Collectors.toList()));
+
+        return Flux.fromIterable(byCollection.entrySet())
+                .concatMap(entry -> verifyCollection(entry.getKey(), entry.getValue()))
+                .then(Mono.fromSupplier(this::getStatuses));
+    }
+
+    /**
+     * @return the last known status of every required index, in declaration order
+     */
+    public Map<RequiredMongoIndex, MongoIndexStatus> getStatuses() {
+        Map<RequiredMongoIndex, MongoIndexStatus> statuses = new LinkedHashMap<>();
+        states.forEach((index, state) -> statuses.put(index, state.status));
+        return Collections.unmodifiableMap(statuses);
+    }
+
+    /**
+     * @return the last known size in bytes of a required index, {@code 0} if unknown
+     */
+    public long getSize(RequiredMongoIndex index) {
+        IndexState state = states.get(index);
+        return state != null ? state.sizeBytes : 0;
+    }
+
+    private Mono<Void> createMissingIndexes(Map<RequiredMongoIndex, MongoIndexStatus> statuses) {
+        return Flux.fromIterable(statuses.entrySet())
+                .filter(entry -> entry.getValue() == MongoIndexStatus.MISSING)
+                .map(Map.Entry::getKey)
+                .concatMap(this::createIndex)
+                .then();
+    }
+
+    private Mono<String> createIndex(RequiredMongoIndex index) {
+        log.info("[MONGO-INDEX-BOOTSTRAP] Creating index {} on {}: {}", index.name(), index.collection(), index.keys().toJson());
+        return mongoTemplate.indexOps(index.collection())
+                .createIndex(index.definition())
+                .doOnNext(name -> log.info("[MONGO-INDEX-BOOTSTRAP] Index {} on {} created", name, index.collection()))
+                .onErrorResume(error -> {
+                    log.error("[MONGO-INDEX-BOOTSTRAP] Creation of index {} on {} failed: {}",
+                            index.name(), index.collection(), error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> verifyCollection(String collection, List<RequiredMongoIndex> required) {
+        return listIndexes(collection)
+                .zipWith(indexSizes(collection))
+                .doOnNext(existingAndSizes -> required.forEach(index ->
+                        refreshState(index, existingAndSizes.getT1(), existingAndSizes.getT2())))
+                .then();
+    }
+
+    private void refreshState(RequiredMongoIndex index, List<Document> existing, Document sizes) {
+        IndexState state = states.get(index);
+        Document match = existing.stream()
+                .filter(candidate -> sameKeys(index.keys(), candidate.get("key", Document.class)))
+                .findFirst()
+                .orElse(null);
+
+        MongoIndexStatus status;
+        if (match == null) {
+            status = MongoIndexStatus.MISSING;
+            state.sizeBytes = 0;
+        } else {
+            status = sameOptions(index.options(), match) ? MongoIndexStatus.PRESENT : MongoIndexStatus.CONFLICTING;
+            Object size = sizes.get(match.getString("name"));
+            state.sizeBytes = size instanceof Number number ? number.longValue() : 0;
+        }
+
+        if (status != MongoIndexStatus.PRESENT && status != state.status) {
+            log.warn("[MONGO-INDEX-BOOTSTRAP] Index {} on {} is {}", index.name(), index.collection(), status);
+        }
+        state.status = status;
+    }
+
+    /**
+     * <p>Reads the {@code firstBatch} of {@code listIndexes}: a collection never has more indexes than a batch holds.</p>
+     */
+    private Mono<List<Document>> listIndexes(String collection) {
+        return mongoTemplate.executeCommand(new Document("listIndexes", collection))
+                .map(result -> result.get("cursor", Document.class).getList("firstBatch", Document.class))
+                .onErrorResume(MongoCommandException.class,
+                        error -> error.getErrorCode() == NAMESPACE_NOT_FOUND ? Mono.just(List.of()) : Mono.error(error));
+    }
+
+    /**
+     * <p>Reads index sizes with {@code collStats}; sizes are informative only, so failures yield no sizes.</p>
+     */
+    private Mono<Document> indexSizes(String collection) {
+        return mongoTemplate.executeCommand(new Document("collStats", collection))
+                .map(stats -> Objects.requireNonNullElseGet(stats.get("indexSizes", Document.class), Document::new))
+                .onErrorResume(error -> {
+                    log.debug("[MONGO-INDEX-BOOTSTRAP] Cannot read index sizes of {}: {}", collection, error.getMessage());
+                    return Mono.just(new Document());
+                });
+    }
+
+    /**
+     * <p>Compares index keys in order, ignoring the numeric type of directions (1 vs 1.0).</p>
+     */
+    static boolean sameKeys(Document expected, Document actual) {
+        if (actual == null || expected.size() != actual.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, Object>> expectedKeys = expected.entrySet().iterator();
+        Iterator<Map.Entry<String, Object>> actualKeys = actual.entrySet().iterator();
+        while (expectedKeys.hasNext()) {
+            Map.Entry<String, Object> expectedKey = expectedKeys.next();
+            Map.Entry<String, Object> actualKey = actualKeys.next();
+            if (!expectedKey.getKey().equals(actualKey.getKey())
+                    || !sameDirection(expectedKey.getValue(), actualKey.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameDirection(Object expected, Object actual) {
+        if (expected instanceof Number expectedNumber && actual instanceof Number actualNumber) {
+            return expectedNumber.doubleValue() == actualNumber.doubleValue();
+        }
+        return Objects.equals(expected, actual);
+    }
+
+    /**
+     * <p>Compares every declared option, and the behavioural ones even if not declared (e.g. an unexpected TTL).
+     * Booleans absent and false are the same, numbers ignore their type, and a declared {@code collation} only
+     * needs its own fields to match, since the server fills in the defaults of the others.</p>
+     */
+    static boolean sameOptions(Document declared, Document existing) {
+        Set<String> options = new HashSet<>(BEHAVIOURAL_OPTIONS);
+        options.addAll(declared.keySet());
+        options.removeAll(IGNORED_OPTIONS);
+        return options.stream().allMatch(option -> sameOption(option, declared.get(option), existing.get(option)));
+    }
+
+    private static boolean sameOption(String option, Object declared, Object actual) {
+        if (declared instanceof Boolean || actual instanceof Boolean) {
+            return Boolean.TRUE.equals(declared) == Boolean.TRUE.equals(actual);
+        }
+        if (declared instanceof Number declaredNumber && actual instanceof Number actualNumber) {
+            return declaredNumber.doubleValue() == actualNumber.doubleValue();
+        }
+        if ("collation".equals(option) && declared instanceof Document declaredCollation && actual instanceof Document actualCollation) {
+            return declaredCollation.entrySet().stream()
+                    .allMatch(field -> Objects.equals(field.getValue(), actualCollation.get(field.getKey())));
+        }
+        return Objects.equals(declared, actual);
+    }
+
+    private static IndexState registerGauges(MeterRegistry meterRegistry, RequiredMongoIndex index) {
+        IndexState state = new IndexState();
+        Gauge.builder(METRIC_PRESENT, state, s -> s.status == MongoIndexStatus.PRESENT ? 1 : 0)
+                .description("1 if the required index exists with the declared options, 0 otherwise")
+                .tag("collection", index.collection())
+                .tag("index", index.name())
+                .register(meterRegistry);
+        Gauge.builder(METRIC_SIZE, state, s -> s.sizeBytes)
+                .description("Size of the required index")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("collection", index.collection())
+                .tag("index", index.name())
+                .register(meterRegistry);
+        return state;
+    }
+
+    private static final class IndexState {
+        private volatile MongoIndexStatus status = MongoIndexStatus.UNKNOWN;
+        private volatile long sizeBytes;
+    }
+}
@@ -0,0 +1,17 @@
+package it.gov.pagopa.common.mongo.index;
+
+import java.util.List;
+
+/**
+ * <p>Extension point to declare the indexes created and verified by {@link MongoIndexBootstrap}.</p>
+ *
+ * <p>Declare an implementation as a bean next to the repositories relying on the indexes.</p>
+ */
+@FunctionalInterface
+public interface MongoIndexContributor {
+
+    /**
+     * @return indexes the application needs
+     */
+    List<RequiredMongoIndex> requiredIndexes();
+}
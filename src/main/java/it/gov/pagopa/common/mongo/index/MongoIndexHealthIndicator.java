@@ -0,0 +1,45 @@
+package it.gov.pagopa.common.mongo.index;
+
+import org.springframework.boot.health.contributor.AbstractReactiveHealthIndicator;
+import org.springframework.boot.health.contributor.Health;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * <p>Reports the status of the indexes verified by {@link MongoIndexBootstrap}.</p>
+ *
+ * <p>Health is {@code DOWN} until every index {@link RequiredMongoIndex#requiredForReadiness() required for readiness}
+ * is {@link MongoIndexStatus#PRESENT}, so an environment missing indexes fails readiness instead of serving queries
+ * with collection scans. The other indexes, and all of them with {@code requiredForReadiness = false}, are still
+ * reported but do not affect health.</p>
+ */
+public class MongoIndexHealthIndicator extends AbstractReactiveHealthIndicator {
+
+    private final MongoIndexBootstrap mongoIndexBootstrap;
+    private final boolean requiredForReadiness;
+
+    public MongoIndexHealthIndicator(MongoIndexBootstrap mongoIndexBootstrap, boolean requiredForReadiness) {
+        super("Mongo index health check failed");
+        this.mongoIndexBootstrap = mongoIndexBootstrap;
+        this.requiredForReadiness = requiredForReadiness;
+    }
+
+    @Override
+    protected Mono<Health> doHealthCheck(Health.Builder builder) {
+        Map<RequiredMongoIndex, MongoIndexStatus> statuses = mongoIndexBootstrap.getStatuses();
+        boolean allPresent = statuses.entrySet().stream()
+                .filter(entry -> entry.getKey().requiredForReadiness())
+                .allMatch(entry -> entry.getValue() == MongoIndexStatus.PRESENT);
+
+        if (allPresent || !requiredForReadiness) {
+            builder.up();
+        } else {
+            builder.down();
+        }
+        statuses.forEach((index, status) -> builder.withDetail(index.collection() + "." + index.name(),
+                Map.of("status", status, "sizeBytes", mongoIndexBootstrap.getSize(index),
+                        "requiredForReadiness", index.requiredForReadiness())));
+        return Mono.just(builder.build());
+    }
+}
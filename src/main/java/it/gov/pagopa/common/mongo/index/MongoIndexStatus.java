@@ -0,0 +1,15 @@
+package it.gov.pagopa.common.mongo.index;
+
+/**
+ * <p>Verification outcome of a {@link RequiredMongoIndex}.</p>
+ */
+public enum MongoIndexStatus {
+    /** Not verified yet. */
+    UNKNOWN,
+    /** An index with the same keys and options exists. */
+    PRESENT,
+    /** No index on the declared keys. */
+    MISSING,
+    /** An index on the declared keys exists with different options (e.g. not unique). */
+    CONFLICTING
+}
@@ -0,0 +1,39 @@
+package it.gov.pagopa.common.mongo.index;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.util.Assert;
+
+/**
+ * <p>An index the application relies on, declared through a {@link MongoIndexContributor}.</p>
+ *
+ * @param collection collection name
+ * @param definition index definition; it must be named, the name is used in logs, metrics and health details
+ * @param requiredForReadiness whether a missing index fails readiness; optional indexes, or those of a disabled
+ *                             feature, are created and reported all the same
+ */
+public record RequiredMongoIndex(String collection, IndexDefinition definition, boolean requiredForReadiness) {
+
+    public RequiredMongoIndex {
+        Assert.hasText(collection, "Collection must not be empty");
+        Assert.hasText(definition.getIndexOptions().getString("name"), "Required indexes must be named");
+    }
+
+    /** An index required for readiness */
+    public RequiredMongoIndex(String collection, IndexDefinition definition) {
+        this(collection, definition, true);
+    }
+
+    public String name() {
+        return definition.getIndexOptions().getString("name");
+    }
+
+    public Document keys() {
+        return definition.getIndexKeys();
+    }
+
+    /** Declared options, e.g. {@code unique}, {@code expireAfterSeconds}, {@code partialFilterExpression} */
+    public Document options() {
+        return definition.getIndexOptions();
+    }
+}
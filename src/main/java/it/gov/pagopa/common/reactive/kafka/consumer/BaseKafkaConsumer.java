@@ -1,22 +1,35 @@
 package it.gov.pagopa.common.reactive.kafka.consumer;
 
 import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import it.gov.pagopa.common.kafka.utils.KafkaConstants;
 import it.gov.pagopa.common.reactive.kafka.exception.UncommittableError;
 import it.gov.pagopa.common.reactive.utils.PerformanceLogger;
 import it.gov.pagopa.common.utils.CommonUtilities;
+import it.gov.pagopa.common.utils.LazyHash;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.concurrent.Queues;
 import reactor.util.context.Context;
+import reactor.util.retry.Retry;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -28,6 +41,17 @@ import java.util.stream.Collectors;
  *     <li>Turn off the autoCommit (spring.cloud.stream.kafka.bindings.BINDINGNAME.consumer.autoCommitOffset=false)</li>
  *     <li>Set the ackMode to MANUAL_IMMEDIATE (spring.cloud.stream.kafka.bindings.BINDINGNAME.consumer.ackMode=MANUAL_IMMEDIATE)</li>
  * </ol>
+ * Messages are processed following {@link #getProcessingOrder()}: as default they are processed in parallel but completed
+ * in arrival order ({@link ProcessingOrder#GLOBAL}); otherwise they are split into {@link #getParallelism()} independent rails
+ * by partition or record key, keeping the order only inside each rail. In both cases a partition is committed only up to
+ * its lowest unfinished offset.
+ * Commits are performed when {@link #getCommitMaxMessages()} messages are processed or after {@link #getCommitDelay()},
+ * whichever comes first, publishing for each partition the committed batch size ({@value #METRIC_COMMIT_BATCH_SIZE}) and the
+ * time elapsed since the receipt of its oldest message ({@value #METRIC_COMMIT_LATENCY}).
+ * Messages failing with an {@link UncommittableError} are retried with an exponential backoff up to {@link #getRetryMaxAttempts()}
+ * times, then handed to {@link #onRetriesExhausted(Message, Throwable)} (e.g. to publish them on an error topic) and committed;
+ * if the handler itself fails with an {@link UncommittableError} (e.g. the error topic did not acknowledge the message), the
+ * message is not committed and the error terminates the flow, so that it is read again from the last commit.
  * @param <T> The type of the message to read and deserialize
  * @param <R> The type of the message resulted
  */
@@ -36,10 +60,24 @@ public abstract class BaseKafkaConsumer<T, R> {
 
     /** Key used inside the {@link Context} to store the startTime */
     protected static final String CONTEXT_KEY_START_TIME = "START_TIME";
-    /** Key used inside the {@link Context} to store a msg identifier used for logging purpose */
+    /** Key used inside the {@link Context} to store the hashed msg identifier used for logging purpose (see {@link #describeMessage(Message)}) */
     protected static final String CONTEXT_KEY_MSG_ID = "MSG_ID";
 
+    /** Metric counting the messages committed for each partition */
+    public static final String METRIC_COMMIT_BATCH_SIZE = "kafka.consumer.commit.batch.size";
+    /** Metric measuring, for each partition, the time between the receipt of the oldest committed message and its commit */
+    public static final String METRIC_COMMIT_LATENCY = "kafka.consumer.commit.latency";
+    /** Metric counting the messages under processing */
+    public static final String METRIC_IN_FLIGHT = "kafka.consumer.inflight";
+    /** Metric counting the messages received and not yet committed */
+    public static final String METRIC_UNCOMMITTED = "kafka.consumer.uncommitted";
+
     private final String applicationName;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, CommitMeters> partition2CommitMeters = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong uncommitted = new AtomicLong();
+    private final PartitionOffsetTracker offsetTracker = new PartitionOffsetTracker();
 
     private static final Collector<KafkaAcknowledgeResult<?>, ?, Map<Integer, Pair<Long, KafkaAcknowledgeResult<?>>>> kafkaAcknowledgeResultMapCollector =
             Collectors.groupingBy(KafkaAcknowledgeResult::partition
@@ -51,21 +89,50 @@ public abstract class BaseKafkaConsumer<T, R> {
                                     max.orElse(null))
                     ));
 
+    /** Order in which messages are processed */
+    public enum ProcessingOrder {
+        /** Processed in parallel, completed in arrival order: a slow message delays the commit of all the partitions */
+        GLOBAL,
+        /** Processed sequentially for each partition, partitions in parallel */
+        PARTITION,
+        /** Processed sequentially for each key (see {@link #getOrderingKey(Message)}), keys in parallel */
+        KEY
+    }
+
+    /** Default number of rails used by {@link ProcessingOrder#PARTITION} and {@link ProcessingOrder#KEY} */
+    protected static final int DEFAULT_PARALLELISM = 16;
+    /** Default maximum number of messages committed together */
+    protected static final int DEFAULT_COMMIT_MAX_MESSAGES = 1000;
+    /** Default number of retries of a message failing with an {@link UncommittableError} */
+    protected static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+    /** Default backoff before the first retry */
+    protected static final Duration DEFAULT_RETRY_MIN_BACKOFF = Duration.ofMillis(200);
+    /** Default upper bound of the backoff between two retries */
+    protected static final Duration DEFAULT_RETRY_MAX_BACKOFF = Duration.ofSeconds(10);
+
     protected BaseKafkaConsumer(String applicationName) {
+        this(applicationName, Metrics.globalRegistry);
+    }
+
+    protected BaseKafkaConsumer(String applicationName, MeterRegistry meterRegistry) {
         this.applicationName = applicationName;
+        this.meterRegistry = meterRegistry;
     }
 
-    record KafkaAcknowledgeResult<T> (Acknowledgment ack, Integer partition, Long offset, T result){
-        public KafkaAcknowledgeResult(Message<?> message, T result) {
+    record KafkaAcknowledgeResult<T> (Acknowledgment ack, Integer partition, Long offset, long startTime, T result){
+        public KafkaAcknowledgeResult(Message<?> message, long startTime, T result) {
             this(
                     (Acknowledgment) CommonUtilities.getHeaderValue(message, KafkaHeaders.ACKNOWLEDGMENT),
                     getMessagePartitionId(message),
                     getMessageOffset(message),
+                    startTime,
                     result
             );
         }
     }
 
+    private record CommitMeters(DistributionSummary batchSize, Timer latency) {}
+
     private static Integer getMessagePartitionId(Message<?> message) {
         return (Integer) CommonUtilities.getHeaderValue(message, KafkaHeaders.RECEIVED_PARTITION);
     }
@@ -74,32 +141,179 @@ public abstract class BaseKafkaConsumer<T, R> {
         return (Long) CommonUtilities.getHeaderValue(message, KafkaHeaders.OFFSET);
     }
 
-    /** It will ask the superclass to handle the messages, then sequentially it will acknowledge them */
-    public final void execute(Flux<Message<String>> messagesFlux) {
-        Flux<List<R>> processUntilCommits =
-                messagesFlux
-                        .flatMapSequential(this::executeAcknowledgeAware)
+    /**
+     * It will ask the superclass to handle the messages, then sequentially it will acknowledge them.
+     * Messages should be bound as {@code Message<byte[]>}, so that they are deserialized straight from the record value
+     */
+    @SuppressWarnings("unchecked")
+    public final void execute(Flux<? extends Message<?>> messagesFlux) {
+        Flux<Message<?>> messages = ((Flux<Message<?>>) messagesFlux)
+                .doOnNext(m -> uncommitted.incrementAndGet());
+        registerGauges();
+        Flux<List<R>> processUntilCommits = getProcessingOrder() == ProcessingOrder.GLOBAL
+                ? executeGlobalOrder(messages)
+                : executeOnRails(messages);
 
-                        .buffer(getCommitDelay())
-                        .map(p -> {
-                                    Map<Integer, Pair<Long, KafkaAcknowledgeResult<?>>> partition2Offsets = p.stream()
-                                            .collect(kafkaAcknowledgeResultMapCollector);
+        subscribeAfterCommits(processUntilCommits);
+    }
 
-                                    log.info("[KAFKA_COMMIT][{}] Committing {} messages: {}", getFlowName(), p.size(),
-                                            partition2Offsets.entrySet().stream()
-                                                    .map(e->"partition %d: %d - %d".formatted(e.getKey(),e.getValue().getKey(), e.getValue().getValue().offset()))
-                                                    .collect(Collectors.joining(";")));
+    private Flux<List<R>> executeGlobalOrder(Flux<Message<?>> messagesFlux) {
+        return messagesFlux
+                .limitRate(getPrefetch())
+                .flatMapSequential(m -> trackInFlight(executeAcknowledgeAware(m)), getPrefetch())
 
-                                    partition2Offsets.forEach((partition, offsets) -> Optional.ofNullable(offsets.getValue().ack()).ifPresent(Acknowledgment::acknowledge));
+                .bufferTimeout(getCommitMaxMessages(), getCommitDelay())
+                .map(p -> {
+                            Map<Integer, Pair<Long, KafkaAcknowledgeResult<?>>> partition2Offsets = p.stream()
+                                    .collect(kafkaAcknowledgeResultMapCollector);
 
-                                    return p.stream()
-                                            .map(KafkaAcknowledgeResult::result)
-                                            .filter(Objects::nonNull)
-                                            .toList();
-                                }
-                        );
+                            log.info("[KAFKA_COMMIT][{}] Committing {} messages: {}", getFlowName(), p.size(),
+                                    partition2Offsets.entrySet().stream()
+                                            .map(e->"partition %d: %d - %d".formatted(e.getKey(),e.getValue().getKey(), e.getValue().getValue().offset()))
+                                            .collect(Collectors.joining(";")));
 
-        subscribeAfterCommits(processUntilCommits);
+                            partition2Offsets.forEach((partition, offsets) -> Optional.ofNullable(offsets.getValue().ack()).ifPresent(Acknowledgment::acknowledge));
+                            uncommitted.addAndGet(-p.size());
+                            recordCommitMetrics(p);
+
+                            return toResults(p);
+                        }
+                );
+    }
+
+    private Flux<List<R>> executeOnRails(Flux<Message<?>> messagesFlux) {
+        int parallelism = getParallelism();
+        return messagesFlux
+                .limitRate(getPrefetch())
+                .doOnNext(m -> offsetTracker.received(getMessagePartitionId(m), getMessageOffset(m)))
+                .groupBy(m -> getRail(m, parallelism), getPrefetch())
+                .flatMap(rail -> rail.concatMap(m -> trackInFlight(executeAcknowledgeAware(m))), parallelism)
+                .doOnNext(r -> offsetTracker.completed(r.partition(), r.offset(), r.ack()))
+
+                .bufferTimeout(getCommitMaxMessages(), getCommitDelay())
+                .map(p -> {
+                            Map<Integer, PartitionOffsetTracker.Commit> partition2Commit = offsetTracker.committable();
+
+                            log.info("[KAFKA_COMMIT][{}] Committing {} messages: {}", getFlowName(), p.size(),
+                                    partition2Commit.entrySet().stream()
+                                            .map(e -> "partition %d: %d".formatted(e.getKey(), e.getValue().offset()))
+                                            .collect(Collectors.joining(";")));
+
+                            partition2Commit.values().forEach(c -> c.ack().acknowledge());
+                            // messages without partition or offset are not tracked, so they are not left behind
+                            long untracked = p.stream().filter(r -> r.partition() == null || r.offset() == null).count();
+                            long committed = partition2Commit.values().stream().mapToInt(PartitionOffsetTracker.Commit::messages).sum();
+                            uncommitted.addAndGet(-(untracked + committed));
+                            recordCommitMetrics(p);
+
+                            return toResults(p);
+                        }
+                );
+    }
+
+    /**
+     * To call when partitions are revoked from the consumer (see {@link RevokedPartitionsListener}): with
+     * {@link ProcessingOrder#PARTITION} and {@link ProcessingOrder#KEY} their uncommitted offsets are forgotten, since the
+     * partitions will be read again from their last commit by their new owner.
+     */
+    public void onPartitionsRevoked(Collection<Integer> partitions) {
+        int forgotten = offsetTracker.revoked(partitions);
+        if (forgotten > 0) {
+            log.info("[KAFKA_COMMIT][{}] Partitions {} revoked: {} uncommitted messages left to their new owner", getFlowName(), partitions, forgotten);
+            uncommitted.addAndGet(-forgotten);
+        }
+    }
+
+    private int getRail(Message<?> message, int parallelism) {
+        Object key = getProcessingOrder() == ProcessingOrder.KEY
+                ? getOrderingKey(message)
+                : null;
+        if (key == null) {
+            key = getMessagePartitionId(message);
+        }
+        int hash = key instanceof byte[] bytes ? Arrays.hashCode(bytes) : Objects.hashCode(key);
+        return Math.floorMod(hash, parallelism);
+    }
+
+    private <X> Mono<X> trackInFlight(Mono<X> execution) {
+        return execution
+                .doOnSubscribe(s -> inFlight.incrementAndGet())
+                .doFinally(s -> inFlight.decrementAndGet());
+    }
+
+    private void registerGauges() {
+        Gauge.builder(METRIC_IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("Messages under processing")
+                .tag("flow", getFlowName())
+                .register(meterRegistry);
+        Gauge.builder(METRIC_UNCOMMITTED, uncommitted, AtomicLong::get)
+                .description("Messages received and not yet committed")
+                .tag("flow", getFlowName())
+                .register(meterRegistry);
+    }
+
+    /** Messages under processing, to be used in order to detect a saturation (see {@link BindingBackpressureController}) */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void recordCommitMetrics(List<KafkaAcknowledgeResult<R>> p) {
+        long now = System.currentTimeMillis();
+        p.stream()
+                .filter(r -> r.partition() != null)
+                .collect(Collectors.groupingBy(KafkaAcknowledgeResult::partition, Collectors.summarizingLong(KafkaAcknowledgeResult::startTime)))
+                .forEach((partition, startTimes) -> {
+                    CommitMeters meters = partition2CommitMeters.computeIfAbsent(partition, this::buildCommitMeters);
+                    meters.batchSize().record(startTimes.getCount());
+                    meters.latency().record(now - startTimes.getMin(), TimeUnit.MILLISECONDS);
+                });
+    }
+
+    private CommitMeters buildCommitMeters(Integer partition) {
+        String flow = getFlowName();
+        String partitionTag = String.valueOf(partition);
+        return new CommitMeters(
+                DistributionSummary.builder(METRIC_COMMIT_BATCH_SIZE)
+                        .description("Messages committed for each partition")
+                        .baseUnit("messages")
+                        .tags("flow", flow, "partition", partitionTag)
+                        .register(meterRegistry),
+                Timer.builder(METRIC_COMMIT_LATENCY)
+                        .description("Time between the receipt of the oldest committed message and its commit")
+                        .tags("flow", flow, "partition", partitionTag)
+                        .register(meterRegistry));
+    }
+
+    private List<R> toResults(List<KafkaAcknowledgeResult<R>> p) {
+        return p.stream()
+                .map(KafkaAcknowledgeResult::result)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /** The maximum number of messages committed together, before {@link #getCommitDelay()} has elapsed */
+    protected int getCommitMaxMessages() {
+        return DEFAULT_COMMIT_MAX_MESSAGES;
+    }
+
+    /** The maximum number of messages requested to the binder and not yet processed */
+    protected int getPrefetch() {
+        return Queues.SMALL_BUFFER_SIZE;
+    }
+
+    /** The order in which to process messages, as default {@link ProcessingOrder#GLOBAL} */
+    protected ProcessingOrder getProcessingOrder() {
+        return ProcessingOrder.GLOBAL;
+    }
+
+    /** The number of rails processed in parallel when not using {@link ProcessingOrder#GLOBAL} */
+    protected int getParallelism() {
+        return DEFAULT_PARALLELISM;
+    }
+
+    /** The key whose messages are processed in order when using {@link ProcessingOrder#KEY}, as default the record key. Messages without a key are ordered by partition */
+    protected Object getOrderingKey(Message<?> message) {
+        return CommonUtilities.getHeaderValue(message, KafkaHeaders.RECEIVED_KEY);
     }
 
     /** The {@link Duration} to wait before to commit processed messages */
@@ -108,21 +322,22 @@ public abstract class BaseKafkaConsumer<T, R> {
     /** {@link Flux} to which subscribe in order to start its execution and eventually perform some logic on results */
     protected abstract void subscribeAfterCommits(Flux<List<R>> afterCommits2subscribe);
 
-    private Mono<KafkaAcknowledgeResult<R>> executeAcknowledgeAware(Message<String> message) {
-        KafkaAcknowledgeResult<R> defaultAck = new KafkaAcknowledgeResult<>(message, null);
+    private Mono<KafkaAcknowledgeResult<R>> executeAcknowledgeAware(Message<?> message) {
+        long startTime = System.currentTimeMillis();
+        KafkaAcknowledgeResult<R> defaultAck = new KafkaAcknowledgeResult<>(message, startTime, null);
 
         byte[] retryingApplicationName = message.getHeaders().get(KafkaConstants.ERROR_MSG_HEADER_APPLICATION_NAME, byte[].class);
         if(retryingApplicationName != null && !new String(retryingApplicationName, StandardCharsets.UTF_8).equals(this.applicationName)){
-            log.info("[{}] Discarding message due to other application retry ({}): {}", getFlowName(), retryingApplicationName,  CommonUtilities.readMessagePayload(message));
+            log.info("[{}] Discarding message due to other application retry ({}): {}", getFlowName(), retryingApplicationName, describeMessage(message));
             return Mono.just(defaultAck);
         }
 
         Map<String, Object> ctx=new HashMap<>();
-        ctx.put(CONTEXT_KEY_START_TIME, System.currentTimeMillis());
-        ctx.put(CONTEXT_KEY_MSG_ID, CommonUtilities.readMessagePayload(message));
+        ctx.put(CONTEXT_KEY_START_TIME, startTime);
+        ctx.put(CONTEXT_KEY_MSG_ID, LazyHash.of(getMessageId(message)));
 
-        return execute(message, ctx)
-                .map(r -> new KafkaAcknowledgeResult<>(message, r))
+        return Mono.defer(() -> execute(message, ctx))
+                .map(r -> new KafkaAcknowledgeResult<>(message, startTime, r))
                 .defaultIfEmpty(defaultAck)
 
                 .onErrorResume(e -> {
@@ -132,31 +347,76 @@ public abstract class BaseKafkaConsumer<T, R> {
                         return Mono.just(defaultAck);
                     }
                 })
-                .doOnNext(r -> doFinally(message, ctx))
 
+                .retryWhen(Retry.backoff(getRetryMaxAttempts(), getRetryMinBackoff())
+                        .maxBackoff(getRetryMaxBackoff())
+                        .doBeforeRetry(signal -> log.info("[{}] Retrying message (attempt {}) after error: {}",
+                                getFlowName(), signal.totalRetries() + 1, signal.failure().getMessage())))
                 .onErrorResume(e -> {
-                    log.info("Retrying after reactive pipeline error: ", e);
-                    return executeAcknowledgeAware(message);
-                });
+                    Throwable cause = Exceptions.isRetryExhausted(e) ? e.getCause() : e;
+                    log.error("[{}] Retries exhausted, the message will be committed: {}", getFlowName(), describeMessage(message), cause);
+                    return onRetriesExhausted(message, cause)
+                            .onErrorResume(notifyError -> !(notifyError instanceof UncommittableError), notifyError -> {
+                                log.error("[{}] Cannot handle exhausted message: {}", getFlowName(), describeMessage(message), notifyError);
+                                return Mono.empty();
+                            })
+                            .thenReturn(defaultAck);
+                })
+                .doOnNext(r -> doFinally(message, ctx));
+    }
+
+    /** Maximum number of retries of a message failing with an {@link UncommittableError} before {@link #onRetriesExhausted(Message, Throwable)} */
+    protected int getRetryMaxAttempts() {
+        return DEFAULT_RETRY_MAX_ATTEMPTS;
+    }
+
+    /** Backoff before the first retry, doubled at each subsequent one */
+    protected Duration getRetryMinBackoff() {
+        return DEFAULT_RETRY_MIN_BACKOFF;
     }
 
-    /** to perform some operation at the end of business logic execution, thus before to wait for commit. As default, it will perform an INFO logging with performance time */
-    protected void doFinally(Message<String> message, Map<String, Object> ctx) {
+    /** Upper bound of the backoff between two retries */
+    protected Duration getRetryMaxBackoff() {
+        return DEFAULT_RETRY_MAX_BACKOFF;
+    }
+
+    /** Invoked when a message has failed {@link #getRetryMaxAttempts()} times, before committing it; an {@link UncommittableError} prevents the commit. As default it does nothing other than logging */
+    protected Mono<Void> onRetriesExhausted(Message<?> message, Throwable error) {
+        return Mono.empty();
+    }
+
+    /** to perform some operation at the end of business logic execution, thus before to wait for commit. As default, it will record the performance time through {@link PerformanceLogger}, logging the hashed msg identifier */
+    protected void doFinally(Message<?> message, Map<String, Object> ctx) {
         Long startTime = (Long)ctx.get(CONTEXT_KEY_START_TIME);
-        String msgId = (String)ctx.get(CONTEXT_KEY_MSG_ID);
+        Object msgId = ctx.get(CONTEXT_KEY_MSG_ID);
         if(startTime != null){
             PerformanceLogger.logTiming(getFlowName(), startTime,
-                    "(partition: %s, offset: %s) %s".formatted(getMessagePartitionId(message), getMessageOffset(message), msgId));
+                    () -> "(partition: %s, offset: %s) %s".formatted(getMessagePartitionId(message), getMessageOffset(message), msgId));
         }
     }
 
+    /** Identifier of the message used for logging purpose: as default its record key, in order to not copy the payload */
+    protected String getMessageId(Message<?> message) {
+        Object key = CommonUtilities.getHeaderValue(message, KafkaHeaders.RECEIVED_KEY);
+        return key instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : Objects.toString(key, "");
+    }
+
+    /**
+     * Coordinates of the message for logging purpose, instead of its payload: partition, offset and the
+     * {@link #getMessageId(Message) message id} hashed, being the record key usually a fiscal code
+     */
+    protected String describeMessage(Message<?> message) {
+        return "(partition: %s, offset: %s, id: %s)".formatted(
+                getMessagePartitionId(message), getMessageOffset(message), LazyHash.of(getMessageId(message)));
+    }
+
     /** Name used for logging purpose */
     public String getFlowName() {
         return getClass().getSimpleName();
     }
 
     /** It will deserialize the message and then call the {@link #execute(Object, Message, Map)} method */
-    protected Mono<R> execute(Message<String> message, Map<String, Object> ctx){
+    protected Mono<R> execute(Message<?> message, Map<String, Object> ctx){
         return Mono.just(message)
                 .mapNotNull(this::deserializeMessage)
                 .flatMap(payload->execute(payload, message, ctx));
@@ -165,13 +425,13 @@ public abstract class BaseKafkaConsumer<T, R> {
     /** The {@link ObjectReader} to use in order to deserialize the input message */
     protected abstract ObjectReader getObjectReader();
     /** The action to take if the deserialization will throw an error */
-    protected abstract Consumer<Throwable> onDeserializationError(Message<String> message);
+    protected abstract Consumer<Throwable> onDeserializationError(Message<?> message);
 
     /** The function invoked in order to process the current message */
-    protected abstract Mono<R> execute(T payload, Message<String> message, Map<String, Object> ctx);
+    protected abstract Mono<R> execute(T payload, Message<?> message, Map<String, Object> ctx);
 
-    /** It will read and deserialize {@link Message#getPayload()} using the given {@link #getObjectReader()} */
-    protected T deserializeMessage(Message<String> message) {
+    /** It will deserialize {@link Message#getPayload()} using the given {@link #getObjectReader()}, reading straight from the bytes when it is a byte[] */
+    protected T deserializeMessage(Message<?> message) {
         return CommonUtilities.deserializeMessage(message, getObjectReader(),null/*onDeserializationError(message)*/);
     }
 
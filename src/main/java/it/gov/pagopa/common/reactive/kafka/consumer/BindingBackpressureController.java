@@ -0,0 +1,125 @@
+package it.gov.pagopa.common.reactive.kafka.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.binding.BindingsLifecycleController;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * It will periodically check the configured {@link SaturationProbe}s, pausing the binding as soon as one of them is saturated
+ * and resuming it once all of them have dropped below the resume ratio (lower than 1, in order to not flap around the threshold).
+ * While paused, the binder stops polling new records, so that the in-flight work towards the saturated resources can drain.
+ *
+ * <p>Published metrics, tagged by binding:</p>
+ * <ul>
+ *     <li>{@value #METRIC_PAUSED}: 1 if the binding is paused by this controller</li>
+ *     <li>{@value #METRIC_SATURATION}: last saturation of each probe, tagged by probe</li>
+ * </ul>
+ * The consumer lag of the binding is published by the Kafka binder ({@code spring.cloud.stream.binder.kafka.offset}).
+ */
+@Slf4j
+public class BindingBackpressureController {
+
+    public static final String METRIC_PAUSED = "kafka.consumer.paused";
+    public static final String METRIC_SATURATION = "kafka.consumer.saturation";
+
+    private final String bindingName;
+    private final BindingsLifecycleController bindingsLifecycleController;
+    private final Map<String, SaturationProbe> probes;
+    private final double resumeRatio;
+    private final Duration checkInterval;
+    private final Map<String, Double> saturations = new ConcurrentHashMap<>();
+
+    private volatile boolean paused;
+    private Disposable checks;
+
+    public BindingBackpressureController(String bindingName,
+                                         BindingsLifecycleController bindingsLifecycleController,
+                                         Map<String, SaturationProbe> probes,
+                                         double resumeRatio,
+                                         Duration checkInterval,
+                                         MeterRegistry meterRegistry) {
+        this.bindingName = bindingName;
+        this.bindingsLifecycleController = bindingsLifecycleController;
+        this.probes = Map.copyOf(probes);
+        this.resumeRatio = resumeRatio;
+        this.checkInterval = checkInterval;
+
+        Gauge.builder(METRIC_PAUSED, this, c -> c.paused ? 1 : 0)
+                .description("1 if the binding is paused due to downstream saturation")
+                .tag("binding", bindingName)
+                .register(meterRegistry);
+        this.probes.keySet().forEach(probe -> {
+            saturations.put(probe, 0d);
+            Gauge.builder(METRIC_SATURATION, saturations, s -> s.getOrDefault(probe, 0d))
+                    .description("Saturation of a downstream resource: 1 or more means saturated")
+                    .tags("binding", bindingName, "probe", probe)
+                    .register(meterRegistry);
+        });
+    }
+
+    /** It will start the periodic checks */
+    public synchronized void start() {
+        if (checks == null || checks.isDisposed()) {
+            checks = Flux.interval(checkInterval)
+                    .onBackpressureDrop()
+                    .subscribe(tick -> check());
+        }
+    }
+
+    /** It will stop the periodic checks, resuming the binding if paused */
+    public synchronized void stop() {
+        if (checks != null) {
+            checks.dispose();
+        }
+        if (paused) {
+            changeState(BindingsLifecycleController.State.RESUMED);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    void check() {
+        double maxSaturation = 0;
+        String mostSaturated = null;
+        for (Map.Entry<String, SaturationProbe> probe : probes.entrySet()) {
+            double saturation;
+            try {
+                saturation = probe.getValue().saturation();
+            } catch (RuntimeException e) {
+                log.warn("[KAFKA_BACKPRESSURE][{}] Cannot read probe {}", bindingName, probe.getKey(), e);
+                continue;
+            }
+            saturations.put(probe.getKey(), saturation);
+            if (saturation >= maxSaturation) {
+                maxSaturation = saturation;
+                mostSaturated = probe.getKey();
+            }
+        }
+
+        if (!paused && maxSaturation >= 1) {
+            log.warn("[KAFKA_BACKPRESSURE][{}] Pausing binding: {} saturation is {}", bindingName, mostSaturated, maxSaturation);
+            changeState(BindingsLifecycleController.State.PAUSED);
+        } else if (paused && maxSaturation < resumeRatio) {
+            log.info("[KAFKA_BACKPRESSURE][{}] Resuming binding: max saturation is {}", bindingName, maxSaturation);
+            changeState(BindingsLifecycleController.State.RESUMED);
+        }
+    }
+
+    private void changeState(BindingsLifecycleController.State state) {
+        try {
+            bindingsLifecycleController.changeState(bindingName, state);
+            paused = state == BindingsLifecycleController.State.PAUSED;
+        } catch (RuntimeException e) {
+            log.error("[KAFKA_BACKPRESSURE][{}] Cannot change binding state to {}", bindingName, state, e);
+        }
+    }
+}
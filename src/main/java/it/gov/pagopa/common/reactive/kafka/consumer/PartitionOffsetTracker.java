@@ -0,0 +1,92 @@
+package it.gov.pagopa.common.reactive.kafka.consumer;
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Tracks, for each partition, the offsets still in progress and the ones already completed, in order to
+ * commit a partition only up to its lowest unfinished offset when messages complete out of order.
+ * The offsets of a revoked partition are forgotten, and the ones of its messages still in progress are ignored once completed.
+ */
+class PartitionOffsetTracker {
+
+    private final Map<Integer, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * @param offset highest committable offset
+     * @param ack its {@link Acknowledgment}
+     * @param messages number of completed messages committed with it
+     */
+    record Commit(long offset, Acknowledgment ack, int messages) {}
+
+    private record PartitionOffsets(ConcurrentSkipListSet<Long> pending, ConcurrentSkipListMap<Long, Acknowledgment> completed) {
+        PartitionOffsets() {
+            this(new ConcurrentSkipListSet<>(), new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /** To call when a message is received, before its processing starts */
+    void received(Integer partition, Long offset) {
+        if (partition != null && offset != null) {
+            partitions.computeIfAbsent(partition, p -> new PartitionOffsets()).pending().add(offset);
+        }
+    }
+
+    /** To call when the processing of a message has ended */
+    void completed(Integer partition, Long offset, Acknowledgment ack) {
+        if (partition != null && offset != null) {
+            PartitionOffsets offsets = partitions.get(partition);
+            if (offsets == null || !offsets.pending().contains(offset)) {
+                // its partition has been revoked meanwhile
+                return;
+            }
+            // registered as completed before leaving pending, so that it is never seen as missing by committable
+            offsets.completed().put(offset, ack != null ? ack : () -> {});
+            offsets.pending().remove(offset);
+        }
+    }
+
+    /**
+     * To call when partitions are revoked: their offsets will not be committed by this consumer anymore.
+     * @return the number of messages forgotten, either in progress or completed and not committed
+     */
+    int revoked(Collection<Integer> revokedPartitions) {
+        int forgotten = 0;
+        for (Integer partition : revokedPartitions) {
+            PartitionOffsets offsets = partitions.remove(partition);
+            if (offsets != null) {
+                forgotten += offsets.pending().size() + offsets.completed().size();
+            }
+        }
+        return forgotten;
+    }
+
+    /**
+     * It will return, for each partition, the {@link Acknowledgment} of the highest completed offset preceding the lowest
+     * unfinished one, forgetting all the offsets up to it. Partitions with nothing to commit are not returned.
+     */
+    Map<Integer, Commit> committable() {
+        Map<Integer, Commit> out = new HashMap<>();
+        partitions.forEach((partition, offsets) -> {
+            Long lowestPending = offsets.pending().ceiling(Long.MIN_VALUE);
+            ConcurrentNavigableMap<Long, Acknowledgment> done = lowestPending == null
+                    ? offsets.completed()
+                    : offsets.completed().headMap(lowestPending);
+            Map.Entry<Long, Acknowledgment> last = done.lastEntry();
+            if (last != null) {
+                ConcurrentNavigableMap<Long, Acknowledgment> committed = done.headMap(last.getKey(), true);
+                int messages = committed.size();
+                committed.clear();
+                out.put(partition, new Commit(last.getKey(), last.getValue(), messages));
+            }
+        });
+        return out;
+    }
+}
@@ -0,0 +1,31 @@
+package it.gov.pagopa.common.reactive.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * It will notify the {@link BaseKafkaConsumer} bound to a binding when its partitions are revoked, so that the offsets it
+ * was tracking for them are released (see {@link BaseKafkaConsumer#onPartitionsRevoked(Collection)}).
+ * The Kafka binder uses a single {@link KafkaBindingRebalanceListener} bean, so all the bindings are registered here.
+ */
+public class RevokedPartitionsListener implements KafkaBindingRebalanceListener {
+
+    private final Map<String, BaseKafkaConsumer<?, ?>> binding2Consumer;
+
+    /** @param binding2Consumer consumers by binding name (e.g. {@code consumerName-in-0}) */
+    public RevokedPartitionsListener(Map<String, BaseKafkaConsumer<?, ?>> binding2Consumer) {
+        this.binding2Consumer = Map.copyOf(binding2Consumer);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(String bindingName, Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        BaseKafkaConsumer<?, ?> kafkaConsumer = binding2Consumer.get(bindingName);
+        if (kafkaConsumer != null) {
+            kafkaConsumer.onPartitionsRevoked(partitions.stream().map(TopicPartition::partition).toList());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package it.gov.pagopa.common.reactive.kafka.consumer;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Measures how much a downstream resource is saturated, as the ratio between its current load and the maximum accepted one:
+ * a value of 1 or more means that the resource is saturated.
+ */
+@FunctionalInterface
+public interface SaturationProbe {
+
+    double saturation();
+
+    /** A probe comparing a measured value with its maximum accepted value */
+    static SaturationProbe ofThreshold(DoubleSupplier value, double threshold) {
+        return () -> value.getAsDouble() / threshold;
+    }
+}
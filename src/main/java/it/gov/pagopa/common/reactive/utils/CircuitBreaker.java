@@ -0,0 +1,163 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Count-based circuit breaker for reactive calls towards a remote service.
+ *
+ * <ul>
+ *   <li><b>CLOSED:</b> calls are executed and their outcome is kept in a window of the last {@code slidingWindowSize}
+ *   ones. Once at least {@code minimumCalls} have been recorded, a failure rate reaching {@code failureRateThreshold}
+ *   opens the circuit.</li>
+ *   <li><b>OPEN:</b> calls fail immediately with {@link CallNotPermittedException}, for {@code openDuration}.</li>
+ *   <li><b>HALF_OPEN:</b> up to {@code halfOpenCalls} trial calls are executed: if all succeed the circuit closes,
+ *   at the first failure it opens again.</li>
+ * </ul>
+ *
+ * Only the errors matching the {@code failure} predicate are counted as failures, e.g. not the 4xx responses of a
+ * healthy service.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * @param failureRateThreshold failure rate opening the circuit, between 0 and 1
+     * @param slidingWindowSize number of recent outcomes considered
+     * @param minimumCalls outcomes needed before evaluating the failure rate
+     * @param openDuration time spent in {@link State#OPEN} before trying again
+     * @param halfOpenCalls trial calls needed to close the circuit
+     */
+    public record Settings(double failureRateThreshold, int slidingWindowSize, int minimumCalls, Duration openDuration, int halfOpenCalls) {}
+
+    /** Raised, without stack trace, when the circuit is not letting calls through */
+    public static class CallNotPermittedException extends RuntimeException {
+        public CallNotPermittedException(String name) {
+            super("Circuit breaker " + name + " is open", null, false, false);
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Predicate<Throwable> failure;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, Settings settings, Predicate<Throwable> failure) {
+        this(name, settings, failure, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, Settings settings, Predicate<Throwable> failure, LongSupplier nanoClock) {
+        this.name = name;
+        this.settings = settings;
+        this.failure = failure;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[settings.slidingWindowSize()];
+    }
+
+    /** It will subscribe {@code call} only if the circuit lets it through, recording its outcome */
+    public <T> Mono<T> execute(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(new CallNotPermittedException(name));
+            }
+            return call
+                    .doOnSuccess(v -> onResult(false))
+                    .doOnError(e -> onResult(failure.test(e)))
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && isOpenDurationElapsed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && isOpenDurationElapsed()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (halfOpenInFlight + halfOpenSucceeded < settings.halfOpenCalls()) {
+                    halfOpenInFlight++;
+                    yield true;
+                }
+                yield false;
+            }
+        };
+    }
+
+    private synchronized void onResult(boolean failed) {
+        switch (state) {
+            case CLOSED -> {
+                if (calls == outcomes.length) {
+                    failures -= outcomes[next] ? 1 : 0;
+                } else {
+                    calls++;
+                }
+                outcomes[next] = failed;
+                failures += failed ? 1 : 0;
+                next = (next + 1) % outcomes.length;
+                if (calls >= settings.minimumCalls() && (double) failures / calls >= settings.failureRateThreshold()) {
+                    transitionTo(State.OPEN);
+                }
+            }
+            case HALF_OPEN -> {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+                if (failed) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSucceeded >= settings.halfOpenCalls()) {
+                    transitionTo(State.CLOSED);
+                }
+            }
+            // outcome of a call started before the circuit opened
+            case OPEN -> { }
+        }
+    }
+
+    private synchronized void onCancel() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+        }
+    }
+
+    private boolean isOpenDurationElapsed() {
+        return nanoClock.getAsLong() - openedAt >= settings.openDuration().toNanos();
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("[CIRCUIT-BREAKER] {} from {} to {} (failures {} of {} calls)", name, state, newState, failures, calls);
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedAt = nanoClock.getAsLong();
+            case HALF_OPEN -> {
+                halfOpenInFlight = 0;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED -> {
+                next = 0;
+                calls = 0;
+                failures = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedges <strong>idempotent</strong> requests: if the response has not arrived within the configured percentile of
+ * the recent latencies, an identical request is sent and the first one answering wins.<br />
+ * The delay is recomputed from the last {@code windowSize} successful latencies and bounded by
+ * {@code [minDelay, maxDelay]}; until {@code minSamples} latencies have been recorded, {@code maxDelay} is used.
+ *
+ * <p>Once a request has answered, the other one is cancelled, and the time elapsed until its cancellation is recorded
+ * as a lower bound of its latency: the percentile stays representative of the slow responses, which would otherwise
+ * never be recorded once hedged. Cancelling the returned {@link Mono} cancels both without recording anything. An
+ * error of the first request is propagated as is, without waiting for the hedge; an error of the hedge is ignored,
+ * waiting for the first request. Retries belong outside the hedge, so that a retried request is hedged again instead
+ * of retrying each request on its own.</p>
+ */
+public class HedgedRequests {
+
+    /**
+     * @param enabled if false, requests are sent once
+     * @param percentile latency percentile used as hedging delay, between 0 and 1
+     * @param minDelay lower bound of the hedging delay
+     * @param maxDelay upper bound of the hedging delay, used until {@code minSamples} latencies are available
+     * @param windowSize number of recent latencies considered
+     * @param minSamples latencies needed before using the percentile
+     */
+    public record Settings(boolean enabled, double percentile, Duration minDelay, Duration maxDelay, int windowSize, int minSamples) {}
+
+    private final Settings settings;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final int recomputeEvery;
+
+    private final long[] latencies;
+    private int next;
+    private long recorded;
+    private volatile long delayNanos;
+    private final LongAdder hedged = new LongAdder();
+
+    public HedgedRequests(Settings settings) {
+        this.settings = settings;
+        this.minDelayNanos = settings.minDelay().toNanos();
+        this.maxDelayNanos = settings.maxDelay().toNanos();
+        this.recomputeEvery = Math.max(1, settings.windowSize() / 10);
+        this.latencies = new long[settings.windowSize()];
+        this.delayNanos = maxDelayNanos;
+    }
+
+    /** It will subscribe {@code request}, and again if the first subscription did not answer in time */
+    public <T> Mono<T> hedge(Supplier<Mono<T>> request) {
+        if (!settings.enabled()) {
+            return Mono.defer(request);
+        }
+        return Mono.defer(() -> {
+            AtomicBoolean answered = new AtomicBoolean();
+            Mono<T> first = send(request, answered)
+                    .doOnEach(signal -> answered.set(true));
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delayNanos))
+                    .doOnNext(tick -> hedged.increment())
+                    .then(send(request, answered))
+                    // an error of the hedge is ignored, waiting for the first request
+                    .onErrorResume(error -> Mono.never())
+                    .doOnEach(signal -> answered.set(true));
+            return Mono.firstWithSignal(first, hedge);
+        });
+    }
+
+    /** The current hedging delay */
+    public Duration getDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    /** Number of hedging requests sent */
+    public long getHedgedCount() {
+        return hedged.sum();
+    }
+
+    /** Number of latencies recorded */
+    synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    private <T> Mono<T> send(Supplier<Mono<T>> request, AtomicBoolean answered) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request.get()
+                    .doOnSuccess(v -> record(System.nanoTime() - start))
+                    .doOnCancel(() -> {
+                        // cancelled because the other request answered: it would have taken at least this long
+                        if (answered.get()) {
+                            record(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    synchronized void record(long latencyNanos) {
+        latencies[next] = latencyNanos;
+        next = (next + 1) % latencies.length;
+        recorded++;
+        if (recorded >= settings.minSamples() && recorded % recomputeEvery == 0) {
+            long[] sorted = Arrays.copyOf(latencies, (int) Math.min(recorded, latencies.length));
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(settings.percentile() * sorted.length);
+            delayNanos = Math.clamp(sorted[Math.clamp(rank - 1, 0, sorted.length - 1)], minDelayNanos, maxDelayNanos);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import it.gov.pagopa.common.utils.DecayingAverage;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the latency of the monitored operations as an exponentially weighted average, so that it follows the
+ * recent trend.<br />
+ * The average also decays while no operation is monitored: when the operations stop (e.g. because they have been
+ * paused due to the latency itself), it drops towards 0 instead of keeping its last value.
+ */
+public class LatencyMonitor {
+
+    /** Weight of the last sample inside the average */
+    private static final double ALPHA = 0.2;
+    /** Time after which the average halves, if no operation is monitored */
+    public static final Duration DEFAULT_IDLE_HALF_LIFE = Duration.ofSeconds(5);
+
+    private final DecayingAverage averageMillis;
+
+    public LatencyMonitor() {
+        this(DEFAULT_IDLE_HALF_LIFE);
+    }
+
+    public LatencyMonitor(Duration idleHalfLife) {
+        this.averageMillis = new DecayingAverage(ALPHA, idleHalfLife);
+    }
+
+    /** It will record the time elapsed between the subscription of the given {@link Mono} and its termination */
+    public <T> Mono<T> monitor(Mono<T> operation) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return operation.doFinally(signal -> record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /** It will record a latency sample */
+    public void record(long elapsed, TimeUnit unit) {
+        averageMillis.record(unit.toNanos(elapsed) / 1_000_000d);
+    }
+
+    /** The average latency */
+    public double getAverageMillis() {
+        return averageMillis.get();
+    }
+}
@@ -1,24 +1,64 @@
 package it.gov.pagopa.common.reactive.utils;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Records the elapsed time of a flow into the {@value #METRIC_TIMING} {@link Timer}, tagged by flow name, publishing
+ * percentiles, a percentile histogram and the configured SLO buckets.<br />
+ * The {@code [PERFORMANCE_LOG]} line is optional and sampled: see {@link #configure(Settings)}.
+ */
 @Slf4j
 public class PerformanceLogger {
 
+    public static final String METRIC_TIMING = "performance.timing";
+    public static final String TAG_FLOW = "flow";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static volatile Settings settings = Settings.DEFAULT;
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
     private PerformanceLogger(){}
 
+    /**
+     * @param meterRegistry registry where the timers are registered
+     * @param logEnabled if the {@code [PERFORMANCE_LOG]} line has to be written
+     * @param logSampleRate fraction of the timings to log, between 0 and 1
+     * @param slos SLO buckets published by each timer
+     */
+    public record Settings(MeterRegistry meterRegistry, boolean logEnabled, double logSampleRate, List<Duration> slos) {
+        /** Used until {@link #configure(Settings)} is called: timers on the global registry, every timing logged */
+        public static final Settings DEFAULT = new Settings(Metrics.globalRegistry, true, 1.0, List.of());
+    }
+
+    /** It will replace the current settings, registering again the timers on their next use */
+    public static void configure(Settings newSettings) {
+        settings = newSettings;
+        timers.clear();
+    }
+
 //region Mono ops
     public static <T> Mono<T> logTimingOnNext(String flowName, Mono<T> publisher, Function<T, String> data2LogPayload){
         return logTimingOnNext(flowName, System.currentTimeMillis(), publisher, data2LogPayload);
     }
     public static <T> Mono<T> logTimingOnNext(String flowName, long startTime, Mono<T> publisher, Function<T, String> data2LogPayload){
         return publisher
-                .doOnNext(x -> logTiming(flowName, startTime, data2LogPayload!=null? data2LogPayload.apply(x) : ""));
+                .doOnNext(x -> logTiming(flowName, startTime, () -> data2LogPayload!=null? data2LogPayload.apply(x) : ""));
     }
 
     public static <T> Mono<T> logTimingFinally(String flowName, Mono<T> publisher, String logPayload){
@@ -36,7 +76,7 @@ public class PerformanceLogger {
     }
     public static <T> Flux<T> logTimingOnNext(String flowName, long startTime, Flux<T> publisher, Function<T, String> data2LogPayload){
         return publisher
-                .doOnNext(x -> logTiming(flowName, startTime, data2LogPayload!=null? data2LogPayload.apply(x) : ""));
+                .doOnNext(x -> logTiming(flowName, startTime, () -> data2LogPayload!=null? data2LogPayload.apply(x) : ""));
     }
 
     public static <T> Flux<T> logTimingFinally(String flowName, Flux<T> publisher, String logPayload){
@@ -49,6 +89,31 @@ public class PerformanceLogger {
 //endregion
 
     public static void logTiming(String flowName, long startTime, String logPayload){
-        log.info("[PERFORMANCE_LOG] [{}] Time occurred to perform business logic: {} ms {}", flowName, System.currentTimeMillis() - startTime, logPayload);
+        logTiming(flowName, startTime, () -> logPayload);
+    }
+
+    /** The payload is built only if the timing is going to be logged */
+    public static void logTiming(String flowName, long startTime, Supplier<String> logPayload){
+        long elapsed = System.currentTimeMillis() - startTime;
+        Settings current = settings;
+        getTimer(flowName, current).record(elapsed, TimeUnit.MILLISECONDS);
+        if (isSampled(current)) {
+            log.info("[PERFORMANCE_LOG] [{}] Time occurred to perform business logic: {} ms {}", flowName, elapsed, logPayload.get());
+        }
+    }
+
+    private static Timer getTimer(String flowName, Settings current) {
+        return timers.computeIfAbsent(flowName, f -> Timer.builder(METRIC_TIMING)
+                .description("Time occurred to perform business logic")
+                .tag(TAG_FLOW, f)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(current.slos().toArray(Duration[]::new))
+                .register(current.meterRegistry()));
+    }
+
+    private static boolean isSampled(Settings current) {
+        return current.logEnabled()
+                && (current.logSampleRate() >= 1.0 || ThreadLocalRandom.current().nextDouble() < current.logSampleRate());
     }
 }
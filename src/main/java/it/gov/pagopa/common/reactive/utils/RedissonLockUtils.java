@@ -0,0 +1,56 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <p>Runs reactive tasks under a Redisson distributed lock without blocking.</p>
+ *
+ * <p>The lock is acquired and released with an explicit owner id instead of the current thread
+ * id, so the release does not depend on the thread the reactive chain completes on and no
+ * {@code .block()} is needed.</p>
+ */
+@Slf4j
+public final class RedissonLockUtils {
+
+    private RedissonLockUtils() {}
+
+    /**
+     * <p>Runs {@code task} if the lock is free, releasing it on completion, error or cancellation.</p>
+     *
+     * @param redissonClient reactive Redisson client
+     * @param lockName lock name
+     * @param leaseTime lock lease, {@code -1} to keep it alive with the Redisson watchdog
+     * @param unit lease unit
+     * @param task task to run while holding the lock
+     * @return the task result, empty if another instance holds the lock
+     * @param <T> result type
+     */
+    public static <T> Mono<T> runExclusively(RedissonReactiveClient redissonClient, String lockName,
+                                             long leaseTime, TimeUnit unit, Supplier<Mono<T>> task) {
+        RLockReactive lock = redissonClient.getLock(lockName);
+        long lockOwnerId = ThreadLocalRandom.current().nextLong();
+
+        return lock.tryLock(0, leaseTime, unit, lockOwnerId)
+                .flatMap(acquired -> {
+                    if (Boolean.FALSE.equals(acquired)) {
+                        log.info("[DISTRIBUTED-LOCK] Lock {} held by another instance, skipping.", lockName);
+                        return Mono.empty();
+                    }
+                    return Mono.usingWhen(Mono.just(lock),
+                            l -> task.get(),
+                            l -> l.unlock(lockOwnerId)
+                                    .doOnSuccess(v -> log.info("[DISTRIBUTED-LOCK] Lock {} released.", lockName))
+                                    .onErrorResume(error -> {
+                                        log.error("[DISTRIBUTED-LOCK] Failed to release lock {}: {}", lockName, error.getMessage(), error);
+                                        return Mono.empty();
+                                    }));
+                });
+    }
+}
@@ -0,0 +1,52 @@
+package it.gov.pagopa.common.utils;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Exponentially weighted average of the recorded samples which also decays with time: while no sample arrives, it
+ * halves every {@code idleHalfLife}, dropping towards 0.<br />
+ * A plain weighted average changes only when a new sample arrives, so a probe whose samples stop (e.g. because the
+ * work producing them has been paused) would keep reporting its last value forever.
+ */
+public class DecayingAverage {
+
+    private final double alpha;
+    private final double idleHalfLifeNanos;
+    private final LongSupplier nanoClock;
+
+    private double value;
+    private long updatedAt;
+
+    /**
+     * @param alpha weight of the last sample inside the average
+     * @param idleHalfLife time after which the average halves, if no sample arrives
+     */
+    public DecayingAverage(double alpha, Duration idleHalfLife) {
+        this(alpha, idleHalfLife, System::nanoTime);
+    }
+
+    public DecayingAverage(double alpha, Duration idleHalfLife, LongSupplier nanoClock) {
+        this.alpha = alpha;
+        this.idleHalfLifeNanos = idleHalfLife.toNanos();
+        this.nanoClock = nanoClock;
+        this.updatedAt = nanoClock.getAsLong();
+    }
+
+    /** It will record a sample */
+    public synchronized void record(double sample) {
+        long now = nanoClock.getAsLong();
+        double current = decayed(now);
+        value = current + alpha * (sample - current);
+        updatedAt = now;
+    }
+
+    /** The average, decayed since the last sample */
+    public synchronized double get() {
+        return decayed(nanoClock.getAsLong());
+    }
+
+    private double decayed(long now) {
+        return value * Math.pow(0.5, Math.max(0, now - updatedAt) / idleHalfLifeNanos);
+    }
+}
@@ -0,0 +1,35 @@
+package it.gov.pagopa.common.utils;
+
+/**
+ * SHA-256 of a value (typically a fiscal code) computed on its first use and then reused.<br />
+ * Meant to be passed as a logging argument: the logger calls {@link #toString()} only if the level is enabled, so a
+ * request creating one instance hashes its fiscal code at most once, and never when nothing is logged.
+ */
+public final class LazyHash {
+
+    private final String value;
+    /** Not volatile: concurrent first uses can only compute the same immutable String */
+    private String hash;
+
+    private LazyHash(String value) {
+        this.value = value;
+    }
+
+    public static LazyHash of(String value) {
+        return new LazyHash(value);
+    }
+
+    public String get() {
+        String result = hash;
+        if (result == null) {
+            result = value == null ? "null" : Utils.createSHA256(value);
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return get();
+    }
+}
@@ -10,26 +10,35 @@ import java.security.NoSuchAlgorithmException;
 @Slf4j
 public class Utils {
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /** {@link MessageDigest} is not thread safe: each thread reuses its own instance, reset by every {@link MessageDigest#digest(byte[])} */
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(Utils::newSha256Digest);
+
     private Utils(){}
+
+    /** It will return the lowercase hex SHA-256 of the UTF-8 bytes of the input. To log a fiscal code prefer {@link LazyHash} */
     public static String createSHA256(String fiscalCode)  {
+        return toHex(SHA256_DIGEST.get().digest(fiscalCode.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest newSha256Digest() {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash = md.digest(fiscalCode.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder(2 * encodedhash.length);
-            for (byte b : encodedhash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
-                log.info("Something went wrong creating SHA256");
+            log.info("Something went wrong creating SHA256");
             throw new EmdEncryptionException("Something went wrong creating SHA256",true,e);
         }
     }
 
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
     public static String inputSanitization(String message){
         if (message != null)
             return message.replace("\n", " ").replace("\r", " ");
@@ -18,7 +18,16 @@ public class ClientException extends RuntimeException {
 
   public ClientException(
       HttpStatus httpStatus, String message, boolean printStackTrace, Throwable ex) {
-    super(message, ex);
+    this(httpStatus, message, printStackTrace, ex, true);
+  }
+
+  /**
+   * @param writableStackTrace when false the stack trace is neither filled nor stored: meant for expected,
+   *                           high-frequency outcomes (e.g. 404 on lookups), where it would only cost CPU and heap
+   */
+  protected ClientException(
+      HttpStatus httpStatus, String message, boolean printStackTrace, Throwable ex, boolean writableStackTrace) {
+    super(message, ex, true, writableStackTrace);
     this.httpStatus = httpStatus;
     this.printStackTrace = printStackTrace;
   }
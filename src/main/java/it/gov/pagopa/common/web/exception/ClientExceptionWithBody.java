@@ -17,7 +17,16 @@ public class ClientExceptionWithBody extends ClientException {
   }
 
   public ClientExceptionWithBody(HttpStatus httpStatus, String code, String message, boolean printStackTrace, Throwable ex){
-    super(httpStatus, message, printStackTrace, ex);
+    this(httpStatus, code, message, printStackTrace, ex, true);
+  }
+
+  protected ClientExceptionWithBody(HttpStatus httpStatus, String code, String message, boolean printStackTrace, Throwable ex, boolean writableStackTrace){
+    super(httpStatus, message, printStackTrace, ex, writableStackTrace);
     this.code = code;
   }
+
+  /** A {@link ClientExceptionWithBody} without stack trace, for expected outcomes such as not found resources */
+  public static ClientExceptionWithBody stackless(HttpStatus httpStatus, String code, String message){
+    return new ClientExceptionWithBody(httpStatus, code, message, false, null, false);
+  }
 }
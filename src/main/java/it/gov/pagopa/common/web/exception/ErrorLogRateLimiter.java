@@ -0,0 +1,86 @@
+package it.gov.pagopa.common.web.exception;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the error log entries written for the same key (exception type and route) to {@code maxPerWindow} each
+ * {@code window}, counting the suppressed ones until {@link #drainSuppressed()} reports them.<br />
+ * At most {@code maxKeys} keys are tracked: further keys share the {@value #OVERFLOW_KEY} one.
+ */
+public class ErrorLogRateLimiter {
+
+  public static final String OVERFLOW_KEY = "OTHER";
+
+  private final int maxPerWindow;
+  private final long windowNanos;
+  private final int maxKeys;
+  private final LongSupplier nanoClock;
+  private final Map<String, KeyState> states = new ConcurrentHashMap<>();
+
+  public ErrorLogRateLimiter(int maxPerWindow, Duration window, int maxKeys) {
+    this(maxPerWindow, window, maxKeys, System::nanoTime);
+  }
+
+  ErrorLogRateLimiter(int maxPerWindow, Duration window, int maxKeys, LongSupplier nanoClock) {
+    this.maxPerWindow = maxPerWindow;
+    this.windowNanos = window.toNanos();
+    this.maxKeys = maxKeys;
+    this.nanoClock = nanoClock;
+  }
+
+  private static final class KeyState {
+    private long windowStart;
+    private int logged;
+    private long suppressed;
+
+    private KeyState(long windowStart) {
+      this.windowStart = windowStart;
+    }
+  }
+
+  /** @return true if the entry identified by {@code key} has to be logged, false if it has been counted as suppressed */
+  public boolean tryAcquire(String key) {
+    long now = nanoClock.getAsLong();
+    KeyState state = states.get(key);
+    if (state == null) {
+      String trackedKey = states.size() < maxKeys ? key : OVERFLOW_KEY;
+      state = states.computeIfAbsent(trackedKey, k -> new KeyState(now));
+    }
+    synchronized (state) {
+      if (now - state.windowStart >= windowNanos) {
+        state.windowStart = now;
+        state.logged = 0;
+      }
+      if (state.logged < maxPerWindow) {
+        state.logged++;
+        return true;
+      }
+      state.suppressed++;
+      return false;
+    }
+  }
+
+  /**
+   * It will return the entries suppressed for each key since the previous call, resetting them.<br />
+   * Keys without suppressed entries whose window has expired are forgotten.
+   */
+  public Map<String, Long> drainSuppressed() {
+    long now = nanoClock.getAsLong();
+    Map<String, Long> out = new LinkedHashMap<>();
+    states.forEach((key, state) -> {
+      synchronized (state) {
+        if (state.suppressed > 0) {
+          out.put(key, state.suppressed);
+          state.suppressed = 0;
+        } else if (now - state.windowStart >= windowNanos) {
+          states.remove(key, state);
+        }
+      }
+    });
+    return out;
+  }
+}
@@ -1,5 +1,7 @@
 package it.gov.pagopa.common.web.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import it.gov.pagopa.common.web.dto.ErrorDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -7,50 +9,106 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+/**
+ * Translates the unhandled {@link RuntimeException} into error responses.<br />
+ * Error bodies are serialized once and then reused: the default one at construction, the ones of
+ * {@link ClientExceptionWithBody} at their first use (up to {@value #MAX_CACHED_BODIES} distinct code and message pairs).<br />
+ * Log entries are limited to {@value #ERROR_LOG_MAX_PER_WINDOW} per minute for each exception type and route,
+ * the suppressed ones being summarized every {@code app.errorLog.summaryIntervalMs}.
+ */
 @RestControllerAdvice
 @Slf4j
 public class ErrorManager {
-  private final ErrorDTO defaultErrorDTO;
+
+  private static final Pattern FISCAL_CODE_PATTERN =
+          Pattern.compile("([A-Z]{6}[0-9LMNPQRSTUV]{2}[ABCDEHLMPRST][0-9LMNPQRSTUV]{2}[A-Z][0-9LMNPQRSTUV]{3}[A-Z])");
+  private static final String FISCAL_CODE_MASK = "******";
+
+  static final int ERROR_LOG_MAX_PER_WINDOW = 10;
+  private static final ErrorLogRateLimiter ERROR_LOG_RATE_LIMITER =
+          new ErrorLogRateLimiter(ERROR_LOG_MAX_PER_WINDOW, Duration.ofMinutes(1), 1000);
+
+  static final int MAX_CACHED_BODIES = 256;
+  private static final ObjectMapper ERROR_BODY_MAPPER = new ObjectMapper();
+
+  private final byte[] defaultErrorBody;
+  private final Map<ErrorDTO, byte[]> errorBodies = new ConcurrentHashMap<>();
 
   public ErrorManager(@Nullable ErrorDTO defaultErrorDTO) {
-    this.defaultErrorDTO = Optional.ofNullable(defaultErrorDTO)
-            .orElse(new ErrorDTO("Error", "Something gone wrong"));
+    this.defaultErrorBody = serializeErrorBody(Optional.ofNullable(defaultErrorDTO)
+            .orElse(new ErrorDTO("Error", "Something gone wrong")));
   }
 
   @ExceptionHandler(RuntimeException.class)
-  protected ResponseEntity<ErrorDTO> handleException(RuntimeException error, ServerHttpRequest request) {
+  protected ResponseEntity<byte[]> handleException(RuntimeException error, ServerHttpRequest request) {
 
     logClientException(error, request);
 
     if(error instanceof ClientExceptionNoBody clientExceptionNoBody){
       return ResponseEntity.status(clientExceptionNoBody.getHttpStatus()).build();
     }
+    else if (error instanceof ClientExceptionWithBody clientExceptionWithBody){
+      return jsonResponse(clientExceptionWithBody.getHttpStatus(),
+              getErrorBody(new ErrorDTO(clientExceptionWithBody.getCode(), error.getMessage())));
+    }
     else {
-      ErrorDTO errorDTO;
-      HttpStatus httpStatus;
-      if (error instanceof ClientExceptionWithBody clientExceptionWithBody){
-        httpStatus=clientExceptionWithBody.getHttpStatus();
-        errorDTO = new ErrorDTO(clientExceptionWithBody.getCode(),  error.getMessage());
-      }
-      else {
-        httpStatus=HttpStatus.INTERNAL_SERVER_ERROR;
-        errorDTO = defaultErrorDTO;
+      return jsonResponse(HttpStatus.INTERNAL_SERVER_ERROR, defaultErrorBody);
+    }
+  }
+
+  private byte[] getErrorBody(ErrorDTO errorDTO) {
+    byte[] body = errorBodies.get(errorDTO);
+    if (body == null) {
+      body = serializeErrorBody(errorDTO);
+      if (errorBodies.size() < MAX_CACHED_BODIES) {
+        errorBodies.putIfAbsent(errorDTO, body);
       }
-      return ResponseEntity.status(httpStatus)
-              .contentType(MediaType.APPLICATION_JSON)
-              .body(errorDTO);
     }
+    return body;
   }
+
+  /** It will serialize an error body, to be sent through {@link #jsonResponse(HttpStatus, byte[])} */
+  public static byte[] serializeErrorBody(ErrorDTO errorDTO) {
+    try {
+      return ERROR_BODY_MAPPER.writeValueAsBytes(errorDTO);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize error body " + errorDTO, e);
+    }
+  }
+
+  public static ResponseEntity<byte[]> jsonResponse(HttpStatus httpStatus, byte[] body) {
+    return ResponseEntity.status(httpStatus)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+  }
+
+  /** Logs how many error entries have been suppressed for each exception type and route since the previous summary */
+  @Scheduled(fixedDelayString = "${app.errorLog.summaryIntervalMs:60000}",
+          initialDelayString = "${app.errorLog.summaryIntervalMs:60000}")
+  public void logSuppressedErrors() {
+    ERROR_LOG_RATE_LIMITER.drainSuppressed().forEach((key, suppressed) ->
+            log.warn("[ERROR_LOG_SUMMARY] Suppressed {} log entries of {}", suppressed, key));
+  }
+
   public static void logClientException(RuntimeException error, ServerHttpRequest request) {
     Throwable unwrappedException = error.getCause() instanceof ServiceException
             ? error.getCause()
             : error;
 
+    if (!ERROR_LOG_RATE_LIMITER.tryAcquire(getErrorLogKey(unwrappedException, request))) {
+      return;
+    }
+
     String clientExceptionMessage = "";
     if(error instanceof ClientException clientException) {
       clientExceptionMessage = ": HttpStatus %s - %s%s".formatted(
@@ -90,14 +148,16 @@ public class ErrorManager {
     * @return a formatted {@link String} as "METHOD URI", with sensitive data obscured.
     */
   public static String getRequestDetails(ServerHttpRequest request) {
-    String uri = request.getURI().toString();
+    return request.getMethod() + " " + maskFiscalCodes(request.getURI().toString());
+  }
 
-    // Regex for Italian Fiscal Code (handles standard and homocode variants)
-    String fiscalCodeRegex = "([A-Z]{6}[0-9LMNPQRSTUV]{2}[ABCDEHLMPRST][0-9LMNPQRSTUV]{2}[A-Z][0-9LMNPQRSTUV]{3}[A-Z])";
+  /** Replaces the Italian Fiscal Codes (standard and homocode variants) with {@code ******} */
+  static String maskFiscalCodes(String value) {
+    return FISCAL_CODE_PATTERN.matcher(value).replaceAll(FISCAL_CODE_MASK);
+  }
 
-    // Masking sensitive occurrences
-    String maskedUri = uri.replaceAll(fiscalCodeRegex, "******");
-    
-    return "%s %s".formatted(request.getMethod(), maskedUri);
+  /** The exception type and the masked route, so that the requests of different citizens share the same key */
+  static String getErrorLogKey(Throwable error, ServerHttpRequest request) {
+    return error.getClass().getName() + " " + request.getMethod() + " " + maskFiscalCodes(request.getPath().value());
   }
 }
@@ -27,7 +27,7 @@ public class ServiceExceptionHandler {
 
   @SuppressWarnings("squid:S1452")
   @ExceptionHandler(ServiceException.class)
-  protected ResponseEntity<? extends ServiceExceptionPayload> handleException(ServiceException error, ServerHttpRequest request) {
+  protected ResponseEntity<?> handleException(ServiceException error, ServerHttpRequest request) {
     if (null != error.getPayload()) {
       return handleBodyProvidedException(error, request);
     }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.lang.Nullable;
 import org.springframework.validation.FieldError;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.reactive.resource.NoResourceFoundException;
 import org.springframework.web.server.MissingRequestValueException;
 
@@ -24,10 +26,13 @@ import java.util.stream.Collectors;
 public class ValidationExceptionHandler {
 
     private final ErrorDTO templateValidationErrorDTO;
+    /** {@link #templateValidationErrorDTO} serialized once, being returned unchanged */
+    private final byte[] templateValidationErrorBody;
 
     public ValidationExceptionHandler(@Nullable ErrorDTO templateValidationErrorDTO) {
         this.templateValidationErrorDTO = Optional.ofNullable(templateValidationErrorDTO)
                 .orElse(new ErrorDTO("INVALID_REQUEST", "Invalid request"));
+        this.templateValidationErrorBody = ErrorManager.serializeErrorBody(this.templateValidationErrorDTO);
     }
 
     @ExceptionHandler(WebExchangeBindException.class)
@@ -50,24 +55,34 @@ public class ValidationExceptionHandler {
     }
 
     @ExceptionHandler(MissingRequestValueException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorDTO handleMissingRequestValueException(MissingRequestValueException e, ServerHttpRequest request) {
+    public ResponseEntity<byte[]> handleMissingRequestValueException(MissingRequestValueException e, ServerHttpRequest request) {
 
         log.info("A MissingRequestValueException occurred handling request {}: HttpStatus 400 - {}",
                 ErrorManager.getRequestDetails(request), e.getMessage());
         log.debug("Something went wrong due to a missing request value", e);
 
-        return new ErrorDTO(templateValidationErrorDTO.getCode(), templateValidationErrorDTO.getMessage());
+        return ErrorManager.jsonResponse(HttpStatus.BAD_REQUEST, templateValidationErrorBody);
+    }
+
+    /** The rejected values are not echoed back nor logged, as they may be fiscal codes */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<byte[]> handleHandlerMethodValidationException(HandlerMethodValidationException e, ServerHttpRequest request) {
+
+        log.info("A HandlerMethodValidationException occurred handling request {}: HttpStatus 400 - {} invalid parameter(s)",
+                ErrorManager.getRequestDetails(request), e.getParameterValidationResults().size());
+        log.debug("Something went wrong while validating the handler method parameters", e);
+
+        return ErrorManager.jsonResponse(HttpStatus.BAD_REQUEST, templateValidationErrorBody);
     }
+
     @ExceptionHandler(NoResourceFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ErrorDTO handleNoResourceFoundException(NoResourceFoundException e, ServerHttpRequest request) {
+    public ResponseEntity<byte[]> handleNoResourceFoundException(NoResourceFoundException e, ServerHttpRequest request) {
 
         log.info("A NoResourceFoundException occurred handling request {}: HttpStatus 400 - {}",
                 ErrorManager.getRequestDetails(request), e.getMessage());
         log.debug("Something went wrong due to a missing request value", e);
 
-        return new ErrorDTO(templateValidationErrorDTO.getCode(), templateValidationErrorDTO.getMessage());
+        return ErrorManager.jsonResponse(HttpStatus.NOT_FOUND, templateValidationErrorBody);
     }
 
 }
@@ -0,0 +1,59 @@
+package it.gov.pagopa.onboarding.citizen.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import java.time.Duration;
+
+/**
+ * <p>Multi-document transactions used by the {@code citizen_consent_outbox}, created only when
+ * <code>app.citizen.outbox.enabled</code> is set.</p>
+ *
+ * <p>Transactions require a replica set or a sharded cluster (on Cosmos DB, the MongoDB API 4.0 or later): the
+ * server is checked with {@code hello} at startup, and the application refuses to start on a standalone one rather
+ * than failing every consent write.</p>
+ *
+ * @see it.gov.pagopa.onboarding.citizen.service.CitizenConsentOutboxServiceImpl
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.citizen.outbox.enabled", havingValue = "true")
+@Slf4j
+public class CitizenConsentOutboxConfig {
+
+    private static final Duration HELLO_TIMEOUT = Duration.ofSeconds(30);
+    private static final String MONGOS = "isdbgrid";
+
+    /** The repositories join the transactions through the reactive context */
+    @Bean
+    public ReactiveMongoTransactionManager reactiveMongoTransactionManager(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory,
+                                                                           ReactiveMongoTemplate reactiveMongoTemplate) {
+        requireTransactions(reactiveMongoTemplate.executeCommand(new Document("hello", 1)).block(HELLO_TIMEOUT));
+        return new ReactiveMongoTransactionManager(reactiveMongoDatabaseFactory);
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator(ReactiveTransactionManager reactiveMongoTransactionManager) {
+        return TransactionalOperator.create(reactiveMongoTransactionManager);
+    }
+
+    /**
+     * <p>Checks the {@code hello} response of a replica set member ({@code setName}) or of a {@code mongos}.</p>
+     *
+     * @throws IllegalStateException if the server does not support transactions
+     */
+    static void requireTransactions(Document hello) {
+        if (hello == null || (hello.get("setName") == null && !MONGOS.equals(hello.get("msg")))) {
+            throw new IllegalStateException("The citizen consent outbox (app.citizen.outbox.enabled) requires MongoDB "
+                    + "transactions, not supported by a standalone server: use a replica set or disable the outbox");
+        }
+        log.info("[EMD-CITIZEN][OUTBOX] MongoDB transactions available");
+    }
+}
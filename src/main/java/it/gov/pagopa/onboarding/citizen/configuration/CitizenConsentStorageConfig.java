@@ -0,0 +1,24 @@
+package it.gov.pagopa.onboarding.citizen.configuration;
+
+import it.gov.pagopa.common.configuration.MongoConverterContributor;
+import it.gov.pagopa.onboarding.citizen.model.converter.CitizenConsentDTOReadConverter;
+import it.gov.pagopa.onboarding.citizen.model.converter.CitizenConsentReadConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * <p>Registers the {@code citizen_consents} storage converters: the domain one and the read-only
+ * projection into the response DTO.</p>
+ *
+ * @see it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout
+ */
+@Configuration
+public class CitizenConsentStorageConfig {
+
+    @Bean
+    public MongoConverterContributor citizenConsentConverters() {
+        return () -> List.of(new CitizenConsentReadConverter(), new CitizenConsentDTOReadConverter());
+    }
+}
@@ -0,0 +1,123 @@
+package it.gov.pagopa.onboarding.citizen.configuration;
+
+import it.gov.pagopa.common.mongo.index.MongoIndexContributor;
+import it.gov.pagopa.common.mongo.index.RequiredMongoIndex;
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.index.WildcardIndex;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Declares the indexes the citizen repositories rely on.</p>
+ *
+ * <p><b>citizen_consents</b></p>
+ * <pre>
+ * db.citizen_consents.createIndex({ "fiscalCode": 1 }, { unique: true, name: "fiscalCode_unique" })
+ * db.citizen_consents.createIndex({ "consents.tppId": 1, "consents.tppState": 1 }, { name: "consents_tppId_tppState" })
+ * db.citizen_consents.createIndex({ "consents.$**": 1 }, { name: "consents_wildcard" })
+ * db.citizen_consents.createIndex({ "enabledConsentCount": 1, "fiscalCode": 1 },
+ *   { partialFilterExpression: { "enabledConsentCount": { "$gt": 0 } }, name: "enabledConsentCount_fiscalCode_active" })
+ * </pre>
+ * <p>The multikey index serves the v2 array layout; the wildcard index serves the per-TPP paths
+ * ({@code consents.<tppId>.tppState}) of the v1 map layout and can be disabled with
+ * {@code app.consents.storage.wildcardIndex=false} once every document is migrated to v2; being a
+ * transitional index, it never fails readiness. The partial index only holds active citizens and covers
+ * the Bloom Filter population query.</p>
+ *
+ * <p><b>tpp_citizen_index</b></p>
+ * <pre>
+ * db.tpp_citizen_index.createIndex({ "fiscalCode": 1, "tppId": 1 }, { unique: true, name: "fiscalCode_tppId_unique" })
+ * db.tpp_citizen_index.createIndex({ "tppId": 1, "tppState": 1, "fiscalCode": 1 }, { name: "tppId_tppState_fiscalCode" })
+ * </pre>
+ * <p>Required for readiness only when the reverse index is written or read ({@code app.tppCitizenIndex.writeEnabled}
+ * or {@code app.tppCitizenIndex.readEnabled}).</p>
+ *
+ * <p><b>citizen_consent_outbox</b></p>
+ * <pre>
+ * db.citizen_consent_outbox.createIndex({ "publishedAt": 1, "eventDate": 1 }, { name: "publishedAt_eventDate" })
+ * db.citizen_consent_outbox.createIndex({ "publishedAt": 1 }, { expireAfterSeconds: &lt;retention&gt;, name: "publishedAt_ttl" })
+ * </pre>
+ * <p>The compound index serves the relay query on unpublished events; the TTL index removes published
+ * events after {@code app.citizen.outbox.retentionHours}, pending ones ({@code publishedAt: null}) never expire.
+ * Required for readiness only when {@code app.citizen.outbox.enabled} is set.</p>
+ *
+ * <p>Indexes not required for readiness are created and reported all the same.</p>
+ *
+ * @see it.gov.pagopa.common.mongo.index.MongoIndexBootstrap
+ */
+@Configuration
+public class CitizenMongoIndexesConfig {
+
+    private static final String CITIZEN_CONSENTS = "citizen_consents";
+    private static final String TPP_CITIZEN_INDEX = "tpp_citizen_index";
+    private static final String CITIZEN_CONSENT_OUTBOX = "citizen_consent_outbox";
+    private static final String PUBLISHED_AT = "publishedAt";
+
+    private static final String FISCAL_CODE = ConsentStorageLayout.FISCAL_CODE;
+    private static final String CONSENTS = ConsentStorageLayout.CONSENTS;
+    private static final String TPP_ID = ConsentStorageLayout.TPP_ID;
+    private static final String TPP_STATE = ConsentStorageLayout.TPP_STATE;
+    private static final String ENABLED_CONSENT_COUNT = ConsentStorageLayout.ENABLED_CONSENT_COUNT;
+
+    @Bean
+    public MongoIndexContributor citizenConsentIndexes(@Value("${app.consents.storage.wildcardIndex:true}") boolean wildcardIndex) {
+        List<RequiredMongoIndex> indexes = new ArrayList<>(List.of(
+                new RequiredMongoIndex(CITIZEN_CONSENTS, new Index()
+                        .on(FISCAL_CODE, Sort.Direction.ASC)
+                        .unique()
+                        .named("fiscalCode_unique")),
+                new RequiredMongoIndex(CITIZEN_CONSENTS, new Index()
+                        .on(CONSENTS + "." + TPP_ID, Sort.Direction.ASC)
+                        .on(CONSENTS + "." + TPP_STATE, Sort.Direction.ASC)
+                        .named("consents_tppId_tppState")),
+                new RequiredMongoIndex(CITIZEN_CONSENTS, new Index()
+                        .on(ENABLED_CONSENT_COUNT, Sort.Direction.ASC)
+                        .on(FISCAL_CODE, Sort.Direction.ASC)
+                        .partial(PartialIndexFilter.of(Criteria.where(ENABLED_CONSENT_COUNT).gt(0)))
+                        .named("enabledConsentCount_fiscalCode_active"))));
+        if (wildcardIndex) {
+            indexes.add(new RequiredMongoIndex(CITIZEN_CONSENTS, new WildcardIndex(CONSENTS).named("consents_wildcard"), false));
+        }
+        return () -> indexes;
+    }
+
+    @Bean
+    public MongoIndexContributor tppCitizenIndexIndexes(@Value("${app.tppCitizenIndex.writeEnabled:false}") boolean writeEnabled,
+                                                        @Value("${app.tppCitizenIndex.readEnabled:false}") boolean readEnabled) {
+        boolean enabled = writeEnabled || readEnabled;
+        return () -> List.of(
+                new RequiredMongoIndex(TPP_CITIZEN_INDEX, new Index()
+                        .on(FISCAL_CODE, Sort.Direction.ASC)
+                        .on(TPP_ID, Sort.Direction.ASC)
+                        .unique()
+                        .named("fiscalCode_tppId_unique"), enabled),
+                new RequiredMongoIndex(TPP_CITIZEN_INDEX, new Index()
+                        .on(TPP_ID, Sort.Direction.ASC)
+                        .on(TPP_STATE, Sort.Direction.ASC)
+                        .on(FISCAL_CODE, Sort.Direction.ASC)
+                        .named("tppId_tppState_fiscalCode"), enabled));
+    }
+
+    @Bean
+    public MongoIndexContributor citizenConsentOutboxIndexes(@Value("${app.citizen.outbox.enabled:false}") boolean enabled,
+                                                             @Value("${app.citizen.outbox.retentionHours:168}") long retentionHours) {
+        return () -> List.of(
+                new RequiredMongoIndex(CITIZEN_CONSENT_OUTBOX, new Index()
+                        .on(PUBLISHED_AT, Sort.Direction.ASC)
+                        .on("eventDate", Sort.Direction.ASC)
+                        .named("publishedAt_eventDate"), enabled),
+                new RequiredMongoIndex(CITIZEN_CONSENT_OUTBOX, new Index()
+                        .on(PUBLISHED_AT, Sort.Direction.ASC)
+                        .expire(Duration.ofHours(retentionHours))
+                        .named("publishedAt_ttl"), enabled));
+    }
+}
@@ -30,10 +30,12 @@ public class ExceptionMap {
      *
      * <p>Each entry associates a symbolic key from {@link CitizenConstants.ExceptionName} with a factory function
      * that produces the corresponding {@link ClientExceptionWithBody} with appropriate HTTP status and error code.</p>
+     *
+     * <p>Not found outcomes are expected and frequent, so their exceptions are built without stack trace.</p>
      */
     public ExceptionMap() {
         exceptions.put(CitizenConstants.ExceptionName.CITIZEN_NOT_ONBOARDED, message ->
-            new ClientExceptionWithBody(
+            ClientExceptionWithBody.stackless(
                 HttpStatus.NOT_FOUND,
                 CitizenConstants.ExceptionCode.CITIZEN_NOT_ONBOARDED,
                 message
@@ -41,12 +43,20 @@ public class ExceptionMap {
         );
 
         exceptions.put(CitizenConstants.ExceptionName.TPP_NOT_FOUND, message ->
-            new ClientExceptionWithBody(
+            ClientExceptionWithBody.stackless(
                 HttpStatus.NOT_FOUND,
                 CitizenConstants.ExceptionCode.TPP_NOT_FOUND,
                 message
             )
         );
+
+        exceptions.put(CitizenConstants.ExceptionName.TOO_MANY_FISCAL_CODES, message ->
+            new ClientExceptionWithBody(
+                HttpStatus.BAD_REQUEST,
+                CitizenConstants.ExceptionCode.TOO_MANY_FISCAL_CODES,
+                message
+            )
+        );
     }
 
     /**
@@ -54,13 +64,17 @@ public class ExceptionMap {
      *
      * <p>If the key is missing, logs an error and returns a generic {@link RuntimeException}.</p>
      *
+     * <p>On reactive empty/error paths call it lazily ({@code Mono.error(() -> throwException(...))}), so that nothing
+     * is built when the path is not taken.</p>
+     *
      * @param exceptionKey symbolic exception key (see {@link CitizenConstants.ExceptionName})
      * @param message descriptive message to include in the exception body
      * @return {@link RuntimeException} instance (specific or generic if key not found)
      */
     public RuntimeException throwException(String exceptionKey, String message) {
-        if (exceptions.containsKey(exceptionKey)) {
-            return exceptions.get(exceptionKey).apply(message);
+        Function<String, ClientException> exception = exceptions.get(exceptionKey);
+        if (exception != null) {
+            return exception.apply(message);
         } else {
             log.error("Exception Name Not Found: {}", exceptionKey);
             return new RuntimeException();
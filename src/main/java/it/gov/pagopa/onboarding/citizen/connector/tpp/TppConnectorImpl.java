@@ -1,44 +1,108 @@
 package it.gov.pagopa.onboarding.citizen.connector.tpp;
 
 import it.gov.pagopa.common.configuration.WebClientRetrySpecs;
+import it.gov.pagopa.common.reactive.utils.CircuitBreaker;
+import it.gov.pagopa.common.reactive.utils.HedgedRequests;
 import it.gov.pagopa.onboarding.citizen.dto.TppDTO;
 import it.gov.pagopa.onboarding.citizen.dto.TppIdList;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * {@link TppConnector} towards emd-tpp.
+ *
+ * <p>{@link #get(String)} is idempotent, so it can be hedged ({@link HedgedRequests}, opt-in with
+ * {@code rest-client.tpp.hedging.enabled}) to cut the tail latency, and runs through a {@link CircuitBreaker}:
+ * while emd-tpp is unhealthy, calls fail fast and the last TPP read, if not older than {@code rest-client.tpp.cache.maxStaleMs}, is served instead (up to {@value #MAX_CACHED_TPPS} TPPs).</p>
+ */
 @Service
 @Slf4j
 public class TppConnectorImpl implements TppConnector {
 
+    static final int HEDGING_WINDOW_SIZE = 1_000;
+    static final int HEDGING_MIN_SAMPLES = 100;
+    static final int CIRCUIT_BREAKER_HALF_OPEN_CALLS = 5;
+    static final int MAX_CACHED_TPPS = 1_000;
+
+    private record CachedTpp(TppDTO tpp, long storedAtNanos) {}
+
     private final WebClient webClient;
+    private final HedgedRequests hedgedRequests;
+    private final CircuitBreaker circuitBreaker;
+    private final long cacheMaxStaleNanos;
+    private final Map<String, CachedTpp> cachedTpps = new ConcurrentHashMap<>();
 
     /**
      * @param webClientBuilder pre-configured builder from {@code WebClientConfig}
      * @param baseUrl remote TPP service base URL (property: {@code rest-client.tpp.baseUrl})
+     * @param hedgingEnabled if false, {@link #get(String)} is sent once (property: {@code rest-client.tpp.hedging.enabled})
+     * @param hedgingPercentile latency percentile after which the GET is hedged (property: {@code rest-client.tpp.hedging.percentile})
+     * @param hedgingMinDelayMs lower bound of the hedging delay (property: {@code rest-client.tpp.hedging.minDelayMs})
+     * @param hedgingMaxDelayMs upper bound of the hedging delay (property: {@code rest-client.tpp.hedging.maxDelayMs})
+     * @param failureRateThreshold failure rate opening the circuit (property: {@code rest-client.tpp.circuitBreaker.failureRateThreshold})
+     * @param slidingWindowSize calls considered by the circuit breaker (property: {@code rest-client.tpp.circuitBreaker.slidingWindowSize})
+     * @param minimumCalls calls needed before evaluating the failure rate (property: {@code rest-client.tpp.circuitBreaker.minimumCalls})
+     * @param openDurationMs time the circuit stays open (property: {@code rest-client.tpp.circuitBreaker.openDurationMs})
+     * @param cacheMaxStaleMs maximum age of a TPP served while the circuit is open (property: {@code rest-client.tpp.cache.maxStaleMs})
      */
+    @Autowired
     public TppConnectorImpl(WebClient.Builder webClientBuilder,
-        @Value("${rest-client.tpp.baseUrl}") String baseUrl) {
+        @Value("${rest-client.tpp.baseUrl}") String baseUrl,
+        @Value("${rest-client.tpp.hedging.enabled:false}") boolean hedgingEnabled,
+        @Value("${rest-client.tpp.hedging.percentile:0.95}") double hedgingPercentile,
+        @Value("${rest-client.tpp.hedging.minDelayMs:50}") long hedgingMinDelayMs,
+        @Value("${rest-client.tpp.hedging.maxDelayMs:1000}") long hedgingMaxDelayMs,
+        @Value("${rest-client.tpp.circuitBreaker.failureRateThreshold:0.5}") double failureRateThreshold,
+        @Value("${rest-client.tpp.circuitBreaker.slidingWindowSize:50}") int slidingWindowSize,
+        @Value("${rest-client.tpp.circuitBreaker.minimumCalls:20}") int minimumCalls,
+        @Value("${rest-client.tpp.circuitBreaker.openDurationMs:10000}") long openDurationMs,
+        @Value("${rest-client.tpp.cache.maxStaleMs:600000}") long cacheMaxStaleMs) {
+        this(webClientBuilder, baseUrl,
+                new HedgedRequests(new HedgedRequests.Settings(hedgingEnabled, hedgingPercentile,
+                        Duration.ofMillis(hedgingMinDelayMs), Duration.ofMillis(hedgingMaxDelayMs),
+                        HEDGING_WINDOW_SIZE, HEDGING_MIN_SAMPLES)),
+                new CircuitBreaker("emd-tpp", new CircuitBreaker.Settings(failureRateThreshold, slidingWindowSize,
+                        minimumCalls, Duration.ofMillis(openDurationMs), CIRCUIT_BREAKER_HALF_OPEN_CALLS),
+                        TppConnectorImpl::isUnhealthy),
+                Duration.ofMillis(cacheMaxStaleMs));
+    }
+
+    TppConnectorImpl(WebClient.Builder webClientBuilder, String baseUrl,
+                     HedgedRequests hedgedRequests, CircuitBreaker circuitBreaker, Duration cacheMaxStale) {
         this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+        this.hedgedRequests = hedgedRequests;
+        this.circuitBreaker = circuitBreaker;
+        this.cacheMaxStaleNanos = cacheMaxStale.toNanos();
     }
 
     /**
      * {@inheritDoc}
      *
-     * <p>Idempotent GET → permissive retry on any transient network error.
+     * <p>Idempotent GET → hedged, with a permissive retry of the hedged call on any transient network error, behind the circuit breaker.
      */
     @Override
     public Mono<TppDTO> get(String tppId) {
-        return webClient.get()
-            .uri("/emd/tpp/{tppId}", tppId)
-            .retrieve()
-            .bodyToMono(new ParameterizedTypeReference<TppDTO>() {})
-            .retryWhen(WebClientRetrySpecs.transientNetwork())
+        return circuitBreaker.execute(hedgedRequests.hedge(() -> webClient.get()
+                    .uri("/emd/tpp/{tppId}", tppId)
+                    .retrieve()
+                    .bodyToMono(new ParameterizedTypeReference<TppDTO>() {}))
+                .retryWhen(WebClientRetrySpecs.transientNetwork()))
+            .doOnNext(tpp -> cache(tppId, tpp))
+            .onErrorResume(CircuitBreaker.CallNotPermittedException.class, ex -> cached(tppId, ex))
             .doOnError(ex -> log.error(
                     "[TPP-CONNECTOR] GET /emd/tpp/{{tppId}} failed: {}", ex.getMessage()));
     }
@@ -60,4 +124,27 @@ public class TppConnectorImpl implements TppConnector {
                 .doOnError(ex -> log.error(
                         "[TPP-CONNECTOR] POST /emd/tpp/list failed: {}", ex.getMessage()));
     }
+
+    private void cache(String tppId, TppDTO tpp) {
+        if (cachedTpps.size() < MAX_CACHED_TPPS || cachedTpps.containsKey(tppId)) {
+            cachedTpps.put(tppId, new CachedTpp(tpp, System.nanoTime()));
+        }
+    }
+
+    private Mono<TppDTO> cached(String tppId, CircuitBreaker.CallNotPermittedException ex) {
+        CachedTpp cached = cachedTpps.get(tppId);
+        if (cached == null || System.nanoTime() - cached.storedAtNanos() > cacheMaxStaleNanos) {
+            return Mono.error(ex);
+        }
+        log.warn("[TPP-CONNECTOR] Circuit open, serving cached TPP {}", tppId);
+        return Mono.just(cached.tpp());
+    }
+
+    /** Transport errors, timeouts and 5xx count as failures; 4xx are answers of a healthy service */
+    static boolean isUnhealthy(Throwable ex) {
+        Throwable cause = Exceptions.isRetryExhausted(ex) ? ex.getCause() : ex;
+        return cause instanceof WebClientRequestException
+                || cause instanceof TimeoutException
+                || (cause instanceof WebClientResponseException responseEx && responseEx.getStatusCode().is5xxServerError());
+    }
 }
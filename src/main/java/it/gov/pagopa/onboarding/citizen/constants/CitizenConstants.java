@@ -6,6 +6,7 @@ public class CitizenConstants {
         public static final String CITIZEN_NOT_ONBOARDED = "CITIZEN_NOT_ONBOARDED";
         public static final String GENERIC_ERROR = "GENERIC_ERROR";
         public static final String TPP_NOT_FOUND = "TPP_NOT_FOUND";
+        public static final String TOO_MANY_FISCAL_CODES = "TOO_MANY_FISCAL_CODES";
 
         private ExceptionCode() {}
     }
@@ -15,6 +16,7 @@ public class CitizenConstants {
         public static final String CITIZEN_NOT_ONBOARDED = "CITIZEN_NOT_ONBOARDED";
         public static final String GENERIC_ERROR = "GENERIC_ERROR";
         public static final String TPP_NOT_FOUND = "TPP does not exist or is not active";
+        public static final String TOO_MANY_FISCAL_CODES = "Too many fiscal codes in a single request";
 
         private ExceptionMessage() {}
     }
@@ -24,12 +26,16 @@ public class CitizenConstants {
         public static final String CITIZEN_NOT_ONBOARDED = "CITIZEN_NOT_ONBOARDED";
         public static final String GENERIC_ERROR = "GENERIC_ERROR";
         public static final String TPP_NOT_FOUND = "TPP_NOT_FOUND";
+        public static final String TOO_MANY_FISCAL_CODES = "TOO_MANY_FISCAL_CODES";
 
         private ExceptionName() {}
     }
 
     public static final class ValidationRegex {
 
+        public static final String FISCAL_CODE = "^[A-Z]{6}[0-9LMNPQRSTUV]{2}[ABCDEHLMPRST][0-9LMNPQRSTUV]{2}[A-Z][0-9LMNPQRSTUV]{3}[A-Z]$";
+        public static final String TPP_ID = "^[A-Za-z0-9_-]{1,64}$";
+
         private ValidationRegex() {}
     }
 
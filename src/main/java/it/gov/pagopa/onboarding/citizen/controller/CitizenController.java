@@ -2,25 +2,36 @@ package it.gov.pagopa.onboarding.citizen.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ValidationRegex;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkItemDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO;
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.service.CitizenConsentBulkService;
 import it.gov.pagopa.onboarding.citizen.service.CitizenService;
 import jakarta.validation.constraints.Pattern;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p>Reactive REST contract exposing citizen consent operations.</p>
  *
  * <p>Each method sanitizes raw inputs in the implementation and delegates business logic to {@link CitizenService}.</p>
  *
+ * <p>Fiscal codes and TPP identifiers are validated against {@link ValidationRegex}; a malformed one is rejected with
+ * 400 {@code INVALID_REQUEST}.</p>
+ *
  * <p>Error semantics and domain flows are documented in the service layer; controller focuses on HTTP contract.</p>
  */
 @Tag(
@@ -51,10 +62,65 @@ public interface CitizenController {
     @PostMapping("/{fiscalCode}/{tppId}")
     Mono<ResponseEntity<CitizenConsentDTO>> saveCitizenConsent(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S", required = true)
-        @PathVariable String fiscalCode,
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode,
+
+        @Parameter(description = "TPP identifier", example = "TPP_XYZ_123", required = true)
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId);
+
+    /**
+     * <p>Creates the consent for the specified TPP for many citizens.</p>
+     * <p>Delegates to {@link CitizenConsentBulkService#createCitizenConsents(String, Flux)}.</p>
+     * <p><b>Endpoint:</b> {@code POST /emd/citizen/bulk/{tppId}}</p>
+     *
+     * <p>The body is a JSON array or an NDJSON stream ({@code application/x-ndjson}); outcomes are
+     * returned in the format requested by {@code Accept}, in request order.</p>
+     *
+     * @param tppId TPP identifier (regex validated)
+     * @param items requested citizens; an item with a missing or malformed fiscal code gets the {@code INVALID} outcome
+     * @return {@code Mono<ResponseEntity<Flux<CitizenConsentBulkOutcomeDTO>>>} 200 OK with per-item outcomes
+     */
+    @Operation(
+        summary = "Creates the consent for the specified TPP for many citizens",
+        description = "Validates the TPP once and creates the consents in chunks, returning an outcome for every item."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Request processed, see the outcome of every item",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CitizenConsentBulkOutcomeDTO.class)))),
+        @ApiResponse(responseCode = "400", description = "Invalid TPP format"),
+        @ApiResponse(responseCode = "404", description = "TPP not found")
+    })
+    @PostMapping(value = "/bulk/{tppId}",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Mono<ResponseEntity<Flux<CitizenConsentBulkOutcomeDTO>>> saveCitizenConsents(
+        @Parameter(description = "TPP identifier", example = "TPP_XYZ_123", required = true)
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId,
 
+        @RequestBody Flux<CitizenConsentBulkItemDTO> items);
+
+    /**
+     * <p>Retrieves the consent state of a TPP for many citizens.</p>
+     * <p>Delegates to {@link CitizenConsentBulkService#getCitizenConsentsStatus(String, List)}.</p>
+     * <p><b>Endpoint:</b> {@code POST /emd/citizen/bulk/{tppId}/status}</p>
+     *
+     * @param tppId TPP identifier (regex validated)
+     * @param fiscalCodes plain fiscal codes (each one regex validated)
+     * @return {@code Mono<ResponseEntity<Map<String, Boolean>>>} 200 OK with the state of every fiscal code
+     */
+    @Operation(
+        summary = "Retrieves the consent state of a TPP for many citizens",
+        description = "Returns, for every fiscal code, true if the consent for the TPP is enabled and false if it is disabled or missing."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "State of every requested fiscal code"),
+        @ApiResponse(responseCode = "400", description = "Invalid TPP or Fiscal Code format, or too many fiscal codes in a single request")
+    })
+    @PostMapping("/bulk/{tppId}/status")
+    Mono<ResponseEntity<Map<String, Boolean>>> getCitizenConsentsStatus(
         @Parameter(description = "TPP identifier", example = "TPP_XYZ_123", required = true)
-        @PathVariable String tppId);
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId,
+
+        @RequestBody List<@Pattern(regexp = ValidationRegex.FISCAL_CODE) String> fiscalCodes);
 
     /**
      * <p>Toggles the consent state for the specified TPP.</p>
@@ -76,10 +142,10 @@ public interface CitizenController {
     @PutMapping("/{fiscalCode}/{tppId}")
     Mono<ResponseEntity<CitizenConsentDTO>> stateSwitch(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode,
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode,
 
         @Parameter(description = "TPP identifier", example = "TPP_XYZ_123")
-        @PathVariable String tppId);
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId);
 
     /**
      * <p>Lists enabled TPP identifiers for the citizen.</p>
@@ -96,7 +162,7 @@ public interface CitizenController {
     @GetMapping("/list/{fiscalCode}/enabled/tpp")
     Mono<ResponseEntity<List<String>>> getTppEnabledList(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode);
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode);
 
     /**
      * <p>Retrieves consent status for the given TPP.</p>
@@ -114,10 +180,10 @@ public interface CitizenController {
     @GetMapping("/{fiscalCode}/{tppId}")
     Mono<ResponseEntity<CitizenConsentDTO>> getCitizenConsentStatus(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode,
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode,
 
         @Parameter(description = "TPP identifier", example = "TPP_XYZ_123")
-        @PathVariable String tppId);
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId);
 
     /**
      * <p>Retrieves all consents for the citizen.</p>
@@ -134,7 +200,7 @@ public interface CitizenController {
     @GetMapping("/list/{fiscalCode}")
     Mono<ResponseEntity<CitizenConsentDTO>> getCitizenConsentsList(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode);
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode);
 
     /**
      * <p>Retrieves only enabled consents for the citizen.</p>
@@ -151,7 +217,7 @@ public interface CitizenController {
     @GetMapping("/list/{fiscalCode}/enabled")
     Mono<ResponseEntity<CitizenConsentDTO>> getCitizenConsentsListEnabled(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode);
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode);
 
     /**
      * <p>Retrieves citizens with an enabled consent for a TPP id.</p>
@@ -168,7 +234,24 @@ public interface CitizenController {
     @GetMapping("/{tppId}")
     Mono<ResponseEntity<List<CitizenConsentDTO>>> getCitizenEnabled(
         @Parameter(description = "TPP identifier", example = "TPP_XYZ_123")
-        @PathVariable String tppId);
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId);
+
+    /**
+     * <p>Counts citizens with an enabled consent for a TPP id.</p>
+     * <p>Delegates to {@link CitizenService#countCitizenEnabled(String)}.</p>
+     * <p><b>Endpoint:</b> {@code GET /emd/citizen/{tppId}/enabled/count}</p>
+     *
+     * @param tppId TPP identifier (regex validated)
+     * @return {@code Mono<ResponseEntity<Long>>} 200 OK with the number of citizens
+     */
+    @Operation(
+        summary = "Counts citizens with an enabled consent for a TPP id",
+        description = "Returns how many citizens have an active consent for a specific TPP."
+    )
+    @GetMapping("/{tppId}/enabled/count")
+    Mono<ResponseEntity<Long>> countCitizenEnabled(
+        @Parameter(description = "TPP identifier", example = "TPP_XYZ_123")
+        @PathVariable @Pattern(regexp = ValidationRegex.TPP_ID) String tppId);
 
     /**
      * <p>Deletes the citizen consent aggregate.</p>
@@ -185,7 +268,7 @@ public interface CitizenController {
     @DeleteMapping("/test/delete/{fiscalCode}")
     Mono<ResponseEntity<CitizenConsentDTO>> deleteCitizenConsent(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode);
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode);
 
     /**
      * <p>Checks Bloom filter membership and enabled consent existence.</p>
@@ -205,6 +288,6 @@ public interface CitizenController {
     @GetMapping("/filter/{fiscalCode}")
     Mono<ResponseEntity<String>> bloomFilterSearch(
         @Parameter(description = "Plain fiscal code", example = "RSSMRA85T10A562S")
-        @PathVariable String fiscalCode);
+        @PathVariable @Pattern(regexp = ValidationRegex.FISCAL_CODE) String fiscalCode);
 
 }
\ No newline at end of file
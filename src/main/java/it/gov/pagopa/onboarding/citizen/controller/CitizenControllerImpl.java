@@ -1,13 +1,18 @@
 package it.gov.pagopa.onboarding.citizen.controller;
 
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkItemDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO;
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.service.BloomFilterServiceImpl;
+import it.gov.pagopa.onboarding.citizen.service.CitizenConsentBulkServiceImpl;
 import it.gov.pagopa.onboarding.citizen.service.CitizenServiceImpl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 import static it.gov.pagopa.common.utils.Utils.inputSanitization;
 
@@ -18,9 +23,12 @@ import static it.gov.pagopa.common.utils.Utils.inputSanitization;
 public class CitizenControllerImpl implements CitizenController {
 
     private final CitizenServiceImpl citizenService;
+    private final CitizenConsentBulkServiceImpl citizenConsentBulkService;
 
-    public CitizenControllerImpl(CitizenServiceImpl citizenService) {
+    public CitizenControllerImpl(CitizenServiceImpl citizenService,
+                                 CitizenConsentBulkServiceImpl citizenConsentBulkService) {
         this.citizenService = citizenService;
+        this.citizenConsentBulkService = citizenConsentBulkService;
     }
 
     /**
@@ -32,6 +40,24 @@ public class CitizenControllerImpl implements CitizenController {
             .map(ResponseEntity::ok);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<CitizenConsentBulkOutcomeDTO>>> saveCitizenConsents(String tppId, Flux<CitizenConsentBulkItemDTO> items) {
+        return citizenConsentBulkService.createCitizenConsents(inputSanitization(tppId), items)
+            .map(ResponseEntity::ok);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<ResponseEntity<Map<String, Boolean>>> getCitizenConsentsStatus(String tppId, List<String> fiscalCodes) {
+        return citizenConsentBulkService.getCitizenConsentsStatus(inputSanitization(tppId), fiscalCodes)
+            .map(ResponseEntity::ok);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -86,6 +112,15 @@ public class CitizenControllerImpl implements CitizenController {
             .map(ResponseEntity::ok);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<ResponseEntity<Long>> countCitizenEnabled(String tppId) {
+        return citizenService.countCitizenEnabled(inputSanitization(tppId))
+            .map(ResponseEntity::ok);
+    }
+
     /**
      * {@inheritDoc}
      */
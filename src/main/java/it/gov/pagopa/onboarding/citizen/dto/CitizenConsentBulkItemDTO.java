@@ -0,0 +1,17 @@
+package it.gov.pagopa.onboarding.citizen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * <p>Single item of a bulk consent creation request (JSON array element or NDJSON line).</p>
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitizenConsentBulkItemDTO {
+    private String fiscalCode;
+}
@@ -0,0 +1,38 @@
+package it.gov.pagopa.onboarding.citizen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * <p>Outcome of a single item of a bulk consent creation request.</p>
+ *
+ * <p>Outcomes are returned in request order; {@code index} is the position of the item in the request.</p>
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitizenConsentBulkOutcomeDTO {
+    private long index;
+    private String fiscalCode;
+    private Outcome outcome;
+
+    public enum Outcome {
+        /** New citizen created with the consent. */
+        CREATED,
+        /** Consent added to an existing citizen. */
+        ADDED,
+        /** The citizen already had a consent for the TPP; left unchanged. */
+        ALREADY_PRESENT,
+        /** Fiscal code repeated within the same chunk of the request; only its first occurrence is applied. */
+        DUPLICATE,
+        /** Missing or malformed fiscal code. */
+        INVALID,
+        /** The citizen was modified concurrently; the item can be retried. */
+        CONFLICT,
+        /** The write failed; the item can be retried. */
+        FAILED
+    }
+}
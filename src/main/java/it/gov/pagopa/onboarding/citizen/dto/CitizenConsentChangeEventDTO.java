@@ -0,0 +1,23 @@
+package it.gov.pagopa.onboarding.citizen.dto;
+
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CitizenConsentChangeEventDTO {
+    private String eventId;
+    private ConsentChangeType eventType;
+    private String fiscalCode;
+    private String tppId;
+    private Boolean tppState;
+    private LocalDateTime tcDate;
+    private LocalDateTime eventDate;
+}
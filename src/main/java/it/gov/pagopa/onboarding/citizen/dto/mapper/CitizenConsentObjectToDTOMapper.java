@@ -3,6 +3,7 @@ package it.gov.pagopa.onboarding.citizen.dto.mapper;
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO.ConsentDTO;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -28,16 +29,40 @@ public class CitizenConsentObjectToDTOMapper {
      * @throws NullPointerException if {@code citizenConsent} or {@code consents} map is {@code null}
      */
     public CitizenConsentDTO map(CitizenConsent citizenConsent) {
-        Map<String, ConsentDTO> consentsDTO = new HashMap<>();
+        Map<String, ConsentDTO> consentsDTO = HashMap.newHashMap(citizenConsent.getConsents().size());
 
-        citizenConsent.getConsents().forEach((tppId, consentDetails) -> consentsDTO.put(tppId, ConsentDTO.builder()
-                .tppState(consentDetails.getTppState())
-                .tcDate(consentDetails.getTcDate())
-                .build()));
+        citizenConsent.getConsents().forEach((tppId, consentDetails) -> consentsDTO.put(tppId, map(consentDetails)));
 
         return CitizenConsentDTO.builder()
                 .fiscalCode(citizenConsent.getFiscalCode())
                 .consents(consentsDTO)
                 .build();
     }
+
+    /**
+     * <p>Converts a single consent of a citizen into a {@link CitizenConsentDTO} holding only that consent.</p>
+     *
+     * <p>Avoids narrowing the aggregate's consents map before {@link #map(CitizenConsent)}.</p>
+     *
+     * @param fiscalCode citizen's fiscal code
+     * @param tppId TPP identifier of the consent
+     * @param consentDetails the consent (must not be {@code null})
+     * @return DTO with fiscal code and the single mapped consent
+     */
+    public CitizenConsentDTO map(String fiscalCode, String tppId, ConsentDetails consentDetails) {
+        Map<String, ConsentDTO> consentsDTO = HashMap.newHashMap(1);
+        consentsDTO.put(tppId, map(consentDetails));
+
+        return CitizenConsentDTO.builder()
+                .fiscalCode(fiscalCode)
+                .consents(consentsDTO)
+                .build();
+    }
+
+    private static ConsentDTO map(ConsentDetails consentDetails) {
+        return ConsentDTO.builder()
+                .tppState(consentDetails.getTppState())
+                .tcDate(consentDetails.getTcDate())
+                .build();
+    }
 }
@@ -0,0 +1,13 @@
+package it.gov.pagopa.onboarding.citizen.enums;
+
+/**
+ * <p>Kind of consent mutation recorded in the {@code citizen_consent_outbox} collection.</p>
+ */
+public enum ConsentChangeType {
+    /** A consent was given to a TPP */
+    CREATED,
+    /** The state of an existing consent was toggled */
+    STATE_CHANGED,
+    /** The citizen and all its consents were deleted */
+    DELETED
+}
@@ -0,0 +1,138 @@
+package it.gov.pagopa.onboarding.citizen.event.consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.gov.pagopa.common.reactive.kafka.consumer.BaseKafkaConsumer;
+import it.gov.pagopa.common.reactive.kafka.exception.UncommittableError;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import it.gov.pagopa.onboarding.citizen.service.CitizenConsentStateUpdateService;
+import it.gov.pagopa.onboarding.citizen.service.ErrorNotifierService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <p>Consumes consent state updates ({@link CitizenConsentStateUpdateDTO}) and applies them in batches.</p>
+ *
+ * <p>Each message is parked until its batch is written: batches are closed after
+ * {@code app.citizen.consentStateUpdate.batchSize} messages or after the commit delay, then applied by
+ * {@link CitizenConsentStateUpdateService#updateStates(List)} with one unordered bulk write. A message
+ * completes only once its batch is written, so offsets are committed after the data is persisted.</p>
+ *
+ * <p>Updates that cannot be applied are retried with backoff, parked again in a later batch; once the retries
+ * are exhausted they are published on the error topic through {@link ErrorNotifierService}.</p>
+ *
+ * <p>Configuration:</p>
+ * <ul>
+ *   <li><code>app.citizen.consentStateUpdate.batchSize</code>: maximum messages per bulk write</li>
+ *   <li><code>app.citizen.consentStateUpdate.commitDelayMs</code>: commit window, also the maximum wait of a batch</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class CitizenConsentStateUpdateConsumer extends BaseKafkaConsumer<CitizenConsentStateUpdateDTO, CitizenConsentStateUpdateDTO> {
+
+    private static final Duration EMIT_RETRY = Duration.ofSeconds(5);
+
+    private final CitizenConsentStateUpdateService citizenConsentStateUpdateService;
+    private final ErrorNotifierService errorNotifierService;
+    private final int batchSize;
+    private final Duration commitDelay;
+    private final ObjectReader objectReader;
+    private final Sinks.Many<PendingUpdate> pendingUpdates = Sinks.many().unicast().onBackpressureBuffer();
+
+    public CitizenConsentStateUpdateConsumer(@Value("${spring.application.name}") String applicationName,
+                                             CitizenConsentStateUpdateService citizenConsentStateUpdateService,
+                                             ErrorNotifierService errorNotifierService,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${app.citizen.consentStateUpdate.batchSize:250}") int batchSize,
+                                             @Value("${app.citizen.consentStateUpdate.commitDelayMs:1000}") long commitDelayMs) {
+        super(applicationName, meterRegistry);
+        this.citizenConsentStateUpdateService = citizenConsentStateUpdateService;
+        this.errorNotifierService = errorNotifierService;
+        this.batchSize = batchSize;
+        this.commitDelay = Duration.ofMillis(commitDelayMs);
+        this.objectReader = new ObjectMapper()
+                .readerFor(CitizenConsentStateUpdateDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        pendingUpdates.asFlux()
+                .bufferTimeout(batchSize, commitDelay)
+                .concatMap(this::applyBatch)
+                .subscribe();
+    }
+
+    @Override
+    protected Duration getCommitDelay() {
+        return commitDelay;
+    }
+
+    /** Two batches can be filled while the previous one is written */
+    @Override
+    protected int getPrefetch() {
+        return Math.max(super.getPrefetch(), 2 * batchSize);
+    }
+
+    @Override
+    protected void subscribeAfterCommits(Flux<List<CitizenConsentStateUpdateDTO>> afterCommits2subscribe) {
+        afterCommits2subscribe
+                .subscribe(updates -> log.info("[{}] Processed offsets committed successfully: {} updates", getFlowName(), updates.size()));
+    }
+
+    @Override
+    protected ObjectReader getObjectReader() {
+        return objectReader;
+    }
+
+    @Override
+    protected Consumer<Throwable> onDeserializationError(Message<?> message) {
+        return e -> log.info("[{}] Unexpected JSON: {}", getFlowName(), describeMessage(message));
+    }
+
+    @Override
+    protected Mono<CitizenConsentStateUpdateDTO> execute(CitizenConsentStateUpdateDTO payload, Message<?> message, Map<String, Object> ctx) {
+        return Mono.create(sink -> pendingUpdates.emitNext(new PendingUpdate(payload, sink),
+                Sinks.EmitFailureHandler.busyLooping(EMIT_RETRY)));
+    }
+
+    @Override
+    protected Mono<Void> onRetriesExhausted(Message<?> message, Throwable error) {
+        return errorNotifierService.notifyCitizenConsentStateUpdate(message,
+                        "[CONSENT_STATE_UPDATE] An error occurred while applying the consent state update", true, error)
+                // an update neither applied nor published on the error topic must not be committed
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(() -> new UncommittableError("Consent state update not published on the error topic")))
+                .then();
+    }
+
+    private Mono<Void> applyBatch(List<PendingUpdate> batch) {
+        return citizenConsentStateUpdateService.updateStates(batch.stream().map(PendingUpdate::payload).toList())
+                .doOnNext(failed -> batch.forEach(pending -> {
+                    if (failed.contains(pending.payload().getFiscalCode())) {
+                        pending.sink().error(new UncommittableError("Consent state update not applied"));
+                    } else {
+                        pending.sink().success(pending.payload());
+                    }
+                }))
+                .onErrorResume(error -> {
+                    log.error("[{}] Batch of {} updates failed", getFlowName(), batch.size(), error);
+                    batch.forEach(pending -> pending.sink().error(new UncommittableError("Consent state update batch failed: " + error.getMessage())));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private record PendingUpdate(CitizenConsentStateUpdateDTO payload, MonoSink<CitizenConsentStateUpdateDTO> sink) {}
+}
@@ -0,0 +1,92 @@
+package it.gov.pagopa.onboarding.citizen.event.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.gov.pagopa.common.mongo.MongoConnectionPoolMonitor;
+import it.gov.pagopa.common.reactive.kafka.consumer.BindingBackpressureController;
+import it.gov.pagopa.common.reactive.kafka.consumer.RevokedPartitionsListener;
+import it.gov.pagopa.common.reactive.kafka.consumer.SaturationProbe;
+import it.gov.pagopa.onboarding.citizen.service.CitizenConsentStateUpdateServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.cloud.stream.binding.BindingsLifecycleController;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <p>Binds {@link CitizenConsentStateUpdateConsumer} to the {@code consumerCitizenConsentStateUpdate-in-0} binding
+ * and {@link CitizenConsentStateUpdateErrorReplayConsumer} to the {@code consumerCitizenConsentStateUpdateErrorReplay-in-0} one.</p>
+ *
+ * <p>Enabled by {@code app.citizen.consentStateUpdate.enabled}, so environments without the topic
+ * never connect to Kafka. The consumers must then also be listed in {@code spring.cloud.function.definition}
+ * (empty by default, so that it never names missing functions): the application does not start otherwise.</p>
+ *
+ * <p>The consent state update binding is paused while Mongo (pool wait queue or wait time), Redis (Bloom filter
+ * latency) or the consumer itself (in-flight messages) cross the {@code app.citizen.consentStateUpdate.backpressure}
+ * thresholds.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.citizen.consentStateUpdate.enabled", havingValue = "true")
+public class CitizenConsentStateUpdateConsumerConfig {
+
+    static final List<String> FUNCTIONS = List.of("consumerCitizenConsentStateUpdate", "consumerCitizenConsentStateUpdateErrorReplay");
+
+    public CitizenConsentStateUpdateConsumerConfig(@Value("${spring.cloud.function.definition:}") String functionDefinition) {
+        List<String> defined = Arrays.stream(functionDefinition.split("[;|]")).map(String::trim).toList();
+        if (!defined.containsAll(FUNCTIONS)) {
+            throw new IllegalStateException("app.citizen.consentStateUpdate.enabled requires spring.cloud.function.definition to include "
+                    + String.join(";", FUNCTIONS) + ", found: " + functionDefinition);
+        }
+    }
+
+    @Bean
+    public Consumer<Flux<Message<byte[]>>> consumerCitizenConsentStateUpdate(CitizenConsentStateUpdateConsumer citizenConsentStateUpdateConsumer) {
+        return citizenConsentStateUpdateConsumer::execute;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public BindingBackpressureController citizenConsentStateUpdateBackpressure(BindingsLifecycleController bindingsLifecycleController,
+                                                                               CitizenConsentStateUpdateConsumer citizenConsentStateUpdateConsumer,
+                                                                               CitizenConsentStateUpdateServiceImpl citizenConsentStateUpdateService,
+                                                                               MongoConnectionPoolMonitor mongoConnectionPoolMonitor,
+                                                                               MeterRegistry meterRegistry,
+                                                                               @Value("${app.citizen.consentStateUpdate.backpressure.mongoMaxWaiting:50}") int mongoMaxWaiting,
+                                                                               @Value("${app.citizen.consentStateUpdate.backpressure.mongoMaxWaitMs:1000}") long mongoMaxWaitMs,
+                                                                               @Value("${app.citizen.consentStateUpdate.backpressure.redisMaxLatencyMs:500}") long redisMaxLatencyMs,
+                                                                               @Value("${app.citizen.consentStateUpdate.backpressure.maxInFlight:2000}") int maxInFlight,
+                                                                               @Value("${app.citizen.consentStateUpdate.backpressure.resumeRatio:0.7}") double resumeRatio,
+                                                                               @Value("${app.citizen.consentStateUpdate.backpressure.checkIntervalMs:1000}") long checkIntervalMs) {
+        return new BindingBackpressureController("consumerCitizenConsentStateUpdate-in-0", bindingsLifecycleController,
+                Map.of(
+                        "mongoWaiting", SaturationProbe.ofThreshold(mongoConnectionPoolMonitor::getWaiting, mongoMaxWaiting),
+                        "mongoWaitTime", SaturationProbe.ofThreshold(mongoConnectionPoolMonitor::getAverageWaitMillis, mongoMaxWaitMs),
+                        "redisLatency", SaturationProbe.ofThreshold(citizenConsentStateUpdateService.getBloomFilterLatency()::getAverageMillis, redisMaxLatencyMs),
+                        "inFlight", SaturationProbe.ofThreshold(citizenConsentStateUpdateConsumer::getInFlight, maxInFlight)),
+                resumeRatio, Duration.ofMillis(checkIntervalMs), meterRegistry);
+    }
+
+    /** Error messages are throttled before the replay, so that a burst of failures does not flood the source topic */
+    @Bean
+    public Consumer<Flux<Message<byte[]>>> consumerCitizenConsentStateUpdateErrorReplay(CitizenConsentStateUpdateErrorReplayConsumer citizenConsentStateUpdateErrorReplayConsumer,
+                                                                                         @Value("${app.citizen.consentStateUpdate.replay.ratePerSecond:10}") int ratePerSecond) {
+        Duration interval = Duration.ofNanos(1_000_000_000L / Math.max(1, ratePerSecond));
+        return messages -> citizenConsentStateUpdateErrorReplayConsumer.execute(messages.delayElements(interval));
+    }
+
+    /** Releases the offsets tracked for the partitions revoked from the consumers */
+    @Bean
+    public KafkaBindingRebalanceListener citizenConsentStateUpdateRebalanceListener(CitizenConsentStateUpdateConsumer citizenConsentStateUpdateConsumer,
+                                                                                    CitizenConsentStateUpdateErrorReplayConsumer citizenConsentStateUpdateErrorReplayConsumer) {
+        return new RevokedPartitionsListener(Map.of(
+                "consumerCitizenConsentStateUpdate-in-0", citizenConsentStateUpdateConsumer,
+                "consumerCitizenConsentStateUpdateErrorReplay-in-0", citizenConsentStateUpdateErrorReplayConsumer));
+    }
+}
@@ -0,0 +1,121 @@
+package it.gov.pagopa.onboarding.citizen.event.consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.gov.pagopa.common.kafka.utils.KafkaConstants;
+import it.gov.pagopa.common.reactive.kafka.consumer.BaseKafkaConsumer;
+import it.gov.pagopa.common.reactive.kafka.exception.UncommittableError;
+import it.gov.pagopa.common.utils.CommonUtilities;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import it.gov.pagopa.onboarding.citizen.service.ErrorNotifierServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <p>Replays on the consent state update topic the updates published on the error topic by
+ * {@link CitizenConsentStateUpdateConsumer}.</p>
+ *
+ * <p>Only retryable errors coming from the consent state update topic are replayed, at most
+ * {@code app.citizen.consentStateUpdate.replay.maxRetries} times each: the replayed message carries the
+ * incremented {@code retry} header and this application name, so that other applications consuming the
+ * same topic discard it. The rate is bounded by {@code app.citizen.consentStateUpdate.replay.ratePerSecond}
+ * (see {@link CitizenConsentStateUpdateConsumerConfig}).</p>
+ */
+@Service
+@Slf4j
+public class CitizenConsentStateUpdateErrorReplayConsumer extends BaseKafkaConsumer<CitizenConsentStateUpdateDTO, CitizenConsentStateUpdateDTO> {
+
+    private static final String REPLAY_BINDING = "citizenConsentStateUpdateReplay-out-0";
+
+    private final StreamBridge streamBridge;
+    private final String applicationName;
+    private final String consentStateUpdateTopic;
+    private final int maxRetries;
+    private final Duration commitDelay;
+    private final ObjectReader objectReader;
+
+    public CitizenConsentStateUpdateErrorReplayConsumer(@Value("${spring.application.name}") String applicationName,
+                                                        StreamBridge streamBridge,
+                                                        MeterRegistry meterRegistry,
+                                                        @Value("${spring.cloud.stream.bindings.consumerCitizenConsentStateUpdate-in-0.destination}") String consentStateUpdateTopic,
+                                                        @Value("${app.citizen.consentStateUpdate.replay.maxRetries:3}") int maxRetries,
+                                                        @Value("${app.citizen.consentStateUpdate.commitDelayMs:1000}") long commitDelayMs) {
+        super(applicationName, meterRegistry);
+        this.streamBridge = streamBridge;
+        this.applicationName = applicationName;
+        this.consentStateUpdateTopic = consentStateUpdateTopic;
+        this.maxRetries = maxRetries;
+        this.commitDelay = Duration.ofMillis(commitDelayMs);
+        this.objectReader = new ObjectMapper()
+                .readerFor(CitizenConsentStateUpdateDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Override
+    protected Duration getCommitDelay() {
+        return commitDelay;
+    }
+
+    @Override
+    protected void subscribeAfterCommits(Flux<List<CitizenConsentStateUpdateDTO>> afterCommits2subscribe) {
+        afterCommits2subscribe
+                .subscribe(replayed -> log.info("[{}] Processed offsets committed successfully: {} replayed", getFlowName(), replayed.size()));
+    }
+
+    @Override
+    protected ObjectReader getObjectReader() {
+        return objectReader;
+    }
+
+    @Override
+    protected Consumer<Throwable> onDeserializationError(Message<?> message) {
+        return e -> log.info("[{}] Unexpected JSON: {}", getFlowName(), describeMessage(message));
+    }
+
+    @Override
+    protected Mono<CitizenConsentStateUpdateDTO> execute(CitizenConsentStateUpdateDTO payload, Message<?> message, Map<String, Object> ctx) {
+        if (!consentStateUpdateTopic.equals(CommonUtilities.getByteArrayHeaderValue(message, KafkaConstants.ERROR_MSG_HEADER_SRC_TOPIC))) {
+            return Mono.empty();
+        }
+        if (!Boolean.parseBoolean(CommonUtilities.getByteArrayHeaderValue(message, KafkaConstants.ERROR_MSG_HEADER_RETRYABLE))) {
+            log.info("[{}] Discarding not retryable message: {}", getFlowName(), describeMessage(message));
+            return Mono.empty();
+        }
+        int retry = ErrorNotifierServiceImpl.getRetry(message);
+        if (retry >= maxRetries) {
+            log.error("[{}] Discarding message after {} replays: {}", getFlowName(), retry, describeMessage(message));
+            return Mono.empty();
+        }
+
+        MessageBuilder<?> replay = MessageBuilder.withPayload(message.getPayload())
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_APPLICATION_NAME, applicationName.getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_RETRY, String.valueOf(retry + 1).getBytes(StandardCharsets.UTF_8));
+        Object key = message.getHeaders().get(KafkaHeaders.RECEIVED_KEY);
+        if (key != null) {
+            replay.setHeader(KafkaHeaders.KEY, key);
+        }
+
+        Message<?> built = replay.build();
+        return Mono.fromCallable(() -> streamBridge.send(REPLAY_BINDING, built))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(sent -> Boolean.TRUE.equals(sent)
+                        ? Mono.just(payload)
+                        : Mono.error(new UncommittableError("Cannot replay consent state update")));
+    }
+}
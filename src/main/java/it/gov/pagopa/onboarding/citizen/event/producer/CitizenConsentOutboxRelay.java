@@ -0,0 +1,257 @@
+package it.gov.pagopa.onboarding.citizen.event.producer;
+
+import it.gov.pagopa.common.reactive.utils.RedissonLockUtils;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentChangeEventDTO;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsentChangeEvent;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenConsentOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>Publishes the events of the {@code citizen_consent_outbox} collection on the {@code citizenConsentChanges-out-0} binding.</p>
+ *
+ * <b>Configuration</b>
+ * <ul>
+ *   <li><code>app.citizen.outbox.enabled</code>: start the relay when the application is ready</li>
+ *   <li><code>app.citizen.outbox.batchSize</code>: maximum events read and published per round</li>
+ *   <li><code>app.citizen.outbox.lingerMs</code>: wait before the next round when the previous one did not fill a batch</li>
+ *   <li><code>app.citizen.outbox.ackTimeoutMs</code>: maximum wait for the broker acknowledgments of a batch</li>
+ * </ul>
+ *
+ * <b>Workflow</b>
+ * <pre>
+ * 1. Acquire distributed lock (one relaying instance at a time, to keep the per-citizen order)
+ * 2. Read the oldest batchSize unpublished events
+ * 3. Send them all asynchronously, in order, and wait for the broker acknowledgments
+ * 4. Mark as published the events acknowledged before the first failure
+ * 5. Release lock; start again at once if the batch was full, otherwise after lingerMs
+ * </pre>
+ *
+ * <p>The binding is asynchronous: the broker acknowledgments ({@code acks: all}) come back on the
+ * {@value #SEND_RESULTS_CHANNEL} channel ({@code producer.recordMetadataChannel}) and the failures on the global
+ * {@code errorChannel} ({@code producer.errorChannelEnabled}), matched to the sent event by the
+ * {@value #EVENT_ID_HEADER} header. An event is marked as published only when it and all the events before it
+ * were acknowledged, so the events after a failure are sent again in the next round even if the broker accepted
+ * them.</p>
+ *
+ * <p>Delivery is at least once: a crash between steps 3 and 4 sends the same events again. Records are keyed by
+ * fiscal code and the producer is idempotent, so the events of a citizen keep their order on the topic.</p>
+ */
+@Component
+@Slf4j
+public class CitizenConsentOutboxRelay {
+
+    static final String CONSENT_CHANGES_BINDING = "citizenConsentChanges-out-0";
+    static final String SEND_RESULTS_CHANNEL = "citizenConsentChangesSendResults";
+    static final String EVENT_ID_HEADER = "outboxEventId";
+    private static final String REDIS_LOCK_NAME = "citizen-consent-outbox-relay-lock";
+    private static final long LOCK_LEASE_SECONDS = 60;
+
+    private final RedissonReactiveClient redissonClient;
+    private final CitizenConsentOutboxRepository citizenConsentOutboxRepository;
+    private final StreamBridge streamBridge;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration linger;
+    private final long ackTimeoutMs;
+    private final Map<String, CompletableFuture<Void>> pendingAcks = new ConcurrentHashMap<>();
+    private Disposable subscription;
+
+    public CitizenConsentOutboxRelay(RedissonReactiveClient redissonClient,
+                                     CitizenConsentOutboxRepository citizenConsentOutboxRepository,
+                                     StreamBridge streamBridge,
+                                     @Value("${app.citizen.outbox.enabled:false}") boolean enabled,
+                                     @Value("${app.citizen.outbox.batchSize:500}") int batchSize,
+                                     @Value("${app.citizen.outbox.lingerMs:1000}") long lingerMs,
+                                     @Value("${app.citizen.outbox.ackTimeoutMs:40000}") long ackTimeoutMs) {
+        this.redissonClient = redissonClient;
+        this.citizenConsentOutboxRepository = citizenConsentOutboxRepository;
+        this.streamBridge = streamBridge;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.linger = Duration.ofMillis(lingerMs);
+        this.ackTimeoutMs = ackTimeoutMs;
+    }
+
+    /**
+     * <p>Starts relaying in background if {@code app.citizen.outbox.enabled} is set.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        log.info("[EMD-CITIZEN][OUTBOX-RELAY] Relay started with batch size {} and linger {}", batchSize, linger);
+        subscription = Mono.defer(this::relay)
+                .onErrorResume(error -> {
+                    log.error("[EMD-CITIZEN][OUTBOX-RELAY] Relay round failed", error);
+                    return Mono.just(0);
+                })
+                .flatMap(published -> published < batchSize
+                        ? Mono.delay(linger).thenReturn(published)
+                        : Mono.just(published))
+                .repeat()
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * <p>Runs a single relay round if no other instance is relaying.</p>
+     *
+     * @return {@code Mono<Integer>} number of published events, 0 if the lock was not acquired
+     */
+    public Mono<Integer> relay() {
+        return RedissonLockUtils.runExclusively(redissonClient, REDIS_LOCK_NAME, LOCK_LEASE_SECONDS, TimeUnit.SECONDS,
+                        this::publishBatch)
+                .defaultIfEmpty(0);
+    }
+
+    private Mono<Integer> publishBatch() {
+        return citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(batchSize))
+                .collectList()
+                .filter(events -> !events.isEmpty())
+                .flatMap(events -> Mono.fromCallable(() -> send(events))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .filter(sentIds -> !sentIds.isEmpty())
+                .flatMap(sentIds -> citizenConsentOutboxRepository.markPublished(sentIds, LocalDateTime.now())
+                        .doOnNext(marked -> log.debug("[EMD-CITIZEN][OUTBOX-RELAY] Published {} events", marked))
+                        .thenReturn(sentIds.size()))
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * <p>Completes the pending send of an event acknowledged by the broker.</p>
+     *
+     * @param result the sent message, as published on the {@code recordMetadataChannel}
+     */
+    @ServiceActivator(inputChannel = SEND_RESULTS_CHANNEL)
+    public void onSendResult(Message<?> result) {
+        CompletableFuture<Void> ack = pendingAckOf(result);
+        if (ack != null) {
+            ack.complete(null);
+        }
+    }
+
+    /**
+     * <p>Fails the pending send of an event rejected by the broker; other errors are ignored.</p>
+     *
+     * @param error the message of the global error channel
+     */
+    @ServiceActivator(inputChannel = "errorChannel")
+    public void onSendFailure(ErrorMessage error) {
+        if (error.getPayload() instanceof MessagingException failure && failure.getFailedMessage() != null) {
+            CompletableFuture<Void> ack = pendingAckOf(failure.getFailedMessage());
+            if (ack != null) {
+                ack.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /** It will send all the events without waiting, then wait for their acknowledgments and return the ids acknowledged before the first failure */
+    private List<String> send(List<CitizenConsentChangeEvent> events) {
+        List<CompletableFuture<Void>> acks = new ArrayList<>(events.size());
+        try {
+            for (CitizenConsentChangeEvent event : events) {
+                CompletableFuture<Void> ack = new CompletableFuture<>();
+                pendingAcks.put(event.getId(), ack);
+                acks.add(ack);
+                if (!trySend(event)) {
+                    ack.completeExceptionally(new IllegalStateException("Event not sent"));
+                    // the events after a failure would not be marked as published: do not send them
+                    break;
+                }
+            }
+            awaitAcks(acks);
+            return acknowledgedIds(events, acks);
+        } finally {
+            events.forEach(event -> pendingAcks.remove(event.getId()));
+        }
+    }
+
+    private boolean trySend(CitizenConsentChangeEvent event) {
+        try {
+            return streamBridge.send(CONSENT_CHANGES_BINDING, toMessage(event));
+        } catch (RuntimeException e) {
+            log.error("[EMD-CITIZEN][OUTBOX-RELAY] Event {} not sent: {}", event.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void awaitAcks(List<CompletableFuture<Void>> acks) {
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // the failed or missing acknowledgments are checked one by one
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> acknowledgedIds(List<CitizenConsentChangeEvent> events, List<CompletableFuture<Void>> acks) {
+        List<String> sentIds = new ArrayList<>(acks.size());
+        for (int i = 0; i < acks.size(); i++) {
+            CompletableFuture<Void> ack = acks.get(i);
+            if (!ack.isDone() || ack.isCompletedExceptionally()) {
+                log.error("[EMD-CITIZEN][OUTBOX-RELAY] Event {} not acknowledged, the remaining {} events are postponed",
+                        events.get(i).getId(), events.size() - i);
+                break;
+            }
+            sentIds.add(events.get(i).getId());
+        }
+        return sentIds;
+    }
+
+    private CompletableFuture<Void> pendingAckOf(Message<?> message) {
+        String eventId = message.getHeaders().get(EVENT_ID_HEADER, String.class);
+        return eventId != null ? pendingAcks.get(eventId) : null;
+    }
+
+    private static Message<CitizenConsentChangeEventDTO> toMessage(CitizenConsentChangeEvent event) {
+        return MessageBuilder.withPayload(CitizenConsentChangeEventDTO.builder()
+                        .eventId(event.getId())
+                        .eventType(event.getEventType())
+                        .fiscalCode(event.getFiscalCode())
+                        .tppId(event.getTppId())
+                        .tppState(event.getTppState())
+                        .tcDate(event.getTcDate())
+                        .eventDate(event.getEventDate())
+                        .build())
+                .setHeader(KafkaHeaders.KEY, event.getFiscalCode().getBytes(StandardCharsets.UTF_8))
+                .setHeader(EVENT_ID_HEADER, event.getId())
+                .build();
+    }
+}
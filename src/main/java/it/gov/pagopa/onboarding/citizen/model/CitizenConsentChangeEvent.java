@@ -0,0 +1,33 @@
+package it.gov.pagopa.onboarding.citizen.model;
+
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Outbox entry recording a consent mutation to be published on Kafka.</p>
+ *
+ * <p>One document per mutated consent, written by {@code CitizenServiceImpl} right after the
+ * {@code citizen_consents} write. {@code publishedAt} stays {@code null} until the relay has sent the
+ * event, then the entry expires through the TTL index on that field.</p>
+ */
+@Document(collection = "citizen_consent_outbox")
+@Data
+@SuperBuilder
+@NoArgsConstructor
+public class CitizenConsentChangeEvent {
+
+    private String id;
+    private ConsentChangeType eventType;
+    private String fiscalCode;
+    private String tppId;
+    private Boolean tppState;
+    private LocalDateTime tcDate;
+    private LocalDateTime eventDate;
+    private LocalDateTime publishedAt;
+
+}
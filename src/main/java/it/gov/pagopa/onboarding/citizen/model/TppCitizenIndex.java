@@ -0,0 +1,39 @@
+package it.gov.pagopa.onboarding.citizen.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Reverse index entry linking a TPP to a citizen that gave it a consent.</p>
+ *
+ * <p>One document per {@code (fiscalCode, tppId)} pair, mirroring the corresponding entry of
+ * {@link CitizenConsent#getConsents()}. It turns "which citizens enabled this TPP" into an index
+ * range scan on {@code {tppId, tppState, fiscalCode}} instead of a collection scan on the dynamic
+ * {@code consents.<tppId>} path.</p>
+ *
+ * <p>{@code indexedAt} is refreshed on every write and lets the backfill job prune entries that
+ * no longer have a source consent.</p>
+ *
+ * <p>Removing a citizen leaves a tombstone ({@code removed}, with {@code tppState} false, so reverse lookups skip
+ * it) instead of deleting the entries: a backfill that read the citizen before the removal finds a newer entry and
+ * does not write it back. Tombstones are pruned by the next backfill.</p>
+ */
+@Document(collection = "tpp_citizen_index")
+@Data
+@SuperBuilder
+@NoArgsConstructor
+public class TppCitizenIndex {
+
+    private String id;
+    private String tppId;
+    private String fiscalCode;
+    private Boolean tppState;
+    private LocalDateTime tcDate;
+    private LocalDateTime indexedAt;
+    private Boolean removed;
+
+}
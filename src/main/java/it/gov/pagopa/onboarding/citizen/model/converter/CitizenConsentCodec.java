@@ -0,0 +1,147 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.CONSENTS;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.FISCAL_CODE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.ID;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TC_DATE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TPP_ID;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TPP_STATE;
+
+/**
+ * <p>Decodes {@code citizen_consents} documents straight from BSON into {@link CitizenConsent} and
+ * {@link ConsentDetails}, without the intermediate {@link org.bson.Document} and the reflective mapping.</p>
+ *
+ * <p>Same result of {@link CitizenConsentReadConverter}: both layouts of {@link ConsentStorageLayout} are accepted,
+ * {@code consents} is a mutable map ({@code null} if not projected) and {@code tcDate} is read in the system default
+ * zone. v2 consents without {@code tppId} are skipped. With {@link #WITHOUT_TC_DATE} the dates are skipped, for
+ * callers needing only the consent states.</p>
+ *
+ * <p>Read only: writes go through Spring Data, so that {@code CitizenConsentSchemaCallback} stores the configured
+ * layout and {@code enabledConsentCount}.</p>
+ */
+public class CitizenConsentCodec implements Codec<CitizenConsent> {
+
+    public static final CitizenConsentCodec FULL = new CitizenConsentCodec(true);
+    public static final CitizenConsentCodec WITHOUT_TC_DATE = new CitizenConsentCodec(false);
+
+    private final boolean decodeTcDate;
+
+    private CitizenConsentCodec(boolean decodeTcDate) {
+        this.decodeTcDate = decodeTcDate;
+    }
+
+    @Override
+    public CitizenConsent decode(BsonReader reader, DecoderContext decoderContext) {
+        CitizenConsent citizenConsent = new CitizenConsent();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case ID -> citizenConsent.setId(readId(reader));
+                case FISCAL_CODE -> citizenConsent.setFiscalCode(readString(reader));
+                case CONSENTS -> citizenConsent.setConsents(readConsents(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return citizenConsent;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, CitizenConsent value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("CitizenConsent is written through Spring Data");
+    }
+
+    @Override
+    public Class<CitizenConsent> getEncoderClass() {
+        return CitizenConsent.class;
+    }
+
+    private Map<String, ConsentDetails> readConsents(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case DOCUMENT -> {
+                Map<String, ConsentDetails> consents = new HashMap<>();
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    String tppId = reader.readName();
+                    consents.put(tppId, readConsentDetails(reader, null));
+                }
+                reader.readEndDocument();
+                return consents;
+            }
+            case ARRAY -> {
+                Map<String, ConsentDetails> consents = new HashMap<>();
+                String[] tppId = new String[1];
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    ConsentDetails details = readConsentDetails(reader, tppId);
+                    if (tppId[0] != null) {
+                        consents.put(tppId[0], details);
+                    }
+                }
+                reader.readEndArray();
+                return consents;
+            }
+            default -> {
+                reader.skipValue();
+                return null;
+            }
+        }
+    }
+
+    /** @param tppId if not {@code null}, it will receive the {@code tppId} field of a v2 consent */
+    private ConsentDetails readConsentDetails(BsonReader reader, String[] tppId) {
+        ConsentDetails details = new ConsentDetails();
+        if (tppId != null) {
+            tppId[0] = null;
+        }
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (TPP_STATE.equals(name) && reader.getCurrentBsonType() == BsonType.BOOLEAN) {
+                details.setTppState(reader.readBoolean());
+            } else if (TC_DATE.equals(name) && decodeTcDate && reader.getCurrentBsonType() == BsonType.DATE_TIME) {
+                details.setTcDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.readDateTime()), ZoneId.systemDefault()));
+            } else if (TPP_ID.equals(name) && tppId != null) {
+                tppId[0] = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return details;
+    }
+
+    private static String readId(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case OBJECT_ID -> reader.readObjectId().toHexString();
+            case STRING -> reader.readString();
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    private static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
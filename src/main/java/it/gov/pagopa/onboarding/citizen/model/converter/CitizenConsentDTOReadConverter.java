@@ -0,0 +1,41 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import com.mongodb.lang.NonNull;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO.ConsentDTO;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+import java.util.Map;
+
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.CONSENTS;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.FISCAL_CODE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TC_DATE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TPP_STATE;
+
+/**
+ * <p>Read-only projection of {@code citizen_consents} documents straight into the response {@link CitizenConsentDTO}.</p>
+ *
+ * <p>Used by the read endpoints, which never modify the aggregate: the raw document is mapped once,
+ * skipping the {@code CitizenConsent}/{@code ConsentDetails} instances and their copy through
+ * {@code CitizenConsentObjectToDTOMapper}. Both layouts of {@link ConsentStorageLayout} are accepted.</p>
+ */
+@ReadingConverter
+public class CitizenConsentDTOReadConverter implements Converter<Document, CitizenConsentDTO> {
+
+    @Override
+    public CitizenConsentDTO convert(@NonNull Document source) {
+        return CitizenConsentDTO.builder()
+                .fiscalCode(source.getString(FISCAL_CODE))
+                .consents(ConsentStorageLayout.readConsents(source.get(CONSENTS), CitizenConsentDTOReadConverter::readConsent))
+                .build();
+    }
+
+    private static ConsentDTO readConsent(Map<?, ?> consent) {
+        return ConsentDTO.builder()
+                .tppState((Boolean) consent.get(TPP_STATE))
+                .tcDate(ConsentStorageLayout.toLocalDateTime(consent.get(TC_DATE)))
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import com.mongodb.lang.NonNull;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.CONSENTS;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.FISCAL_CODE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.ID;
+
+/**
+ * <p>Dual-read converter for {@code citizen_consents} documents.</p>
+ *
+ * <p>Accepts both the v1 (map) and v2 (array) {@code consents} layouts described in
+ * {@link ConsentStorageLayout}, so documents can be migrated online while every reader keeps
+ * returning the same {@link CitizenConsent} shape.</p>
+ *
+ * <p>Also applied to aggregation results mapped to {@link CitizenConsent}: projections without
+ * {@code consents} yield {@code consents = null}, as with the default mapping.</p>
+ */
+@ReadingConverter
+public class CitizenConsentReadConverter implements Converter<Document, CitizenConsent> {
+
+    @Override
+    public CitizenConsent convert(@NonNull Document source) {
+        return CitizenConsent.builder()
+                .id(readId(source.get(ID)))
+                .fiscalCode(source.getString(FISCAL_CODE))
+                .consents(ConsentStorageLayout.readConsents(source.get(CONSENTS)))
+                .build();
+    }
+
+    private static String readId(Object id) {
+        if (id instanceof ObjectId objectId) {
+            return objectId.toHexString();
+        }
+        return id != null ? id.toString() : null;
+    }
+}
@@ -0,0 +1,50 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeSaveCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.CONSENTS;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.ENABLED_CONSENT_COUNT;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.SCHEMA_VERSION;
+
+/**
+ * <p>Migrate-on-write hook for {@code citizen_consents}.</p>
+ *
+ * <p>Rewrites the mapped document right before it is persisted, so every save stores
+ * {@code consents} in the layout selected by {@code app.consents.storage.writeVersion} and stamps
+ * {@code schemaVersion}. A v1 document touched by any write path is therefore upgraded in place.</p>
+ *
+ * <p>{@code enabledConsentCount} is recomputed here as well: every save replaces the whole
+ * document, so the count is always written atomically with the consents it summarizes.</p>
+ *
+ * <p>A writing {@code Converter<CitizenConsent, Document>} is intentionally not used: Spring Data
+ * would register {@link CitizenConsent} as a simple type and stop treating it as an entity.</p>
+ *
+ * @see ConsentStorageLayout
+ */
+@Component
+public class CitizenConsentSchemaCallback implements ReactiveBeforeSaveCallback<CitizenConsent> {
+
+    private final int writeVersion;
+
+    public CitizenConsentSchemaCallback(@Value("${app.consents.storage.writeVersion:1}") int writeVersion) {
+        if (writeVersion != ConsentStorageLayout.V1 && writeVersion != ConsentStorageLayout.V2) {
+            throw new IllegalArgumentException("Unsupported consents schema version: " + writeVersion);
+        }
+        this.writeVersion = writeVersion;
+    }
+
+    @Override
+    public Publisher<CitizenConsent> onBeforeSave(CitizenConsent entity, Document document, String collection) {
+        Object consents = ConsentStorageLayout.toLayout(document.get(CONSENTS), writeVersion);
+        document.put(CONSENTS, consents);
+        document.put(SCHEMA_VERSION, writeVersion);
+        document.put(ENABLED_CONSENT_COUNT, ConsentStorageLayout.countEnabled(consents));
+        return Mono.just(entity);
+    }
+}
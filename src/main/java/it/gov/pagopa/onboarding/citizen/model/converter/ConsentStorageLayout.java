@@ -0,0 +1,217 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import org.bson.Document;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>Storage layouts of the {@code consents} field of {@code citizen_consents} documents.</p>
+ *
+ * <p><b>v1</b> (map keyed by TPP id):</p>
+ * <pre>
+ * { "fiscalCode": "...", "consents": { "&lt;tppId&gt;": { "tppState": true, "tcDate": ISODate(...) } } }
+ * </pre>
+ *
+ * <p><b>v2</b> (array of consents, indexable with multikey indexes):</p>
+ * <pre>
+ * { "fiscalCode": "...", "schemaVersion": 2,
+ *   "consents": [ { "tppId": "&lt;tppId&gt;", "tppState": true, "tcDate": ISODate(...) } ] }
+ * </pre>
+ *
+ * <p>Documents without {@code schemaVersion} are v1. Both layouts are always readable; the
+ * written one is chosen by {@code app.consents.storage.writeVersion}.</p>
+ *
+ * <p>Both layouts also store {@code enabledConsentCount}, the number of consents with
+ * {@code tppState = true}, denormalized on every write so "has any enabled consent" is an
+ * indexed predicate instead of an expansion of {@code consents}.</p>
+ */
+public final class ConsentStorageLayout {
+
+    public static final int V1 = 1;
+    public static final int V2 = 2;
+
+    public static final String ID = "_id";
+    public static final String FISCAL_CODE = "fiscalCode";
+    public static final String CONSENTS = "consents";
+    public static final String SCHEMA_VERSION = "schemaVersion";
+    public static final String TPP_ID = "tppId";
+    public static final String TPP_STATE = "tppState";
+    public static final String TC_DATE = "tcDate";
+    public static final String ENABLED_CONSENT_COUNT = "enabledConsentCount";
+
+    private ConsentStorageLayout() {}
+
+    /**
+     * <p>Converts a raw {@code consents} value to the requested layout.</p>
+     *
+     * @param consents raw value as stored (v1 {@link Map}, v2 {@link List} or {@code null})
+     * @param version target layout ({@link #V1} or {@link #V2})
+     * @return raw value in the target layout, {@code null} if {@code consents} is {@code null}
+     * @throws IllegalArgumentException if {@code version} is not supported
+     */
+    public static Object toLayout(Object consents, int version) {
+        if (consents == null) {
+            return null;
+        }
+        return switch (version) {
+            case V1 -> toMapLayout(consents);
+            case V2 -> toArrayLayout(consents);
+            default -> throw new IllegalArgumentException("Unsupported consents schema version: " + version);
+        };
+    }
+
+    /**
+     * <p>Reads a raw {@code consents} value, in either layout, into the domain map.</p>
+     *
+     * @param consents raw value as stored
+     * @return mutable map keyed by TPP id, {@code null} if {@code consents} is {@code null} or not a consents value
+     */
+    public static Map<String, ConsentDetails> readConsents(Object consents) {
+        return readConsents(consents, ConsentStorageLayout::readConsentDetails);
+    }
+
+    /**
+     * <p>Reads a raw {@code consents} value, in either layout, mapping each consent with {@code reader}.</p>
+     *
+     * @param consents raw value as stored
+     * @param reader mapper of a single raw consent ({@code tppState} and {@code tcDate} fields)
+     * @return mutable map keyed by TPP id (v2 consents without {@code tppId} are skipped), {@code null} if
+     *         {@code consents} is {@code null} or not a consents value
+     */
+    public static <T> Map<String, T> readConsents(Object consents, Function<Map<?, ?>, T> reader) {
+        if (consents instanceof List<?> array) {
+            Map<String, T> result = HashMap.newHashMap(array.size());
+            for (Object item : array) {
+                Map<?, ?> consent = (Map<?, ?>) item;
+                if (consent.get(TPP_ID) instanceof String tppId) {
+                    result.put(tppId, reader.apply(consent));
+                }
+            }
+            return result;
+        }
+        if (consents instanceof Map<?, ?> map) {
+            Map<String, T> result = HashMap.newHashMap(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                result.put((String) entry.getKey(), reader.apply((Map<?, ?>) entry.getValue()));
+            }
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * <p>Counts the consents with {@code tppState = true} in a raw {@code consents} value, in either layout.</p>
+     *
+     * @param consents raw value as stored
+     * @return number of enabled consents, {@code 0} if {@code consents} is {@code null}
+     */
+    public static int countEnabled(Object consents) {
+        Iterable<?> details;
+        if (consents instanceof List<?> array) {
+            details = array;
+        } else if (consents instanceof Map<?, ?> map) {
+            details = map.values();
+        } else {
+            return 0;
+        }
+        int enabled = 0;
+        for (Object detail : details) {
+            if (detail instanceof Map<?, ?> consent && Boolean.TRUE.equals(consent.get(TPP_STATE))) {
+                enabled++;
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * <p>Checks whether a raw {@code consents} value, in either layout, holds a consent for the TPP.</p>
+     *
+     * @param consents raw value as stored
+     * @param tppId TPP identifier
+     * @return {@code true} if a consent for {@code tppId} exists
+     */
+    public static boolean containsConsent(Object consents, String tppId) {
+        if (consents instanceof List<?> array) {
+            return array.stream().anyMatch(item -> item instanceof Map<?, ?> consent && tppId.equals(consent.get(TPP_ID)));
+        }
+        return consents instanceof Map<?, ?> map && map.containsKey(tppId);
+    }
+
+    /**
+     * <p>Adds (or replaces) the consent of a TPP to a raw {@code consents} value.</p>
+     *
+     * @param consents raw value as stored, {@code null} for a new citizen
+     * @param tppId TPP identifier
+     * @param details consent to store
+     * @param version target layout ({@link #V1} or {@link #V2})
+     * @return new raw value in the target layout; {@code consents} is not modified
+     */
+    public static Object withConsent(Object consents, String tppId, ConsentDetails details, int version) {
+        Document map = consents != null ? toMapLayout(consents) : new Document();
+        map.put(tppId, new Document(TPP_STATE, details.getTppState())
+                .append(TC_DATE, toDate(details.getTcDate())));
+        return toLayout(map, version);
+    }
+
+    private static List<Object> toArrayLayout(Object consents) {
+        if (consents instanceof List<?> array) {
+            return new ArrayList<>(array);
+        }
+        Map<?, ?> map = (Map<?, ?>) consents;
+        List<Object> array = new ArrayList<>(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Map<?, ?> details = (Map<?, ?>) entry.getValue();
+            array.add(new Document(TPP_ID, entry.getKey())
+                    .append(TPP_STATE, details.get(TPP_STATE))
+                    .append(TC_DATE, details.get(TC_DATE)));
+        }
+        return array;
+    }
+
+    private static Document toMapLayout(Object consents) {
+        if (consents instanceof Map<?, ?> map) {
+            Document document = new Document();
+            map.forEach((key, value) -> document.append((String) key, value));
+            return document;
+        }
+        Document document = new Document();
+        for (Object item : (List<?>) consents) {
+            Map<?, ?> consent = (Map<?, ?>) item;
+            document.append((String) consent.get(TPP_ID), new Document(TPP_STATE, consent.get(TPP_STATE))
+                    .append(TC_DATE, consent.get(TC_DATE)));
+        }
+        return document;
+    }
+
+    private static ConsentDetails readConsentDetails(Map<?, ?> consent) {
+        return ConsentDetails.builder()
+                .tppState((Boolean) consent.get(TPP_STATE))
+                .tcDate(toLocalDateTime(consent.get(TC_DATE)))
+                .build();
+    }
+
+    /**
+     * <p>Same conversion applied by Spring Data for {@link LocalDateTime} properties (system default zone).</p>
+     */
+    public static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Date date) {
+            return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        }
+        return null;
+    }
+
+    /**
+     * <p>Inverse of {@link #toLocalDateTime(Object)}.</p>
+     */
+    public static Date toDate(LocalDateTime value) {
+        return value != null ? Date.from(value.atZone(ZoneId.systemDefault()).toInstant()) : null;
+    }
+}
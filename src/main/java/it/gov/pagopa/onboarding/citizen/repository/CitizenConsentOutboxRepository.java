@@ -0,0 +1,41 @@
+package it.gov.pagopa.onboarding.citizen.repository;
+
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsentChangeEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <p>Reactive repository for the {@link CitizenConsentChangeEvent} outbox.</p>
+ *
+ * <p>The relay query is served by the compound index {@code {publishedAt, eventDate}}.</p>
+ *
+ * <p>Collection name: {@code citizen_consent_outbox}</p>
+ */
+public interface CitizenConsentOutboxRepository extends ReactiveMongoRepository<CitizenConsentChangeEvent, String> {
+
+    /**
+     * <p>Streams the oldest events not yet published.</p>
+     *
+     * @param limit maximum number of events to return
+     * @return {@code Flux} of pending events, in recording order
+     */
+    Flux<CitizenConsentChangeEvent> findByPublishedAtIsNullOrderByEventDateAsc(Limit limit);
+
+    /**
+     * <p>Marks the given events as published.</p>
+     *
+     * @param ids event identifiers
+     * @param publishedAt publication instant, also the start of the retention period
+     * @return {@code Mono} emitting the number of modified events
+     */
+    @Query("{ '_id': { '$in': ?0 } }")
+    @Update("{ '$set': { 'publishedAt': ?1 } }")
+    Mono<Long> markPublished(List<String> ids, LocalDateTime publishedAt);
+}
@@ -2,7 +2,6 @@ package it.gov.pagopa.onboarding.citizen.repository;
 
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
-import reactor.core.publisher.Mono;
 
 /**
  * <p>Primary reactive repository interface for {@link CitizenConsent} persistence operations.</p>
@@ -10,7 +9,7 @@ import reactor.core.publisher.Mono;
  * <p>Combines Spring Data MongoDB auto-generated CRUD methods with custom query implementations:</p>
  * <ul>
  *   <li>{@link ReactiveMongoRepository} provides standard operations (save, findById, delete, etc.)</li>
- *   <li>{@link CitizenSpecificRepository} exposes complex aggregation queries</li>
+ *   <li>{@link CitizenSpecificRepository} exposes complex aggregation queries and the codec-decoded reads</li>
  * </ul>
  *
  * <p>Collection name: {@code citizen_consents}</p>
@@ -19,14 +18,4 @@ import reactor.core.publisher.Mono;
  * @see CitizenSpecificRepositoryImpl
  */
 public interface CitizenRepository extends ReactiveMongoRepository<CitizenConsent, String>, CitizenSpecificRepository {
-
-    /**
-     * <p>Finds a citizen consent document by fiscal code.</p>
-     *
-     * <p>Returns the entire document including all TPP consents.</p>
-     *
-     * @param fiscalCode citizen's fiscal code (must not be {@code null})
-     * @return {@code Mono} emitting the document if found, empty otherwise
-     */
-    Mono<CitizenConsent> findByFiscalCode(String fiscalCode);
 }
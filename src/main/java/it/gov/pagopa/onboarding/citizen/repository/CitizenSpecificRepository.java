@@ -1,9 +1,17 @@
 package it.gov.pagopa.onboarding.citizen.repository;
 
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import org.bson.Document;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * <p>Contract for custom MongoDB aggregation queries on {@link CitizenConsent} collection.</p>
  *
@@ -16,10 +24,20 @@ import reactor.core.publisher.Mono;
  */
 public interface CitizenSpecificRepository {
 
+    /**
+     * <p>Finds a citizen consent document by fiscal code.</p>
+     *
+     * <p>Returns the entire document including all TPP consents, decoded straight from BSON.</p>
+     *
+     * @param fiscalCode citizen's fiscal code (must not be {@code null})
+     * @return {@code Mono} emitting the document if found, empty otherwise
+     */
+    Mono<CitizenConsent> findByFiscalCode(String fiscalCode);
+
     /**
      * <p>Finds a specific TPP consent within a citizen's document.</p>
      *
-     * <p>Projects only the requested consent field ({@code consents.<tppId>}) using MongoDB aggregation.</p>
+     * <p>Projects only the requested consent using MongoDB aggregation.</p>
      *
      * @param fiscalCode citizen's fiscal code (must not be {@code null})
      * @param tppId      TPP identifier (must not be {@code null})
@@ -27,23 +45,130 @@ public interface CitizenSpecificRepository {
      */
     Mono<CitizenConsent> findByFiscalCodeAndTppId(String fiscalCode, String tppId);
 
+    /**
+     * <p>Same as {@link #findByFiscalCodeAndTppId(String, String)}, mapping the projected document
+     * straight into the response DTO.</p>
+     *
+     * @param fiscalCode citizen's fiscal code (must not be {@code null})
+     * @param tppId      TPP identifier (must not be {@code null})
+     * @return {@code Mono} emitting the DTO with single consent, empty if not found or tppId is {@code null}
+     */
+    Mono<CitizenConsentDTO> findDTOByFiscalCodeAndTppId(String fiscalCode, String tppId);
+
+    /**
+     * <p>Finds a citizen's consents, mapping the document straight into the response DTO.</p>
+     *
+     * <p>Read-only alternative to {@code findByFiscalCode}, projecting only {@code fiscalCode} and {@code consents}.</p>
+     *
+     * @param fiscalCode citizen's fiscal code (must not be {@code null})
+     * @return {@code Mono} emitting the DTO with all the consents, empty if not found
+     */
+    Mono<CitizenConsentDTO> findDTOByFiscalCode(String fiscalCode);
+
+    /**
+     * <p>Finds the consent of a specific TPP for many citizens with a single aggregation.</p>
+     *
+     * <p>Citizens without a consent for the TPP are not emitted.</p>
+     *
+     * @param fiscalCodes citizens' fiscal codes
+     * @param tppId       TPP identifier (must not be {@code null})
+     * @return {@code Flux} emitting projected documents with single consent
+     */
+    Flux<CitizenConsent> findByFiscalCodeInAndTppId(Collection<String> fiscalCodes, String tppId);
+
     /**
      * <p>Finds all citizens with an enabled consent for a specific TPP.</p>
      *
-     * <p>Filters documents where {@code consents.<tppId>.tppState = true} and projects only fiscal code and the matching consent.</p>
+     * <p>Filters documents with an enabled consent for the TPP and projects only fiscal code and the matching consent.</p>
      *
      * @param tppId TPP identifier (must not be {@code null})
      * @return {@code Flux} emitting projected documents with enabled consent (possibly empty)
      */
     Flux<CitizenConsent> findByTppIdEnabled(String tppId);
 
+    /**
+     * <p>Same as {@link #findByTppIdEnabled(String)}, mapping each projected document straight into the response DTO.</p>
+     *
+     * @param tppId TPP identifier (must not be {@code null})
+     * @return {@code Flux} emitting DTOs with enabled consent (possibly empty)
+     */
+    Flux<CitizenConsentDTO> findDTOByTppIdEnabled(String tppId);
+
+    /**
+     * <p>Counts citizens with an enabled consent for a specific TPP.</p>
+     *
+     * <p>Same predicate as {@link #findByTppIdEnabled(String)}; prefer the {@code tpp_citizen_index}
+     * reverse index when available, since v1 documents ({@code consents.<tppId>}) cannot be indexed.</p>
+     *
+     * @param tppId TPP identifier (must not be {@code null})
+     * @return {@code Mono} emitting the number of matching documents
+     */
+    Mono<Long> countByTppIdEnabled(String tppId);
+
     /**
      * <p>Finds a citizen with at least one enabled consent across all TPPs.</p>
      *
-     * <p>Uses {@code $objectToArray} to flatten the consents map and filters for {@code tppState = true}.</p>
+     * <p>Uses the denormalized {@code enabledConsentCount} when
+     * {@code app.consents.storage.enabledCount.readEnabled} is set, otherwise normalizes the
+     * consents (v1 map or v2 array) to an array and filters for {@code tppState = true}.</p>
      *
      * @param fiscalCode citizen's fiscal code (must not be {@code null})
      * @return {@code Mono} emitting the document if at least one consent is enabled, empty otherwise
      */
     Mono<CitizenConsent> findByFiscalCodeWithAtLeastOneConsent(String fiscalCode);
+
+    /**
+     * <p>Streams the fiscal codes of all citizens with at least one enabled consent.</p>
+     *
+     * <p>Same predicate as {@link #findByFiscalCodeWithAtLeastOneConsent(String)}, used to populate
+     * the Bloom Filter.</p>
+     *
+     * @return {@code Flux} of fiscal codes (possibly empty)
+     */
+    Flux<String> findFiscalCodesWithEnabledConsents();
+
+    /**
+     * <p>Streams the raw documents of the given fiscal codes, in their stored layout.</p>
+     *
+     * <p>Only {@code _id}, {@code fiscalCode} and {@code consents} are returned.</p>
+     *
+     * @param fiscalCodes fiscal codes to look up
+     * @return {@code Flux} of raw documents (fiscal codes without a document are skipped)
+     */
+    Flux<Document> findRawByFiscalCodeIn(Collection<String> fiscalCodes);
+
+    /**
+     * <p>Adds or replaces consents of many citizens with a single unordered bulk write.</p>
+     *
+     * <p>Each raw document with an {@code _id} (as returned by {@link #findRawByFiscalCodeIn(Collection)})
+     * is updated only if its {@code consents} did not change since it was read; a document with
+     * only {@code fiscalCode} is inserted as a new citizen. Both conflicts surface as duplicate key
+     * errors ({@code 11000}).</p>
+     *
+     * @param citizens raw documents to update or create
+     * @param consents consents to put, by TPP identifier, aligned with {@code citizens}
+     * @return {@code Mono} emitting the write errors, indexed by position in {@code citizens} (empty if all succeeded)
+     */
+    Mono<List<BulkWriteError>> putConsents(List<Document> citizens, List<Map<String, ConsentDetails>> consents);
+
+    /**
+     * <p>Streams raw documents whose {@code schemaVersion} differs from the given one (missing included)
+     * or still lacking {@code enabledConsentCount}.</p>
+     *
+     * <p>Only {@code _id} and {@code consents} are returned.</p>
+     *
+     * @param schemaVersion target schema version
+     * @return {@code Flux} of raw documents still to migrate
+     */
+    Flux<Document> findNotInSchemaVersion(int schemaVersion);
+
+    /**
+     * <p>Rewrites the {@code consents} of the given raw documents in the target layout and
+     * stores their {@code enabledConsentCount}.</p>
+     *
+     * @param documents raw documents as returned by {@link #findNotInSchemaVersion(int)}
+     * @param schemaVersion target schema version
+     * @return {@code Mono} emitting the number of migrated documents
+     */
+    Mono<Long> migrateToSchemaVersion(List<Document> documents, int schemaVersion);
 }
@@ -1,14 +1,41 @@
 package it.gov.pagopa.onboarding.citizen.repository;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.converter.CitizenConsentCodec;
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
 import lombok.Data;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * <p>Implementation of custom MongoDB aggregation queries for {@link CitizenConsent}.</p>
  *
@@ -18,6 +45,11 @@ import reactor.core.publisher.Mono;
  * <p>All methods use MongoDB Aggregation Framework to optimize query performance
  * by projecting only required fields and filtering at database level.</p>
  *
+ * <p>Every query matches both storage layouts of {@code consents} (v1 map keyed by TPP id,
+ * v2 array of consents, see {@link ConsentStorageLayout}), so results are the same while
+ * documents are being migrated. Projections keep returning a single-entry consents value that
+ * the dual-read converter maps back to the usual {@code Map<String, ConsentDetails>}.</p>
+ *
  * @see CitizenSpecificRepository
  */
 @Repository
@@ -25,7 +57,21 @@ public class CitizenSpecificRepositoryImpl implements CitizenSpecificRepository
 
     private final ReactiveMongoTemplate mongoTemplate;
 
-    private static final String FISCAL_CODE = "fiscalCode";
+    private static final String FISCAL_CODE = ConsentStorageLayout.FISCAL_CODE;
+    private static final String CONSENTS = ConsentStorageLayout.CONSENTS;
+    private static final String CONSENTS_REF = "$" + CONSENTS;
+    private static final String CONSENTS_ARRAY = "consentsArray";
+    private static final String TPP_ID = ConsentStorageLayout.TPP_ID;
+    private static final String TPP_STATE = ConsentStorageLayout.TPP_STATE;
+    private static final String SCHEMA_VERSION = ConsentStorageLayout.SCHEMA_VERSION;
+    private static final String ENABLED_CONSENT_COUNT = ConsentStorageLayout.ENABLED_CONSENT_COUNT;
+
+    /** Enable once every document stores {@code enabledConsentCount} (see {@code ConsentSchemaMigrator}). */
+    @Value("${app.consents.storage.enabledCount.readEnabled:false}")
+    private boolean enabledCountReadEnabled;
+
+    @Value("${app.consents.storage.writeVersion:1}")
+    private int writeVersion = ConsentStorageLayout.V1;
 
     public CitizenSpecificRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
         this.mongoTemplate = mongoTemplate;
@@ -34,19 +80,42 @@ public class CitizenSpecificRepositoryImpl implements CitizenSpecificRepository
     /**
      * {@inheritDoc}
      *
-     * <p><b>MongoDB Aggregation Pipeline:</b></p>
+     * <p><b>MongoDB Query</b> (served by the unique {@code fiscalCode} index):</p>
+     * <pre>
+     * db.citizen_consents.findOne({ "fiscalCode": "&lt;fiscalCode&gt;" })
+     * </pre>
+     *
+     * <p>Decoded by {@link CitizenConsentCodec#FULL}.</p>
+     */
+    public Mono<CitizenConsent> findByFiscalCode(String fiscalCode) {
+        return citizenConsents(CitizenConsentCodec.FULL)
+                .flatMap(collection -> Mono.from(collection.find(Filters.eq(FISCAL_CODE, fiscalCode)).first()));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Query</b> (with {@code enabledCountReadEnabled}, served by the unique {@code fiscalCode} index):</p>
+     * <pre>
+     * db.citizen_consents.find({ "fiscalCode": "&lt;fiscalCode&gt;", "enabledConsentCount": { "$gt": 0 } }, { "fiscalCode": 1 })
+     * </pre>
+     *
+     * <p><b>MongoDB Aggregation Pipeline</b> (otherwise):</p>
      * <pre>
      * [
      *   { "$match": { "fiscalCode": "&lt;fiscalCode&gt;" } },
-     *   { "$project": { "fiscalCode": 1, "consentsArray": { "$objectToArray": "$consents" } } },
-     *   { "$match": { "consentsArray.v.tppState": true } }
+     *   { "$project": { "fiscalCode": 1, "consentsArray": { "$cond": [
+     *       { "$isArray": "$consents" },
+     *       "$consents",
+     *       { "$map": { "input": { "$objectToArray": "$consents" }, "in": "$$this.v" } } ] } } },
+     *   { "$match": { "consentsArray.tppState": true } }
      * ]
      * </pre>
      *
      * <p><b>Stages explanation:</b></p>
      * <ol>
      *   <li><b>Stage 1 ($match):</b> Filter by fiscal code</li>
-     *   <li><b>Stage 2 ($project):</b> Convert {@code consents} map to array for filtering</li>
+     *   <li><b>Stage 2 ($project):</b> Normalize {@code consents} to an array of consent details (v2 as is, v1 map values)</li>
      *   <li><b>Stage 3 ($match):</b> Filter consents where {@code tppState = true}</li>
      * </ol>
      *
@@ -57,17 +126,54 @@ public class CitizenSpecificRepositoryImpl implements CitizenSpecificRepository
      * @return {@code Mono<CitizenConsent>} with {@code fiscalCode} only (consents is null), empty if no enabled consents
      */
     public Mono<CitizenConsent> findByFiscalCodeWithAtLeastOneConsent(String fiscalCode) {
+        if (enabledCountReadEnabled) {
+            Query query = Query.query(Criteria.where(FISCAL_CODE).is(fiscalCode).and(ENABLED_CONSENT_COUNT).gt(0));
+            query.fields().include(FISCAL_CODE);
+            return mongoTemplate.findOne(query, CitizenConsent.class);
+        }
+
         Aggregation aggregation = Aggregation.newAggregation(
                 Aggregation.match(Criteria.where(FISCAL_CODE).is(fiscalCode)),
-                Aggregation.project(FISCAL_CODE)
-                        .andExpression("{ $objectToArray: \"$consents\" }").as("consentsArray"),
-                Aggregation.match(Criteria.where("consentsArray.v.tppState").is(true))
+                Aggregation.stage(new Document("$project", new Document(FISCAL_CODE, 1)
+                        .append(CONSENTS_ARRAY, new Document("$cond", List.of(
+                                new Document("$isArray", CONSENTS_REF),
+                                CONSENTS_REF,
+                                new Document("$map", new Document("input", new Document("$objectToArray", CONSENTS_REF))
+                                        .append("in", "$$this.v"))))))),
+                Aggregation.match(Criteria.where(CONSENTS_ARRAY + "." + TPP_STATE).is(true))
         );
 
         return mongoTemplate.aggregate(aggregation, "citizen_consents", CitizenConsent.class)
                 .next();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Query</b> (with {@code enabledCountReadEnabled}, covered by the partial index
+     * {@code { enabledConsentCount: 1, fiscalCode: 1 }} on active citizens):</p>
+     * <pre>
+     * db.citizen_consents.find({ "enabledConsentCount": { "$gt": 0 } }, { "_id": 0, "fiscalCode": 1 })
+     * </pre>
+     *
+     * <p>Otherwise {@code fiscalCode} and {@code consents} of every document are streamed, decoded by
+     * {@link CitizenConsentCodec#WITHOUT_TC_DATE}, and enabled consents are looked for in memory.</p>
+     */
+    public Flux<String> findFiscalCodesWithEnabledConsents() {
+        if (enabledCountReadEnabled) {
+            Query query = Query.query(Criteria.where(ENABLED_CONSENT_COUNT).gt(0));
+            query.fields().include(FISCAL_CODE).exclude(ConsentStorageLayout.ID);
+            return mongoTemplate.find(query, Document.class, "citizen_consents")
+                    .map(document -> document.getString(FISCAL_CODE));
+        }
+
+        return citizenConsents(CitizenConsentCodec.WITHOUT_TC_DATE)
+                .flatMapMany(collection -> collection.find().projection(Projections.include(FISCAL_CODE, CONSENTS)))
+                .filter(citizenConsent -> citizenConsent.getConsents() != null && citizenConsent.getConsents().values().stream()
+                        .anyMatch(consent -> Boolean.TRUE.equals(consent.getTppState())))
+                .map(CitizenConsent::getFiscalCode);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -75,16 +181,17 @@ public class CitizenSpecificRepositoryImpl implements CitizenSpecificRepository
      * <pre>
      * [
      *   { "$match": { "fiscalCode": "&lt;fiscalCode&gt;" } },
-     *   { "$match": { "consents.&lt;tppId&gt;": { "$exists": true } } },
-     *   { "$project": { "fiscalCode": 1, "consents.&lt;tppId&gt;": 1 } }
+     *   { "$match": { "$or": [ { "consents.&lt;tppId&gt;": { "$exists": true } }, { "consents.tppId": "&lt;tppId&gt;" } ] } },
+     *   { "$project": { "fiscalCode": 1, "consents": &lt;single consent expression&gt; } }
      * ]
      * </pre>
      *
      * <p><b>Stages explanation:</b></p>
      * <ol>
      *   <li><b>Stage 1 ($match):</b> Filter by fiscal code</li>
-     *   <li><b>Stage 2 ($match):</b> Check if {@code consents.<tppId>} exists</li>
-     *   <li><b>Stage 3 ($project):</b> Return only {@code fiscalCode} and the specific consent</li>
+     *   <li><b>Stage 2 ($match):</b> Check if the consent exists (v1 key or v2 array element)</li>
+     *   <li><b>Stage 3 ($project):</b> Return only {@code fiscalCode} and the specific consent,
+     *   see {@link #singleConsentProjection(String)}</li>
      * </ol>
      *
      * <p><b>Example result:</b></p>
@@ -102,36 +209,100 @@ public class CitizenSpecificRepositoryImpl implements CitizenSpecificRepository
      * @return {@code Mono<CitizenConsent>} with single consent, empty if not found or tppId is {@code null}
      */
     public Mono<CitizenConsent> findByFiscalCodeAndTppId(String fiscalCode, String tppId) {
+        return findByFiscalCodeAndTppId(fiscalCode, tppId, CitizenConsent.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same pipeline as {@link #findByFiscalCodeAndTppId(String, String)}.</p>
+     */
+    public Mono<CitizenConsentDTO> findDTOByFiscalCodeAndTppId(String fiscalCode, String tppId) {
+        return findByFiscalCodeAndTppId(fiscalCode, tppId, CitizenConsentDTO.class);
+    }
+
+    private <T> Mono<T> findByFiscalCodeAndTppId(String fiscalCode, String tppId, Class<T> outputType) {
         if (tppId == null) {
             return Mono.empty();
         }
 
-        String consent = "consents." + tppId;
         Aggregation aggregation = Aggregation.newAggregation(
                 Aggregation.match(Criteria.where(FISCAL_CODE).is(fiscalCode)),
-                Aggregation.match(Criteria.where(consent).exists(true)),
-                Aggregation.project(FISCAL_CODE).and(consent).as(consent)
+                Aggregation.match(new Criteria().orOperator(
+                        Criteria.where(CONSENTS + "." + tppId).exists(true),
+                        Criteria.where(CONSENTS + "." + TPP_ID).is(tppId))),
+                singleConsentProjection(tppId)
         );
 
-        return mongoTemplate.aggregate(aggregation, "citizen_consents", CitizenConsent.class)
+        return mongoTemplate.aggregate(aggregation, "citizen_consents", outputType)
                 .next();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Query</b> (served by the unique {@code fiscalCode} index):</p>
+     * <pre>
+     * db.citizen_consents.findOne({ "fiscalCode": "&lt;fiscalCode&gt;" }, { "fiscalCode": 1, "consents": 1 })
+     * </pre>
+     */
+    public Mono<CitizenConsentDTO> findDTOByFiscalCode(String fiscalCode) {
+        Query query = Query.query(Criteria.where(FISCAL_CODE).is(fiscalCode));
+        query.fields().include(FISCAL_CODE, CONSENTS);
+        return mongoTemplate.findOne(query, CitizenConsentDTO.class, "citizen_consents");
+    }
+
     /**
      * {@inheritDoc}
      *
      * <p><b>MongoDB Aggregation Pipeline:</b></p>
      * <pre>
      * [
-     *   { "$match": { "consents.&lt;tppId&gt;.tppState": true } },
-     *   { "$project": { "fiscalCode": 1, "consents.&lt;tppId&gt;": 1 } }
+     *   { "$match": { "fiscalCode": { "$in": [ &lt;fiscalCodes&gt; ] },
+     *                 "$or": [ { "consents.&lt;tppId&gt;": { "$exists": true } }, { "consents.tppId": "&lt;tppId&gt;" } ] } },
+     *   { "$project": { "fiscalCode": 1, "consents": &lt;single consent expression&gt; } }
+     * ]
+     * </pre>
+     *
+     * <p>The {@code $match} is served by the unique {@code fiscalCode} index; only the requested
+     * consent of each citizen leaves the server, see {@link #singleConsentProjection(String)}.</p>
+     */
+    public Flux<CitizenConsent> findByFiscalCodeInAndTppId(Collection<String> fiscalCodes, String tppId) {
+        if (tppId == null || fiscalCodes.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(
+                        Criteria.where(FISCAL_CODE).in(fiscalCodes),
+                        new Criteria().orOperator(
+                                Criteria.where(CONSENTS + "." + tppId).exists(true),
+                                Criteria.where(CONSENTS + "." + TPP_ID).is(tppId)))),
+                singleConsentProjection(tppId)
+        );
+
+        return mongoTemplate.aggregate(aggregation, "citizen_consents", CitizenConsent.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Aggregation Pipeline:</b></p>
+     * <pre>
+     * [
+     *   { "$match": { "$or": [
+     *       { "consents.&lt;tppId&gt;.tppState": true },
+     *       { "consents": { "$elemMatch": { "tppId": "&lt;tppId&gt;", "tppState": true } } } ] } },
+     *   { "$project": { "fiscalCode": 1, "consents": &lt;single consent expression&gt; } }
      * ]
      * </pre>
      *
      * <p><b>Stages explanation:</b></p>
      * <ol>
-     *   <li><b>Stage 1 ($match):</b> Filter documents where {@code consents.<tppId>.tppState = true}</li>
-     *   <li><b>Stage 2 ($project):</b> Return only {@code fiscalCode} and the matching consent</li>
+     *   <li><b>Stage 1 ($match):</b> Filter documents with an enabled consent for the TPP; the v2 branch
+     *   can use the multikey index {@code {consents.tppId: 1, consents.tppState: 1}}</li>
+     *   <li><b>Stage 2 ($project):</b> Return only {@code fiscalCode} and the matching consent,
+     *   see {@link #singleConsentProjection(String)}</li>
      * </ol>
      *
      * <p><b>Performance note:</b> This query can return multiple documents (one per citizen
@@ -154,15 +325,209 @@ public class CitizenSpecificRepositoryImpl implements CitizenSpecificRepository
      * @return {@code Flux<CitizenConsent>} emitting all citizens with enabled consent (possibly empty)
      */
     public Flux<CitizenConsent> findByTppIdEnabled(String tppId) {
-        String consent = "consents." + tppId;
-        String tppStatePath = consent + ".tppState";
+        return findByTppIdEnabled(tppId, CitizenConsent.class);
+    }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same pipeline as {@link #findByTppIdEnabled(String)}.</p>
+     */
+    public Flux<CitizenConsentDTO> findDTOByTppIdEnabled(String tppId) {
+        return findByTppIdEnabled(tppId, CitizenConsentDTO.class);
+    }
+
+    private <T> Flux<T> findByTppIdEnabled(String tppId, Class<T> outputType) {
         Aggregation aggregation = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where(tppStatePath).is(true)),
-                Aggregation.project(FISCAL_CODE).and(consent).as(consent)
+                Aggregation.match(enabledForTpp(tppId)),
+                singleConsentProjection(tppId)
         );
 
-        return mongoTemplate.aggregate(aggregation, "citizen_consents", CitizenConsent.class);
+        return mongoTemplate.aggregate(aggregation, "citizen_consents", outputType);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Query:</b></p>
+     * <pre>
+     * db.citizen_consents.countDocuments({ "$or": [
+     *   { "consents.&lt;tppId&gt;.tppState": true },
+     *   { "consents": { "$elemMatch": { "tppId": "&lt;tppId&gt;", "tppState": true } } } ] })
+     * </pre>
+     *
+     * @param tppId TPP identifier
+     * @return {@code Mono<Long>} number of citizens with enabled consent
+     */
+    public Mono<Long> countByTppIdEnabled(String tppId) {
+        return mongoTemplate.count(Query.query(enabledForTpp(tppId)), "citizen_consents");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Query:</b></p>
+     * <pre>
+     * db.citizen_consents.find({ "fiscalCode": { "$in": [ ... ] } }, { "fiscalCode": 1, "consents": 1 })
+     * </pre>
+     */
+    public Flux<Document> findRawByFiscalCodeIn(Collection<String> fiscalCodes) {
+        if (fiscalCodes.isEmpty()) {
+            return Flux.empty();
+        }
+        Query query = Query.query(Criteria.where(FISCAL_CODE).in(fiscalCodes));
+        query.fields().include(FISCAL_CODE, CONSENTS);
+        return mongoTemplate.find(query, Document.class, "citizen_consents");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>Bulk operations (unordered):</b></p>
+     * <pre>
+     * // existing citizen: compare-and-set on the consents as read
+     * { "updateOne": {
+     *     "filter": { "_id": &lt;id&gt;, "fiscalCode": &lt;fiscalCode&gt;, "consents": &lt;consents as read&gt; },
+     *     "update": { "$set": { "consents": &lt;consents with the new ones&gt;, "schemaVersion": &lt;writeVersion&gt;,
+     *                           "enabledConsentCount": &lt;enabled consents&gt; } },
+     *     "upsert": true } }
+     * // new citizen
+     * { "insertOne": { "document": { "fiscalCode": &lt;fiscalCode&gt;, "consents": ..., "schemaVersion": ..., "enabledConsentCount": ... } } }
+     * </pre>
+     *
+     * <p>When the consents changed concurrently the update filter misses and the upsert tries to
+     * insert the same {@code _id}, failing with a duplicate key error; a concurrent creation of a
+     * new citizen fails the same way on the unique {@code fiscalCode} index. The driver is used
+     * directly to get the per-operation errors of the unordered bulk.</p>
+     */
+    public Mono<List<BulkWriteError>> putConsents(List<Document> citizens, List<Map<String, ConsentDetails>> changes) {
+        if (citizens.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<WriteModel<Document>> models = new ArrayList<>(citizens.size());
+        for (int i = 0; i < citizens.size(); i++) {
+            Document citizen = citizens.get(i);
+            Object consents = citizen.get(CONSENTS);
+            for (Map.Entry<String, ConsentDetails> change : changes.get(i).entrySet()) {
+                consents = ConsentStorageLayout.withConsent(consents, change.getKey(), change.getValue(), writeVersion);
+            }
+            Document fields = new Document(CONSENTS, consents)
+                    .append(SCHEMA_VERSION, writeVersion)
+                    .append(ENABLED_CONSENT_COUNT, ConsentStorageLayout.countEnabled(consents));
+            if (citizen.containsKey(ConsentStorageLayout.ID)) {
+                models.add(new UpdateOneModel<>(
+                        new Document(ConsentStorageLayout.ID, citizen.get(ConsentStorageLayout.ID))
+                                .append(FISCAL_CODE, citizen.getString(FISCAL_CODE))
+                                .append(CONSENTS, citizen.get(CONSENTS)),
+                        new Document("$set", fields),
+                        new UpdateOptions().upsert(true)));
+            } else {
+                Document newCitizen = new Document(FISCAL_CODE, citizen.getString(FISCAL_CODE));
+                newCitizen.putAll(fields);
+                models.add(new InsertOneModel<>(newCitizen));
+            }
+        }
+
+        return mongoTemplate.getCollection("citizen_consents")
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .<List<BulkWriteError>>map(result -> List.of())
+                .onErrorResume(MongoBulkWriteException.class, error -> error.getWriteConcernError() == null
+                        ? Mono.just(error.getWriteErrors())
+                        : Mono.error(error));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>MongoDB Query:</b></p>
+     * <pre>
+     * db.citizen_consents.find(
+     *   { "$or": [ { "schemaVersion": { "$ne": &lt;schemaVersion&gt; } }, { "enabledConsentCount": { "$exists": false } } ] },
+     *   { "consents": 1 })
+     * </pre>
+     */
+    public Flux<Document> findNotInSchemaVersion(int schemaVersion) {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where(SCHEMA_VERSION).ne(schemaVersion),
+                Criteria.where(ENABLED_CONSENT_COUNT).exists(false)));
+        query.fields().include(CONSENTS);
+        return mongoTemplate.find(query, Document.class, "citizen_consents");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>Bulk operation (one per document, unordered):</b></p>
+     * <pre>
+     * { "updateOne": {
+     *     "filter": { "_id": &lt;id&gt;, "consents": &lt;consents as read&gt; },
+     *     "update": { "$set": { "consents": &lt;consents in target layout&gt;, "schemaVersion": &lt;schemaVersion&gt;,
+     *                           "enabledConsentCount": &lt;enabled consents&gt; } } } }
+     * </pre>
+     *
+     * <p>The filter on the original {@code consents} value makes the update a compare-and-set:
+     * a document changed by a concurrent write after it was read is left untouched, since that
+     * write already stored it in the current layout.</p>
+     */
+    public Mono<Long> migrateToSchemaVersion(List<Document> documents, int schemaVersion) {
+        if (documents.isEmpty()) {
+            return Mono.just(0L);
+        }
+        ReactiveBulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, "citizen_consents");
+        for (Document document : documents) {
+            Object consents = document.get(CONSENTS);
+            bulkOps.updateOne(
+                    Query.query(Criteria.where(ConsentStorageLayout.ID).is(document.get(ConsentStorageLayout.ID))
+                            .and(CONSENTS).is(consents)),
+                    new Update()
+                            .set(CONSENTS, ConsentStorageLayout.toLayout(consents, schemaVersion))
+                            .set(SCHEMA_VERSION, schemaVersion)
+                            .set(ENABLED_CONSENT_COUNT, ConsentStorageLayout.countEnabled(consents)));
+        }
+        return bulkOps.execute()
+                .map(result -> (long) result.getModifiedCount());
+    }
+
+    /**
+     * <p>The {@code citizen_consents} collection decoding its documents with the given codec.</p>
+     */
+    private Mono<MongoCollection<CitizenConsent>> citizenConsents(CitizenConsentCodec codec) {
+        return mongoTemplate.getCollection("citizen_consents")
+                .map(collection -> collection
+                        .withCodecRegistry(CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(codec), collection.getCodecRegistry()))
+                        .withDocumentClass(CitizenConsent.class));
+    }
+
+    /**
+     * <p>Matches documents with an enabled consent for the TPP, in either storage layout.</p>
+     */
+    private static Criteria enabledForTpp(String tppId) {
+        return new Criteria().orOperator(
+                Criteria.where(CONSENTS + "." + tppId + "." + TPP_STATE).is(true),
+                Criteria.where(CONSENTS).elemMatch(Criteria.where(TPP_ID).is(tppId).and(TPP_STATE).is(true)));
+    }
+
+    /**
+     * <p>Projects {@code fiscalCode} and only the consent of the given TPP, keeping the document layout.</p>
+     *
+     * <pre>
+     * { "$project": { "fiscalCode": 1, "consents": { "$cond": [
+     *     { "$isArray": "$consents" },
+     *     { "$filter": { "input": "$consents", "cond": { "$eq": [ "$$this.tppId", { "$literal": "&lt;tppId&gt;" } ] } } },
+     *     { "$arrayToObject": [ [ { "k": { "$literal": "&lt;tppId&gt;" }, "v": "$consents.&lt;tppId&gt;" } ] ] } ] } } }
+     * </pre>
+     */
+    private static AggregationOperation singleConsentProjection(String tppId) {
+        Document tppIdLiteral = new Document("$literal", tppId);
+        Document consentExpression = new Document("$cond", List.of(
+                new Document("$isArray", CONSENTS_REF),
+                new Document("$filter", new Document("input", CONSENTS_REF)
+                        .append("cond", new Document("$eq", List.of("$$this." + TPP_ID, tppIdLiteral)))),
+                new Document("$arrayToObject", List.of(List.of(
+                        new Document("k", tppIdLiteral).append("v", CONSENTS_REF + "." + tppId))))));
+
+        return Aggregation.stage(new Document("$project", new Document(FISCAL_CODE, 1)
+                .append(CONSENTS, consentExpression)));
     }
 
     @Data
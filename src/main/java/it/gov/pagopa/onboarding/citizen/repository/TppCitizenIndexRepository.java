@@ -0,0 +1,45 @@
+package it.gov.pagopa.onboarding.citizen.repository;
+
+import it.gov.pagopa.onboarding.citizen.model.TppCitizenIndex;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>Reactive repository for the {@link TppCitizenIndex} reverse index.</p>
+ *
+ * <p>Derived queries are all served by the compound index {@code {tppId, tppState, fiscalCode}}
+ * or by the unique index {@code {fiscalCode, tppId}}.</p>
+ *
+ * <p>Collection name: {@code tpp_citizen_index}</p>
+ *
+ * @see TppCitizenIndexSpecificRepository
+ */
+public interface TppCitizenIndexRepository extends ReactiveMongoRepository<TppCitizenIndex, String>, TppCitizenIndexSpecificRepository {
+
+    /**
+     * <p>Streams the index entries of citizens with an enabled consent for the given TPP.</p>
+     *
+     * @param tppId TPP identifier (must not be {@code null})
+     * @return {@code Flux} of matching entries (possibly empty)
+     */
+    Flux<TppCitizenIndex> findByTppIdAndTppStateTrue(String tppId);
+
+    /**
+     * <p>Counts citizens with an enabled consent for the given TPP.</p>
+     *
+     * @param tppId TPP identifier (must not be {@code null})
+     * @return {@code Mono} emitting the number of matching entries
+     */
+    Mono<Long> countByTppIdAndTppStateTrue(String tppId);
+
+    /**
+     * <p>Removes entries, tombstones included, not refreshed since the given instant.</p>
+     *
+     * @param threshold entries with {@code indexedAt} strictly before this value are removed
+     * @return {@code Mono} emitting the number of removed entries
+     */
+    Mono<Long> deleteByIndexedAtBefore(LocalDateTime threshold);
+}
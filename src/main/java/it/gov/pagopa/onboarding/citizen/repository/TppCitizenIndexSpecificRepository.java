@@ -0,0 +1,47 @@
+package it.gov.pagopa.onboarding.citizen.repository;
+
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.TppCitizenIndex;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <p>Contract for custom write operations on the {@link TppCitizenIndex} collection.</p>
+ *
+ * <p>Implementation: {@link TppCitizenIndexSpecificRepositoryImpl}</p>
+ *
+ * @see TppCitizenIndexRepository
+ */
+public interface TppCitizenIndexSpecificRepository {
+
+    /**
+     * <p>Upserts one index entry per consent of the given citizens.</p>
+     *
+     * <p>All entries are sent in a single unordered bulk write keyed on {@code {fiscalCode, tppId}}.</p>
+     *
+     * @param citizens citizen aggregates to index (must not be {@code null})
+     * @return {@code Mono} emitting the number of upserted or modified entries
+     */
+    Mono<Long> upsertAll(List<CitizenConsent> citizens);
+
+    /**
+     * <p>Like {@link #upsertAll(List)}, but existing entries are overwritten only if indexed before {@code indexedBefore}:
+     * a newer entry was written after the given consents were read, and is left untouched.</p>
+     *
+     * @param citizens citizen aggregates to index (must not be {@code null})
+     * @param indexedBefore entries indexed from this instant on are not overwritten
+     * @return {@code Mono} emitting the number of upserted or modified entries
+     */
+    Mono<Long> upsertAllIndexedBefore(List<CitizenConsent> citizens, LocalDateTime indexedBefore);
+
+    /**
+     * <p>Turns every index entry of a citizen into a tombstone: {@code tppState} false, {@code removed} true and
+     * {@code indexedAt} refreshed. A later upsert of the same entry clears it.</p>
+     *
+     * @param fiscalCode citizen's fiscal code (must not be {@code null})
+     * @return {@code Mono} emitting the number of modified entries
+     */
+    Mono<Long> markRemoved(String fiscalCode);
+}
@@ -0,0 +1,148 @@
+package it.gov.pagopa.onboarding.citizen.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.TppCitizenIndex;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Implementation of custom write operations for {@link TppCitizenIndex}.</p>
+ *
+ * <p><b>Indexes</b> (declared in {@link it.gov.pagopa.onboarding.citizen.configuration.CitizenMongoIndexesConfig}):</p>
+ * <pre>
+ * db.tpp_citizen_index.createIndex({ "fiscalCode": 1, "tppId": 1 }, { unique: true })
+ * db.tpp_citizen_index.createIndex({ "tppId": 1, "tppState": 1, "fiscalCode": 1 })
+ * </pre>
+ *
+ * @see TppCitizenIndexSpecificRepository
+ */
+@Repository
+public class TppCitizenIndexSpecificRepositoryImpl implements TppCitizenIndexSpecificRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private static final String FISCAL_CODE = "fiscalCode";
+    private static final String TPP_ID = "tppId";
+    private static final String TPP_STATE = "tppState";
+    private static final String TC_DATE = "tcDate";
+    private static final String INDEXED_AT = "indexedAt";
+    private static final String REMOVED = "removed";
+
+    public TppCitizenIndexSpecificRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>Bulk operation (one per consent):</b></p>
+     * <pre>
+     * { "updateOne": {
+     *     "filter": { "fiscalCode": "&lt;fiscalCode&gt;", "tppId": "&lt;tppId&gt;" },
+     *     "update": { "$set": { "tppState": ..., "tcDate": ..., "indexedAt": ... }, "$unset": { "removed": "" } },
+     *     "upsert": true } }
+     * </pre>
+     */
+    @Override
+    public Mono<Long> upsertAll(List<CitizenConsent> citizens) {
+        return write(citizens, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><b>Bulk operations (two per consent):</b> the existing entry, if not newer, is overwritten; a missing one is
+     * inserted. A tombstone written after the cutoff is an existing, newer entry: the removed citizen is not written back.</p>
+     * <pre>
+     * { "updateOne": {
+     *     "filter": { "fiscalCode": "&lt;fiscalCode&gt;", "tppId": "&lt;tppId&gt;",
+     *                 "$or": [ { "indexedAt": { "$lt": &lt;indexedBefore&gt; } }, { "indexedAt": null } ] },
+     *     "update": { "$set": { "tppState": ..., "tcDate": ..., "indexedAt": ... }, "$unset": { "removed": "" } } } }
+     * { "updateOne": {
+     *     "filter": { "fiscalCode": "&lt;fiscalCode&gt;", "tppId": "&lt;tppId&gt;" },
+     *     "update": { "$setOnInsert": { "tppState": ..., "tcDate": ..., "indexedAt": ... } },
+     *     "upsert": true } }
+     * </pre>
+     */
+    @Override
+    public Mono<Long> upsertAllIndexedBefore(List<CitizenConsent> citizens, LocalDateTime indexedBefore) {
+        return write(citizens, indexedBefore);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <pre>
+     * db.tpp_citizen_index.updateMany(
+     *     { "fiscalCode": "&lt;fiscalCode&gt;" },
+     *     { "$set": { "tppState": false, "removed": true, "indexedAt": ... } })
+     * </pre>
+     */
+    @Override
+    public Mono<Long> markRemoved(String fiscalCode) {
+        return mongoTemplate.updateMulti(
+                        Query.query(Criteria.where(FISCAL_CODE).is(fiscalCode)),
+                        new Update()
+                                .set(TPP_STATE, false)
+                                .set(REMOVED, true)
+                                .set(INDEXED_AT, LocalDateTime.now()),
+                        TppCitizenIndex.class)
+                .map(UpdateResult::getModifiedCount);
+    }
+
+    private Mono<Long> write(List<CitizenConsent> citizens, LocalDateTime indexedBefore) {
+        LocalDateTime indexedAt = LocalDateTime.now();
+        ReactiveBulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TppCitizenIndex.class);
+        boolean empty = true;
+
+        for (CitizenConsent citizen : citizens) {
+            if (citizen.getConsents() == null) {
+                continue;
+            }
+            for (Map.Entry<String, ConsentDetails> consent : citizen.getConsents().entrySet()) {
+                Criteria byKey = Criteria.where(FISCAL_CODE).is(citizen.getFiscalCode()).and(TPP_ID).is(consent.getKey());
+                if (indexedBefore == null) {
+                    bulkOps.upsert(Query.query(byKey), new Update()
+                            .set(TPP_STATE, consent.getValue().getTppState())
+                            .set(TC_DATE, consent.getValue().getTcDate())
+                            .set(INDEXED_AT, indexedAt)
+                            .unset(REMOVED));
+                } else {
+                    bulkOps.updateOne(
+                            Query.query(byKey.orOperator(Criteria.where(INDEXED_AT).lt(indexedBefore), Criteria.where(INDEXED_AT).is(null))),
+                            new Update()
+                                    .set(TPP_STATE, consent.getValue().getTppState())
+                                    .set(TC_DATE, consent.getValue().getTcDate())
+                                    .set(INDEXED_AT, indexedAt)
+                                    .unset(REMOVED));
+                    bulkOps.upsert(
+                            Query.query(Criteria.where(FISCAL_CODE).is(citizen.getFiscalCode()).and(TPP_ID).is(consent.getKey())),
+                            new Update()
+                                    .setOnInsert(TPP_STATE, consent.getValue().getTppState())
+                                    .setOnInsert(TC_DATE, consent.getValue().getTcDate())
+                                    .setOnInsert(INDEXED_AT, indexedAt));
+                }
+                empty = false;
+            }
+        }
+
+        if (empty) {
+            return Mono.just(0L);
+        }
+
+        return bulkOps.execute()
+                .map(result -> (long) result.getUpserts().size() + result.getModifiedCount());
+    }
+}
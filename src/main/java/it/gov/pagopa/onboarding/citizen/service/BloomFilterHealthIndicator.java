@@ -0,0 +1,33 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import org.springframework.boot.health.contributor.AbstractReactiveHealthIndicator;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>Reports whether the startup initialization of {@link BloomFilterInitializer} has terminated.</p>
+ *
+ * <p>Health is {@code DOWN} until then, so that the pod fails readiness instead of serving Bloom Filter lookups
+ * against a filter still being populated.</p>
+ */
+@Component
+public class BloomFilterHealthIndicator extends AbstractReactiveHealthIndicator {
+
+    private final BloomFilterInitializer bloomFilterInitializer;
+
+    public BloomFilterHealthIndicator(BloomFilterInitializer bloomFilterInitializer) {
+        super("Bloom filter health check failed");
+        this.bloomFilterInitializer = bloomFilterInitializer;
+    }
+
+    @Override
+    protected Mono<Health> doHealthCheck(Health.Builder builder) {
+        if (bloomFilterInitializer.isInitialized()) {
+            builder.up();
+        } else {
+            builder.down();
+        }
+        return Mono.just(builder.withDetail("initialized", bloomFilterInitializer.isInitialized()).build());
+    }
+}
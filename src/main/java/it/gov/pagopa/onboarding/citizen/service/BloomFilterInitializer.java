@@ -1,8 +1,9 @@
 package it.gov.pagopa.onboarding.citizen.service;
 
-import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
-import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.common.reactive.utils.RedissonLockUtils;
 import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RBloomFilterReactive;
@@ -10,10 +11,10 @@ import org.redisson.api.RedissonReactiveClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import javax.annotation.PostConstruct;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -28,6 +29,10 @@ import java.util.concurrent.TimeUnit;
  *   <li><b>Distributed locking:</b> Ensures only one instance performs initialization/reset in clustered deployments</li>
  * </ul>
  *
+ * <p>Both run in background and never block a thread: the lock is acquired and released through
+ * {@link RedissonLockUtils#runExclusively}, so its release does not depend on the thread the chain completes on.
+ * Until the startup initialization has terminated, {@link BloomFilterHealthIndicator} keeps the pod not ready.</p>
+ *
  * <b>Bloom Filter Configuration</b>
  * <p>The filter is configured via application properties:</p>
  * <ul>
@@ -45,11 +50,10 @@ import java.util.concurrent.TimeUnit;
  * </pre>
  *
  * <b>Data Source Query</b>
- * <p>Uses {@link CitizenRepository#findAll()} which executes:</p>
+ * <p>Uses {@link CitizenRepository#findFiscalCodesWithEnabledConsents()} which executes:</p>
  * <pre>
- * db.citizen_consents.find({})
+ * db.citizen_consents.find({ "enabledConsentCount": { "$gt": 0 } }, { "_id": 0, "fiscalCode": 1 })
  * </pre>
- * <p>Filters in-memory for citizens with at least one consent where {@code tppState = true}.</p>
  *
  * @see RBloomFilterReactive
  * @see CitizenRepository
@@ -60,6 +64,11 @@ public class BloomFilterInitializer {
 
     private static final String REDIS_BF_NAME = "emd-bloom-filter";
     private static final String REDIS_LOCK_NAME = "startup-task-lock";
+    private static final long LOCK_LEASE_SECONDS = 60;
+    private static final Duration INITIALIZATION_TIMEOUT = Duration.ofSeconds(120);
+    private static final Duration RESET_TIMEOUT = Duration.ofSeconds(90);
+    /** Below the 30s default {@code terminationGracePeriodSeconds} of Kubernetes, so the pod is not killed first */
+    private static final Duration SHUTDOWN_RESET_WAIT = Duration.ofSeconds(20);
 
     @Getter
     private final RBloomFilterReactive<String> bloomFilter;
@@ -74,6 +83,10 @@ public class BloomFilterInitializer {
     @Getter
     private double falseProbability;
 
+    private volatile boolean initialized;
+    private Disposable initialization;
+    private volatile Mono<Void> resetInProgress = Mono.empty();
+
     public BloomFilterInitializer(RedissonReactiveClient redissonClient,
         CitizenRepository citizenRepository) {
         this.redissonClient = redissonClient;
@@ -82,7 +95,7 @@ public class BloomFilterInitializer {
     }
 
     /**
-     * <p>Initializes the Bloom Filter on application startup.</p>
+     * <p>Starts the Bloom Filter initialization on application startup.</p>
      *
      * <p>Workflow:</p>
      * <ol>
@@ -92,55 +105,29 @@ public class BloomFilterInitializer {
      *   <li>Release lock</li>
      * </ol>
      *
-     * <p><b>Note:</b> Uses {@code .block()} instead of {@code .subscribe()} to guarantee the pod
-     * does NOT become Ready (readinessProbe passes) before the Bloom Filter is fully populated.
-     * Without this, the first requests after a Rolling Update would bypass the filter entirely.
-     * {@code @PostConstruct} is called on a Spring-managed thread (non-Reactor), so {@code .block()} is safe.</p>
+     * <p><b>Note:</b> The initialization is subscribed, not awaited: the pod does NOT become Ready before it has
+     * terminated because {@link #isInitialized()} is checked by the readiness probe through
+     * {@link BloomFilterHealthIndicator}. Without this, the first requests after a Rolling Update would bypass the
+     * filter entirely.</p>
      */
     @PostConstruct
     public void initialize() {
-        try {
-            acquireLock()
-                .flatMap(this::processInitialization)
-                .block(Duration.ofSeconds(120));
-        } catch (Exception e) {
-            log.error("[BLOOM-FILTER-INITIALIZER] Initialization failed or timed out: {}", e.getMessage(), e);
-        }
+        initialization = RedissonLockUtils.runExclusively(redissonClient, REDIS_LOCK_NAME, LOCK_LEASE_SECONDS, TimeUnit.SECONDS,
+                () -> bloomFilter.isExists()
+                    .flatMap(exists -> Boolean.TRUE.equals(exists) ? populateBloomFilter() : initializeBloomFilter()))
+            .timeout(INITIALIZATION_TIMEOUT)
+            .doFinally(signal -> initialized = true)
+            .subscribe(
+                v -> { },
+                e -> log.error("[BLOOM-FILTER-INITIALIZER] Initialization failed or timed out: {}", e.getMessage(), e));
     }
 
     /**
-     * <p>Attempts to acquire a distributed lock for Bloom Filter operations.</p>
-     *
-     * @return {@code Mono<Boolean>} emitting {@code true} if lock acquired, {@code false} otherwise
+     * @return {@code true} once the startup initialization has terminated, also if it failed or another instance
+     * was holding the lock
      */
-    private Mono<Boolean> acquireLock() {
-        return redissonClient.getLock(REDIS_LOCK_NAME).tryLock(0, 60, TimeUnit.SECONDS);
-    }
-
-    /**
-     * <p>Processes Bloom Filter initialization based on lock acquisition status.</p>
-     *
-     * @param lockAcquired {@code true} if distributed lock was acquired
-     * @return {@code Mono<Void>} completing when initialization is done or skipped
-     */
-    private Mono<Void> processInitialization(Boolean lockAcquired) {
-        if (Boolean.FALSE.equals(lockAcquired)) {
-            return logLockNotAcquired();
-        }
-        return bloomFilter.isExists()
-            .flatMap(exists -> Boolean.TRUE.equals(exists) ? populateBloomFilter()
-                : initializeBloomFilter())
-            .doFinally(signal -> releaseLock());
-    }
-
-    /**
-     * <p>Logs a message when lock acquisition fails during initialization.</p>
-     *
-     * @return {@code Mono<Void>} that logs and completes immediately
-     */
-    private Mono<Void> logLockNotAcquired() {
-        return Mono.fromRunnable(
-            () -> log.info("[BLOOM-FILTER-INITIALIZER] Another instance is initializing."));
+    public boolean isInitialized() {
+        return initialized;
     }
 
     /**
@@ -166,39 +153,21 @@ public class BloomFilterInitializer {
     /**
      * <p>Populates Bloom Filter with fiscal codes from all citizens with at least one enabled consent.</p>
      *
-     * <p><b>Data source query:</b></p>
-     * <pre>
-     * db.citizen_consents.find({})
-     * </pre>
+     * <p><b>Data source query:</b> {@link CitizenRepository#findFiscalCodesWithEnabledConsents()},
+     * only fiscal codes are read.</p>
      *
-     * <p><b>Filtering logic:</b></p>
-     * <ul>
-     *   <li>Only citizens with at least one consent where {@code tppState = true} are added</li>
-     *   <li>Fiscal codes are processed in batches of 100 for performance</li>
-     * </ul>
+     * <p>Fiscal codes are processed in batches of 100 for performance.</p>
      *
      * @return {@code Mono<Void>} completing when all fiscal codes are added
      */
     private Mono<Void> populateBloomFilter() {
-        return citizenRepository.findAll()
-            .filter(this::hasValidConsent)
-            .map(CitizenConsent::getFiscalCode)
+        return citizenRepository.findFiscalCodesWithEnabledConsents()
             .buffer(100)
             .flatMap(this::addBatchToBloomFilter)
             .then(Mono.fromRunnable(
                 () -> log.info("[BLOOM-FILTER-INITIALIZER] Population complete")));
     }
 
-    /**
-     * <p>Checks if a citizen has at least one consent with {@code tppState = true}.</p>
-     *
-     * @param citizen the citizen to check
-     * @return {@code true} if at least one consent is enabled, {@code false} otherwise
-     */
-    private boolean hasValidConsent(CitizenConsent citizen) {
-        return citizen.getConsents().values().stream().anyMatch(ConsentDetails::getTppState);
-    }
-
     /**
      * <p>Adds a batch of fiscal codes to the Bloom Filter.</p>
      *
@@ -229,46 +198,21 @@ public class BloomFilterInitializer {
      *   <li>Release lock</li>
      * </ol>
      *
-     * <p><b>Note:</b> Uses {@code .block()} instead of {@code .subscribe()} because this method
-     * is called by Spring's {@code TaskScheduler} on a blocking thread.
-     * Spring's graceful shutdown waits for the {@code @Scheduled} method to return before
-     * destroying the context — with {@code .subscribe()} (fire-and-forget), a shutdown during
-     * reset would leave the Bloom Filter deleted but not recreated, corrupting the shared
-     * Redis state for all pod instances.</p>
+     * <p><b>Note:</b> The reset is subscribed, so the {@code TaskScheduler} thread is released immediately;
+     * {@link #awaitReset()} lets a reset in progress complete before the context is destroyed.</p>
      */
     @Scheduled(cron = "0 0 4 * * ?")
     public void resetBloomFilter() {
-        try {
-            acquireLock()
-                .flatMap(this::processReset)
-                .block(Duration.ofSeconds(90));
-        } catch (Exception e) {
-            log.error("[BLOOM-FILTER-INITIALIZER] Reset failed or timed out: {}", e.getMessage(), e);
-        }
-    }
-
-    /**
-     * <p>Processes Bloom Filter reset based on lock acquisition status.</p>
-     *
-     * @param lockAcquired {@code true} if distributed lock was acquired
-     * @return {@code Mono<Void>} completing when reset is done or skipped
-     */
-    private Mono<Void> processReset(Boolean lockAcquired) {
-        if (Boolean.FALSE.equals(lockAcquired)) {
-            return logLockNotAcquiredForReset();
-        }
-        return performReset()
-            .doFinally(signal -> releaseLock());
-    }
-
-    /**
-     * <p>Logs a message when lock acquisition fails during scheduled reset.</p>
-     *
-     * @return {@code Mono<Void>} that logs and completes immediately
-     */
-    private Mono<Void> logLockNotAcquiredForReset() {
-        return Mono.fromRunnable(() -> log.info(
-            "[BLOOM-FILTER-INITIALIZER] Another instance is resetting the Bloom Filter."));
+        Mono<Void> reset = RedissonLockUtils.runExclusively(redissonClient, REDIS_LOCK_NAME, LOCK_LEASE_SECONDS, TimeUnit.SECONDS,
+                this::performReset)
+            .timeout(RESET_TIMEOUT)
+            .onErrorResume(e -> {
+                log.error("[BLOOM-FILTER-INITIALIZER] Reset failed or timed out: {}", e.getMessage(), e);
+                return Mono.empty();
+            })
+            .cache();
+        resetInProgress = reset;
+        reset.subscribe();
     }
 
     /**
@@ -287,22 +231,26 @@ public class BloomFilterInitializer {
     }
 
     /**
-     * <p>Releases the distributed lock acquired for Bloom Filter operations.</p>
+     * <p>Waits, on the shutdown thread, for the reset in progress and cancels the initialization.</p>
      *
-     * <p><b>Note:</b> Uses blocking call to ensure the lock is released on the same thread
-     * that acquired it. This prevents IllegalMonitorStateException when the reactive chain
-     * completes on a different thread (e.g., Netty thread).</p>
+     * <p><b>Note:</b> Spring's graceful shutdown waits for this method before destroying the context: a shutdown
+     * between the delete and the re-creation of a reset would leave the Bloom Filter deleted, corrupting the shared
+     * Redis state for all pod instances. The initialization instead can be cancelled, as it never deletes it.</p>
+     *
+     * <p>The wait is bounded by {@link #SHUTDOWN_RESET_WAIT}, not by {@link #RESET_TIMEOUT}, to stay within the default
+     * termination grace period: a reset still running is then lost, and the next pod starting up re-creates the
+     * missing filter through {@link #initialize()}.</p>
      */
-    private void releaseLock() {
+    @PreDestroy
+    public void awaitReset() {
+        if (initialization != null) {
+            initialization.dispose();
+        }
         try {
-            redissonClient.getLock(REDIS_LOCK_NAME)
-                    .unlock()
-                    .doOnSuccess(v -> log.info("[BLOOM-FILTER-INITIALIZER] Lock released."))
-                    .doOnError(e -> log.error("[BLOOM-FILTER-INITIALIZER] Failed to release lock: {}", e.getMessage(), e))
-                    .block(Duration.ofSeconds(5));
+            resetInProgress.block(SHUTDOWN_RESET_WAIT);
         } catch (Exception e) {
-            log.error("[BLOOM-FILTER-INITIALIZER] Error releasing lock: {}", e.getMessage(), e);
+            log.error("[BLOOM-FILTER-INITIALIZER] Reset not completed before shutdown: {}", e.getMessage(), e);
         }
     }
 
-}
\ No newline at end of file
+}
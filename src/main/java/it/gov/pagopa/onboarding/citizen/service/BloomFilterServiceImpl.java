@@ -1,13 +1,15 @@
 package it.gov.pagopa.onboarding.citizen.service;
 
 
-import it.gov.pagopa.common.utils.Utils;
+import it.gov.pagopa.common.utils.LazyHash;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RBloomFilterReactive;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Service
 @Slf4j
 public class BloomFilterServiceImpl implements BloomFilterService {
@@ -29,14 +31,28 @@ public class BloomFilterServiceImpl implements BloomFilterService {
         return bloomFilter.add(value)
                 .doOnNext(result -> {
                     if (Boolean.TRUE.equals(result)) {
-                        log.info("[BLOOM-FILTER-SERVICE] Fiscal Code {} added to bloom filter", Utils.createSHA256(value));
+                        log.info("[BLOOM-FILTER-SERVICE] Fiscal Code {} added to bloom filter", LazyHash.of(value));
                     } else {
-                        log.info("[BLOOM-FILTER-SERVICE] Fiscal Code {} not added to bloom filter", Utils.createSHA256(value));
+                        log.info("[BLOOM-FILTER-SERVICE] Fiscal Code {} not added to bloom filter", LazyHash.of(value));
                     }
                 })
                 .then();
     }
 
+    /**
+     * <p>Adds many fiscal codes to the Bloom Filter in a single pipelined call.</p>
+     *
+     * @param values the fiscal codes to add
+     * @return {@code Mono<Long>} number of fiscal codes that were not already in the filter
+     */
+    public Mono<Long> addAll(Collection<String> values) {
+        if (values.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return bloomFilter.add(values)
+                .doOnNext(added -> log.info("[BLOOM-FILTER-SERVICE] {} of {} fiscal codes added to bloom filter", added, values.size()));
+    }
+
     /**
      * {@inheritDoc}
      *
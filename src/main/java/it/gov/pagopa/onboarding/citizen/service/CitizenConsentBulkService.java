@@ -0,0 +1,39 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkItemDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Service contract for bulk citizen consents management.</p>
+ */
+public interface CitizenConsentBulkService {
+
+    /**
+     * <p>Creates the consent for the specified TPP for every citizen of the request.</p>
+     *
+     * <p>The TPP is validated once, before any item is read: the returned {@code Mono} fails if the
+     * TPP is not found, otherwise it emits the stream of per-item outcomes, in request order.</p>
+     *
+     * @param tppId TPP identifier
+     * @param items requested citizens
+     * @return {@code Mono<Flux<CitizenConsentBulkOutcomeDTO>>} per-item outcomes
+     * @throws RuntimeException if TPP is not found
+     */
+    Mono<Flux<CitizenConsentBulkOutcomeDTO>> createCitizenConsents(String tppId, Flux<CitizenConsentBulkItemDTO> items);
+
+    /**
+     * <p>Retrieves the consent state of a TPP for many citizens.</p>
+     *
+     * @param tppId TPP identifier
+     * @param fiscalCodes plain fiscal codes
+     * @return {@code Mono<Map<String, Boolean>>} state of every requested fiscal code: {@code true} if the
+     * consent is enabled, {@code false} if it is disabled or missing
+     * @throws RuntimeException if too many fiscal codes are requested
+     */
+    Mono<Map<String, Boolean>> getCitizenConsentsStatus(String tppId, List<String> fiscalCodes);
+}
@@ -0,0 +1,221 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.onboarding.citizen.configuration.ExceptionMap;
+import it.gov.pagopa.onboarding.citizen.connector.tpp.TppConnectorImpl;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionMessage;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionName;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ValidationRegex;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkItemDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO.Outcome;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Implementation of {@link CitizenConsentBulkService}.</p>
+ *
+ * <p>Items are processed in chunks; for every chunk:</p>
+ * <ol>
+ *   <li>Blank and repeated fiscal codes are rejected without touching the database.</li>
+ *   <li>Existing citizens are read with a single {@code $in} query.</li>
+ *   <li>Citizens already holding the consent are left unchanged.</li>
+ *   <li>The others are written with one unordered {@code bulkWrite}, so a failing item does not stop the chunk, together
+ *   with the {@link ConsentChangeType#CREATED} outbox events of the written ones ({@link CitizenConsentOutboxService}).</li>
+ *   <li>Written citizens are mirrored into the reverse index and added to the Bloom filter, one call each.</li>
+ * </ol>
+ *
+ * <p>Configuration:</p>
+ * <ul>
+ *   <li><code>app.citizen.bulk.chunkSize</code>: items per chunk (one read, one bulk write)</li>
+ *   <li><code>app.citizen.bulk.concurrency</code>: chunks processed in parallel; outcomes keep request order</li>
+ *   <li><code>app.citizen.bulk.statusMaxFiscalCodes</code>: fiscal codes accepted by a single status lookup</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class CitizenConsentBulkServiceImpl implements CitizenConsentBulkService {
+
+    private static final Pattern FISCAL_CODE_PATTERN = Pattern.compile(ValidationRegex.FISCAL_CODE);
+
+    private final CitizenRepository citizenRepository;
+    private final ExceptionMap exceptionMap;
+    private final TppConnectorImpl tppConnector;
+    private final BloomFilterServiceImpl bloomFilterService;
+    private final TppCitizenIndexService tppCitizenIndexService;
+    private final CitizenConsentOutboxService citizenConsentOutboxService;
+    private final int chunkSize;
+    private final int concurrency;
+    private final int statusMaxFiscalCodes;
+
+    public CitizenConsentBulkServiceImpl(CitizenRepository citizenRepository,
+                                         ExceptionMap exceptionMap,
+                                         TppConnectorImpl tppConnector,
+                                         BloomFilterServiceImpl bloomFilterService,
+                                         TppCitizenIndexService tppCitizenIndexService,
+                                         CitizenConsentOutboxService citizenConsentOutboxService,
+                                         @Value("${app.citizen.bulk.chunkSize:500}") int chunkSize,
+                                         @Value("${app.citizen.bulk.concurrency:2}") int concurrency,
+                                         @Value("${app.citizen.bulk.statusMaxFiscalCodes:5000}") int statusMaxFiscalCodes) {
+        this.citizenRepository = citizenRepository;
+        this.exceptionMap = exceptionMap;
+        this.tppConnector = tppConnector;
+        this.bloomFilterService = bloomFilterService;
+        this.tppCitizenIndexService = tppCitizenIndexService;
+        this.citizenConsentOutboxService = citizenConsentOutboxService;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.statusMaxFiscalCodes = statusMaxFiscalCodes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Flux<CitizenConsentBulkOutcomeDTO>> createCitizenConsents(String tppId, Flux<CitizenConsentBulkItemDTO> items) {
+        log.info("[EMD-CITIZEN][CREATE-CITIZEN-CONSENTS-BULK] Received tppId: {}", tppId);
+
+        return tppConnector.get(tppId)
+                .onErrorMap(error -> exceptionMap.throwException(ExceptionName.TPP_NOT_FOUND, ExceptionMessage.TPP_NOT_FOUND))
+                .map(tppResponse -> items
+                        .index()
+                        .buffer(chunkSize)
+                        .flatMapSequential(chunk -> processChunk(tppId, chunk), concurrency));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>All fiscal codes are resolved by one aggregation projecting only the consent of the TPP.</p>
+     */
+    @Override
+    public Mono<Map<String, Boolean>> getCitizenConsentsStatus(String tppId, List<String> fiscalCodes) {
+        log.info("[EMD-CITIZEN][GET-CITIZEN-CONSENTS-STATUS] Received {} fiscal codes and tppId: {}", fiscalCodes.size(), tppId);
+
+        if (fiscalCodes.size() > statusMaxFiscalCodes) {
+            return Mono.error(exceptionMap.throwException(ExceptionName.TOO_MANY_FISCAL_CODES, ExceptionMessage.TOO_MANY_FISCAL_CODES));
+        }
+
+        Map<String, Boolean> statuses = new LinkedHashMap<>();
+        fiscalCodes.forEach(fiscalCode -> statuses.put(fiscalCode, false));
+
+        return citizenRepository.findByFiscalCodeInAndTppId(List.copyOf(statuses.keySet()), tppId)
+                .doOnNext(citizenConsent -> {
+                    ConsentDetails consentDetails = citizenConsent.getConsents().get(tppId);
+                    statuses.put(citizenConsent.getFiscalCode(),
+                            consentDetails != null && Boolean.TRUE.equals(consentDetails.getTppState()));
+                })
+                .then(Mono.fromSupplier(() -> statuses));
+    }
+
+    private Flux<CitizenConsentBulkOutcomeDTO> processChunk(String tppId, List<Tuple2<Long, CitizenConsentBulkItemDTO>> chunk) {
+        Outcome[] outcomes = new Outcome[chunk.size()];
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String fiscalCode = chunk.get(i).getT2().getFiscalCode();
+            if (fiscalCode == null || !FISCAL_CODE_PATTERN.matcher(fiscalCode).matches()) {
+                outcomes[i] = Outcome.INVALID;
+            } else if (positions.putIfAbsent(fiscalCode, i) != null) {
+                outcomes[i] = Outcome.DUPLICATE;
+            }
+        }
+
+        ConsentDetails consentDetails = ConsentDetails.builder()
+                .tppState(true)
+                .tcDate(LocalDateTime.now())
+                .build();
+
+        return citizenRepository.findRawByFiscalCodeIn(List.copyOf(positions.keySet()))
+                .collectMap(citizen -> citizen.getString(ConsentStorageLayout.FISCAL_CODE))
+                .flatMap(existing -> writeConsents(tppId, consentDetails, positions, existing, outcomes))
+                .onErrorResume(error -> {
+                    log.error("[EMD-CITIZEN][CREATE-CITIZEN-CONSENTS-BULK] Chunk of {} items failed for tppId: {}",
+                            chunk.size(), tppId, error);
+                    return Mono.empty();
+                })
+                .thenMany(Flux.range(0, chunk.size())
+                        .map(i -> CitizenConsentBulkOutcomeDTO.builder()
+                                .index(chunk.get(i).getT1())
+                                .fiscalCode(chunk.get(i).getT2().getFiscalCode())
+                                .outcome(outcomes[i] != null ? outcomes[i] : Outcome.FAILED)
+                                .build()));
+    }
+
+    private Mono<Void> writeConsents(String tppId,
+                                     ConsentDetails consentDetails,
+                                     Map<String, Integer> positions,
+                                     Map<String, Document> existing,
+                                     Outcome[] outcomes) {
+        List<Document> toWrite = new ArrayList<>();
+        List<Integer> writePositions = new ArrayList<>();
+        positions.forEach((fiscalCode, position) -> {
+            Document citizen = existing.get(fiscalCode);
+            if (citizen != null && ConsentStorageLayout.containsConsent(citizen.get(ConsentStorageLayout.CONSENTS), tppId)) {
+                outcomes[position] = Outcome.ALREADY_PRESENT;
+            } else {
+                toWrite.add(citizen != null ? citizen : new Document(ConsentStorageLayout.FISCAL_CODE, fiscalCode));
+                writePositions.add(position);
+            }
+        });
+
+        return citizenConsentOutboxService.putConsents(ConsentChangeType.CREATED, toWrite,
+                        Collections.nCopies(toWrite.size(), Map.of(tppId, consentDetails)))
+                .flatMap(errors -> {
+                    errors.forEach(error -> outcomes[writePositions.get(error.getIndex())] = toOutcome(error));
+
+                    List<String> written = new ArrayList<>(toWrite.size());
+                    List<CitizenConsent> writtenConsents = new ArrayList<>(toWrite.size());
+                    for (int i = 0; i < toWrite.size(); i++) {
+                        int position = writePositions.get(i);
+                        if (outcomes[position] == null) {
+                            String fiscalCode = toWrite.get(i).getString(ConsentStorageLayout.FISCAL_CODE);
+                            outcomes[position] = toWrite.get(i).containsKey(ConsentStorageLayout.ID) ? Outcome.ADDED : Outcome.CREATED;
+                            written.add(fiscalCode);
+                            writtenConsents.add(CitizenConsent.builder()
+                                    .fiscalCode(fiscalCode)
+                                    .consents(Map.of(tppId, consentDetails))
+                                    .build());
+                        }
+                    }
+                    return tppCitizenIndexService.indexConsents(writtenConsents)
+                            .then(addToBloomFilter(written));
+                });
+    }
+
+    /**
+     * <p>Citizens gaining an enabled consent may be missing from the filter even when they already
+     * existed, so every written fiscal code is added. The filter is a pre-check only: failures are logged.</p>
+     */
+    private Mono<Void> addToBloomFilter(List<String> fiscalCodes) {
+        return bloomFilterService.addAll(fiscalCodes)
+                .onErrorResume(error -> {
+                    log.error("[EMD-CITIZEN][CREATE-CITIZEN-CONSENTS-BULK] Bloom filter update failed for {} fiscal codes",
+                            fiscalCodes.size(), error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static Outcome toOutcome(BulkWriteError error) {
+        return ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY ? Outcome.CONFLICT : Outcome.FAILED;
+    }
+}
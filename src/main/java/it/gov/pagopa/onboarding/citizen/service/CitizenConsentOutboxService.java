@@ -0,0 +1,42 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import org.bson.Document;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Service contract for the consent change outbox.</p>
+ */
+public interface CitizenConsentOutboxService {
+
+    /**
+     * <p>Runs the mutation and records one change event per given consent, in the same transaction: either both
+     * are written or none of them.</p>
+     *
+     * @param mutation write on {@code citizen_consents}
+     * @param eventType kind of mutation
+     * @param fiscalCode plain fiscal code
+     * @param consents mutated consents, keyed by TPP id, with their state after the mutation
+     * @return {@code Mono} with the result of the mutation, completing when the transaction is committed
+     *         (or the mutation alone when the outbox is disabled)
+     */
+    <T> Mono<T> recordWith(Mono<T> mutation, ConsentChangeType eventType, String fiscalCode, Map<String, ConsentDetails> consents);
+
+    /**
+     * <p>Writes the consents of many citizens with {@link CitizenRepository#putConsents(List, List)} and records one
+     * change event per consent actually written, in the same transaction.</p>
+     *
+     * @param eventType kind of mutation
+     * @param citizens raw documents to update or create
+     * @param consents consents to put, by TPP id, aligned with {@code citizens}
+     * @return {@code Mono} emitting the write errors, indexed by position in {@code citizens}, as
+     *         {@link CitizenRepository#putConsents(List, List)} does
+     */
+    Mono<List<BulkWriteError>> putConsents(ConsentChangeType eventType, List<Document> citizens, List<Map<String, ConsentDetails>> consents);
+}
@@ -0,0 +1,164 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.common.utils.LazyHash;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsentChangeEvent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenConsentOutboxRepository;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Implementation of {@link CitizenConsentOutboxService} writing on the {@code citizen_consent_outbox} side collection.</p>
+ *
+ * <p>Unlike the reverse index, the outbox is not best effort: the mutation and its events are written in the same
+ * multi-document transaction, so a failed event write rolls the mutation back and a crash between the two writes
+ * loses both. Transactions aborted by a transient error (e.g. a write conflict) are retried up to
+ * {@value #MAX_TRANSACTION_RETRIES} times. Consumers must still tolerate duplicates (the relay delivers at least
+ * once) and treat the events as state snapshots rather than deltas.</p>
+ *
+ * <p>A write error aborts the whole transaction, so a bulk write of many citizens with failing items is rolled back
+ * and written again without them, until a round succeeds: only the consents actually written get their events, and
+ * the errors of the dropped items are returned as if the bulk write had been run once.</p>
+ *
+ * <p>Feature flag: <code>app.citizen.outbox.enabled</code>; the transactions, and so a replica set, are required
+ * only when it is set.</p>
+ *
+ * @see it.gov.pagopa.onboarding.citizen.event.producer.CitizenConsentOutboxRelay
+ * @see it.gov.pagopa.onboarding.citizen.configuration.CitizenConsentOutboxConfig
+ */
+@Service
+@Slf4j
+public class CitizenConsentOutboxServiceImpl implements CitizenConsentOutboxService {
+
+    static final int MAX_TRANSACTION_RETRIES = 3;
+    private static final Retry TRANSIENT_TRANSACTION_RETRY = Retry.max(MAX_TRANSACTION_RETRIES)
+            .filter(error -> error instanceof MongoException mongoException
+                    && mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL));
+
+    private final CitizenConsentOutboxRepository citizenConsentOutboxRepository;
+    private final CitizenRepository citizenRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean enabled;
+
+    public CitizenConsentOutboxServiceImpl(CitizenConsentOutboxRepository citizenConsentOutboxRepository,
+                                           CitizenRepository citizenRepository,
+                                           ObjectProvider<TransactionalOperator> transactionalOperators,
+                                           @Value("${app.citizen.outbox.enabled:false}") boolean enabled) {
+        this.citizenConsentOutboxRepository = citizenConsentOutboxRepository;
+        this.citizenRepository = citizenRepository;
+        // only created when the outbox is enabled
+        this.transactionalOperator = enabled ? transactionalOperators.getObject() : null;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public <T> Mono<T> recordWith(Mono<T> mutation, ConsentChangeType eventType, String fiscalCode, Map<String, ConsentDetails> consents) {
+        if (!enabled || consents == null || consents.isEmpty()) {
+            return mutation;
+        }
+        Mono<Void> events = Mono.defer(() -> record(toEvents(eventType, fiscalCode, consents, LocalDateTime.now()))
+                .doOnError(error -> log.error("[EMD-CITIZEN][OUTBOX] Failed to record {} event for fiscal code: {}",
+                        eventType, LazyHash.of(fiscalCode), error)));
+        return transactionalOperator.transactional(mutation
+                        .flatMap(result -> events.thenReturn(result))
+                        // mutations completing empty, e.g. deletions
+                        .switchIfEmpty(events.then(Mono.empty())))
+                .retryWhen(TRANSIENT_TRANSACTION_RETRY);
+    }
+
+    @Override
+    public Mono<List<BulkWriteError>> putConsents(ConsentChangeType eventType, List<Document> citizens, List<Map<String, ConsentDetails>> consents) {
+        if (!enabled || citizens.isEmpty()) {
+            return citizenRepository.putConsents(citizens, consents);
+        }
+        List<Integer> positions = IntStream.range(0, citizens.size()).boxed().toList();
+        return putConsents(eventType, citizens, consents, positions, new ArrayList<>());
+    }
+
+    /** It will write the citizens at {@code positions}, dropping the failing ones and writing the others again */
+    private Mono<List<BulkWriteError>> putConsents(ConsentChangeType eventType, List<Document> citizens,
+                                                   List<Map<String, ConsentDetails>> consents,
+                                                   List<Integer> positions, List<BulkWriteError> errors) {
+        if (positions.isEmpty()) {
+            return Mono.just(errors);
+        }
+        List<Document> round = positions.stream().map(citizens::get).toList();
+        List<Map<String, ConsentDetails>> roundConsents = positions.stream().map(consents::get).toList();
+
+        return transactionalOperator.transactional(citizenRepository.putConsents(round, roundConsents)
+                        .flatMap(roundErrors -> roundErrors.isEmpty()
+                                ? record(toEvents(eventType, round, roundConsents)).thenReturn(errors)
+                                // the transaction is aborted: nothing of this round is written
+                                : Mono.error(new RolledBackWrite(roundErrors))))
+                .retryWhen(TRANSIENT_TRANSACTION_RETRY)
+                .onErrorResume(RolledBackWrite.class, rolledBack -> {
+                    Set<Integer> failed = new HashSet<>();
+                    for (BulkWriteError error : rolledBack.errors) {
+                        int position = positions.get(error.getIndex());
+                        failed.add(position);
+                        errors.add(new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(), position));
+                    }
+                    log.debug("[EMD-CITIZEN][OUTBOX] Bulk write of {} citizens rolled back, writing again without {} failing ones",
+                            positions.size(), failed.size());
+                    return putConsents(eventType, citizens, consents,
+                            positions.stream().filter(position -> !failed.contains(position)).toList(), errors);
+                });
+    }
+
+    private Mono<Void> record(List<CitizenConsentChangeEvent> events) {
+        return citizenConsentOutboxRepository.saveAll(events).then();
+    }
+
+    private static List<CitizenConsentChangeEvent> toEvents(ConsentChangeType eventType, List<Document> citizens,
+                                                            List<Map<String, ConsentDetails>> consents) {
+        LocalDateTime eventDate = LocalDateTime.now();
+        List<CitizenConsentChangeEvent> events = new ArrayList<>();
+        for (int i = 0; i < citizens.size(); i++) {
+            events.addAll(toEvents(eventType, citizens.get(i).getString(ConsentStorageLayout.FISCAL_CODE), consents.get(i), eventDate));
+        }
+        return events;
+    }
+
+    private static List<CitizenConsentChangeEvent> toEvents(ConsentChangeType eventType, String fiscalCode,
+                                                            Map<String, ConsentDetails> consents, LocalDateTime eventDate) {
+        return consents.entrySet().stream()
+                .map(consent -> CitizenConsentChangeEvent.builder()
+                        .eventType(eventType)
+                        .fiscalCode(fiscalCode)
+                        .tppId(consent.getKey())
+                        .tppState(consent.getValue().getTppState())
+                        .tcDate(consent.getValue().getTcDate())
+                        .eventDate(eventDate)
+                        .build())
+                .toList();
+    }
+
+    /** Write errors of a bulk write run in a transaction, which is then rolled back */
+    private static final class RolledBackWrite extends RuntimeException {
+        private final transient List<BulkWriteError> errors;
+
+        private RolledBackWrite(List<BulkWriteError> errors) {
+            super("Bulk write rolled back", null, false, false);
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Service contract for asynchronous consent state updates.</p>
+ */
+public interface CitizenConsentStateUpdateService {
+
+    /**
+     * <p>Applies a batch of consent state updates, upserting the citizens.</p>
+     *
+     * <p>Updates are applied in list order: when the same consent is updated more than once, the last update wins.</p>
+     *
+     * @param updates consent state updates
+     * @return {@code Mono<Set<String>>} fiscal codes whose updates could not be applied (empty if all succeeded)
+     */
+    Mono<Set<String>> updateStates(List<CitizenConsentStateUpdateDTO> updates);
+}
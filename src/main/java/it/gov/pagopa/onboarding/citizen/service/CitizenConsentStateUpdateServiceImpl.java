@@ -0,0 +1,153 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.common.reactive.utils.LatencyMonitor;
+import it.gov.pagopa.common.utils.LazyHash;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Implementation of {@link CitizenConsentStateUpdateService}.</p>
+ *
+ * <p>Flow for every batch:</p>
+ * <ol>
+ *   <li>Updates are merged by citizen, so every citizen is written once.</li>
+ *   <li>Existing citizens are read with a single {@code $in} query.</li>
+ *   <li>Citizens are upserted with one unordered {@code bulkWrite}; an update is applied only if the
+ *   consents did not change since they were read. The {@link ConsentChangeType#STATE_CHANGED} outbox events of
+ *   the written citizens are recorded in the same transaction ({@link CitizenConsentOutboxService}).</li>
+ *   <li>Citizens modified concurrently are read and written again, up to
+ *   {@code app.citizen.consentStateUpdate.conflictRetries} times.</li>
+ *   <li>Written consents are mirrored into the reverse index, and citizens with an enabled consent are
+ *   added to the Bloom filter, one call each.</li>
+ * </ol>
+ */
+@Service
+@Slf4j
+public class CitizenConsentStateUpdateServiceImpl implements CitizenConsentStateUpdateService {
+
+    private final CitizenRepository citizenRepository;
+    private final BloomFilterServiceImpl bloomFilterService;
+    private final TppCitizenIndexService tppCitizenIndexService;
+    private final CitizenConsentOutboxService citizenConsentOutboxService;
+    private final int conflictRetries;
+    /** Latency of the Bloom filter updates, used to detect a Redis saturation */
+    @Getter
+    private final LatencyMonitor bloomFilterLatency = new LatencyMonitor();
+
+    public CitizenConsentStateUpdateServiceImpl(CitizenRepository citizenRepository,
+                                                BloomFilterServiceImpl bloomFilterService,
+                                                TppCitizenIndexService tppCitizenIndexService,
+                                                CitizenConsentOutboxService citizenConsentOutboxService,
+                                                @Value("${app.citizen.consentStateUpdate.conflictRetries:3}") int conflictRetries) {
+        this.citizenRepository = citizenRepository;
+        this.bloomFilterService = bloomFilterService;
+        this.tppCitizenIndexService = tppCitizenIndexService;
+        this.citizenConsentOutboxService = citizenConsentOutboxService;
+        this.conflictRetries = conflictRetries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Set<String>> updateStates(List<CitizenConsentStateUpdateDTO> updates) {
+        LocalDateTime tcDate = LocalDateTime.now();
+        Map<String, Map<String, ConsentDetails>> changes = new LinkedHashMap<>();
+        for (CitizenConsentStateUpdateDTO update : updates) {
+            if (update.getFiscalCode() == null || update.getTppId() == null || update.getTppState() == null) {
+                log.warn("[EMD-CITIZEN][CONSENT-STATE-UPDATE] Discarding incomplete update for tppId: {}", update.getTppId());
+                continue;
+            }
+            changes.computeIfAbsent(update.getFiscalCode(), fiscalCode -> new LinkedHashMap<>())
+                    .put(update.getTppId(), ConsentDetails.builder()
+                            .tppState(update.getTppState())
+                            .tcDate(tcDate)
+                            .build());
+        }
+
+        Set<String> failed = new HashSet<>();
+        return write(changes, conflictRetries, failed)
+                .thenReturn(failed);
+    }
+
+    private Mono<Void> write(Map<String, Map<String, ConsentDetails>> changes, int retriesLeft, Set<String> failed) {
+        if (changes.isEmpty()) {
+            return Mono.empty();
+        }
+        return citizenRepository.findRawByFiscalCodeIn(List.copyOf(changes.keySet()))
+                .collectMap(citizen -> citizen.getString(ConsentStorageLayout.FISCAL_CODE))
+                .flatMap(existing -> {
+                    List<Document> citizens = new ArrayList<>(changes.size());
+                    changes.keySet().forEach(fiscalCode -> citizens.add(
+                            existing.getOrDefault(fiscalCode, new Document(ConsentStorageLayout.FISCAL_CODE, fiscalCode))));
+
+                    return citizenConsentOutboxService.putConsents(ConsentChangeType.STATE_CHANGED, citizens, List.copyOf(changes.values()))
+                            .flatMap(errors -> {
+                                Map<String, Map<String, ConsentDetails>> written = new LinkedHashMap<>(changes);
+                                Map<String, Map<String, ConsentDetails>> conflicts = new LinkedHashMap<>();
+                                for (BulkWriteError error : errors) {
+                                    String fiscalCode = citizens.get(error.getIndex()).getString(ConsentStorageLayout.FISCAL_CODE);
+                                    Map<String, ConsentDetails> change = written.remove(fiscalCode);
+                                    if (isConflict(error) && retriesLeft > 0) {
+                                        conflicts.put(fiscalCode, change);
+                                    } else {
+                                        log.error("[EMD-CITIZEN][CONSENT-STATE-UPDATE] Update failed for fiscal code: {} ({}): {}",
+                                                LazyHash.of(fiscalCode), error.getCode(), error.getMessage());
+                                        failed.add(fiscalCode);
+                                    }
+                                }
+                                return afterWrite(written)
+                                        .then(write(conflicts, retriesLeft - 1, failed));
+                            });
+                })
+                .onErrorResume(error -> {
+                    log.error("[EMD-CITIZEN][CONSENT-STATE-UPDATE] Write of {} citizens failed", changes.size(), error);
+                    failed.addAll(changes.keySet());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> afterWrite(Map<String, Map<String, ConsentDetails>> written) {
+        List<CitizenConsent> citizens = new ArrayList<>(written.size());
+        List<String> enabled = new ArrayList<>();
+        written.forEach((fiscalCode, consents) -> {
+            citizens.add(CitizenConsent.builder().fiscalCode(fiscalCode).consents(consents).build());
+            if (consents.values().stream().anyMatch(consent -> Boolean.TRUE.equals(consent.getTppState()))) {
+                enabled.add(fiscalCode);
+            }
+        });
+
+        return tppCitizenIndexService.indexConsents(citizens)
+                .then(bloomFilterLatency.monitor(bloomFilterService.addAll(enabled))
+                        .onErrorResume(error -> {
+                            log.error("[EMD-CITIZEN][CONSENT-STATE-UPDATE] Bloom filter update failed for {} fiscal codes",
+                                    enabled.size(), error);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private static boolean isConflict(BulkWriteError error) {
+        return ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+}
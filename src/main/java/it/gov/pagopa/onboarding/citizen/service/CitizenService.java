@@ -74,6 +74,14 @@ public interface CitizenService {
      */
     Mono<List<CitizenConsentDTO>> getCitizenEnabled(String tppId);
 
+    /**
+     * <p>Counts citizens having an enabled consent for the given TPP id.</p>
+     *
+     * @param tppId TPP identifier
+     * @return {@code Mono<Long>} number of citizens
+     */
+    Mono<Long> countCitizenEnabled(String tppId);
+
     /**
      * <p>Deletes the citizen consent aggregate.</p>
      *
@@ -1,6 +1,6 @@
 package it.gov.pagopa.onboarding.citizen.service;
 
-import it.gov.pagopa.common.utils.Utils;
+import it.gov.pagopa.common.utils.LazyHash;
 import it.gov.pagopa.onboarding.citizen.configuration.ExceptionMap;
 import it.gov.pagopa.onboarding.citizen.connector.tpp.TppConnectorImpl;
 import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionMessage;
@@ -8,18 +8,19 @@ import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionName
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.dto.TppIdList;
 import it.gov.pagopa.onboarding.citizen.dto.mapper.CitizenConsentObjectToDTOMapper;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
 import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
 import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * <p>Implementation of {@link CitizenService}.</p>
@@ -33,18 +34,24 @@ public class CitizenServiceImpl implements CitizenService {
     private final ExceptionMap exceptionMap;
     private final TppConnectorImpl tppConnector;
     private final BloomFilterServiceImpl bloomFilterService;
+    private final TppCitizenIndexService tppCitizenIndexService;
+    private final CitizenConsentOutboxService citizenConsentOutboxService;
     private static final String CONSENT_NOT_FOUND = "[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] No consents found.";
 
     public CitizenServiceImpl(CitizenRepository citizenRepository,
                               CitizenConsentObjectToDTOMapper mapperToDTO,
                               ExceptionMap exceptionMap,
                               TppConnectorImpl tppConnector,
-                              BloomFilterServiceImpl bloomFilterService) {
+                              BloomFilterServiceImpl bloomFilterService,
+                              TppCitizenIndexService tppCitizenIndexService,
+                              CitizenConsentOutboxService citizenConsentOutboxService) {
         this.citizenRepository = citizenRepository;
         this.mapperToDTO = mapperToDTO;
         this.exceptionMap = exceptionMap;
         this.tppConnector = tppConnector;
         this.bloomFilterService = bloomFilterService;
+        this.tppCitizenIndexService = tppCitizenIndexService;
+        this.citizenConsentOutboxService = citizenConsentOutboxService;
     }
 
     /**
@@ -55,8 +62,8 @@ public class CitizenServiceImpl implements CitizenService {
      *   <li>Log input (hashed fiscal code, tppId).</li>
      *   <li>Validate TPP existence (remote call).</li>
      *   <li>Load existing citizen aggregate.</li>
-     *   <li>If present and missing the consent, add enabled consent and persist.</li>
-     *   <li>If absent, create aggregate, persist, add to Bloom filter.</li>
+     *   <li>If present and missing the consent, add enabled consent, persist it together with a {@code CREATED} outbox event and mirror it into the reverse index.</li>
+     *   <li>If absent, create aggregate, persist it together with a {@code CREATED} outbox event, mirror it into the reverse index, add to Bloom filter.</li>
      *   <li>Reduce map to the requested TPP and return DTO.</li>
      * </ol>
      *
@@ -72,8 +79,9 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<CitizenConsentDTO> createCitizenConsent(String fiscalCode, String tppId){
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
         log.info("[EMD-CITIZEN][CREATE-CITIZEN-CONSENT] Received hashedFiscalCode: {} and tppId: {}",
-                Utils.createSHA256(fiscalCode), tppId);
+                hashedFiscalCode, tppId);
 
         return tppConnector.get(tppId)
                 .onErrorMap(error -> exceptionMap.throwException(ExceptionName.TPP_NOT_FOUND, ExceptionMessage.TPP_NOT_FOUND))
@@ -85,18 +93,14 @@ public class CitizenServiceImpl implements CitizenService {
                                         .tppState(true)
                                         .tcDate(LocalDateTime.now())
                                         .build());
-                                return citizenRepository.save(citizenConsent)
-                                        .flatMap(savedConsent ->{
-                                            Map<String, ConsentDetails> consents = new HashMap<>();
-                                            consents.put(tppId, citizenConsent.getConsents().get(tppId));
-                                            citizenConsent.setConsents(consents);
-                                            return Mono.just(mapperToDTO.map(citizenConsent));
-                                        });
+                                return citizenConsentOutboxService.recordWith(citizenRepository.save(citizenConsent),
+                                                ConsentChangeType.CREATED, fiscalCode, Map.of(tppId, citizenConsent.getConsents().get(tppId)))
+                                        .flatMap(savedConsent -> tppCitizenIndexService
+                                                .indexConsent(fiscalCode, tppId, citizenConsent.getConsents().get(tppId))
+                                                .thenReturn(savedConsent))
+                                        .map(savedConsent -> mapperToDTO.map(citizenConsent.getFiscalCode(), tppId, citizenConsent.getConsents().get(tppId)));
                             }
-                            Map<String, ConsentDetails> consents = new HashMap<>();
-                            consents.put(tppId, citizenConsent.getConsents().get(tppId));
-                            citizenConsent.setConsents(consents);
-                            return Mono.just(mapperToDTO.map(citizenConsent));
+                            return Mono.just(mapperToDTO.map(citizenConsent.getFiscalCode(), tppId, citizenConsent.getConsents().get(tppId)));
                         })
                         .switchIfEmpty(Mono.defer(() -> {
                             Map<String, ConsentDetails> consents = new HashMap<>();
@@ -108,14 +112,17 @@ public class CitizenServiceImpl implements CitizenService {
                                     .fiscalCode(fiscalCode)
                                     .consents(consents)
                                     .build();
-                            return citizenRepository
-                                    .save(citizenConsentToSave)
+                            return citizenConsentOutboxService.recordWith(citizenRepository.save(citizenConsentToSave),
+                                            ConsentChangeType.CREATED, fiscalCode, consents)
+                                    .flatMap(saved -> tppCitizenIndexService
+                                            .indexConsent(fiscalCode, tppId, consents.get(tppId))
+                                            .thenReturn(saved))
                                     .flatMap(saved -> bloomFilterService.add(fiscalCode)
                                             .thenReturn(mapperToDTO.map(saved)));
                         }))
                 )
                 .doOnSuccess(savedConsent ->
-                    log.info("[EMD-CITIZEN][CREATE-CITIZEN-CONSENT] Created new citizen consent for fiscal code: {} and tppId: {}", Utils.createSHA256(fiscalCode), tppId)
+                    log.info("[EMD-CITIZEN][CREATE-CITIZEN-CONSENT] Created new citizen consent for fiscal code: {} and tppId: {}", hashedFiscalCode, tppId)
                 );
     }
 
@@ -127,7 +134,7 @@ public class CitizenServiceImpl implements CitizenService {
      *   <li>Log input.</li>
      *   <li>Load aggregate or error.</li>
      *   <li>Validate consent presence.</li>
-     *   <li>Flip state, update timestamp, persist.</li>
+     *   <li>Flip state, update timestamp, persist it together with a {@code STATE_CHANGED} outbox event, mirror into the reverse index.</li>
      *   <li>Return DTO with only toggled consent.</li>
      * </ol>
      *
@@ -142,11 +149,12 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<CitizenConsentDTO> switchState(String fiscalCode, String tppId){
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
         log.info("[EMD-CITIZEN][UPDATE-CHANNEL-STATE] Received hashedFiscalCode: {} and tppId: {}",
-                Utils.createSHA256(fiscalCode), tppId);
+                hashedFiscalCode, tppId);
 
         return citizenRepository.findByFiscalCode(fiscalCode)
-                        .switchIfEmpty(Mono.error(exceptionMap.throwException
+                        .switchIfEmpty(Mono.error(() -> exceptionMap.throwException
                                 (ExceptionName.CITIZEN_NOT_ONBOARDED, "Citizen consent not founded during update state process"))
                         )
                         .flatMap(citizenConsent -> {
@@ -156,20 +164,18 @@ public class CitizenServiceImpl implements CitizenService {
                             ConsentDetails consentDetails = citizenConsent.getConsents().get(tppId);
                             consentDetails.setTppState(!consentDetails.getTppState());
                             consentDetails.setTcDate(LocalDateTime.now());
-                            return citizenRepository.save(citizenConsent)
-                                    .flatMap(savedConsent -> {
-
-                                        Map<String, ConsentDetails> consents = new HashMap<>();
-                                        consents.put(tppId, citizenConsent.getConsents().get(tppId));
-                                        citizenConsent.setConsents(consents);
-                                        return Mono.just(mapperToDTO.map(citizenConsent));
-                                    });
+                            return citizenConsentOutboxService.recordWith(citizenRepository.save(citizenConsent),
+                                            ConsentChangeType.STATE_CHANGED, fiscalCode, Map.of(tppId, consentDetails))
+                                    .flatMap(savedConsent -> tppCitizenIndexService
+                                            .indexConsent(fiscalCode, tppId, consentDetails)
+                                            .thenReturn(savedConsent))
+                                    .map(savedConsent -> mapperToDTO.map(citizenConsent.getFiscalCode(), tppId, consentDetails));
                         })
                         .doOnSuccess(savedConsent -> {
                           Boolean state = savedConsent.getConsents().get(tppId).getTppState();
                           log.info(
                               "[EMD-CITIZEN][UPDATE-CHANNEL-STATE] Updated state for fiscal code: {} for tppId: {} to {}",
-                              Utils.createSHA256(fiscalCode), tppId, state);
+                              hashedFiscalCode, tppId, state);
                         });
     }
 
@@ -187,12 +193,12 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<CitizenConsentDTO> getCitizenConsentStatus(String fiscalCode, String tppId) {
-        log.info("[EMD-CITIZEN][GET-CONSENT-STATUS] Received hashedFiscalCode: {} and tppId: {}", Utils.createSHA256(fiscalCode), tppId);
-        return citizenRepository.findByFiscalCodeAndTppId(fiscalCode, tppId)
-                .switchIfEmpty(Mono.error(exceptionMap.throwException
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
+        log.info("[EMD-CITIZEN][GET-CONSENT-STATUS] Received hashedFiscalCode: {} and tppId: {}", hashedFiscalCode, tppId);
+        return citizenRepository.findDTOByFiscalCodeAndTppId(fiscalCode, tppId)
+                .switchIfEmpty(Mono.error(() -> exceptionMap.throwException
                         (ExceptionName.CITIZEN_NOT_ONBOARDED, "Citizen consent not founded")))
-                .map(mapperToDTO::map)
-                .doOnSuccess(consent -> log.info("[EMD-CITIZEN][GET-CONSENT-STATUS] Consent found for fiscal code:{} on tppId: {}", Utils.createSHA256(fiscalCode), tppId));
+                .doOnSuccess(consent -> log.info("[EMD-CITIZEN][GET-CONSENT-STATUS] Consent found for fiscal code:{} on tppId: {}", hashedFiscalCode, tppId));
 
     }
 
@@ -215,7 +221,8 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<List<String>> getTppEnabledList(String fiscalCode) {
-        log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Received hashedFiscalCode: {}", Utils.createSHA256(fiscalCode));
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
+        log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Received hashedFiscalCode: {}", hashedFiscalCode);
 
         return citizenRepository.findByFiscalCode(fiscalCode)
                 .switchIfEmpty(Mono.empty())
@@ -225,7 +232,7 @@ public class CitizenServiceImpl implements CitizenService {
                         .toList())
                 .doOnSuccess(tppIdList -> {
                     if (tppIdList != null){
-                        log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Founded {} Consents for fiscal code: {}", tppIdList.size(),Utils.createSHA256(fiscalCode));
+                        log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Founded {} Consents for fiscal code: {}", tppIdList.size(),hashedFiscalCode);
                     } else {
                         log.info(CONSENT_NOT_FOUND);
                     }
@@ -237,8 +244,7 @@ public class CitizenServiceImpl implements CitizenService {
      * <p>Flow:</p>
      * <ol>
      *   <li>Log start.</li>
-     *   <li>Fetch aggregate; if absent -> error.</li>
-     *   <li>Map to DTO.</li>
+     *   <li>Fetch the consents projected into the DTO; if absent -> error.</li>
      * </ol>
      * <p>Errors:</p>
      * <ul>
@@ -250,12 +256,12 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<CitizenConsentDTO> getCitizenConsentsList(String fiscalCode) {
-        log.info("[EMD-CITIZEN][FIND-ALL-CITIZEN-CONSENTS] Received hashedFiscalCode: {}", (Utils.createSHA256(fiscalCode)));
-        return citizenRepository.findByFiscalCode(fiscalCode)
-                .switchIfEmpty(Mono.error(exceptionMap.throwException
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
+        log.info("[EMD-CITIZEN][FIND-ALL-CITIZEN-CONSENTS] Received hashedFiscalCode: {}", hashedFiscalCode);
+        return citizenRepository.findDTOByFiscalCode(fiscalCode)
+                .switchIfEmpty(Mono.error(() -> exceptionMap.throwException
                         (ExceptionName.CITIZEN_NOT_ONBOARDED, "Citizen consent not founded during get process ")))
-                .map(mapperToDTO::map)
-                .doOnSuccess(consentList -> log.info("[EMD-CITIZEN][FIND-ALL-CITIZEN-CONSENTS] Consents for fiscal code: {}", Utils.createSHA256(fiscalCode)));
+                .doOnSuccess(consentList -> log.info("[EMD-CITIZEN][FIND-ALL-CITIZEN-CONSENTS] Consents for fiscal code: {}", hashedFiscalCode));
     }
 
     /**
@@ -263,9 +269,8 @@ public class CitizenServiceImpl implements CitizenService {
      * <p>Flow:</p>
      * <ol>
      *   <li>Log start.</li>
-     *   <li>Fetch aggregate; if absent -> error.</li>
-     *   <li>Filter enabled consents.</li>
-     *   <li>Map to DTO.</li>
+     *   <li>Fetch the consents projected into the DTO; if absent -> error.</li>
+     *   <li>Remove the disabled consents in place.</li>
      * </ol>
      * <p>Errors:</p>
      * <ul>
@@ -277,22 +282,19 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<CitizenConsentDTO> getCitizenConsentsListEnabled(String fiscalCode) {
-         log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Received hashedFiscalCode: {}", Utils.createSHA256(fiscalCode));
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
+         log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Received hashedFiscalCode: {}", hashedFiscalCode);
 
-        return citizenRepository.findByFiscalCode(fiscalCode)
-                .switchIfEmpty(Mono.error(exceptionMap.throwException
+        return citizenRepository.findDTOByFiscalCode(fiscalCode)
+                .switchIfEmpty(Mono.error(() -> exceptionMap.throwException
                         (ExceptionName.CITIZEN_NOT_ONBOARDED, "Citizen consent not founded during get process ")))
                 .map(citizenConsent -> {
-                    Map<String, ConsentDetails> filteredConsents = citizenConsent.getConsents().entrySet().stream()
-                            .filter(tpp -> tpp.getValue().getTppState())
-                            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-                    citizenConsent.setConsents(filteredConsents);
-
-                    return mapperToDTO.map(citizenConsent);
+                    citizenConsent.getConsents().values().removeIf(consent -> !Boolean.TRUE.equals(consent.getTppState()));
+                    return citizenConsent;
                 })
                 .doOnSuccess(citizenConsent -> {
                     if (citizenConsent != null && !citizenConsent.getConsents().isEmpty()) {
-                        log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Funded {} consents for fiscal code: {} ", citizenConsent.getConsents().size(), Utils.createSHA256(fiscalCode));
+                        log.info("[EMD-CITIZEN][FIND-CITIZEN-CONSENTS-ENABLED] Funded {} consents for fiscal code: {} ", citizenConsent.getConsents().size(), hashedFiscalCode);
                     } else {
                         log.info(CONSENT_NOT_FOUND);
                     }
@@ -305,8 +307,9 @@ public class CitizenServiceImpl implements CitizenService {
      * <p>Retrieves citizens with an enabled consent for a TPP id.</p>
      * <p>Flow:</p>
      * <ol>
-     *   <li>Stream citizens with enabled consent for tppId.</li>
-     *   <li>Map each to DTO.</li>
+     *   <li>Stream citizens with enabled consent for tppId, from the reverse index when
+     *   {@code app.tppCitizenIndex.readEnabled} is set, from {@code citizen_consents} otherwise.</li>
+     *   <li>Project each straight into the DTO.</li>
      *   <li>Collect into list.</li>
      * </ol>
      * <p>Errors:</p>
@@ -319,8 +322,11 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<List<CitizenConsentDTO>> getCitizenEnabled(String tppId) {
-        return citizenRepository.findByTppIdEnabled(tppId)
-                .map(mapperToDTO::map)
+        Flux<CitizenConsentDTO> citizens = tppCitizenIndexService.isReadEnabled()
+                ? tppCitizenIndexService.findCitizenEnabled(tppId)
+                : citizenRepository.findDTOByTppIdEnabled(tppId);
+
+        return citizens
                 .collectList()
                 .doOnSuccess(citizenConsent -> {
                     if (citizenConsent != null && !citizenConsent.isEmpty()) {
@@ -331,12 +337,37 @@ public class CitizenServiceImpl implements CitizenService {
                 });
     }
 
+    /**
+     * <p>Counts citizens with an enabled consent for a TPP id.</p>
+     * <p>Flow:</p>
+     * <ol>
+     *   <li>Count on the reverse index when {@code app.tppCitizenIndex.readEnabled} is set.</li>
+     *   <li>Otherwise count on {@code citizen_consents}.</li>
+     * </ol>
+     * <p>Errors:</p>
+     * <ul>
+     *   <li>Repository errors propagate.</li>
+     * </ul>
+     *
+     * @param tppId TPP identifier
+     * @return {@code Mono<Long>} number of citizens
+     */
+    @Override
+    public Mono<Long> countCitizenEnabled(String tppId) {
+        Mono<Long> count = tppCitizenIndexService.isReadEnabled()
+                ? tppCitizenIndexService.countCitizenEnabled(tppId)
+                : citizenRepository.countByTppIdEnabled(tppId);
+
+        return count
+                .doOnSuccess(total -> log.info("[EMD-CITIZEN][COUNT-CITIZEN-ENABLED] Counted {} citizen for tpp: {}", total, tppId));
+    }
+
     /**
      * <p>Deletes the citizen consent aggregate by fiscal code.</p>
      * <p>Flow:</p>
      * <ol>
      *   <li>Fetch aggregate; if absent -> error.</li>
-     *   <li>Delete by id.</li>
+     *   <li>Delete by id together with a {@code DELETED} outbox event per consent and remove reverse index entries.</li>
      *   <li>Return DTO snapshot.</li>
      * </ol>
      * <p>Errors:</p>
@@ -350,10 +381,12 @@ public class CitizenServiceImpl implements CitizenService {
     @Override
     public Mono<CitizenConsentDTO> deleteCitizenConsent(String fiscalCode) {
         return citizenRepository.findByFiscalCode(fiscalCode)
-                .switchIfEmpty(Mono.error(exceptionMap.throwException
+                .switchIfEmpty(Mono.error(() -> exceptionMap.throwException
                         (ExceptionName.CITIZEN_NOT_ONBOARDED, "Citizen consent not founded during delete process ")))
                 .flatMap(citizenConsent ->
-                        citizenRepository.deleteById(citizenConsent.getId())
+                        citizenConsentOutboxService.recordWith(citizenRepository.deleteById(citizenConsent.getId()),
+                                        ConsentChangeType.DELETED, fiscalCode, citizenConsent.getConsents())
+                                .then(tppCitizenIndexService.removeCitizen(fiscalCode))
                                 .then(Mono.just(mapperToDTO.map(citizenConsent)))
                 );
     }
@@ -378,7 +411,7 @@ public class CitizenServiceImpl implements CitizenService {
      */
     @Override
     public Mono<Boolean> getCitizenInBloomFilter(String fiscalCode) {
-        String hashedFiscalCode = Utils.createSHA256(fiscalCode);
+        LazyHash hashedFiscalCode = LazyHash.of(fiscalCode);
         log.info("[EMD-CITIZEN][BLOOM-FILTER-SEARCH] Start search for hashedFiscalCode: {}", hashedFiscalCode);
         return bloomFilterService.contains(fiscalCode)
                 .flatMap(isPresent -> {
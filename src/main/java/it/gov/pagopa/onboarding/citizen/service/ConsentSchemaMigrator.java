@@ -0,0 +1,118 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.common.reactive.utils.RedissonLockUtils;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Background batch migrator of the {@code citizen_consents} storage layout.</p>
+ *
+ * <p>Rewrites every document whose {@code schemaVersion} differs from
+ * {@code app.consents.storage.writeVersion}, complementing the migrate-on-write path that only
+ * upgrades documents touched by the API. Switching {@code writeVersion} back and running the
+ * migrator again rolls the collection back to the previous layout.</p>
+ *
+ * <p>Documents still lacking {@code enabledConsentCount} are rewritten as well, so a run
+ * backfills the field before {@code app.consents.storage.enabledCount.readEnabled} is switched on.</p>
+ *
+ * <b>Configuration</b>
+ * <ul>
+ *   <li><code>app.consents.storage.migration.enabled</code>: run a migration when the application is ready</li>
+ *   <li><code>app.consents.storage.migration.cron</code>: periodic run ({@code -} disables it)</li>
+ *   <li><code>app.consents.storage.migration.batchSize</code>: documents per unordered bulk write</li>
+ *   <li><code>app.consents.storage.migration.batchDelayMs</code>: pause between batches, to bound the load on the cluster</li>
+ * </ul>
+ *
+ * <b>Workflow</b>
+ * <pre>
+ * 1. Acquire distributed lock (kept alive by the Redisson watchdog)
+ * 2. Stream documents with schemaVersion != writeVersion or without enabledConsentCount
+ * 3. Rewrite them batch by batch with compare-and-set bulk updates
+ * 4. Release lock
+ * </pre>
+ */
+@Component
+@Slf4j
+public class ConsentSchemaMigrator {
+
+    private static final String REDIS_LOCK_NAME = "consent-schema-migration-lock";
+
+    private final RedissonReactiveClient redissonClient;
+    private final CitizenRepository citizenRepository;
+    private final int targetVersion;
+    private final boolean migrationEnabled;
+    private final int batchSize;
+    private final Duration batchDelay;
+
+    public ConsentSchemaMigrator(RedissonReactiveClient redissonClient,
+                                 CitizenRepository citizenRepository,
+                                 @Value("${app.consents.storage.writeVersion:1}") int targetVersion,
+                                 @Value("${app.consents.storage.migration.enabled:false}") boolean migrationEnabled,
+                                 @Value("${app.consents.storage.migration.batchSize:500}") int batchSize,
+                                 @Value("${app.consents.storage.migration.batchDelayMs:0}") long batchDelayMs) {
+        this.redissonClient = redissonClient;
+        this.citizenRepository = citizenRepository;
+        this.targetVersion = targetVersion;
+        this.migrationEnabled = migrationEnabled;
+        this.batchSize = batchSize;
+        this.batchDelay = Duration.ofMillis(batchDelayMs);
+    }
+
+    /**
+     * <p>Starts a migration in background if {@code app.consents.storage.migration.enabled} is set.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!migrationEnabled) {
+            return;
+        }
+        migrate().subscribe(
+                        v -> { },
+                        error -> log.error("[CONSENT-SCHEMA-MIGRATOR] Startup migration failed", error));
+    }
+
+    /**
+     * <p>Scheduled migration; disabled unless {@code app.consents.storage.migration.cron} is set.</p>
+     */
+    @Scheduled(cron = "${app.consents.storage.migration.cron:-}")
+    public void scheduledMigration() {
+        migrate().subscribe(
+                v -> { },
+                error -> log.error("[CONSENT-SCHEMA-MIGRATOR] Scheduled migration failed", error));
+    }
+
+    /**
+     * <p>Migrates every document to the target layout if no other instance is migrating.</p>
+     *
+     * @return {@code Mono<Long>} number of migrated documents, empty if the lock was not acquired
+     */
+    public Mono<Long> migrate() {
+        return RedissonLockUtils.runExclusively(redissonClient, REDIS_LOCK_NAME, -1, TimeUnit.SECONDS,
+                this::runMigration);
+    }
+
+    private Mono<Long> runMigration() {
+        log.info("[CONSENT-SCHEMA-MIGRATOR] Migration to schema version {} started with batch size {}", targetVersion, batchSize);
+
+        return citizenRepository.findNotInSchemaVersion(targetVersion)
+                .buffer(batchSize)
+                .concatMap(batch -> throttle(citizenRepository.migrateToSchemaVersion(batch, targetVersion)))
+                .reduce(0L, Long::sum)
+                .doOnNext(migrated -> log.info("[CONSENT-SCHEMA-MIGRATOR] Migration to schema version {} completed: {} documents migrated",
+                        targetVersion, migrated));
+    }
+
+    private Mono<Long> throttle(Mono<Long> batch) {
+        return batchDelay.isZero() ? batch : batch.delayElement(batchDelay);
+    }
+}
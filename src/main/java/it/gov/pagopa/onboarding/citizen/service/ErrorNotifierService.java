@@ -0,0 +1,38 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>Service contract to publish on the error topic the messages that could not be processed.</p>
+ */
+public interface ErrorNotifierService {
+
+    /**
+     * <p>Publishes a consent state update that could not be applied.</p>
+     *
+     * @param message the consumed message
+     * @param description description of the failure
+     * @param retryable whether the message can be replayed
+     * @param exception the cause of the failure
+     * @return {@code Mono<Boolean>} true if the message was published
+     */
+    Mono<Boolean> notifyCitizenConsentStateUpdate(Message<?> message, String description, boolean retryable, Throwable exception);
+
+    /**
+     * <p>Publishes a message on the error topic, filling the {@code KafkaConstants.ERROR_MSG_HEADER_*} headers.</p>
+     *
+     * @param srcType type of the source system (e.g. {@code kafka})
+     * @param srcServer server from which the message was read
+     * @param srcTopic topic from which the message was read
+     * @param group consumer group of the failed consumer
+     * @param message the consumed message
+     * @param description description of the failure
+     * @param retryable whether the message can be replayed
+     * @param resendApplication whether the replay is addressed only to this application
+     * @param exception the cause of the failure
+     * @return {@code Mono<Boolean>} true if the message was published
+     */
+    Mono<Boolean> notify(String srcType, String srcServer, String srcTopic, String group, Message<?> message,
+                         String description, boolean retryable, boolean resendApplication, Throwable exception);
+}
@@ -0,0 +1,125 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.common.kafka.utils.KafkaConstants;
+import it.gov.pagopa.common.utils.CommonUtilities;
+import it.gov.pagopa.common.utils.LazyHash;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * <p>Implementation of {@link ErrorNotifierService} publishing through the {@code errorNotifier-out-0} binding.</p>
+ *
+ * <p>Only the payload, the record key and the retry count of the failed message are kept: the other headers
+ * of the consumed record are replaced by the {@code KafkaConstants.ERROR_MSG_HEADER_*} ones, all written as
+ * UTF-8 bytes.</p>
+ *
+ * <p>The binding is synchronous ({@code producer.sync: true}): {@code true} is returned only once the error topic has
+ * acknowledged the record, and a broker failure is returned as {@code false}.</p>
+ */
+@Service
+@Slf4j
+public class ErrorNotifierServiceImpl implements ErrorNotifierService {
+
+    public static final String ERROR_MSG_SRC_TYPE_KAFKA = "kafka";
+    private static final String ERROR_NOTIFIER_BINDING = "errorNotifier-out-0";
+
+    private final StreamBridge streamBridge;
+    private final String applicationName;
+    private final String consentStateUpdateServer;
+    private final String consentStateUpdateTopic;
+    private final String consentStateUpdateGroup;
+
+    public ErrorNotifierServiceImpl(StreamBridge streamBridge,
+                                    @Value("${spring.application.name}") String applicationName,
+                                    @Value("${spring.cloud.stream.kafka.binder.brokers}") String consentStateUpdateServer,
+                                    @Value("${spring.cloud.stream.bindings.consumerCitizenConsentStateUpdate-in-0.destination}") String consentStateUpdateTopic,
+                                    @Value("${spring.cloud.stream.bindings.consumerCitizenConsentStateUpdate-in-0.group}") String consentStateUpdateGroup) {
+        this.streamBridge = streamBridge;
+        this.applicationName = applicationName;
+        this.consentStateUpdateServer = consentStateUpdateServer;
+        this.consentStateUpdateTopic = consentStateUpdateTopic;
+        this.consentStateUpdateGroup = consentStateUpdateGroup;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Boolean> notifyCitizenConsentStateUpdate(Message<?> message, String description, boolean retryable, Throwable exception) {
+        return notify(ERROR_MSG_SRC_TYPE_KAFKA, consentStateUpdateServer, consentStateUpdateTopic, consentStateUpdateGroup,
+                message, description, retryable, true, exception);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Boolean> notify(String srcType, String srcServer, String srcTopic, String group, Message<?> message,
+                                String description, boolean retryable, boolean resendApplication, Throwable exception) {
+        log.info("[ERROR_NOTIFIER] Notifying error on topic {}: {}", srcTopic, description);
+
+        MessageBuilder<?> errorMessage = MessageBuilder.withPayload(message.getPayload())
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_SRC_TYPE, bytes(srcType))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_SRC_SERVER, bytes(srcServer))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_SRC_TOPIC, bytes(srcTopic))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_GROUP, bytes(group))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_DESCRIPTION, bytes(description))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_RETRYABLE, bytes(String.valueOf(retryable)))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_RETRY, bytes(String.valueOf(getRetry(message))));
+        if (resendApplication) {
+            errorMessage.setHeader(KafkaConstants.ERROR_MSG_HEADER_APPLICATION_NAME, bytes(applicationName));
+        }
+        if (exception != null) {
+            errorMessage.setHeader(KafkaConstants.ERROR_MSG_HEADER_STACKTRACE, bytes(ExceptionUtils.getStackTrace(exception)));
+        }
+        Object key = message.getHeaders().get(KafkaHeaders.RECEIVED_KEY);
+        if (key != null) {
+            errorMessage.setHeader(KafkaHeaders.KEY, key);
+        }
+
+        Message<?> built = errorMessage.build();
+        return Mono.fromCallable(() -> streamBridge.send(ERROR_NOTIFIER_BINDING, built))
+                .subscribeOn(Schedulers.boundedElastic())
+                // a synchronous send raises the broker failure instead of returning false
+                .onErrorResume(error -> {
+                    log.error("[ERROR_NOTIFIER] Error notification not acknowledged: {}", error.getMessage());
+                    return Mono.just(false);
+                })
+                .doOnNext(sent -> {
+                    if (Boolean.FALSE.equals(sent)) {
+                        log.error("[ERROR_NOTIFIER] Something gone wrong while notifying error: {}", describeMessage(message));
+                    }
+                });
+    }
+
+    /** Coordinates and hashed key of the failed message, instead of its payload holding the fiscal code */
+    private static String describeMessage(Message<?> message) {
+        Object key = message.getHeaders().get(KafkaHeaders.RECEIVED_KEY);
+        String id = key instanceof byte[] keyBytes ? new String(keyBytes, StandardCharsets.UTF_8) : Objects.toString(key, "");
+        return "(partition: %s, offset: %s, id: %s)".formatted(
+                message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION), message.getHeaders().get(KafkaHeaders.OFFSET), LazyHash.of(id));
+    }
+
+    /**
+     * <p>Returns the number of replays already performed on the message, read from the {@code retry} header.</p>
+     */
+    public static int getRetry(Message<?> message) {
+        String retry = CommonUtilities.getByteArrayHeaderValue(message, KafkaConstants.ERROR_MSG_HEADER_RETRY);
+        return retry == null ? 0 : Integer.parseInt(retry);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
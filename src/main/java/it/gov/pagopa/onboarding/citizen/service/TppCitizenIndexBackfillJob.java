@@ -0,0 +1,141 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.common.reactive.utils.RedissonLockUtils;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import it.gov.pagopa.onboarding.citizen.repository.TppCitizenIndexRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Rebuilds the {@code tpp_citizen_index} reverse index from {@code citizen_consents}.</p>
+ *
+ * <p>This component provides:</p>
+ * <ul>
+ *   <li><b>Startup backfill:</b> optional, runs in background once the application is ready</li>
+ *   <li><b>Scheduled reconciliation:</b> optional cron repairing drifts left by failed best-effort writes</li>
+ *   <li><b>Distributed locking:</b> only one instance runs the backfill at a time</li>
+ * </ul>
+ *
+ * <b>Configuration</b>
+ * <ul>
+ *   <li><code>app.tppCitizenIndex.backfill.onStartup</code>: run a backfill when the application is ready</li>
+ *   <li><code>app.tppCitizenIndex.backfill.cron</code>: reconciliation schedule ({@code -} disables it)</li>
+ *   <li><code>app.tppCitizenIndex.backfill.batchSize</code>: citizens per bulk write</li>
+ * </ul>
+ *
+ * <b>Workflow</b>
+ * <pre>
+ * 1. Acquire distributed lock
+ * 2. Stream citizen_consents, upsert index entries in unordered bulk writes of batchSize citizens,
+ *    skipping the entries indexed since the run started (live writes newer than the streamed consents)
+ * 3. Delete entries neither refreshed by this run nor written since it started (their source consent no longer exists),
+ *    together with the tombstones of the citizens removed before it started
+ * 4. Release lock
+ * </pre>
+ *
+ * <p>The backfill is skipped while <code>app.tppCitizenIndex.writeEnabled</code> is off: live mutations would not
+ * be mirrored, so the rebuilt index would drift at once.</p>
+ *
+ * <p>Every step is idempotent: an interrupted run leaves the index consistent with what was
+ * already processed, and pruning only happens after a complete pass.</p>
+ */
+@Component
+@Slf4j
+public class TppCitizenIndexBackfillJob {
+
+    private static final String REDIS_LOCK_NAME = "tpp-citizen-index-backfill-lock";
+    /**
+     * Entries written by other instances shortly before the run started are never pruned nor overwritten with the
+     * consents read by the run, even with some clock skew.
+     */
+    private static final Duration PRUNE_SAFETY_MARGIN = Duration.ofMinutes(1);
+
+    private final RedissonReactiveClient redissonClient;
+    private final CitizenRepository citizenRepository;
+    private final TppCitizenIndexRepository tppCitizenIndexRepository;
+    private final TppCitizenIndexService tppCitizenIndexService;
+    private final boolean backfillOnStartup;
+    private final int batchSize;
+
+    public TppCitizenIndexBackfillJob(RedissonReactiveClient redissonClient,
+                                      CitizenRepository citizenRepository,
+                                      TppCitizenIndexRepository tppCitizenIndexRepository,
+                                      TppCitizenIndexService tppCitizenIndexService,
+                                      @Value("${app.tppCitizenIndex.backfill.onStartup:false}") boolean backfillOnStartup,
+                                      @Value("${app.tppCitizenIndex.backfill.batchSize:500}") int batchSize) {
+        this.redissonClient = redissonClient;
+        this.citizenRepository = citizenRepository;
+        this.tppCitizenIndexRepository = tppCitizenIndexRepository;
+        this.tppCitizenIndexService = tppCitizenIndexService;
+        this.backfillOnStartup = backfillOnStartup;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * <p>Starts a backfill in background if {@code app.tppCitizenIndex.backfill.onStartup} is set.</p>
+     *
+     * <p>The collection indexes are declared in
+     * {@link it.gov.pagopa.onboarding.citizen.configuration.CitizenMongoIndexesConfig}.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        backfill().subscribe(
+                        v -> { },
+                        error -> log.error("[TPP-CITIZEN-INDEX-BACKFILL] Startup backfill failed", error));
+    }
+
+    /**
+     * <p>Scheduled reconciliation; disabled unless {@code app.tppCitizenIndex.backfill.cron} is set.</p>
+     */
+    @Scheduled(cron = "${app.tppCitizenIndex.backfill.cron:-}")
+    public void scheduledBackfill() {
+        backfill().subscribe(
+                v -> { },
+                error -> log.error("[TPP-CITIZEN-INDEX-BACKFILL] Scheduled backfill failed", error));
+    }
+
+    /**
+     * <p>Runs a full backfill if no other instance is running one.</p>
+     *
+     * @return {@code Mono<Long>} number of upserted or modified entries, empty if the lock was not acquired or index
+     * writes are disabled
+     */
+    public Mono<Long> backfill() {
+        if (!tppCitizenIndexService.isWriteEnabled()) {
+            log.warn("[TPP-CITIZEN-INDEX-BACKFILL] Backfill skipped: index writes are disabled");
+            return Mono.empty();
+        }
+        // watchdog lease: the lock is held, and renewed, until the run completes however long it takes
+        return RedissonLockUtils.runExclusively(redissonClient, REDIS_LOCK_NAME, -1, TimeUnit.SECONDS,
+                this::runBackfill);
+    }
+
+    private Mono<Long> runBackfill() {
+        LocalDateTime runStart = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime cutoff = runStart.minus(PRUNE_SAFETY_MARGIN);
+        log.info("[TPP-CITIZEN-INDEX-BACKFILL] Backfill started with batch size {}", batchSize);
+
+        return citizenRepository.findAll()
+                .buffer(batchSize)
+                .concatMap(citizens -> tppCitizenIndexService.indexCitizens(citizens, cutoff))
+                .reduce(0L, Long::sum)
+                .flatMap(indexed -> tppCitizenIndexRepository.deleteByIndexedAtBefore(cutoff)
+                        .doOnNext(pruned -> log.info("[TPP-CITIZEN-INDEX-BACKFILL] Backfill completed: {} entries written, {} stale entries pruned",
+                                indexed, pruned))
+                        .thenReturn(indexed));
+    }
+}
@@ -0,0 +1,82 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <p>Service contract for the TPP → citizens reverse index.</p>
+ */
+public interface TppCitizenIndexService {
+
+    /**
+     * <p>Mirrors a single consent into the reverse index.</p>
+     *
+     * @param fiscalCode plain fiscal code
+     * @param tppId TPP identifier
+     * @param consentDetails current state of the consent
+     * @return {@code Mono<Void>} completing when the entry is written (or writes are disabled)
+     */
+    Mono<Void> indexConsent(String fiscalCode, String tppId, ConsentDetails consentDetails);
+
+    /**
+     * <p>Mirrors the consents of many citizens into the reverse index with a single bulk write.</p>
+     *
+     * @param citizens citizens holding only the consents to mirror
+     * @return {@code Mono<Void>} completing when the entries are written (or writes are disabled)
+     */
+    Mono<Void> indexConsents(List<CitizenConsent> citizens);
+
+    /**
+     * <p>Mirrors every consent of the given citizens into the reverse index, leaving untouched the entries
+     * indexed from {@code indexedBefore} on, which may be newer than the given consents.</p>
+     *
+     * @param citizens citizen aggregates
+     * @param indexedBefore entries indexed from this instant on are not overwritten
+     * @return {@code Mono<Long>} number of upserted or modified entries, 0 if writes are disabled
+     */
+    Mono<Long> indexCitizens(List<CitizenConsent> citizens, LocalDateTime indexedBefore);
+
+    /**
+     * <p>Removes every reverse index entry of a citizen, leaving tombstones pruned by the next backfill.</p>
+     *
+     * @param fiscalCode plain fiscal code
+     * @return {@code Mono<Void>} completing when entries are removed (or writes are disabled)
+     */
+    Mono<Void> removeCitizen(String fiscalCode);
+
+    /**
+     * <p>Tells whether consent mutations are mirrored into the index: a backfill is useless otherwise.</p>
+     *
+     * @return {@code true} if index writes are enabled
+     */
+    boolean isWriteEnabled();
+
+    /**
+     * <p>Tells whether reverse lookups should be served by the index.</p>
+     *
+     * @return {@code true} if the index is trusted for reads
+     */
+    boolean isReadEnabled();
+
+    /**
+     * <p>Streams citizens with an enabled consent for the given TPP, read from the index.</p>
+     *
+     * @param tppId TPP identifier
+     * @return {@code Flux<CitizenConsentDTO>} DTOs limited to the requested consent
+     */
+    Flux<CitizenConsentDTO> findCitizenEnabled(String tppId);
+
+    /**
+     * <p>Counts citizens with an enabled consent for the given TPP, read from the index.</p>
+     *
+     * @param tppId TPP identifier
+     * @return {@code Mono<Long>} number of citizens
+     */
+    Mono<Long> countCitizenEnabled(String tppId);
+}
@@ -0,0 +1,128 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.common.utils.LazyHash;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO.ConsentDTO;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.TppCitizenIndex;
+import it.gov.pagopa.onboarding.citizen.repository.TppCitizenIndexRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Implementation of {@link TppCitizenIndexService}.</p>
+ *
+ * <p>Writes are best effort: a failure is logged and swallowed, so a consent mutation already
+ * persisted on {@code citizen_consents} is never reported as failed because of the index.
+ * Drifts are repaired by {@link TppCitizenIndexBackfillJob}.</p>
+ *
+ * <p>Feature flags:</p>
+ * <ul>
+ *   <li><code>app.tppCitizenIndex.writeEnabled</code>: mirror consent mutations into the index</li>
+ *   <li><code>app.tppCitizenIndex.readEnabled</code>: serve reverse lookups from the index; enable only
+ *   after a complete backfill</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class TppCitizenIndexServiceImpl implements TppCitizenIndexService {
+
+    private final TppCitizenIndexRepository tppCitizenIndexRepository;
+    private final boolean writeEnabled;
+    private final boolean readEnabled;
+
+    public TppCitizenIndexServiceImpl(TppCitizenIndexRepository tppCitizenIndexRepository,
+                                      @Value("${app.tppCitizenIndex.writeEnabled:false}") boolean writeEnabled,
+                                      @Value("${app.tppCitizenIndex.readEnabled:false}") boolean readEnabled) {
+        this.tppCitizenIndexRepository = tppCitizenIndexRepository;
+        this.writeEnabled = writeEnabled;
+        this.readEnabled = readEnabled;
+    }
+
+    @Override
+    public Mono<Void> indexConsent(String fiscalCode, String tppId, ConsentDetails consentDetails) {
+        if (!writeEnabled) {
+            return Mono.empty();
+        }
+        CitizenConsent citizen = CitizenConsent.builder()
+                .fiscalCode(fiscalCode)
+                .consents(Map.of(tppId, consentDetails))
+                .build();
+        return tppCitizenIndexRepository.upsertAll(List.of(citizen))
+                .doOnError(error -> log.error("[EMD-CITIZEN][TPP-CITIZEN-INDEX] Index write failed for fiscal code: {} and tppId: {}",
+                        LazyHash.of(fiscalCode), tppId, error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public Mono<Void> indexConsents(List<CitizenConsent> citizens) {
+        if (!writeEnabled || citizens.isEmpty()) {
+            return Mono.empty();
+        }
+        return tppCitizenIndexRepository.upsertAll(citizens)
+                .doOnError(error -> log.error("[EMD-CITIZEN][TPP-CITIZEN-INDEX] Index write failed for {} citizens",
+                        citizens.size(), error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public Mono<Long> indexCitizens(List<CitizenConsent> citizens, LocalDateTime indexedBefore) {
+        if (!writeEnabled) {
+            return Mono.just(0L);
+        }
+        return tppCitizenIndexRepository.upsertAllIndexedBefore(citizens, indexedBefore);
+    }
+
+    @Override
+    public Mono<Void> removeCitizen(String fiscalCode) {
+        if (!writeEnabled) {
+            return Mono.empty();
+        }
+        return tppCitizenIndexRepository.markRemoved(fiscalCode)
+                .doOnError(error -> log.error("[EMD-CITIZEN][TPP-CITIZEN-INDEX] Index removal failed for fiscal code: {}",
+                        LazyHash.of(fiscalCode), error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public boolean isWriteEnabled() {
+        return writeEnabled;
+    }
+
+    @Override
+    public boolean isReadEnabled() {
+        return readEnabled;
+    }
+
+    @Override
+    public Flux<CitizenConsentDTO> findCitizenEnabled(String tppId) {
+        return tppCitizenIndexRepository.findByTppIdAndTppStateTrue(tppId)
+                .map(this::toDTO);
+    }
+
+    @Override
+    public Mono<Long> countCitizenEnabled(String tppId) {
+        return tppCitizenIndexRepository.countByTppIdAndTppStateTrue(tppId);
+    }
+
+    private CitizenConsentDTO toDTO(TppCitizenIndex entry) {
+        return CitizenConsentDTO.builder()
+                .fiscalCode(entry.getFiscalCode())
+                .consents(Map.of(entry.getTppId(), ConsentDTO.builder()
+                        .tppState(entry.getTppState())
+                        .tcDate(entry.getTcDate())
+                        .build()))
+                .build();
+    }
+}
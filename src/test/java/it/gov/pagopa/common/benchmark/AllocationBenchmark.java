@@ -0,0 +1,32 @@
+package it.gov.pagopa.common.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Minimal micro-benchmark harness measuring the heap allocated by an operation on the current thread.
+ * Each measurement is preceded by a warmup, so that the operation is compiled before being measured.
+ */
+public final class AllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationBenchmark() {}
+
+    /** Average bytes allocated by a single execution of the operation */
+    public static double bytesPerOperation(int warmupIterations, int iterations, Runnable operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run();
+        }
+        long start = currentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return (double) (currentThreadAllocatedBytes() - start) / iterations;
+    }
+
+    /** Total bytes allocated so far by the current thread */
+    public static long currentThreadAllocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+}
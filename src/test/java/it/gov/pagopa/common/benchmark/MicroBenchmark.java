@@ -0,0 +1,129 @@
+package it.gov.pagopa.common.benchmark;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Minimal average-time micro-benchmark harness, run as JUnit tests by the {@code benchmark} Maven profile.
+ *
+ * <p>Each benchmark runs {@code benchmark.warmupIterations} discarded iterations, then
+ * {@code benchmark.iterations} measured ones of {@code benchmark.opsPerIteration} operations each. Operation results
+ * are sunk into {@link #consume(Object)} so that the JIT cannot eliminate them. If {@code benchmark.allocationProfiler}
+ * is set, the bytes allocated per operation are measured too, as JMH's {@code gc.alloc.rate.norm}.</p>
+ *
+ * <p>Results are written in {@code benchmark.resultDir} using the JMH JSON result format, so that two runs can be
+ * compared with the usual JMH tooling.</p>
+ */
+public final class MicroBenchmark {
+
+    /** z value of a 99.9% confidence interval, as reported by JMH */
+    private static final double Z_999 = 3.291;
+
+    private static volatile int sink;
+
+    private MicroBenchmark() {}
+
+    public record Settings(int warmupIterations, int iterations, int opsPerIteration, boolean allocationProfiler, Path resultDir) {
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("benchmark.warmupIterations", 5),
+                    Integer.getInteger("benchmark.iterations", 10),
+                    Integer.getInteger("benchmark.opsPerIteration", 100_000),
+                    Boolean.parseBoolean(System.getProperty("benchmark.allocationProfiler", "true")),
+                    Path.of(System.getProperty("benchmark.resultDir", "target/benchmark-results")));
+        }
+    }
+
+    /**
+     * @param benchmark benchmark name
+     * @param params benchmark parameters
+     * @param nsPerOp average time per operation of each measured iteration
+     * @param allocatedBytesPerOp average bytes allocated per operation, {@code NaN} if not profiled
+     */
+    public record Result(String benchmark, Map<String, String> params, double[] nsPerOp, double allocatedBytesPerOp) {
+        public double score() {
+            return Arrays.stream(nsPerOp).average().orElse(Double.NaN);
+        }
+
+        public double scoreError() {
+            if (nsPerOp.length < 2) {
+                return Double.NaN;
+            }
+            double mean = score();
+            double variance = Arrays.stream(nsPerOp).map(v -> (v - mean) * (v - mean)).sum() / (nsPerOp.length - 1);
+            return Z_999 * Math.sqrt(variance / nsPerOp.length);
+        }
+    }
+
+    /** It will make the value observable, preventing dead code elimination */
+    public static void consume(Object value) {
+        sink ^= System.identityHashCode(value);
+    }
+
+    public static Result run(String benchmark, Map<String, String> params, Settings settings, Supplier<?> operation) {
+        for (int i = 0; i < settings.warmupIterations(); i++) {
+            iteration(settings.opsPerIteration(), operation);
+        }
+
+        double[] nsPerOp = new double[settings.iterations()];
+        long allocatedStart = settings.allocationProfiler() ? AllocationBenchmark.currentThreadAllocatedBytes() : 0;
+        for (int i = 0; i < settings.iterations(); i++) {
+            nsPerOp[i] = (double) iteration(settings.opsPerIteration(), operation) / settings.opsPerIteration();
+        }
+        double allocatedBytesPerOp = settings.allocationProfiler()
+                ? (double) (AllocationBenchmark.currentThreadAllocatedBytes() - allocatedStart) / ((long) settings.iterations() * settings.opsPerIteration())
+                : Double.NaN;
+
+        return new Result(benchmark, params, nsPerOp, allocatedBytesPerOp);
+    }
+
+    private static long iteration(int operations, Supplier<?> operation) {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            consume(operation.get());
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** It will write the results in {@code <resultDir>/<name>.json}, returning the written file */
+    public static Path writeResults(String name, List<Result> results, Settings settings) {
+        List<Map<String, Object>> json = results.stream().map(result -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("benchmark", result.benchmark());
+            entry.put("mode", "avgt");
+            entry.put("threads", 1);
+            entry.put("warmupIterations", settings.warmupIterations());
+            entry.put("measurementIterations", settings.iterations());
+            entry.put("params", result.params());
+            entry.put("primaryMetric", Map.of(
+                    "score", result.score(),
+                    "scoreError", Double.isNaN(result.scoreError()) ? "NaN" : result.scoreError(),
+                    "scoreUnit", "ns/op",
+                    "rawData", List.of(result.nsPerOp())));
+            if (!Double.isNaN(result.allocatedBytesPerOp())) {
+                entry.put("secondaryMetrics", Map.of("gc.alloc.rate.norm", Map.of(
+                        "score", result.allocatedBytesPerOp(),
+                        "scoreUnit", "B/op")));
+            }
+            return entry;
+        }).toList();
+
+        try {
+            Files.createDirectories(settings.resultDir());
+            Path file = settings.resultDir().resolve(name + ".json");
+            JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), json);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
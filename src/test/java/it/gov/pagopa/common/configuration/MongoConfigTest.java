@@ -1,6 +1,7 @@
 package it.gov.pagopa.common.configuration;
 
 import com.mongodb.MongoClientSettings;
+import it.gov.pagopa.common.mongo.MongoConnectionPoolMonitor;
 import it.gov.pagopa.common.utils.CommonConstants;
 import org.bson.types.Decimal128;
 import org.junit.jupiter.api.Assertions;
@@ -64,6 +65,16 @@ class MongoConfigTest {
         Assertions.assertEquals(mongoDbCustomProperties.getConnectionPool().getMaxConnecting(), settings.getConnectionPoolSettings().getMaxConnecting());
     }
 
+    @Test
+    void testConnectionPoolMonitorCustomizer() {
+        MongoConnectionPoolMonitor monitor = new MongoConnectionPoolMonitor();
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        new MongoConfig().connectionPoolMonitorCustomizer(monitor).customize(builder);
+
+        assertThat(builder.build().getConnectionPoolSettings().getConnectionPoolListeners()).contains(monitor);
+    }
+
     @Test
     void testBigDecimalToDecimal128Conversion() {
         BigDecimal bigDecimal = new BigDecimal("12345.6789");
@@ -0,0 +1,30 @@
+package it.gov.pagopa.common.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.gov.pagopa.common.reactive.utils.PerformanceLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+class PerformanceLoggerConfigTest {
+
+    @AfterEach
+    void tearDown() {
+        PerformanceLogger.configure(PerformanceLogger.Settings.DEFAULT);
+    }
+
+    @Test
+    void testPerformanceLoggerSettings() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        PerformanceLogger.Settings settings = new PerformanceLoggerConfig()
+                .performanceLoggerSettings(meterRegistry, false, 0.1, new long[]{50, 100});
+
+        Assertions.assertEquals(List.of(Duration.ofMillis(50), Duration.ofMillis(100)), settings.slos());
+        PerformanceLogger.logTiming("FLOW", System.currentTimeMillis(), "payload");
+        Assertions.assertEquals(1, meterRegistry.get(PerformanceLogger.METRIC_TIMING).timer().count());
+    }
+}
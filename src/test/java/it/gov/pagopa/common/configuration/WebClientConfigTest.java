@@ -0,0 +1,86 @@
+package it.gov.pagopa.common.configuration;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebClientConfigTest {
+
+    private final WebClientConfig webClientConfig = new WebClientConfig();
+    private ConnectionProvider connectionProvider;
+    private MockWebServer mockWebServer;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+        if (mockWebServer != null) {
+            mockWebServer.shutdown();
+        }
+    }
+
+    @Test
+    void http11ByDefault() {
+        connectionProvider = webClientConfig.connectionProvider(false, 4, 100);
+
+        HttpClient httpClient = webClientConfig.httpClient(connectionProvider, false, "h2c");
+
+        assertThat(httpClient.configuration().protocols()).containsExactly(HttpProtocol.HTTP11);
+    }
+
+    @Test
+    void h2NegotiatesOverTlsWithHttp11Fallback() {
+        connectionProvider = webClientConfig.connectionProvider(true, 4, 100);
+
+        HttpClient httpClient = webClientConfig.httpClient(connectionProvider, true, "h2");
+
+        assertThat(httpClient.configuration().protocols()).containsExactlyInAnyOrder(HttpProtocol.H2, HttpProtocol.HTTP11);
+        assertThat(httpClient.configuration().sslProvider()).isNotNull();
+    }
+
+    @Test
+    void unknownHttp2ModeIsRejected() {
+        connectionProvider = webClientConfig.connectionProvider(true, 4, 100);
+
+        assertThatThrownBy(() -> webClientConfig.httpClient(connectionProvider, true, "spdy"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void h2cMultiplexesRequestsOnPriorKnowledgeServer() throws IOException {
+        mockWebServer = new MockWebServer();
+        // Rejects HTTP/1.1: any response proves that HTTP/2 has been spoken
+        mockWebServer.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        mockWebServer.start();
+        for (int i = 0; i < 10; i++) {
+            mockWebServer.enqueue(new MockResponse().setBody("ok"));
+        }
+        connectionProvider = webClientConfig.connectionProvider(true, 1, 100);
+        WebClient webClient = webClientConfig.webClientBuilder(webClientConfig.httpClient(connectionProvider, true, "h2c"))
+                .baseUrl(mockWebServer.url("/").toString())
+                .build();
+
+        List<String> responses = Flux.range(0, 10)
+                .flatMap(i -> webClient.get().uri("/emd/tpp/{tppId}", i).retrieve().bodyToMono(String.class))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(responses).hasSize(10).containsOnly("ok");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(10);
+    }
+}
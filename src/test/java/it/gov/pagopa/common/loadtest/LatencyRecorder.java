@@ -0,0 +1,81 @@
+package it.gov.pagopa.common.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe recorder of the latencies of a load-test operation, keeping every sample in order to report exact
+ * percentiles.
+ */
+public final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    /**
+     * @param count successful requests
+     * @param errors failed requests, whose latency is not recorded
+     * @param p50Ms 50th percentile of the latency, in milliseconds
+     * @param p99Ms 99th percentile of the latency, in milliseconds
+     * @param p999Ms 99.9th percentile of the latency, in milliseconds
+     * @param maxMs maximum latency, in milliseconds
+     */
+    public record Summary(long count, long errors, double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+        public double errorRatio() {
+            long total = count + errors;
+            return total == 0 ? 0 : (double) errors / total;
+        }
+    }
+
+    public synchronized void record(long latencyNanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+    }
+
+    public synchronized void recordError() {
+        errors++;
+    }
+
+    /** It will merge the samples of {@code other} into this recorder */
+    public synchronized void add(LatencyRecorder other) {
+        long[] otherSamples;
+        int otherCount;
+        long otherErrors;
+        synchronized (other) {
+            otherSamples = other.samples;
+            otherCount = other.count;
+            otherErrors = other.errors;
+        }
+        if (count + otherCount > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + otherCount));
+        }
+        System.arraycopy(otherSamples, 0, samples, count, otherCount);
+        count += otherCount;
+        errors += otherErrors;
+    }
+
+    public synchronized Summary summary() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(count, errors,
+                toMillis(percentile(sorted, 0.5)),
+                toMillis(percentile(sorted, 0.99)),
+                toMillis(percentile(sorted, 0.999)),
+                toMillis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+    }
+
+    /** Nearest-rank percentile of the sorted samples, 0 if empty */
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.clamp(rank - 1, 0, sorted.length - 1)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,47 @@
+package it.gov.pagopa.common.loadtest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyRecorderTest {
+
+  @Test
+  void summaryReportsNearestRankPercentiles() {
+    LatencyRecorder recorder = new LatencyRecorder();
+    for (int i = 1000; i >= 1; i--) {
+      recorder.record(i * 1_000_000L);
+    }
+    recorder.recordError();
+
+    LatencyRecorder.Summary summary = recorder.summary();
+
+    Assertions.assertEquals(1000, summary.count());
+    Assertions.assertEquals(1, summary.errors());
+    Assertions.assertEquals(500.0, summary.p50Ms());
+    Assertions.assertEquals(990.0, summary.p99Ms());
+    Assertions.assertEquals(999.0, summary.p999Ms());
+    Assertions.assertEquals(1000.0, summary.maxMs());
+    Assertions.assertEquals(1.0 / 1001, summary.errorRatio());
+  }
+
+  @Test
+  void addMergesSamplesAndErrors() {
+    LatencyRecorder first = new LatencyRecorder();
+    first.record(1_000_000L);
+    LatencyRecorder second = new LatencyRecorder();
+    second.record(3_000_000L);
+    second.recordError();
+
+    first.add(second);
+
+    LatencyRecorder.Summary summary = first.summary();
+    Assertions.assertEquals(2, summary.count());
+    Assertions.assertEquals(1, summary.errors());
+    Assertions.assertEquals(3.0, summary.maxMs());
+  }
+
+  @Test
+  void summaryOfEmptyRecorderIsZero() {
+    Assertions.assertEquals(new LatencyRecorder.Summary(0, 0, 0, 0, 0, 0), new LatencyRecorder().summary());
+  }
+}
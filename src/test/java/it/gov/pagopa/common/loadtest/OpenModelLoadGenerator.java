@@ -0,0 +1,119 @@
+package it.gov.pagopa.common.loadtest;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator: requests are issued at a fixed arrival rate, whatever the response time of the ones
+ * already in flight, mixing the configured {@link Operation}s by weight.
+ *
+ * <p>To avoid coordinated omission, the latency of each request is measured from its <i>intended</i> start time
+ * ({@code start + i / rate}) and not from when it was actually sent: if the generator or the connection pool falls
+ * behind, the waiting time is charged to the requests, as it would be to real clients.</p>
+ *
+ * <p>The operation sequence is shuffled with a fixed seed, so that two runs with the same settings issue the same
+ * requests in the same order.</p>
+ */
+public final class OpenModelLoadGenerator {
+
+    /** Overall summary key of {@link Report#operations()} */
+    public static final String ALL_OPERATIONS = "ALL";
+
+    /**
+     * @param name operation name, used as key of the report
+     * @param weight relative frequency of the operation in the mix
+     * @param request supplier of the request to issue, invoked at its intended start time
+     */
+    public record Operation(String name, int weight, Supplier<Mono<?>> request) {}
+
+    /**
+     * @param targetRate configured arrival rate, in requests per second
+     * @param achievedRate completed requests per second, measured until the last completion
+     * @param operations latency summary of each operation, plus the {@value #ALL_OPERATIONS} overall one
+     */
+    public record Report(int targetRate, double achievedRate, Map<String, LatencyRecorder.Summary> operations) {
+        public LatencyRecorder.Summary overall() {
+            return operations.get(ALL_OPERATIONS);
+        }
+    }
+
+    private final List<Operation> operations;
+    private final int maxInFlight;
+    private final long seed;
+
+    /**
+     * @param operations request mix
+     * @param maxInFlight maximum concurrent requests: further ones wait, their waiting time being measured
+     * @param seed seed of the operation sequence
+     */
+    public OpenModelLoadGenerator(List<Operation> operations, int maxInFlight, long seed) {
+        this.operations = List.copyOf(operations);
+        this.maxInFlight = maxInFlight;
+        this.seed = seed;
+    }
+
+    /** It will issue {@code rate * duration} requests at {@code rate} requests per second, blocking until completed */
+    public Report run(int rate, Duration duration) {
+        int total = (int) (rate * duration.toMillis() / 1000);
+        int[] sequence = sequence(total);
+        long intervalNanos = 1_000_000_000L / rate;
+
+        List<LatencyRecorder> recorders = operations.stream().map(o -> new LatencyRecorder()).toList();
+        long start = System.nanoTime();
+
+        Flux.range(0, total)
+                .concatMap(i -> {
+                    long delay = start + i * intervalNanos - System.nanoTime();
+                    return delay > 0 ? Mono.delay(Duration.ofNanos(delay)).thenReturn(i) : Mono.just(i);
+                })
+                .flatMap(i -> {
+                    long intendedStart = start + i * intervalNanos;
+                    LatencyRecorder recorder = recorders.get(sequence[i]);
+                    return Mono.defer(() -> operations.get(sequence[i]).request().get())
+                            .then(Mono.fromRunnable(() -> recorder.record(System.nanoTime() - intendedStart)))
+                            .onErrorResume(e -> Mono.fromRunnable(recorder::recordError));
+                }, maxInFlight)
+                .blockLast(duration.multipliedBy(10));
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return report(rate, elapsedSeconds, recorders);
+    }
+
+    private Report report(int rate, double elapsedSeconds, List<LatencyRecorder> recorders) {
+        Map<String, LatencyRecorder.Summary> summaries = new LinkedHashMap<>();
+        LatencyRecorder all = new LatencyRecorder();
+        for (int i = 0; i < operations.size(); i++) {
+            summaries.put(operations.get(i).name(), recorders.get(i).summary());
+            all.add(recorders.get(i));
+        }
+        LatencyRecorder.Summary overall = all.summary();
+        summaries.put(ALL_OPERATIONS, overall);
+        return new Report(rate, overall.count() / elapsedSeconds, summaries);
+    }
+
+    /** Operation indexes, each repeated proportionally to its weight and shuffled */
+    int[] sequence(int total) {
+        int totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+        List<Integer> indexes = new ArrayList<>(total);
+        for (int op = 0; op < operations.size(); op++) {
+            long occurrences = (long) total * operations.get(op).weight() / totalWeight;
+            for (long j = 0; j < occurrences; j++) {
+                indexes.add(op);
+            }
+        }
+        while (indexes.size() < total) {
+            indexes.add(0);
+        }
+        Collections.shuffle(indexes, new Random(seed));
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
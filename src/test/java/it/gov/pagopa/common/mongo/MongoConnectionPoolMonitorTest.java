@@ -0,0 +1,76 @@
+package it.gov.pagopa.common.mongo;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class MongoConnectionPoolMonitorTest {
+
+    private final MongoConnectionPoolMonitor monitor = new MongoConnectionPoolMonitor();
+
+    @Test
+    void tracksWaitingAndCheckedOutConnections() {
+        monitor.connectionCheckOutStarted(Mockito.mock(ConnectionCheckOutStartedEvent.class));
+        monitor.connectionCheckOutStarted(Mockito.mock(ConnectionCheckOutStartedEvent.class));
+        monitor.connectionCheckOutStarted(Mockito.mock(ConnectionCheckOutStartedEvent.class));
+        assertEquals(3, monitor.getWaiting());
+
+        monitor.connectionCheckedOut(checkedOut(100));
+        ConnectionCheckOutFailedEvent failed = Mockito.mock(ConnectionCheckOutFailedEvent.class);
+        when(failed.getElapsedTime(TimeUnit.MILLISECONDS)).thenReturn(100L);
+        monitor.connectionCheckOutFailed(failed);
+        assertEquals(1, monitor.getWaiting());
+        assertEquals(1, monitor.getCheckedOut());
+
+        monitor.connectionCheckedIn(Mockito.mock(ConnectionCheckedInEvent.class));
+        assertEquals(0, monitor.getCheckedOut());
+    }
+
+    @Test
+    void averageWaitFollowsRecentSamples() {
+        for (int i = 0; i < 50; i++) {
+            monitor.connectionCheckOutStarted(Mockito.mock(ConnectionCheckOutStartedEvent.class));
+            monitor.connectionCheckedOut(checkedOut(1000));
+        }
+        assertEquals(1000, monitor.getAverageWaitMillis(), 1);
+
+        for (int i = 0; i < 50; i++) {
+            monitor.connectionCheckOutStarted(Mockito.mock(ConnectionCheckOutStartedEvent.class));
+            monitor.connectionCheckedOut(checkedOut(0));
+        }
+        assertEquals(0, monitor.getAverageWaitMillis(), 1);
+    }
+
+    @Test
+    void averageWaitDecaysWhenIdle() {
+        AtomicLong clock = new AtomicLong();
+        MongoConnectionPoolMonitor idleMonitor = new MongoConnectionPoolMonitor(clock::get);
+        for (int i = 0; i < 50; i++) {
+            idleMonitor.connectionCheckOutStarted(Mockito.mock(ConnectionCheckOutStartedEvent.class));
+            idleMonitor.connectionCheckedOut(checkedOut(1000));
+        }
+        assertEquals(1000, idleMonitor.getAverageWaitMillis(), 1);
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertEquals(500, idleMonitor.getAverageWaitMillis(), 1);
+
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        assertEquals(0, idleMonitor.getAverageWaitMillis(), 1);
+    }
+
+    private static ConnectionCheckedOutEvent checkedOut(long waitMillis) {
+        ConnectionCheckedOutEvent event = Mockito.mock(ConnectionCheckedOutEvent.class);
+        when(event.getElapsedTime(TimeUnit.MILLISECONDS)).thenReturn(waitMillis);
+        return event;
+    }
+}
@@ -0,0 +1,193 @@
+package it.gov.pagopa.common.mongo.index;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.index.WildcardIndex;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoIndexBootstrapTest {
+
+    private static final String COLLECTION = "citizen_consents";
+
+    private static final RequiredMongoIndex FISCAL_CODE_UNIQUE = new RequiredMongoIndex(COLLECTION,
+            new Index().on("fiscalCode", Sort.Direction.ASC).unique().named("fiscalCode_unique"));
+    private static final RequiredMongoIndex CONSENTS_TPP = new RequiredMongoIndex(COLLECTION,
+            new Index().on("consents.tppId", Sort.Direction.ASC).on("consents.tppState", Sort.Direction.ASC).named("consents_tppId_tppState"));
+    private static final RequiredMongoIndex CONSENTS_WILDCARD = new RequiredMongoIndex(COLLECTION,
+            new WildcardIndex("consents").named("consents_wildcard"));
+
+    private static final Document LIST_INDEXES = new Document("listIndexes", COLLECTION);
+    private static final Document COLL_STATS = new Document("collStats", COLLECTION);
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+    @Mock
+    private ObjectProvider<MongoIndexContributor> contributors;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(contributors.orderedStream()).thenAnswer(invocation ->
+                Stream.<MongoIndexContributor>of(() -> List.of(FISCAL_CODE_UNIQUE, CONSENTS_TPP, CONSENTS_WILDCARD)));
+        when(mongoTemplate.indexOps(COLLECTION)).thenReturn(indexOperations);
+        when(mongoTemplate.executeCommand(COLL_STATS))
+                .thenReturn(Mono.just(new Document("indexSizes", new Document("consents_multikey", 4096))));
+    }
+
+    @Test
+    void verify_PresentMissingAndConflicting() {
+        when(mongoTemplate.executeCommand(LIST_INDEXES)).thenReturn(Mono.just(listIndexesResult(
+                index("_id_", new Document("_id", 1)),
+                index("fiscalCode_1", new Document("fiscalCode", 1.0)),
+                index("consents_multikey", new Document("consents.tppId", 1.0).append("consents.tppState", 1)))));
+
+        MongoIndexBootstrap bootstrap = new MongoIndexBootstrap(mongoTemplate, contributors, meterRegistry, true);
+
+        StepVerifier.create(bootstrap.verify())
+                .assertNext(statuses -> {
+                    assertThat(statuses).containsEntry(FISCAL_CODE_UNIQUE, MongoIndexStatus.CONFLICTING);
+                    assertThat(statuses).containsEntry(CONSENTS_TPP, MongoIndexStatus.PRESENT);
+                    assertThat(statuses).containsEntry(CONSENTS_WILDCARD, MongoIndexStatus.MISSING);
+                })
+                .verifyComplete();
+
+        assertThat(bootstrap.getSize(CONSENTS_TPP)).isEqualTo(4096L);
+        assertThat(meterRegistry.get("mongo.index.present").tag("index", "consents_tppId_tppState").gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("mongo.index.present").tag("index", "fiscalCode_unique").gauge().value()).isZero();
+        assertThat(meterRegistry.get("mongo.index.size").tag("index", "consents_tppId_tppState").gauge().value()).isEqualTo(4096.0);
+    }
+
+    @Test
+    void verify_CollectionNotFound() {
+        BsonDocument error = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(26))
+                .append("errmsg", new BsonString("ns does not exist"));
+        when(mongoTemplate.executeCommand(LIST_INDEXES)).thenReturn(Mono.error(new MongoCommandException(error, new ServerAddress())));
+
+        MongoIndexBootstrap bootstrap = new MongoIndexBootstrap(mongoTemplate, contributors, meterRegistry, true);
+
+        StepVerifier.create(bootstrap.verify())
+                .assertNext(statuses -> assertThat(statuses.values()).containsOnly(MongoIndexStatus.MISSING))
+                .verifyComplete();
+    }
+
+    @Test
+    void onApplicationReady_CreatesMissingIndexes() {
+        Document fiscalCode = index("fiscalCode_unique", new Document("fiscalCode", 1)).append("unique", true);
+        Document consentsTpp = index("consents_tppId_tppState", new Document("consents.tppId", 1).append("consents.tppState", 1));
+        Document wildcard = index("consents_wildcard", new Document("consents.$**", 1));
+        when(mongoTemplate.executeCommand(LIST_INDEXES)).thenReturn(
+                Mono.just(listIndexesResult(fiscalCode)),
+                Mono.just(listIndexesResult(fiscalCode, consentsTpp, wildcard)));
+        when(indexOperations.createIndex(CONSENTS_TPP.definition())).thenReturn(Mono.just("consents_tppId_tppState"));
+        when(indexOperations.createIndex(CONSENTS_WILDCARD.definition())).thenReturn(Mono.error(new RuntimeException("build failed")));
+
+        MongoIndexBootstrap bootstrap = new MongoIndexBootstrap(mongoTemplate, contributors, meterRegistry, true);
+        bootstrap.onApplicationReady();
+
+        verify(indexOperations, never()).createIndex(FISCAL_CODE_UNIQUE.definition());
+        verify(indexOperations).createIndex(CONSENTS_TPP.definition());
+        verify(indexOperations).createIndex(CONSENTS_WILDCARD.definition());
+        assertThat(bootstrap.getStatuses().values()).containsOnly(MongoIndexStatus.PRESENT);
+    }
+
+    @Test
+    void onApplicationReady_CreationDisabled() {
+        when(mongoTemplate.executeCommand(LIST_INDEXES)).thenReturn(Mono.just(listIndexesResult()));
+
+        MongoIndexBootstrap bootstrap = new MongoIndexBootstrap(mongoTemplate, contributors, meterRegistry, false);
+        bootstrap.onApplicationReady();
+
+        verify(indexOperations, never()).createIndex(any());
+        assertThat(bootstrap.getStatuses().values()).containsOnly(MongoIndexStatus.MISSING);
+    }
+
+    @Test
+    void sameKeys_ComparesOrderAndDirection() {
+        Document expected = new Document("a", 1).append("b", -1);
+
+        assertThat(MongoIndexBootstrap.sameKeys(expected, new Document("a", 1.0).append("b", -1L))).isTrue();
+        assertThat(MongoIndexBootstrap.sameKeys(expected, new Document("b", -1).append("a", 1))).isFalse();
+        assertThat(MongoIndexBootstrap.sameKeys(expected, new Document("a", 1).append("b", 1))).isFalse();
+        assertThat(MongoIndexBootstrap.sameKeys(expected, new Document("a", 1))).isFalse();
+        assertThat(MongoIndexBootstrap.sameKeys(expected, null)).isFalse();
+    }
+
+    @Test
+    void verify_TtlMismatchIsConflicting() {
+        RequiredMongoIndex ttl = new RequiredMongoIndex(COLLECTION,
+                new Index().on("publishedAt", Sort.Direction.ASC).expire(Duration.ofHours(168)).named("publishedAt_ttl"));
+        when(contributors.orderedStream()).thenAnswer(invocation -> Stream.<MongoIndexContributor>of(() -> List.of(ttl, CONSENTS_TPP)));
+        when(mongoTemplate.executeCommand(LIST_INDEXES)).thenReturn(
+                Mono.just(listIndexesResult(
+                        index("publishedAt_ttl", new Document("publishedAt", 1)).append("expireAfterSeconds", 3600),
+                        index("consents_tppId_tppState", new Document("consents.tppId", 1).append("consents.tppState", 1))
+                                .append("expireAfterSeconds", 3600))),
+                Mono.just(listIndexesResult(
+                        index("publishedAt_ttl", new Document("publishedAt", 1)).append("expireAfterSeconds", 604800L),
+                        index("consents_tppId_tppState", new Document("consents.tppId", 1).append("consents.tppState", 1)))));
+
+        MongoIndexBootstrap bootstrap = new MongoIndexBootstrap(mongoTemplate, contributors, meterRegistry, true);
+
+        StepVerifier.create(bootstrap.verify())
+                .assertNext(statuses -> {
+                    assertThat(statuses).containsEntry(ttl, MongoIndexStatus.CONFLICTING);
+                    assertThat(statuses).containsEntry(CONSENTS_TPP, MongoIndexStatus.CONFLICTING);
+                })
+                .verifyComplete();
+        StepVerifier.create(bootstrap.verify())
+                .assertNext(statuses -> assertThat(statuses.values()).containsOnly(MongoIndexStatus.PRESENT))
+                .verifyComplete();
+    }
+
+    @Test
+    void sameOptions_ComparesDeclaredAndBehaviouralOptions() {
+        Document declared = new Document("name", "idx").append("unique", true)
+                .append("collation", new Document("locale", "it").append("strength", 2));
+        Document existing = new Document("name", "other").append("unique", true).append("v", 2)
+                .append("collation", new Document("locale", "it").append("strength", 2).append("caseLevel", false));
+
+        assertThat(MongoIndexBootstrap.sameOptions(declared, existing)).isTrue();
+        assertThat(MongoIndexBootstrap.sameOptions(declared, new Document(existing).append("sparse", true))).isFalse();
+        assertThat(MongoIndexBootstrap.sameOptions(declared, new Document(existing).append("collation", new Document("locale", "en")))).isFalse();
+        assertThat(MongoIndexBootstrap.sameOptions(new Document("name", "idx"), new Document("unique", false))).isTrue();
+    }
+
+    private static Document index(String name, Document keys) {
+        return new Document("v", 2).append("key", keys).append("name", name);
+    }
+
+    private static Document listIndexesResult(Document... indexes) {
+        return new Document("cursor", new Document("firstBatch", List.of(indexes))).append("ok", 1.0);
+    }
+}
@@ -0,0 +1,97 @@
+package it.gov.pagopa.common.mongo.index;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.WildcardIndex;
+import reactor.test.StepVerifier;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class MongoIndexHealthIndicatorTest {
+
+    private static final RequiredMongoIndex FISCAL_CODE_UNIQUE = new RequiredMongoIndex("citizen_consents",
+            new Index().on("fiscalCode", Sort.Direction.ASC).unique().named("fiscalCode_unique"));
+    private static final RequiredMongoIndex TPP_STATE = new RequiredMongoIndex("tpp_citizen_index",
+            new Index().on("tppId", Sort.Direction.ASC).on("tppState", Sort.Direction.ASC).named("tppId_tppState"));
+
+    @Test
+    void testAllIndexesPresent() {
+        MongoIndexBootstrap bootstrap = bootstrapWith(MongoIndexStatus.PRESENT, MongoIndexStatus.PRESENT);
+        given(bootstrap.getSize(FISCAL_CODE_UNIQUE)).willReturn(8192L);
+
+        StepVerifier.create(new MongoIndexHealthIndicator(bootstrap, true).health())
+                .consumeNextWith(h -> {
+                    assertThat(h.getStatus()).isEqualTo(Status.UP);
+                    assertThat(h.getDetails()).containsOnlyKeys("citizen_consents.fiscalCode_unique", "tpp_citizen_index.tppId_tppState");
+                    assertThat(h.getDetails()).containsEntry("citizen_consents.fiscalCode_unique",
+                            Map.of("status", MongoIndexStatus.PRESENT, "sizeBytes", 8192L, "requiredForReadiness", true));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testIndexMissing() {
+        MongoIndexBootstrap bootstrap = bootstrapWith(MongoIndexStatus.PRESENT, MongoIndexStatus.MISSING);
+
+        StepVerifier.create(new MongoIndexHealthIndicator(bootstrap, true).health())
+                .consumeNextWith(h -> assertThat(h.getStatus()).isEqualTo(Status.DOWN))
+                .verifyComplete();
+    }
+
+    @Test
+    void testNotVerifiedYet() {
+        MongoIndexBootstrap bootstrap = bootstrapWith(MongoIndexStatus.UNKNOWN, MongoIndexStatus.UNKNOWN);
+
+        StepVerifier.create(new MongoIndexHealthIndicator(bootstrap, true).health())
+                .consumeNextWith(h -> assertThat(h.getStatus()).isEqualTo(Status.DOWN))
+                .verifyComplete();
+    }
+
+    @Test
+    void testIndexConflictingNotRequiredForReadiness() {
+        MongoIndexBootstrap bootstrap = bootstrapWith(MongoIndexStatus.CONFLICTING, MongoIndexStatus.PRESENT);
+
+        StepVerifier.create(new MongoIndexHealthIndicator(bootstrap, false).health())
+                .consumeNextWith(h -> {
+                    assertThat(h.getStatus()).isEqualTo(Status.UP);
+                    assertThat(h.getDetails()).containsEntry("citizen_consents.fiscalCode_unique",
+                            Map.of("status", MongoIndexStatus.CONFLICTING, "sizeBytes", 0L, "requiredForReadiness", true));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testOptionalIndexMissing() {
+        RequiredMongoIndex wildcard = new RequiredMongoIndex("citizen_consents",
+                new WildcardIndex("consents").named("consents_wildcard"), false);
+        Map<RequiredMongoIndex, MongoIndexStatus> statuses = new LinkedHashMap<>();
+        statuses.put(FISCAL_CODE_UNIQUE, MongoIndexStatus.PRESENT);
+        statuses.put(wildcard, MongoIndexStatus.MISSING);
+        MongoIndexBootstrap bootstrap = mock(MongoIndexBootstrap.class);
+        given(bootstrap.getStatuses()).willReturn(statuses);
+
+        StepVerifier.create(new MongoIndexHealthIndicator(bootstrap, true).health())
+                .consumeNextWith(h -> {
+                    assertThat(h.getStatus()).isEqualTo(Status.UP);
+                    assertThat(h.getDetails()).containsEntry("citizen_consents.consents_wildcard",
+                            Map.of("status", MongoIndexStatus.MISSING, "sizeBytes", 0L, "requiredForReadiness", false));
+                })
+                .verifyComplete();
+    }
+
+    private static MongoIndexBootstrap bootstrapWith(MongoIndexStatus fiscalCodeStatus, MongoIndexStatus tppStateStatus) {
+        Map<RequiredMongoIndex, MongoIndexStatus> statuses = new LinkedHashMap<>();
+        statuses.put(FISCAL_CODE_UNIQUE, fiscalCodeStatus);
+        statuses.put(TPP_STATE, tppStateStatus);
+        MongoIndexBootstrap bootstrap = mock(MongoIndexBootstrap.class);
+        given(bootstrap.getStatuses()).willReturn(statuses);
+        return bootstrap;
+    }
+}
@@ -1,22 +1,67 @@
 package it.gov.pagopa.common.reactive.kafka;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.gov.pagopa.common.kafka.utils.KafkaConstants;
+import it.gov.pagopa.common.reactive.kafka.consumer.BaseKafkaConsumer;
+import it.gov.pagopa.common.reactive.kafka.exception.UncommittableError;
+import it.gov.pagopa.common.reactive.utils.PerformanceLogger;
+import it.gov.pagopa.common.utils.MemoryAppender;
+import it.gov.pagopa.common.utils.Utils;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class BaseKafkaConsumerTest {
 
     private TestKafkaConsumer testConsumer;
+    private static MemoryAppender memoryAppender;
+
+    @BeforeAll
+    static void configureMemoryAppender() {
+        memoryAppender = new MemoryAppender();
+        memoryAppender.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        memoryAppender.start();
+        ((Logger) LoggerFactory.getLogger(BaseKafkaConsumer.class.getName())).addAppender(memoryAppender);
+        ((Logger) LoggerFactory.getLogger(PerformanceLogger.class.getName())).addAppender(memoryAppender);
+    }
 
     @BeforeEach
     void setUp() {
+        memoryAppender.reset();
         testConsumer = new TestKafkaConsumer("test-app");
     }
 
@@ -75,6 +120,242 @@ class BaseKafkaConsumerTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testExecuteKeyOrder() {
+        KeyOrderedKafkaConsumer keyOrderedConsumer = new KeyOrderedKafkaConsumer();
+        Acknowledgment[] acks = new Acknowledgment[5];
+        for (int i = 0; i < acks.length; i++) {
+            acks[i] = Mockito.mock(Acknowledgment.class);
+        }
+
+        keyOrderedConsumer.execute(Flux.just(
+                createKeyedMessage("slow", 0, 0, acks[0]),
+                createKeyedMessage("fast", 0, 1, acks[1]),
+                createKeyedMessage("fast", 0, 2, acks[2]),
+                createKeyedMessage("slow", 0, 3, acks[3]),
+                createKeyedMessage("fast", 0, 4, acks[4])));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> keyOrderedConsumer.processed.size() == 5);
+        // the slow key does not stall the other keys, while each key keeps its order
+        assertEquals(List.of("fast1", "fast2", "fast4", "slow0", "slow3"), keyOrderedConsumer.processed);
+
+        // the partition is committed only up to the lowest unfinished offset: up to 2 while slow3 is running, then up to 4
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(acks[4]).acknowledge());
+        verify(acks[2]).acknowledge();
+        verify(acks[0], never()).acknowledge();
+        verify(acks[1], never()).acknowledge();
+        verify(acks[3], never()).acknowledge();
+    }
+
+    @Test
+    void testExecuteRailsUncommittedFollowsAcknowledgedOffsets() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeyOrderedKafkaConsumer keyOrderedConsumer = new KeyOrderedKafkaConsumer(meterRegistry);
+        Acknowledgment[] acks = new Acknowledgment[3];
+        for (int i = 0; i < acks.length; i++) {
+            acks[i] = Mockito.mock(Acknowledgment.class);
+        }
+
+        keyOrderedConsumer.execute(Flux.just(
+                createKeyedMessage("slow", 0, 0, acks[0]),
+                createKeyedMessage("fast", 0, 1, acks[1]),
+                createKeyedMessage("fast", 0, 2, acks[2])));
+
+        // the fast messages are completed, but not committable while the slow one is running
+        await().atMost(Duration.ofSeconds(5)).until(() -> keyOrderedConsumer.processed.size() == 2);
+        await().during(Duration.ofMillis(150)).atMost(Duration.ofMillis(250))
+                .until(() -> uncommitted(meterRegistry) == 3);
+
+        // once revoked, the partition is left to its new owner, and the completion of the slow message is ignored
+        keyOrderedConsumer.onPartitionsRevoked(List.of(0));
+        assertEquals(0, uncommitted(meterRegistry));
+        await().atMost(Duration.ofSeconds(5)).until(() -> keyOrderedConsumer.processed.size() == 3);
+        await().during(Duration.ofMillis(200)).atMost(Duration.ofMillis(300))
+                .until(() -> uncommitted(meterRegistry) == 0);
+        for (Acknowledgment ack : acks) {
+            verify(ack, never()).acknowledge();
+        }
+    }
+
+    private static double uncommitted(MeterRegistry meterRegistry) {
+        return meterRegistry.get(BaseKafkaConsumer.METRIC_UNCOMMITTED).gauge().value();
+    }
+
+    @Test
+    void testExecuteCommitsWhenMaxMessagesReached() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TestKafkaConsumer sizeBoundedConsumer = new TestKafkaConsumer("test-app", meterRegistry) {
+            @Override
+            protected Duration getCommitDelay() {
+                return Duration.ofMinutes(1);
+            }
+
+            @Override
+            protected int getCommitMaxMessages() {
+                return 2;
+            }
+        };
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        sizeBoundedConsumer.execute(Flux.just(
+                createKeyedMessage("key", 0, 0, ack),
+                createKeyedMessage("key", 0, 1, ack),
+                createKeyedMessage("key", 0, 2, ack),
+                createKeyedMessage("key", 0, 3, ack)));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(ack, times(2)).acknowledge());
+        DistributionSummary batchSize = meterRegistry.find(BaseKafkaConsumer.METRIC_COMMIT_BATCH_SIZE).tag("partition", "0").summary();
+        assertNotNull(batchSize);
+        assertEquals(2, batchSize.count());
+        assertEquals(4, batchSize.totalAmount());
+        assertNotNull(meterRegistry.find(BaseKafkaConsumer.METRIC_COMMIT_LATENCY).tag("partition", "0").timer());
+    }
+
+    @Test
+    void testExecuteRetriesUncommittableErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Throwable> exhausted = new CopyOnWriteArrayList<>();
+        TestKafkaConsumer retryingConsumer = new TestKafkaConsumer("test-app") {
+            @Override
+            protected Mono<String> execute(String payload, Message<?> message, Map<String, Object> ctx) {
+                return Mono.defer(() -> attempts.incrementAndGet() < 3
+                        ? Mono.error(new UncommittableError("Temporary error"))
+                        : Mono.just(payload));
+            }
+
+            @Override
+            protected Duration getRetryMinBackoff() {
+                return Duration.ofMillis(10);
+            }
+
+            @Override
+            protected Mono<Void> onRetriesExhausted(Message<?> message, Throwable error) {
+                exhausted.add(error);
+                return Mono.empty();
+            }
+
+            @Override
+            protected ObjectReader getObjectReader() {
+                return new ObjectMapper().readerFor(String.class);
+            }
+        };
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        retryingConsumer.execute(Flux.just(createKeyedMessage("key", 0, 0, ack)));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(ack).acknowledge());
+        assertEquals(3, attempts.get());
+        assertTrue(exhausted.isEmpty());
+    }
+
+    @Test
+    void testExecuteHandsExhaustedMessages() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Throwable> exhausted = new CopyOnWriteArrayList<>();
+        TestKafkaConsumer failingConsumer = new TestKafkaConsumer("test-app") {
+            @Override
+            protected Mono<String> execute(String payload, Message<?> message, Map<String, Object> ctx) {
+                return Mono.defer(() -> {
+                    attempts.incrementAndGet();
+                    return Mono.error(new UncommittableError("Poisoned message"));
+                });
+            }
+
+            @Override
+            protected Duration getRetryMinBackoff() {
+                return Duration.ofMillis(10);
+            }
+
+            @Override
+            protected Mono<Void> onRetriesExhausted(Message<?> message, Throwable error) {
+                exhausted.add(error);
+                return Mono.empty();
+            }
+
+            @Override
+            protected ObjectReader getObjectReader() {
+                return new ObjectMapper().readerFor(String.class);
+            }
+        };
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        failingConsumer.execute(Flux.just(createKeyedMessage("FISCALCODE", 0, 0, ack)));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(ack).acknowledge());
+        assertEquals(1 + 3, attempts.get());
+        assertEquals(1, exhausted.size());
+        assertTrue(exhausted.get(0) instanceof UncommittableError);
+
+        // neither the payload nor the plain key (usually a fiscal code) are logged
+        ILoggingEvent exhaustedLog = memoryAppender.getLoggedEvents().stream()
+                .filter(event -> event.getFormattedMessage().contains("Retries exhausted"))
+                .findFirst().orElseThrow();
+        assertTrue(exhaustedLog.getFormattedMessage().contains(
+                "(partition: 0, offset: 0, id: %s)".formatted(Utils.createSHA256("FISCALCODE"))));
+        assertFalse(exhaustedLog.getFormattedMessage().contains("FISCALCODE"));
+    }
+
+    @Test
+    void testPerformanceLogHashesMessageId() {
+        TestKafkaConsumer keyedConsumer = new TestKafkaConsumer("test-app") {
+            @Override
+            protected ObjectReader getObjectReader() {
+                return new ObjectMapper().readerFor(String.class);
+            }
+        };
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        keyedConsumer.execute(Flux.just(createKeyedMessage("FISCALCODE", 0, 0, ack)));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(ack).acknowledge());
+        ILoggingEvent timingLog = memoryAppender.getLoggedEvents().stream()
+                .filter(event -> event.getFormattedMessage().contains("[PERFORMANCE_LOG]"))
+                .findFirst().orElseThrow();
+        assertTrue(timingLog.getFormattedMessage().contains(
+                "(partition: 0, offset: 0) %s".formatted(Utils.createSHA256("FISCALCODE"))));
+        assertFalse(timingLog.getFormattedMessage().contains("FISCALCODE"));
+    }
+
+    @Test
+    void testExecuteDoesNotCommitExhaustedMessagesNotHandled() {
+        TestKafkaConsumer failingConsumer = new TestKafkaConsumer("test-app") {
+            @Override
+            protected Mono<String> execute(String payload, Message<?> message, Map<String, Object> ctx) {
+                return Mono.error(new UncommittableError("Poisoned message"));
+            }
+
+            @Override
+            protected Duration getRetryMinBackoff() {
+                return Duration.ofMillis(10);
+            }
+
+            @Override
+            protected Mono<Void> onRetriesExhausted(Message<?> message, Throwable error) {
+                return Mono.error(new UncommittableError("Error topic not available"));
+            }
+
+            @Override
+            protected ObjectReader getObjectReader() {
+                return new ObjectMapper().readerFor(String.class);
+            }
+        };
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        failingConsumer.execute(Flux.just(createKeyedMessage("key", 0, 0, ack)));
+
+        // the message is read again from the last commit instead of being lost
+        verify(ack, Mockito.after(1500).never()).acknowledge();
+    }
+
+    private Message<String> createKeyedMessage(String key, int partition, long offset, Acknowledgment ack) {
+        return MessageBuilder.withPayload("\"%s%d\"".formatted(key, offset))
+                .setHeader(KafkaHeaders.RECEIVED_KEY, key)
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, partition)
+                .setHeader(KafkaHeaders.OFFSET, offset)
+                .setHeader(KafkaHeaders.ACKNOWLEDGMENT, ack)
+                .build();
+    }
+
     private Message<String> createMessage(String payload) {
         String jsonPayload = "{\"message\": \"" + payload + "\"}";
         return MessageBuilder.withPayload(jsonPayload)
@@ -84,4 +365,53 @@ class BaseKafkaConsumerTest {
                 .build();
     }
 
-}
\ No newline at end of file
+    private static class KeyOrderedKafkaConsumer extends BaseKafkaConsumer<String, String> {
+
+        private final List<String> processed = new CopyOnWriteArrayList<>();
+
+        KeyOrderedKafkaConsumer() {
+            this(Metrics.globalRegistry);
+        }
+
+        KeyOrderedKafkaConsumer(MeterRegistry meterRegistry) {
+            super("test-app", meterRegistry);
+        }
+
+        @Override
+        protected ProcessingOrder getProcessingOrder() {
+            return ProcessingOrder.KEY;
+        }
+
+        @Override
+        protected int getParallelism() {
+            return 2;
+        }
+
+        @Override
+        protected Duration getCommitDelay() {
+            return Duration.ofMillis(100);
+        }
+
+        @Override
+        protected void subscribeAfterCommits(Flux<List<String>> afterCommits2subscribe) {
+            afterCommits2subscribe.subscribe();
+        }
+
+        @Override
+        protected ObjectReader getObjectReader() {
+            return new ObjectMapper().readerFor(String.class);
+        }
+
+        @Override
+        protected Consumer<Throwable> onDeserializationError(Message<?> message) {
+            return e -> {};
+        }
+
+        @Override
+        protected Mono<String> execute(String payload, Message<?> message, Map<String, Object> ctx) {
+            return Mono.just(payload)
+                    .delayElement(payload.startsWith("slow") ? Duration.ofMillis(300) : Duration.ofMillis(10))
+                    .doOnNext(processed::add);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package it.gov.pagopa.common.reactive.kafka;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
 import it.gov.pagopa.common.reactive.kafka.consumer.BaseKafkaConsumer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
@@ -21,6 +22,10 @@ class TestKafkaConsumer extends BaseKafkaConsumer<String, String> {
         super(applicationName);
     }
 
+    protected TestKafkaConsumer(String applicationName, MeterRegistry meterRegistry) {
+        super(applicationName, meterRegistry);
+    }
+
     @Override
     protected Duration getCommitDelay() {
         return Duration.ofMillis(500);
@@ -36,12 +41,12 @@ class TestKafkaConsumer extends BaseKafkaConsumer<String, String> {
         return new ObjectMapper().readerFor(Map.class);
     }
     @Override
-    protected Consumer<Throwable> onDeserializationError(Message<String> message) {
+    protected Consumer<Throwable> onDeserializationError(Message<?> message) {
         return e -> log.info("Unexpected JSON : {}", e.getMessage());
     }
 
     @Override
-    protected Mono<String> execute(String payload, Message<String> message, Map<String, Object> ctx) {
+    protected Mono<String> execute(String payload, Message<?> message, Map<String, Object> ctx) {
         if ("error".equals(payload)) {
             return Mono.error(new RuntimeException("Error"));
         }
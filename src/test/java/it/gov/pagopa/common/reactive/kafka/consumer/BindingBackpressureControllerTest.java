@@ -0,0 +1,114 @@
+package it.gov.pagopa.common.reactive.kafka.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.gov.pagopa.common.reactive.utils.LatencyMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cloud.stream.binding.BindingsLifecycleController;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BindingBackpressureControllerTest {
+
+    private static final String BINDING = "consumer-in-0";
+
+    private BindingsLifecycleController bindingsLifecycleController;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicReference<Double> mongo;
+    private AtomicReference<Double> redis;
+    private BindingBackpressureController controller;
+
+    @BeforeEach
+    void setUp() {
+        bindingsLifecycleController = Mockito.mock(BindingsLifecycleController.class);
+        meterRegistry = new SimpleMeterRegistry();
+        mongo = new AtomicReference<>(0d);
+        redis = new AtomicReference<>(0d);
+        controller = new BindingBackpressureController(BINDING, bindingsLifecycleController,
+                Map.of("mongo", mongo::get, "redis", redis::get), 0.5, Duration.ofSeconds(1), meterRegistry);
+    }
+
+    @Test
+    void check_PausesWhenSaturatedAndResumesBelowResumeRatio() {
+        controller.check();
+        verify(bindingsLifecycleController, never()).changeState(anyString(), any());
+
+        redis.set(1.2);
+        controller.check();
+        assertTrue(controller.isPaused());
+        verify(bindingsLifecycleController).changeState(BINDING, BindingsLifecycleController.State.PAUSED);
+        assertEquals(1, meterRegistry.get(BindingBackpressureController.METRIC_PAUSED).gauge().value());
+        assertEquals(1.2, meterRegistry.get(BindingBackpressureController.METRIC_SATURATION).tag("probe", "redis").gauge().value());
+
+        // still paused while above the resume ratio, without pausing again
+        redis.set(0.8);
+        controller.check();
+        assertTrue(controller.isPaused());
+        verify(bindingsLifecycleController, times(1)).changeState(BINDING, BindingsLifecycleController.State.PAUSED);
+
+        redis.set(0.1);
+        controller.check();
+        assertFalse(controller.isPaused());
+        verify(bindingsLifecycleController).changeState(BINDING, BindingsLifecycleController.State.RESUMED);
+        assertEquals(0, meterRegistry.get(BindingBackpressureController.METRIC_PAUSED).gauge().value());
+    }
+
+    @Test
+    void check_StateChangeFailureKeepsState() {
+        doThrow(new IllegalStateException("Binding not found"))
+                .when(bindingsLifecycleController).changeState(BINDING, BindingsLifecycleController.State.PAUSED);
+
+        mongo.set(2d);
+        controller.check();
+
+        assertFalse(controller.isPaused());
+    }
+
+    @Test
+    void stop_ResumesPausedBinding() {
+        controller.start();
+        mongo.set(2d);
+        controller.check();
+
+        controller.stop();
+
+        assertFalse(controller.isPaused());
+        verify(bindingsLifecycleController).changeState(BINDING, BindingsLifecycleController.State.RESUMED);
+    }
+
+    /** The latency samples come from the paused work itself: once paused, the probe must decay without new samples */
+    @Test
+    void check_ResumesWhenLatencySamplesStop() {
+        LatencyMonitor latency = new LatencyMonitor(Duration.ofMillis(50));
+        controller = new BindingBackpressureController(BINDING, bindingsLifecycleController,
+                Map.of("redisLatency", SaturationProbe.ofThreshold(latency::getAverageMillis, 100)),
+                0.5, Duration.ofSeconds(1), meterRegistry);
+
+        for (int i = 0; i < 50; i++) {
+            latency.record(500, TimeUnit.MILLISECONDS);
+        }
+        controller.check();
+        assertTrue(controller.isPaused());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            controller.check();
+            return !controller.isPaused();
+        });
+        verify(bindingsLifecycleController).changeState(BINDING, BindingsLifecycleController.State.RESUMED);
+    }
+}
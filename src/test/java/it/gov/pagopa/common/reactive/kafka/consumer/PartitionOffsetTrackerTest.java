@@ -0,0 +1,62 @@
+package it.gov.pagopa.common.reactive.kafka.consumer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionOffsetTrackerTest {
+
+    private final PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+
+    @Test
+    void committable_UpToLowestPendingOffset() {
+        Acknowledgment ack1 = Mockito.mock(Acknowledgment.class);
+        Acknowledgment ack3 = Mockito.mock(Acknowledgment.class);
+        for (long offset = 0; offset < 4; offset++) {
+            tracker.received(0, offset);
+        }
+
+        tracker.completed(0, 0L, null);
+        tracker.completed(0, 1L, ack1);
+        tracker.completed(0, 3L, ack3);
+
+        Map<Integer, PartitionOffsetTracker.Commit> committable = tracker.committable();
+        assertEquals(1, committable.get(0).offset());
+        assertSame(ack1, committable.get(0).ack());
+        assertEquals(2, committable.get(0).messages());
+        assertTrue(tracker.committable().isEmpty());
+
+        tracker.completed(0, 2L, null);
+        assertEquals(new PartitionOffsetTracker.Commit(3, ack3, 2), tracker.committable().get(0));
+    }
+
+    @Test
+    void revoked_ForgetsPartitionOffsets() {
+        for (long offset = 0; offset < 3; offset++) {
+            tracker.received(0, offset);
+            tracker.received(1, offset);
+        }
+        tracker.completed(0, 1L, null);
+
+        assertEquals(3, tracker.revoked(List.of(0, 2)));
+
+        // completions of the revoked partition are ignored, the other partitions are untouched
+        tracker.completed(0, 0L, null);
+        tracker.completed(1, 0L, null);
+        Map<Integer, PartitionOffsetTracker.Commit> committable = tracker.committable();
+        assertEquals(1, committable.size());
+        assertEquals(1, committable.get(1).messages());
+
+        // a partition assigned again is tracked from scratch
+        tracker.received(0, 10L);
+        tracker.completed(0, 10L, null);
+        assertEquals(10, tracker.committable().get(0).offset());
+    }
+}
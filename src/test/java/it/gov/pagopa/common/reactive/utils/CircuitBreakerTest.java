@@ -0,0 +1,80 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("DUMMY",
+            new CircuitBreaker.Settings(0.5, 4, 4, Duration.ofSeconds(10), 2),
+            e -> e instanceof IllegalStateException,
+            clock::get);
+
+    private void succeed() {
+        StepVerifier.create(circuitBreaker.execute(Mono.just("OK"))).expectNext("OK").verifyComplete();
+    }
+
+    private void fail(RuntimeException e) {
+        StepVerifier.create(circuitBreaker.execute(Mono.error(e))).expectError(e.getClass()).verify();
+    }
+
+    @Test
+    void execute_OpensOnFailureRate() {
+        succeed();
+        fail(new IllegalStateException());
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail(new IllegalStateException());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        StepVerifier.create(circuitBreaker.execute(Mono.just("OK")))
+                .expectError(CircuitBreaker.CallNotPermittedException.class)
+                .verify();
+    }
+
+    @Test
+    void execute_IgnoresNotRecordedErrors() {
+        for (int i = 0; i < 4; i++) {
+            fail(new IllegalArgumentException());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_ClosesAfterHalfOpenSuccesses() {
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        succeed();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        succeed();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_ReopensOnHalfOpenFailure() {
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        fail(new IllegalStateException());
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            fail(new IllegalStateException());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,155 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HedgedRequestsTest {
+
+    private static HedgedRequests hedgedRequests(boolean enabled) {
+        return new HedgedRequests(new HedgedRequests.Settings(
+                enabled, 0.9, Duration.ofMillis(10), Duration.ofMillis(100), 100, 10));
+    }
+
+    @Test
+    void hedge_SlowRequestIsHedged() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        Mono<String> result = hedgedRequests.hedge(() -> subscriptions.incrementAndGet() == 1
+                ? Mono.just("SLOW").delayElement(Duration.ofSeconds(5))
+                : Mono.just("HEDGE"));
+
+        StepVerifier.create(result)
+                .expectNext("HEDGE")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+        assertEquals(2, subscriptions.get());
+        assertEquals(1, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    void hedge_LosingRequestIsCancelledAndRecorded() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+
+        // the first request loses
+        Mono<String> result = hedgedRequests.hedge(() -> subscriptions.incrementAndGet() == 1
+                ? Mono.just("SLOW").delayElement(Duration.ofSeconds(5)).doOnCancel(cancelled::incrementAndGet)
+                : Mono.just("HEDGE"));
+        StepVerifier.create(result).expectNext("HEDGE").verifyComplete();
+        assertEquals(1, cancelled.get());
+        assertEquals(2, hedgedRequests.getRecordedCount());
+
+        // the hedge loses
+        subscriptions.set(0);
+        result = hedgedRequests.hedge(() -> subscriptions.incrementAndGet() == 1
+                ? Mono.just("FIRST").delayElement(Duration.ofMillis(200))
+                : Mono.just("SLOW_HEDGE").delayElement(Duration.ofSeconds(5)).doOnCancel(cancelled::incrementAndGet));
+        StepVerifier.create(result).expectNext("FIRST").verifyComplete();
+        assertEquals(2, cancelled.get());
+        assertEquals(4, hedgedRequests.getRecordedCount());
+        assertEquals(2, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    void hedge_HedgeErrorWaitsForFirstRequest() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        StepVerifier.create(hedgedRequests.hedge(() -> subscriptions.incrementAndGet() == 1
+                        ? Mono.just("FIRST").delayElement(Duration.ofMillis(300))
+                        : Mono.<String>error(new IllegalStateException("DUMMY"))))
+                .expectNext("FIRST")
+                .verifyComplete();
+        assertEquals(1, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    void hedge_RetryHedgesAgain() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        StepVerifier.create(hedgedRequests.hedge(() -> subscriptions.incrementAndGet() == 1
+                                ? Mono.<String>error(new IllegalStateException("DUMMY"))
+                                : Mono.just("SLOW").delayElement(Duration.ofMillis(300)))
+                        .retry(1))
+                .expectNext("SLOW")
+                .verifyComplete();
+        // the retried request is hedged again: its first request, then its hedge
+        assertEquals(3, subscriptions.get());
+        assertEquals(1, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    void hedge_CancelCancelsBothRequests() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        AtomicInteger cancelled = new AtomicInteger();
+
+        StepVerifier.create(hedgedRequests.hedge(() -> Mono.just("SLOW").delayElement(Duration.ofSeconds(5))
+                        .doOnCancel(cancelled::incrementAndGet)))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(300))
+                .thenCancel()
+                .verify();
+        assertEquals(1, hedgedRequests.getHedgedCount());
+        assertEquals(2, cancelled.get());
+        assertEquals(0, hedgedRequests.getRecordedCount());
+    }
+
+    @Test
+    void hedge_FastRequestIsNotHedged() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        StepVerifier.create(hedgedRequests.hedge(() -> Mono.fromSupplier(() -> "OK" + subscriptions.incrementAndGet())))
+                .expectNext("OK1")
+                .verifyComplete();
+        assertEquals(1, subscriptions.get());
+        assertEquals(0, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    void hedge_FirstErrorIsPropagated() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+
+        StepVerifier.create(hedgedRequests.hedge(() -> Mono.error(new IllegalStateException("DUMMY"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(0, hedgedRequests.getHedgedCount());
+    }
+
+    @Test
+    void hedge_DisabledSubscribesOnce() {
+        HedgedRequests hedgedRequests = hedgedRequests(false);
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        StepVerifier.create(hedgedRequests.hedge(() -> Mono.just("OK").doOnSubscribe(s -> subscriptions.incrementAndGet())
+                        .delayElement(Duration.ofMillis(300))))
+                .expectNext("OK")
+                .verifyComplete();
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void record_DelayFollowsPercentileWithinBounds() {
+        HedgedRequests hedgedRequests = hedgedRequests(true);
+        assertEquals(Duration.ofMillis(100), hedgedRequests.getDelay());
+
+        for (int i = 1; i <= 100; i++) {
+            hedgedRequests.record(Duration.ofMillis(i / 2).toNanos());
+        }
+        assertEquals(Duration.ofMillis(45), hedgedRequests.getDelay());
+
+        for (int i = 0; i < 100; i++) {
+            hedgedRequests.record(Duration.ofMillis(1).toNanos());
+        }
+        assertEquals(Duration.ofMillis(10), hedgedRequests.getDelay());
+    }
+}
@@ -0,0 +1,37 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyMonitorTest {
+
+    @Test
+    void monitor_RecordsElapsedTime() {
+        LatencyMonitor latencyMonitor = new LatencyMonitor();
+
+        StepVerifier.create(latencyMonitor.monitor(Mono.just("OK").delayElement(Duration.ofMillis(100))))
+                .expectNext("OK")
+                .verifyComplete();
+
+        // first sample weighted by 0.2
+        assertTrue(latencyMonitor.getAverageMillis() >= 20);
+    }
+
+    @Test
+    void record_FollowsRecentSamples() {
+        LatencyMonitor latencyMonitor = new LatencyMonitor();
+
+        for (int i = 0; i < 50; i++) {
+            latencyMonitor.record(500, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(500, latencyMonitor.getAverageMillis(), 1);
+    }
+}
@@ -0,0 +1,85 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Fails the test classes during which a blocking Reactor operator ({@code block()}, {@code blockFirst()},
+ * {@code blockLast()}, {@code toIterable()}, {@code toStream()}) has been called on a non-blocking thread.
+ *
+ * <p>Reactor already rejects these calls on its own non-blocking schedulers; this extension also marks as
+ * non-blocking the Netty event loops of the HTTP server and client and of Redisson, and records every rejected
+ * call, so that the test fails even if the application code catches the resulting exception.</p>
+ *
+ * <p>Registered for every test class through {@code META-INF/services} and extension autodetection.</p>
+ */
+public class NonBlockingThreadsExtension implements BeforeAllCallback, AfterAllCallback {
+
+    /** Name prefixes of the Netty event loop threads, which must never block */
+    static final List<String> EVENT_LOOP_THREAD_PREFIXES =
+            List.of("reactor-http-nio", "reactor-http-epoll", "reactor-http-kqueue", "redisson-netty");
+
+    /** Reactor's blocking subscribers, e.g. {@code BlockingSingleSubscriber} and {@code BlockingIterable} */
+    private static final String BLOCKING_OPERATORS_PREFIX = "reactor.core.publisher.Blocking";
+
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+    private static final Queue<String> VIOLATIONS = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        if (INSTALLED.compareAndSet(false, true)) {
+            Schedulers.registerNonBlockingThreadPredicate(recordingViolations(NonBlockingThreadsExtension::isEventLoopThread));
+        }
+        VIOLATIONS.clear();
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (!VIOLATIONS.isEmpty()) {
+            List<String> violations = List.copyOf(VIOLATIONS);
+            VIOLATIONS.clear();
+            throw new AssertionError("Blocking calls on non-blocking threads:\n" + String.join("\n", violations));
+        }
+    }
+
+    static boolean isEventLoopThread(Thread thread) {
+        return EVENT_LOOP_THREAD_PREFIXES.stream().anyMatch(thread.getName()::startsWith);
+    }
+
+    /** Records the caller of the blocking operators checked on a non-blocking thread */
+    private static Predicate<Thread> recordingViolations(Predicate<Thread> eventLoopThread) {
+        return thread -> {
+            boolean nonBlocking = eventLoopThread.test(thread);
+            if (nonBlocking && thread == Thread.currentThread()) {
+                List<StackWalker.StackFrame> frames = StackWalker.getInstance().walk(stream -> stream.toList());
+                boolean blockingOperator = frames.stream().anyMatch(f -> f.getClassName().startsWith(BLOCKING_OPERATORS_PREFIX));
+                if (blockingOperator) {
+                    VIOLATIONS.add(thread.getName() + " at " + frames.stream()
+                            .filter(f -> !f.getClassName().startsWith("reactor.core.")
+                                    && !f.getClassName().equals(NonBlockingThreadsExtension.class.getName()))
+                            .findFirst()
+                            .map(StackWalker.StackFrame::toString)
+                            .orElse("unknown"));
+                }
+            }
+            return nonBlocking;
+        };
+    }
+
+    /** Violations recorded since the current test class started */
+    static List<String> violations() {
+        return List.copyOf(VIOLATIONS);
+    }
+
+    static void clearViolations() {
+        VIOLATIONS.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package it.gov.pagopa.common.reactive.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+class NonBlockingThreadsExtensionTest {
+
+    @AfterEach
+    void clearViolations() {
+        NonBlockingThreadsExtension.clearViolations();
+    }
+
+    @Test
+    void blockOnEventLoopThreadIsRejectedAndRecorded() throws InterruptedException {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread eventLoop = new Thread(() -> {
+            try {
+                Mono.delay(Duration.ofMillis(10)).block();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "reactor-http-nio-test");
+
+        eventLoop.start();
+        eventLoop.join();
+
+        Assertions.assertInstanceOf(IllegalStateException.class, error.get());
+        Assertions.assertEquals(1, NonBlockingThreadsExtension.violations().size());
+        Assertions.assertTrue(NonBlockingThreadsExtension.violations().getFirst().startsWith("reactor-http-nio-test at "));
+    }
+
+    @Test
+    void blockOnOtherThreadsIsAllowed() {
+        Assertions.assertEquals(1, Mono.just(1).block());
+        Assertions.assertTrue(NonBlockingThreadsExtension.violations().isEmpty());
+        Assertions.assertFalse(NonBlockingThreadsExtension.isEventLoopThread(Thread.currentThread()));
+    }
+}
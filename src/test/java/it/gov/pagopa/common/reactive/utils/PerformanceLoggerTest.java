@@ -1,19 +1,96 @@
 package it.gov.pagopa.common.reactive.utils;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.gov.pagopa.common.utils.MemoryAppender;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 class PerformanceLoggerTest {
 
+    private SimpleMeterRegistry meterRegistry;
+    private MemoryAppender memoryAppender;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        PerformanceLogger.configure(new PerformanceLogger.Settings(meterRegistry, true, 1.0, List.of(Duration.ofMillis(100))));
+
+        memoryAppender = new MemoryAppender();
+        memoryAppender.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        memoryAppender.start();
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(PerformanceLogger.class.getName());
+        logger.setLevel(Level.INFO);
+        logger.addAppender(memoryAppender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(PerformanceLogger.class.getName())).detachAppender(memoryAppender);
+        PerformanceLogger.configure(PerformanceLogger.Settings.DEFAULT);
+    }
+
+    @Test
+    void testLogTimingRecordsTimerPerFlow(){
+        PerformanceLogger.logTiming("FLOW1", System.currentTimeMillis() - 10, "payload");
+        PerformanceLogger.logTiming("FLOW1", System.currentTimeMillis() - 500, "payload");
+        PerformanceLogger.logTiming("FLOW2", System.currentTimeMillis(), "payload");
+
+        Timer flow1 = meterRegistry.get(PerformanceLogger.METRIC_TIMING).tag(PerformanceLogger.TAG_FLOW, "FLOW1").timer();
+        Assertions.assertEquals(2, flow1.count());
+        Assertions.assertTrue(flow1.max(TimeUnit.MILLISECONDS) >= 500);
+        CountAtBucket slo = Arrays.stream(flow1.takeSnapshot().histogramCounts())
+                .filter(bucket -> bucket.bucket(TimeUnit.MILLISECONDS) == 100)
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals(1, slo.count());
+        Assertions.assertEquals(1, meterRegistry.get(PerformanceLogger.METRIC_TIMING).tag(PerformanceLogger.TAG_FLOW, "FLOW2").timer().count());
+        Assertions.assertEquals(3, memoryAppender.getSize());
+    }
+
+    @Test
+    void testLogTimingNotSampled(){
+        PerformanceLogger.configure(new PerformanceLogger.Settings(meterRegistry, true, 0.0, List.of()));
+        boolean[] payloadBuilt = new boolean[]{false};
+
+        PerformanceLogger.logTiming("FLOW", System.currentTimeMillis(), () -> String.valueOf(payloadBuilt[0] = true));
+
+        Assertions.assertEquals(1, meterRegistry.get(PerformanceLogger.METRIC_TIMING).timer().count());
+        Assertions.assertFalse(payloadBuilt[0]);
+        Assertions.assertEquals(0, memoryAppender.getSize());
+    }
+
+    @Test
+    void testLogTimingLogDisabled(){
+        PerformanceLogger.configure(new PerformanceLogger.Settings(meterRegistry, false, 1.0, List.of()));
+
+        PerformanceLogger.logTiming("FLOW", System.currentTimeMillis(), "payload");
+
+        Assertions.assertEquals(1, meterRegistry.get(PerformanceLogger.METRIC_TIMING).timer().count());
+        Assertions.assertEquals(0, memoryAppender.getSize());
+    }
+
 //region mono ops
     @Test
     void testMonoLogTimingOnNext(){
         testMonoLogTimingOnNext(null);
         testMonoLogTimingOnNext(Object::toString);
+        Assertions.assertTrue(memoryAppender.contains(Level.INFO, "[PERFORMANCE_LOG] [PROVA]"));
+        Assertions.assertEquals(2, meterRegistry.get(PerformanceLogger.METRIC_TIMING).tag(PerformanceLogger.TAG_FLOW, "PROVA").timer().count());
     }
 
     private static void testMonoLogTimingOnNext(Function<Boolean, String> data2LogPayload) {
@@ -0,0 +1,38 @@
+package it.gov.pagopa.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DecayingAverageTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final DecayingAverage average = new DecayingAverage(0.5, Duration.ofSeconds(1), clock::get);
+
+    @Test
+    void record_WeightsLastSample() {
+        average.record(100);
+        assertEquals(50, average.get(), 0.001);
+
+        average.record(100);
+        assertEquals(75, average.get(), 0.001);
+    }
+
+    @Test
+    void get_HalvesEachIdleHalfLife() {
+        average.record(100);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(25, average.get(), 0.001);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(12.5, average.get(), 0.001);
+
+        // the next sample is weighted against the decayed average
+        average.record(100);
+        assertEquals(56.25, average.get(), 0.001);
+    }
+}
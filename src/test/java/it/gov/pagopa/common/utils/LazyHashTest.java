@@ -0,0 +1,32 @@
+package it.gov.pagopa.common.utils;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class LazyHashTest {
+
+    private static final String FISCAL_CODE = "RSSMRA98B18L049O";
+    private static final String HASHED_FISCAL_CODE = "0b393cbe68a39f26b90c80a8dc95abc0fe4c21821195b4671a374c1443f9a1bb";
+
+    @Test
+    void toString_ComputesHashOnce() {
+        try (MockedStatic<Utils> utils = Mockito.mockStatic(Utils.class, Mockito.CALLS_REAL_METHODS)) {
+            LazyHash lazyHash = LazyHash.of(FISCAL_CODE);
+            utils.verify(() -> Utils.createSHA256(anyString()), Mockito.never());
+
+            assertEquals(HASHED_FISCAL_CODE, lazyHash.toString());
+            assertEquals(HASHED_FISCAL_CODE, lazyHash.get());
+
+            utils.verify(() -> Utils.createSHA256(FISCAL_CODE), Mockito.times(1));
+        }
+    }
+
+    @Test
+    void toString_NullValue() {
+        assertEquals("null", LazyHash.of(null).toString());
+    }
+}
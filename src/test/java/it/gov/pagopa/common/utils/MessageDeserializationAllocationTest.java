@@ -0,0 +1,69 @@
+package it.gov.pagopa.common.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import it.gov.pagopa.common.benchmark.AllocationBenchmark;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the heap allocated to deserialize a Kafka message and to build its logging id, between the previous
+ * String based path and the byte[] one.
+ */
+@Slf4j
+class MessageDeserializationAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final ObjectReader objectReader = new ObjectMapper().readerFor(CitizenConsentStateUpdateDTO.class);
+    private final Message<byte[]> message = MessageBuilder
+            .withPayload("{\"fiscalCode\":\"RSSMRA98B18L049O\",\"tppId\":\"4585625-b2c4-4e1a-9f0b-52c8e1a1e6f7\",\"tppState\":true}"
+                    .getBytes(StandardCharsets.UTF_8))
+            .setHeader(KafkaHeaders.RECEIVED_KEY, "RSSMRA98B18L049O".getBytes(StandardCharsets.UTF_8))
+            .build();
+
+    @Test
+    void bytePayloadAllocatesLessThanStringPayload() {
+        double stringPath = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, this::deserializeFromString);
+        double bytePath = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, this::deserializeFromBytes);
+
+        log.info("Allocated bytes per message: String payload {}, byte[] payload {}", stringPath, bytePath);
+        assertTrue(bytePath < stringPath, "byte[] path allocated %s bytes, String path %s".formatted(bytePath, stringPath));
+    }
+
+    /** The previous path: the payload is decoded into a String, parsed, and copied again as logging id */
+    private void deserializeFromString() {
+        Map<String, Object> ctx = new HashMap<>();
+        ctx.put("MSG_ID", new String(message.getPayload()));
+        try {
+            consume(objectReader.readValue(new String(message.getPayload())), ctx);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deserializeFromBytes() {
+        Map<String, Object> ctx = new HashMap<>();
+        ctx.put("MSG_ID", new String(message.getHeaders().get(KafkaHeaders.RECEIVED_KEY, byte[].class), StandardCharsets.UTF_8));
+        consume(CommonUtilities.deserializeMessage(message, objectReader, e -> { throw new IllegalStateException(e); }), ctx);
+    }
+
+    private static void consume(CitizenConsentStateUpdateDTO payload, Map<String, Object> ctx) {
+        if (payload == null || ctx.isEmpty()) {
+            throw new IllegalStateException("Unexpected empty result");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package it.gov.pagopa.common.utils;
+
+import it.gov.pagopa.common.benchmark.AllocationBenchmark;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the heap allocated to hash a fiscal code, between the previous implementation (new digest per call, hex
+ * through {@link Integer#toHexString(int)}) and the current one (thread-local digest, hex lookup table).
+ */
+@Slf4j
+class Sha256AllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+    private static final String FISCAL_CODE = "RSSMRA98B18L049O";
+
+    @Test
+    void threadLocalDigestAllocatesLessThanNewDigest() {
+        assertEquals(previousCreateSHA256(FISCAL_CODE), Utils.createSHA256(FISCAL_CODE));
+
+        double previous = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> consume(previousCreateSHA256(FISCAL_CODE)));
+        double current = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> consume(Utils.createSHA256(FISCAL_CODE)));
+
+        log.info("Allocated bytes per hash: previous {}, current {}", previous, current);
+        assertTrue(current < previous, "current implementation allocated %s bytes, previous one %s".formatted(current, previous));
+    }
+
+    @Test
+    void lazyHashAllocatesNothingWhenNotLogged() {
+        double notLogged = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> log.trace("{}", LazyHash.of(FISCAL_CODE)));
+        double eager = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> log.trace("{}", Utils.createSHA256(FISCAL_CODE)));
+
+        log.info("Allocated bytes per disabled log statement: lazy {}, eager {}", notLogged, eager);
+        assertTrue(notLogged < eager, "lazy hash allocated %s bytes, eager one %s".formatted(notLogged, eager));
+    }
+
+    /** The implementation before the thread-local digest */
+    private static String previousCreateSHA256(String fiscalCode) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] encodedhash = md.digest(fiscalCode.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hexString = new StringBuilder(2 * encodedhash.length);
+            for (byte b : encodedhash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) {
+                    hexString.append('0');
+                }
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void consume(String hash) {
+        if (hash.length() != 64) {
+            throw new IllegalStateException("Unexpected hash " + hash);
+        }
+    }
+}
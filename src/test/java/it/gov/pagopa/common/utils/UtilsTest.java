@@ -11,6 +11,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -26,7 +32,7 @@ class UtilsTest {
             mockedStatic.when(() -> MessageDigest.getInstance(any()))
                     .thenThrow(new NoSuchAlgorithmException("SHA-256 not available"));
 
-            EmdEncryptionException exception = assertThrows(EmdEncryptionException.class, () -> Utils.createSHA256(""));
+            EmdEncryptionException exception = assertThrows(EmdEncryptionException.class, Utils::newSha256Digest);
 
             assertEquals("SHA-256 not available", exception.getCause().getMessage());
         }
@@ -37,6 +43,31 @@ class UtilsTest {
         String hashedExpected = "0b393cbe68a39f26b90c80a8dc95abc0fe4c21821195b4671a374c1443f9a1bb";
         String actualHash = Utils.createSHA256(toHash);
         assertEquals(actualHash,hashedExpected);
+        assertEquals(hashedExpected, Utils.createSHA256(toHash));
+    }
+
+    @Test
+    void createSHA256_ConcurrentCallsUseTheirOwnDigest() throws Exception {
+        String hashedExpected = "0b393cbe68a39f26b90c80a8dc95abc0fe4c21821195b4671a374c1443f9a1bb";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Future<String> hash : executor.invokeAll(IntStream.range(0, 1_000)
+                    .mapToObj(i -> (Callable<String>) () -> Utils.createSHA256("RSSMRA98B18L049O"))
+                    .toList())) {
+                assertEquals(hashedExpected, hash.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void toHex_Ok() {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        assertEquals(HexFormat.of().formatHex(bytes), Utils.toHex(bytes));
     }
 
 }
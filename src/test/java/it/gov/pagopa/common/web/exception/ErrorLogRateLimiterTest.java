@@ -0,0 +1,54 @@
+package it.gov.pagopa.common.web.exception;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ErrorLogRateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final ErrorLogRateLimiter limiter = new ErrorLogRateLimiter(2, Duration.ofNanos(100), 2, clock::get);
+
+  @Test
+  void tryAcquireLimitsEachKeyInItsWindow() {
+    Assertions.assertTrue(limiter.tryAcquire("A"));
+    Assertions.assertTrue(limiter.tryAcquire("A"));
+    Assertions.assertFalse(limiter.tryAcquire("A"));
+    Assertions.assertTrue(limiter.tryAcquire("B"));
+
+    clock.set(100);
+
+    Assertions.assertTrue(limiter.tryAcquire("A"));
+    Assertions.assertEquals(Map.of("A", 1L), limiter.drainSuppressed());
+    Assertions.assertEquals(Map.of(), limiter.drainSuppressed());
+  }
+
+  @Test
+  void tryAcquireSharesOverflowKey() {
+    limiter.tryAcquire("A");
+    limiter.tryAcquire("B");
+
+    Assertions.assertTrue(limiter.tryAcquire("C"));
+    Assertions.assertTrue(limiter.tryAcquire("D"));
+    Assertions.assertFalse(limiter.tryAcquire("E"));
+
+    Assertions.assertEquals(Map.of(ErrorLogRateLimiter.OVERFLOW_KEY, 1L), limiter.drainSuppressed());
+  }
+
+  @Test
+  void drainSuppressedForgetsExpiredKeys() {
+    limiter.tryAcquire("A");
+    limiter.tryAcquire("B");
+    clock.set(100);
+
+    limiter.drainSuppressed();
+
+    Assertions.assertTrue(limiter.tryAcquire("C"));
+    Assertions.assertTrue(limiter.tryAcquire("C"));
+    Assertions.assertFalse(limiter.tryAcquire("C"));
+    Assertions.assertEquals(Map.of("C", 1L), limiter.drainSuppressed());
+  }
+}
@@ -17,6 +17,7 @@ import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -33,6 +34,8 @@ class ErrorManagerTest {
 
   @Autowired
   private WebTestClient webTestClient;
+  @Autowired
+  private ErrorManager errorManager;
   @MockitoSpyBean
   private TestController testControllerSpy;
 
@@ -202,6 +205,37 @@ class ErrorManagerTest {
             .json(EXPECTED_GENERIC_ERROR);
   }
 
+  @Test
+  void getRequestDetailsMasksFiscalCodes() {
+    MockServerHttpRequest request = MockServerHttpRequest.get("/emd/citizen/RSSMRA85T10A562S/consent?other=RSSMLA85T10A56NS").build();
+
+    Assertions.assertEquals("GET /emd/citizen/******/consent?other=******", ErrorManager.getRequestDetails(request));
+  }
+
+  @Test
+  void logClientExceptionRateLimitedPerExceptionTypeAndRoute() {
+    errorManager.logSuppressedErrors();
+    memoryAppender.reset();
+    int suppressed = 5;
+
+    for (int i = 0; i < ErrorManager.ERROR_LOG_MAX_PER_WINDOW + suppressed; i++) {
+      // different citizens share the same masked route
+      MockServerHttpRequest request = MockServerHttpRequest.get("/rateLimited/RSSMRA85T10A56%sS".formatted((char) ('L' + i % 2))).build();
+      ErrorManager.logClientException(new ClientExceptionNoBody(HttpStatus.NOT_FOUND, "NOT FOUND"), request);
+    }
+    ErrorManager.logClientException(new ClientExceptionWithBody(HttpStatus.NOT_FOUND, "CODE", "NOT FOUND"),
+            MockServerHttpRequest.get("/rateLimited/RSSMRA85T10A562S").build());
+
+    Assertions.assertEquals(ErrorManager.ERROR_LOG_MAX_PER_WINDOW + 1, memoryAppender.getLoggedEvents().size());
+    memoryAppender.reset();
+
+    errorManager.logSuppressedErrors();
+
+    Assertions.assertEquals(1, memoryAppender.getLoggedEvents().size());
+    Assertions.assertEquals("[ERROR_LOG_SUMMARY] Suppressed 5 log entries of it.gov.pagopa.common.web.exception.ClientExceptionNoBody GET /rateLimited/******",
+            memoryAppender.getLoggedEvents().get(0).getFormattedMessage());
+  }
+
   public static void checkStackTraceSuppressedLog(MemoryAppender memoryAppender, String expectedLoggedMessage) {
     String loggedMessage = memoryAppender.getLoggedEvents().get(0).getFormattedMessage();
     Assertions.assertTrue(Pattern.matches(expectedLoggedMessage, loggedMessage),
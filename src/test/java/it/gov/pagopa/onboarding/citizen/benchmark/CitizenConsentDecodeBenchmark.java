@@ -0,0 +1,108 @@
+package it.gov.pagopa.onboarding.citizen.benchmark;
+
+import com.mongodb.MongoClientSettings;
+import it.gov.pagopa.common.benchmark.MicroBenchmark;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.converter.CitizenConsentCodec;
+import it.gov.pagopa.onboarding.citizen.model.converter.CitizenConsentReadConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decode throughput of a {@code citizen_consents} document from its BSON bytes, by number of TPPs and storage layout:
+ * <ul>
+ *   <li><b>document</b>: the previous path, {@link Document} decoded by the driver then {@link CitizenConsentReadConverter}</li>
+ *   <li><b>codec</b>: {@link CitizenConsentCodec#FULL}</li>
+ *   <li><b>codecWithoutTcDate</b>: {@link CitizenConsentCodec#WITHOUT_TC_DATE}, as in the Bloom filter population</li>
+ * </ul>
+ * Run with {@code mvn -Pbenchmark test}, see {@link MicroBenchmark}.
+ */
+@Slf4j
+class CitizenConsentDecodeBenchmark {
+
+    private static final MicroBenchmark.Settings SETTINGS = MicroBenchmark.Settings.fromSystemProperties();
+    private static final List<MicroBenchmark.Result> RESULTS = new CopyOnWriteArrayList<>();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+    private final CitizenConsentReadConverter readConverter = new CitizenConsentReadConverter();
+
+    @AfterAll
+    static void writeResults() {
+        MicroBenchmark.writeResults(CitizenConsentDecodeBenchmark.class.getSimpleName(), RESULTS, SETTINGS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void decodeV1(int tpps) {
+        benchmark("v1", tpps, citizenDocument(tpps, false));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void decodeV2(int tpps) {
+        benchmark("v2", tpps, citizenDocument(tpps, true));
+    }
+
+    private void benchmark(String layout, int tpps, byte[] bson) {
+        CitizenConsent expected = readConverter.convert(DOCUMENT_CODEC.decode(reader(bson), DECODER_CONTEXT));
+        assertEquals(expected, CitizenConsentCodec.FULL.decode(reader(bson), DECODER_CONTEXT));
+
+        MicroBenchmark.Result document = run("decode.document", layout, tpps,
+                () -> readConverter.convert(DOCUMENT_CODEC.decode(reader(bson), DECODER_CONTEXT)));
+        MicroBenchmark.Result codec = run("decode.codec", layout, tpps,
+                () -> CitizenConsentCodec.FULL.decode(reader(bson), DECODER_CONTEXT));
+        run("decode.codecWithoutTcDate", layout, tpps,
+                () -> CitizenConsentCodec.WITHOUT_TC_DATE.decode(reader(bson), DECODER_CONTEXT));
+
+        assertTrue(codec.allocatedBytesPerOp() < document.allocatedBytesPerOp() || Double.isNaN(codec.allocatedBytesPerOp()));
+    }
+
+    private static BsonBinaryReader reader(byte[] bson) {
+        return new BsonBinaryReader(ByteBuffer.wrap(bson));
+    }
+
+    private static byte[] citizenDocument(int tpps, boolean v2) {
+        Document consents = new Document();
+        List<Document> consentsArray = new ArrayList<>(tpps);
+        for (int i = 0; i < tpps; i++) {
+            Document details = new Document("tppState", i % 2 == 0).append("tcDate", new Date());
+            consents.append("tpp" + i, details);
+            consentsArray.add(new Document("tppId", "tpp" + i).append("tppState", i % 2 == 0).append("tcDate", new Date()));
+        }
+        Document citizen = new Document("fiscalCode", "RSSMRA98B18L049O")
+                .append("consents", v2 ? consentsArray : consents)
+                .append("schemaVersion", v2 ? 2 : 1)
+                .append("enabledConsentCount", (tpps + 1) / 2);
+        ByteBuffer buffer = new RawBsonDocument(citizen, DOCUMENT_CODEC).getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static MicroBenchmark.Result run(String benchmark, String layout, int tpps, Supplier<?> operation) {
+        MicroBenchmark.Result result = MicroBenchmark.run(benchmark, Map.of("layout", layout, "tpps", String.valueOf(tpps)), SETTINGS, operation);
+        log.info("{} {}: {} ± {} ns/op, {} B/op", result.benchmark(), result.params(),
+                "%.1f".formatted(result.score()), "%.1f".formatted(result.scoreError()), "%.1f".formatted(result.allocatedBytesPerOp()));
+        RESULTS.add(result);
+        return result;
+    }
+}
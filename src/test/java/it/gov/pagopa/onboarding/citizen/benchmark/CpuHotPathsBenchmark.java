@@ -0,0 +1,110 @@
+package it.gov.pagopa.onboarding.citizen.benchmark;
+
+import it.gov.pagopa.common.benchmark.MicroBenchmark;
+import it.gov.pagopa.common.utils.Utils;
+import it.gov.pagopa.common.web.exception.ErrorManager;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.dto.mapper.CitizenConsentObjectToDTOMapper;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-request CPU hot paths of the service. Not part of the default test run:
+ * <pre>
+ * mvn -Pbenchmark test
+ * mvn -Pbenchmark test -Dbenchmark.iterations=20 -Dbenchmark.opsPerIteration=500000
+ * </pre>
+ * Results are written in {@code target/benchmark-results/CpuHotPathsBenchmark.json} (JMH JSON format).
+ *
+ * @see MicroBenchmark
+ */
+@Slf4j
+class CpuHotPathsBenchmark {
+
+    private static final String FISCAL_CODE = "RSSMRA98B18L049O";
+    private static final MicroBenchmark.Settings SETTINGS = MicroBenchmark.Settings.fromSystemProperties();
+    private static final List<MicroBenchmark.Result> RESULTS = new CopyOnWriteArrayList<>();
+
+    private final CitizenConsentObjectToDTOMapper mapper = new CitizenConsentObjectToDTOMapper();
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @AfterAll
+    static void writeResults() {
+        Path file = MicroBenchmark.writeResults(CpuHotPathsBenchmark.class.getSimpleName(), RESULTS, SETTINGS);
+        log.info("Benchmark results written in {}", file.toAbsolutePath());
+    }
+
+    @Test
+    void citizenConsentObjectToDTOMapper() {
+        for (int tpps : new int[]{1, 10, 100}) {
+            CitizenConsent citizenConsent = citizenConsent(tpps);
+            record(run("CitizenConsentObjectToDTOMapper.map", Map.of("tpps", String.valueOf(tpps)), () -> mapper.map(citizenConsent)));
+        }
+    }
+
+    @Test
+    void createSHA256() {
+        record(run("Utils.createSHA256", Map.of(), () -> Utils.createSHA256(FISCAL_CODE)));
+    }
+
+    @Test
+    void inputSanitization() {
+        String message = "Consent not found for tpp 4585625-b2c4-4e1a-9f0b-52c8e1a1e6f7\r\nRetry later";
+        record(run("Utils.inputSanitization", Map.of(), () -> Utils.inputSanitization(message)));
+    }
+
+    @Test
+    void errorManagerGetRequestDetails() {
+        ServerHttpRequest request = MockServerHttpRequest
+                .get("https://api.pagopa.it/emd/citizen/{fiscalCode}/consent/{tppId}", FISCAL_CODE, "4585625-b2c4-4e1a-9f0b-52c8e1a1e6f7")
+                .build();
+        record(run("ErrorManager.getRequestDetails", Map.of(), () -> ErrorManager.getRequestDetails(request)));
+    }
+
+    @Test
+    void citizenConsentDTOSerialization() {
+        for (int tpps : new int[]{1, 10, 100}) {
+            CitizenConsentDTO dto = mapper.map(citizenConsent(tpps));
+            record(run("CitizenConsentDTO.serialize", Map.of("tpps", String.valueOf(tpps)), () -> jsonMapper.writeValueAsBytes(dto)));
+        }
+    }
+
+    private static MicroBenchmark.Result run(String benchmark, Map<String, String> params, Supplier<?> operation) {
+        return MicroBenchmark.run(benchmark, params, SETTINGS, operation);
+    }
+
+    private static void record(MicroBenchmark.Result result) {
+        log.info("{} {}: {} ± {} ns/op, {} B/op", result.benchmark(), result.params(),
+                "%.1f".formatted(result.score()), "%.1f".formatted(result.scoreError()), "%.1f".formatted(result.allocatedBytesPerOp()));
+        assertTrue(result.score() > 0);
+        RESULTS.add(result);
+    }
+
+    private static CitizenConsent citizenConsent(int tpps) {
+        Map<String, ConsentDetails> consents = new HashMap<>();
+        LocalDateTime tcDate = LocalDateTime.now();
+        for (int i = 0; i < tpps; i++) {
+            consents.put("tppId-" + i, ConsentDetails.builder().tppState(i % 2 == 0).tcDate(tcDate).build());
+        }
+        return CitizenConsent.builder()
+                .fiscalCode(FISCAL_CODE)
+                .consents(consents)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package it.gov.pagopa.onboarding.citizen.benchmark;
+
+import it.gov.pagopa.common.benchmark.MicroBenchmark;
+import it.gov.pagopa.common.web.exception.ClientExceptionWithBody;
+import it.gov.pagopa.onboarding.citizen.configuration.ExceptionMap;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionCode;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionName;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cost of the {@code switchIfEmpty(Mono.error(...))} not-found paths, on hit (the citizen exists) and miss (it does not):
+ * <ul>
+ *   <li><b>eager</b>: the previous code, an exception with stack trace built on every call</li>
+ *   <li><b>lazy</b>: {@code Mono.error(Supplier)} with the stackless exception of {@link ExceptionMap}</li>
+ * </ul>
+ * Run with {@code mvn -Pbenchmark test}, see {@link MicroBenchmark}.
+ */
+@Slf4j
+class ExceptionPathsBenchmark {
+
+    private static final String MESSAGE = "Citizen consent not founded";
+    private static final MicroBenchmark.Settings SETTINGS = MicroBenchmark.Settings.fromSystemProperties();
+    private static final List<MicroBenchmark.Result> RESULTS = new CopyOnWriteArrayList<>();
+
+    private final ExceptionMap exceptionMap = new ExceptionMap();
+    private final Mono<String> hit = Mono.just("citizen");
+    private final Mono<String> miss = Mono.empty();
+
+    @AfterAll
+    static void writeResults() {
+        MicroBenchmark.writeResults(ExceptionPathsBenchmark.class.getSimpleName(), RESULTS, SETTINGS);
+    }
+
+    @Test
+    void hitPath() {
+        MicroBenchmark.Result eager = run("notFound.eager", "hit", () -> resolve(hit.switchIfEmpty(Mono.error(eagerException()))));
+        MicroBenchmark.Result lazy = run("notFound.lazy", "hit", () -> resolve(hit.switchIfEmpty(Mono.error(() -> exceptionMap.throwException(ExceptionName.CITIZEN_NOT_ONBOARDED, MESSAGE)))));
+
+        assertTrue(lazy.allocatedBytesPerOp() < eager.allocatedBytesPerOp() || Double.isNaN(lazy.allocatedBytesPerOp()));
+    }
+
+    @Test
+    void missPath() {
+        MicroBenchmark.Result eager = run("notFound.eager", "miss", () -> resolve(miss.switchIfEmpty(Mono.error(eagerException()))));
+        MicroBenchmark.Result lazy = run("notFound.lazy", "miss", () -> resolve(miss.switchIfEmpty(Mono.error(() -> exceptionMap.throwException(ExceptionName.CITIZEN_NOT_ONBOARDED, MESSAGE)))));
+
+        assertTrue(lazy.allocatedBytesPerOp() < eager.allocatedBytesPerOp() || Double.isNaN(lazy.allocatedBytesPerOp()));
+    }
+
+    /** The exception previously returned by {@link ExceptionMap} for not found citizens */
+    private static RuntimeException eagerException() {
+        return new ClientExceptionWithBody(HttpStatus.NOT_FOUND, ExceptionCode.CITIZEN_NOT_ONBOARDED, MESSAGE);
+    }
+
+    /** Synchronous subscription returning the emitted value or error */
+    private static Object resolve(Mono<String> mono) {
+        Object[] result = new Object[1];
+        mono.subscribe(value -> result[0] = value, error -> result[0] = error);
+        return result[0];
+    }
+
+    private static MicroBenchmark.Result run(String benchmark, String path, Supplier<?> operation) {
+        MicroBenchmark.Result result = MicroBenchmark.run(benchmark, Map.of("path", path), SETTINGS, operation);
+        log.info("{} {}: {} ± {} ns/op, {} B/op", result.benchmark(), result.params(),
+                "%.1f".formatted(result.score()), "%.1f".formatted(result.scoreError()), "%.1f".formatted(result.allocatedBytesPerOp()));
+        RESULTS.add(result);
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package it.gov.pagopa.onboarding.citizen.configuration;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CitizenConsentOutboxConfigTest {
+
+    @Test
+    void requireTransactions_ReplicaSet() {
+        assertDoesNotThrow(() -> CitizenConsentOutboxConfig.requireTransactions(
+                new Document("isWritablePrimary", true).append("setName", "rs0")));
+    }
+
+    @Test
+    void requireTransactions_Mongos() {
+        assertDoesNotThrow(() -> CitizenConsentOutboxConfig.requireTransactions(
+                new Document("isWritablePrimary", true).append("msg", "isdbgrid")));
+    }
+
+    @Test
+    void requireTransactions_StandaloneRefused() {
+        Document hello = new Document("isWritablePrimary", true);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> CitizenConsentOutboxConfig.requireTransactions(hello));
+        assertTrue(error.getMessage().contains("app.citizen.outbox.enabled"));
+    }
+
+    @Test
+    void requireTransactions_NoResponseRefused() {
+        assertThrows(IllegalStateException.class, () -> CitizenConsentOutboxConfig.requireTransactions(null));
+    }
+}
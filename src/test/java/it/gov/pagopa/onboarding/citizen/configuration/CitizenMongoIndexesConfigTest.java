@@ -0,0 +1,36 @@
+package it.gov.pagopa.onboarding.citizen.configuration;
+
+import it.gov.pagopa.common.mongo.index.RequiredMongoIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CitizenMongoIndexesConfigTest {
+
+    private final CitizenMongoIndexesConfig config = new CitizenMongoIndexesConfig();
+
+    @Test
+    void citizenConsentIndexes_WildcardIndexIsOptional() {
+        List<RequiredMongoIndex> indexes = config.citizenConsentIndexes(true).requiredIndexes();
+
+        assertEquals(4, indexes.size());
+        indexes.forEach(index -> assertEquals(!"consents_wildcard".equals(index.name()), index.requiredForReadiness()));
+    }
+
+    @Test
+    void tppCitizenIndexIndexes_RequiredOnlyWithIndexEnabled() {
+        assertTrue(config.tppCitizenIndexIndexes(true, false).requiredIndexes().stream().allMatch(RequiredMongoIndex::requiredForReadiness));
+        assertTrue(config.tppCitizenIndexIndexes(false, true).requiredIndexes().stream().allMatch(RequiredMongoIndex::requiredForReadiness));
+        assertTrue(config.tppCitizenIndexIndexes(false, false).requiredIndexes().stream().noneMatch(RequiredMongoIndex::requiredForReadiness));
+    }
+
+    @Test
+    void citizenConsentOutboxIndexes_RequiredOnlyWithOutboxEnabled() {
+        assertTrue(config.citizenConsentOutboxIndexes(true, 168).requiredIndexes().stream().allMatch(RequiredMongoIndex::requiredForReadiness));
+        assertFalse(config.citizenConsentOutboxIndexes(false, 168).requiredIndexes().stream().anyMatch(RequiredMongoIndex::requiredForReadiness));
+    }
+}
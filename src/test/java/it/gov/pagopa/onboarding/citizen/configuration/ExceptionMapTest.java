@@ -0,0 +1,42 @@
+package it.gov.pagopa.onboarding.citizen.configuration;
+
+import it.gov.pagopa.common.web.exception.ClientExceptionWithBody;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionCode;
+import it.gov.pagopa.onboarding.citizen.constants.CitizenConstants.ExceptionName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExceptionMapTest {
+
+    private final ExceptionMap exceptionMap = new ExceptionMap();
+
+    @Test
+    void throwException_NotFoundIsStackless() {
+        RuntimeException exception = exceptionMap.throwException(ExceptionName.CITIZEN_NOT_ONBOARDED, "message");
+
+        ClientExceptionWithBody clientException = assertInstanceOf(ClientExceptionWithBody.class, exception);
+        assertEquals(HttpStatus.NOT_FOUND, clientException.getHttpStatus());
+        assertEquals(ExceptionCode.CITIZEN_NOT_ONBOARDED, clientException.getCode());
+        assertEquals("message", clientException.getMessage());
+        assertEquals(0, clientException.getStackTrace().length);
+    }
+
+    @Test
+    void throwException_BadRequestKeepsStackTrace() {
+        RuntimeException exception = exceptionMap.throwException(ExceptionName.TOO_MANY_FISCAL_CODES, "message");
+
+        assertEquals(HttpStatus.BAD_REQUEST, assertInstanceOf(ClientExceptionWithBody.class, exception).getHttpStatus());
+        assertTrue(exception.getStackTrace().length > 0);
+    }
+
+    @Test
+    void throwException_UnknownKey() {
+        RuntimeException exception = exceptionMap.throwException("UNKNOWN", "message");
+
+        assertEquals(RuntimeException.class, exception.getClass());
+    }
+}
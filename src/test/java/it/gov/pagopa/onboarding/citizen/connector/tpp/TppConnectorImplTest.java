@@ -1,5 +1,7 @@
 package it.gov.pagopa.onboarding.citizen.connector.tpp;
 
+import it.gov.pagopa.common.reactive.utils.CircuitBreaker;
+import it.gov.pagopa.common.reactive.utils.HedgedRequests;
 import it.gov.pagopa.onboarding.citizen.dto.TppDTO;
 import it.gov.pagopa.onboarding.citizen.dto.TppIdList;
 import okhttp3.mockwebserver.MockResponse;
@@ -14,7 +16,9 @@ import reactor.test.StepVerifier;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static it.gov.pagopa.onboarding.citizen.enums.AuthenticationType.OAUTH2;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,7 +54,19 @@ class TppConnectorImplTest {
     void setUp() throws Exception {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
-        tppConnector = new TppConnectorImpl(WebClient.builder(), mockWebServer.url("/").toString());
+        tppConnector = connector(false, Duration.ofMinutes(10));
+    }
+
+    /** Connector opening the circuit after 2 consecutive failed calls */
+    private TppConnectorImpl connector(boolean hedging, Duration cacheMaxStale) {
+        return new TppConnectorImpl(WebClient.builder(), mockWebServer.url("/").toString(),
+                new HedgedRequests(new HedgedRequests.Settings(hedging, 0.95, Duration.ofMillis(50), Duration.ofMillis(200), 100, 10)),
+                new CircuitBreaker("emd-tpp", new CircuitBreaker.Settings(1.0, 2, 2, Duration.ofMinutes(1), 1), TppConnectorImpl::isUnhealthy),
+                cacheMaxStale);
+    }
+
+    private static MockResponse serverErrorResponse() {
+        return new MockResponse().setResponseCode(500);
     }
 
     @AfterEach
@@ -195,4 +211,62 @@ class TppConnectorImplTest {
                         (ex.getCause() instanceof WebClientRequestException))
                 .verify();
     }
+
+    // ── hedging and circuit breaker tests ─────────────────────────────────────
+
+    @Test
+    void testGet_slowResponseIsHedged() {
+        tppConnector = connector(true, Duration.ofMinutes(10));
+        mockWebServer.enqueue(okTppResponse().setHeadersDelay(5, TimeUnit.SECONDS));
+        mockWebServer.enqueue(okTppResponse());
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1"))
+                .assertNext(dto -> assertThat(dto.getTppId()).isEqualTo("TPP_OK_1"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(3));
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testGet_circuitOpenServesCachedTpp() {
+        mockWebServer.enqueue(okTppResponse());
+        mockWebServer.enqueue(serverErrorResponse());
+        mockWebServer.enqueue(serverErrorResponse());
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectError().verify();
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectError().verify();
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1"))
+                .assertNext(dto -> assertThat(dto.getTppId()).isEqualTo("TPP_OK_1"))
+                .verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testGet_circuitOpenWithoutCachedTppFailsFast() {
+        mockWebServer.enqueue(serverErrorResponse());
+        mockWebServer.enqueue(serverErrorResponse());
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectError().verify();
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectError().verify();
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1"))
+                .expectError(CircuitBreaker.CallNotPermittedException.class)
+                .verify();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testGet_clientErrorsDoNotOpenCircuit() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        mockWebServer.enqueue(okTppResponse());
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectError().verify();
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectError().verify();
+
+        StepVerifier.create(tppConnector.get("TPP_OK_1")).expectNextCount(1).verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
+    }
 }
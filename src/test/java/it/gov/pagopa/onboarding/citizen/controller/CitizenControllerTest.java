@@ -1,10 +1,13 @@
 package it.gov.pagopa.onboarding.citizen.controller;
 
+import it.gov.pagopa.common.web.dto.ErrorDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO;
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
 import it.gov.pagopa.onboarding.citizen.faker.CitizenConsentDTOFaker;
 import it.gov.pagopa.onboarding.citizen.faker.CitizenConsentStateUpdateDTOFaker;
 import it.gov.pagopa.onboarding.citizen.service.BloomFilterServiceImpl;
+import it.gov.pagopa.onboarding.citizen.service.CitizenConsentBulkServiceImpl;
 import it.gov.pagopa.onboarding.citizen.service.CitizenServiceImpl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -15,9 +18,12 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.List;
+import java.util.Map;
 
 @WebFluxTest(CitizenControllerImpl.class)
 class CitizenControllerTest {
@@ -28,6 +34,9 @@ class CitizenControllerTest {
     @MockitoBean
     private BloomFilterServiceImpl bloomFilterService;
 
+    @MockitoBean
+    private CitizenConsentBulkServiceImpl citizenConsentBulkService;
+
     @Autowired
     private WebTestClient webClient;
 
@@ -56,6 +65,76 @@ class CitizenControllerTest {
                 });
     }
 
+    @Test
+    void saveCitizenConsents_Ok() {
+        CitizenConsentBulkOutcomeDTO outcome = CitizenConsentBulkOutcomeDTO.builder()
+                .index(0)
+                .fiscalCode(FISCAL_CODE)
+                .outcome(CitizenConsentBulkOutcomeDTO.Outcome.CREATED)
+                .build();
+
+        Mockito.when(citizenConsentBulkService.createCitizenConsents(Mockito.eq(TPP_ID), Mockito.any()))
+                .thenReturn(Mono.just(Flux.just(outcome)));
+
+        webClient.post()
+                .uri("/emd/citizen/bulk/{tppId}", TPP_ID)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"fiscalCode\":\"" + FISCAL_CODE + "\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CitizenConsentBulkOutcomeDTO.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNext(outcome)
+                .verifyComplete();
+    }
+
+    @Test
+    void getCitizenConsentsStatus_Ok() {
+        Map<String, Boolean> statuses = Map.of(FISCAL_CODE, true);
+
+        Mockito.when(citizenConsentBulkService.getCitizenConsentsStatus(TPP_ID, List.of(FISCAL_CODE)))
+                .thenReturn(Mono.just(statuses));
+
+        webClient.post()
+                .uri("/emd/citizen/bulk/{tppId}/status", TPP_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(FISCAL_CODE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<Map<String, Boolean>>() {})
+                .isEqualTo(statuses);
+    }
+
+    @Test
+    void saveCitizenConsents_InvalidTppId() {
+        webClient.post()
+                .uri("/emd/citizen/bulk/{tppId}", "tpp id!")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"fiscalCode\":\"" + FISCAL_CODE + "\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ErrorDTO.class)
+                .value(error -> Assertions.assertEquals("INVALID_REQUEST", error.getCode()));
+
+        Mockito.verifyNoInteractions(citizenConsentBulkService);
+    }
+
+    @Test
+    void getCitizenConsentsStatus_InvalidFiscalCode() {
+        webClient.post()
+                .uri("/emd/citizen/bulk/{tppId}/status", TPP_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(FISCAL_CODE, "malformed"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ErrorDTO.class)
+                .value(error -> Assertions.assertEquals("INVALID_REQUEST", error.getCode()));
+
+        Mockito.verifyNoInteractions(citizenConsentBulkService);
+    }
+
     @Test
     void stateUpdate_Ok() {
         CitizenConsentStateUpdateDTO citizenConsentStateUpdateDTO = CitizenConsentStateUpdateDTOFaker.mockInstance(true);
@@ -207,6 +286,20 @@ class CitizenControllerTest {
 
     }
 
+    @Test
+    void countCitizenEnabled_Ok() {
+        Mockito.when(citizenService.countCitizenEnabled(TPP_ID))
+                .thenReturn(Mono.just(2L));
+
+        webClient.get()
+                .uri("/emd/citizen/{tppId}/enabled/count", TPP_ID)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Long.class)
+                .value(response -> Assertions.assertEquals(2L, response));
+    }
+
     @Test
     void deleteCitizenConsent_OK() {
         CitizenConsentDTO mockConsent = CitizenConsentDTOFaker.mockInstance(true);
@@ -0,0 +1,21 @@
+package it.gov.pagopa.onboarding.citizen.event.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CitizenConsentStateUpdateConsumerConfigTest {
+
+    @Test
+    void constructor_FunctionsDefined() {
+        assertDoesNotThrow(() -> new CitizenConsentStateUpdateConsumerConfig(
+                "otherFunction;consumerCitizenConsentStateUpdate;consumerCitizenConsentStateUpdateErrorReplay"));
+    }
+
+    @Test
+    void constructor_FunctionsNotDefined() {
+        assertThrows(IllegalStateException.class, () -> new CitizenConsentStateUpdateConsumerConfig(""));
+        assertThrows(IllegalStateException.class, () -> new CitizenConsentStateUpdateConsumerConfig("consumerCitizenConsentStateUpdate"));
+    }
+}
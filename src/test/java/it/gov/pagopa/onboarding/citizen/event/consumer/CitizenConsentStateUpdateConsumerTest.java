@@ -0,0 +1,146 @@
+package it.gov.pagopa.onboarding.citizen.event.consumer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.gov.pagopa.common.reactive.kafka.consumer.BaseKafkaConsumer;
+import it.gov.pagopa.common.reactive.kafka.exception.UncommittableError;
+import it.gov.pagopa.common.utils.CommonUtilities;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import it.gov.pagopa.onboarding.citizen.service.CitizenConsentStateUpdateService;
+import it.gov.pagopa.onboarding.citizen.service.ErrorNotifierService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+class CitizenConsentStateUpdateConsumerTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int PARTITIONS = 4;
+
+    private CitizenConsentStateUpdateService citizenConsentStateUpdateService;
+    private ErrorNotifierService errorNotifierService;
+    private SimpleMeterRegistry meterRegistry;
+    private List<Integer> batchSizes;
+    private AtomicInteger applied;
+
+    @BeforeEach
+    void setUp() {
+        citizenConsentStateUpdateService = Mockito.mock(CitizenConsentStateUpdateService.class);
+        errorNotifierService = Mockito.mock(ErrorNotifierService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(errorNotifierService.notifyCitizenConsentStateUpdate(any(), anyString(), anyBoolean(), any())).thenReturn(Mono.just(true));
+        batchSizes = new CopyOnWriteArrayList<>();
+        applied = new AtomicInteger();
+        when(citizenConsentStateUpdateService.updateStates(anyList())).thenAnswer(invocation -> {
+            List<CitizenConsentStateUpdateDTO> updates = invocation.getArgument(0);
+            batchSizes.add(updates.size());
+            applied.addAndGet(updates.size());
+            return Mono.just(Set.of());
+        });
+    }
+
+    @Test
+    void execute_AppliesMessagesInBatchesAndCommits() {
+        CitizenConsentStateUpdateConsumer consumer =
+                new CitizenConsentStateUpdateConsumer("emd-citizen", citizenConsentStateUpdateService, errorNotifierService, meterRegistry, BATCH_SIZE, 200);
+        Acknowledgment[] acks = new Acknowledgment[PARTITIONS];
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            acks[partition] = Mockito.mock(Acknowledgment.class);
+        }
+        int messages = 10_000;
+
+        long start = System.currentTimeMillis();
+        consumer.execute(Flux.range(0, messages)
+                .map(offset -> message(offset, acks[offset % PARTITIONS])));
+        await().atMost(Duration.ofSeconds(30)).until(() -> applied.get() == messages);
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+
+        log.info("Applied {} consent state updates in {} batches in {} ms ({} updates/s)",
+                messages, batchSizes.size(), elapsed, messages * 1000L / elapsed);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= BATCH_SIZE));
+        assertTrue(batchSizes.size() >= messages / BATCH_SIZE);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            for (Acknowledgment ack : acks) {
+                verify(ack, atLeastOnce()).acknowledge();
+            }
+        });
+        await().atMost(Duration.ofSeconds(5)).until(() -> meterRegistry.find(BaseKafkaConsumer.METRIC_COMMIT_BATCH_SIZE)
+                .summaries().stream().mapToDouble(DistributionSummary::totalAmount).sum() == messages);
+        Timer commitLatency = meterRegistry.find(BaseKafkaConsumer.METRIC_COMMIT_LATENCY).tag("partition", "0").timer();
+        assertTrue(commitLatency != null && commitLatency.count() > 0);
+    }
+
+    @Test
+    void execute_FailedUpdatesAreRetriedThenNotified() {
+        when(citizenConsentStateUpdateService.updateStates(anyList())).thenAnswer(invocation -> {
+            List<CitizenConsentStateUpdateDTO> updates = invocation.getArgument(0);
+            applied.addAndGet(updates.size());
+            return Mono.just(Set.of("fiscalCode0"));
+        });
+        CitizenConsentStateUpdateConsumer consumer =
+                new CitizenConsentStateUpdateConsumer("emd-citizen", citizenConsentStateUpdateService, errorNotifierService, meterRegistry, BATCH_SIZE, 100);
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        consumer.execute(Flux.range(0, 2).map(offset -> message(offset, ack)));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> verify(ack, atLeastOnce()).acknowledge());
+        // both updates are submitted once, then fiscalCode0 at each of the 3 retries before being published on the error topic
+        assertEquals(5, applied.get());
+        verify(errorNotifierService).notifyCitizenConsentStateUpdate(
+                argThat(message -> CommonUtilities.readMessagePayload(message).contains("fiscalCode0")), anyString(), eq(true), any(UncommittableError.class));
+    }
+
+    @Test
+    void execute_NotNotifiedUpdatesAreNotCommitted() {
+        when(citizenConsentStateUpdateService.updateStates(anyList())).thenReturn(Mono.just(Set.of("fiscalCode0")));
+        when(errorNotifierService.notifyCitizenConsentStateUpdate(any(), anyString(), anyBoolean(), any())).thenReturn(Mono.just(false));
+        CitizenConsentStateUpdateConsumer consumer =
+                new CitizenConsentStateUpdateConsumer("emd-citizen", citizenConsentStateUpdateService, errorNotifierService, meterRegistry, BATCH_SIZE, 100);
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        consumer.execute(Flux.just(message(0, ack)));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                verify(errorNotifierService).notifyCitizenConsentStateUpdate(any(), anyString(), eq(true), any(UncommittableError.class)));
+        verify(ack, Mockito.after(500).never()).acknowledge();
+    }
+
+    private static Message<byte[]> message(int offset, Acknowledgment ack) {
+        return MessageBuilder
+                .withPayload("{\"fiscalCode\":\"fiscalCode%d\",\"tppId\":\"tppId\",\"tppState\":true}".formatted(offset)
+                        .getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, offset % PARTITIONS)
+                .setHeader(KafkaHeaders.OFFSET, (long) offset)
+                .setHeader(KafkaHeaders.ACKNOWLEDGMENT, ack)
+                .build();
+    }
+}
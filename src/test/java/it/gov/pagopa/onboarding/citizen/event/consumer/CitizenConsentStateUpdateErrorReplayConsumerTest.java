@@ -0,0 +1,88 @@
+package it.gov.pagopa.onboarding.citizen.event.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.gov.pagopa.common.kafka.utils.KafkaConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CitizenConsentStateUpdateErrorReplayConsumerTest {
+
+    private static final String PAYLOAD = "{\"fiscalCode\":\"fiscalCode\",\"tppId\":\"tppId\",\"tppState\":true}";
+
+    private StreamBridge streamBridge;
+    private CitizenConsentStateUpdateErrorReplayConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        streamBridge = Mockito.mock(StreamBridge.class);
+        when(streamBridge.send(anyString(), any())).thenReturn(true);
+        consumer = new CitizenConsentStateUpdateErrorReplayConsumer("emd-citizen", streamBridge, new SimpleMeterRegistry(),
+                "consent-topic", 3, 50);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void execute_ReplaysRetryableErrors() {
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        consumer.execute(Flux.just(errorMessage("consent-topic", "true", "1", ack)));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(ack).acknowledge());
+        ArgumentCaptor<Message<String>> replayed = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge).send(eq("citizenConsentStateUpdateReplay-out-0"), replayed.capture());
+        assertEquals(PAYLOAD, replayed.getValue().getPayload());
+        assertArrayEquals("2".getBytes(StandardCharsets.UTF_8),
+                replayed.getValue().getHeaders().get(KafkaConstants.ERROR_MSG_HEADER_RETRY, byte[].class));
+        assertArrayEquals("emd-citizen".getBytes(StandardCharsets.UTF_8),
+                replayed.getValue().getHeaders().get(KafkaConstants.ERROR_MSG_HEADER_APPLICATION_NAME, byte[].class));
+        assertEquals("fiscalCode", replayed.getValue().getHeaders().get(KafkaHeaders.KEY));
+    }
+
+    @Test
+    void execute_DiscardsNotReplayableErrors() {
+        Acknowledgment ack = Mockito.mock(Acknowledgment.class);
+
+        consumer.execute(Flux.just(
+                errorMessage("other-topic", "true", "0", ack),
+                errorMessage("consent-topic", "false", "0", ack),
+                errorMessage("consent-topic", "true", "3", ack)));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(ack, atLeastOnce()).acknowledge());
+        verify(streamBridge, never()).send(anyString(), any());
+    }
+
+    private static Message<String> errorMessage(String srcTopic, String retryable, String retry, Acknowledgment ack) {
+        return MessageBuilder.withPayload(PAYLOAD)
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_SRC_TOPIC, srcTopic.getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_RETRYABLE, retryable.getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_RETRY, retry.getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_APPLICATION_NAME, "emd-citizen".getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaHeaders.RECEIVED_KEY, "fiscalCode")
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, 0)
+                .setHeader(KafkaHeaders.OFFSET, 0L)
+                .setHeader(KafkaHeaders.ACKNOWLEDGMENT, ack)
+                .build();
+    }
+}
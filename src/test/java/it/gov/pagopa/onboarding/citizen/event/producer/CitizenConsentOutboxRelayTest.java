@@ -0,0 +1,223 @@
+package it.gov.pagopa.onboarding.citizen.event.producer;
+
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentChangeEventDTO;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsentChangeEvent;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenConsentOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.GenericMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CitizenConsentOutboxRelayTest {
+
+    private static final int BATCH_SIZE = 3;
+    private static final long ACK_TIMEOUT_MS = 200;
+
+    @Mock
+    private RedissonReactiveClient redissonClient;
+    @Mock
+    private RLockReactive lock;
+    @Mock
+    private CitizenConsentOutboxRepository citizenConsentOutboxRepository;
+    @Mock
+    private StreamBridge streamBridge;
+
+    private CitizenConsentOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redissonClient.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock(eq(0L), anyLong(), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(lock.unlock(anyLong())).thenReturn(Mono.empty());
+        when(citizenConsentOutboxRepository.markPublished(anyList(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<String>>getArgument(0).size()));
+        relay = new CitizenConsentOutboxRelay(redissonClient, citizenConsentOutboxRepository, streamBridge, false, BATCH_SIZE, 100,
+                ACK_TIMEOUT_MS);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_PublishesBatchKeyedByFiscalCode() {
+        when(citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(BATCH_SIZE)))
+                .thenReturn(Flux.just(event("1", "fc1"), event("2", "fc2")));
+        when(streamBridge.send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class)))
+                .thenAnswer(invocation -> acknowledge(invocation.getArgument(1)));
+
+        StepVerifier.create(relay.relay())
+                .expectNext(2)
+                .verifyComplete();
+
+        ArgumentCaptor<Message<CitizenConsentChangeEventDTO>> messages = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge, times(2)).send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), messages.capture());
+        Message<CitizenConsentChangeEventDTO> first = messages.getAllValues().get(0);
+        assertEquals("1", first.getPayload().getEventId());
+        assertEquals(ConsentChangeType.STATE_CHANGED, first.getPayload().getEventType());
+        assertArrayEquals("fc1".getBytes(StandardCharsets.UTF_8), (byte[]) first.getHeaders().get(KafkaHeaders.KEY));
+        assertEquals("1", first.getHeaders().get(CitizenConsentOutboxRelay.EVENT_ID_HEADER));
+        verify(citizenConsentOutboxRepository).markPublished(eq(List.of("1", "2")), any(LocalDateTime.class));
+        verify(lock).unlock(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_SendsBatchBeforeWaitingForAcks() {
+        when(citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(BATCH_SIZE)))
+                .thenReturn(Flux.just(event("1", "fc1"), event("2", "fc1"), event("3", "fc2")));
+        List<Message<?>> sent = new ArrayList<>();
+        when(streamBridge.send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class)))
+                .thenAnswer(invocation -> {
+                    sent.add(invocation.getArgument(1));
+                    if (sent.size() == BATCH_SIZE) {
+                        // the acknowledgments arrive only once the whole batch has been sent
+                        sent.forEach(relay::onSendResult);
+                    }
+                    return true;
+                });
+
+        StepVerifier.create(relay.relay())
+                .expectNext(3)
+                .verifyComplete();
+
+        verify(citizenConsentOutboxRepository).markPublished(eq(List.of("1", "2", "3")), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_StopsAtFirstFailedSend() {
+        when(citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(BATCH_SIZE)))
+                .thenReturn(Flux.just(event("1", "fc1"), event("2", "fc1"), event("3", "fc2")));
+        when(streamBridge.send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class)))
+                .thenAnswer(invocation -> acknowledge(invocation.getArgument(1)))
+                .thenReturn(false);
+
+        StepVerifier.create(relay.relay())
+                .expectNext(1)
+                .verifyComplete();
+
+        verify(streamBridge, times(2)).send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class));
+        verify(citizenConsentOutboxRepository).markPublished(eq(List.of("1")), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_StopsAtFirstRejectedSend() {
+        when(citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(BATCH_SIZE)))
+                .thenReturn(Flux.just(event("1", "fc1"), event("2", "fc1"), event("3", "fc2")));
+        when(streamBridge.send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class)))
+                .thenAnswer(invocation -> acknowledge(invocation.getArgument(1)))
+                .thenAnswer(invocation -> {
+                    Message<?> message = invocation.getArgument(1);
+                    relay.onSendFailure(new ErrorMessage(new MessagingException(message, "Broker not available")));
+                    return true;
+                })
+                .thenAnswer(invocation -> acknowledge(invocation.getArgument(1)));
+
+        StepVerifier.create(relay.relay())
+                .expectNext(1)
+                .verifyComplete();
+
+        // the third event was acknowledged, but it is published again after the second one
+        verify(streamBridge, times(3)).send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class));
+        verify(citizenConsentOutboxRepository).markPublished(eq(List.of("1")), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_StopsAtFirstNotAcknowledgedSend() {
+        when(citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(BATCH_SIZE)))
+                .thenReturn(Flux.just(event("1", "fc1"), event("2", "fc1"), event("3", "fc2")));
+        when(streamBridge.send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class)))
+                .thenAnswer(invocation -> acknowledge(invocation.getArgument(1)))
+                .thenReturn(true)
+                .thenThrow(new MessageDeliveryException("Broker not available"));
+
+        StepVerifier.create(relay.relay())
+                .expectNext(1)
+                .verifyComplete();
+
+        verify(streamBridge, times(3)).send(eq(CitizenConsentOutboxRelay.CONSENT_CHANGES_BINDING), any(Message.class));
+        verify(citizenConsentOutboxRepository).markPublished(eq(List.of("1")), any(LocalDateTime.class));
+    }
+
+    @Test
+    void onSendFailure_IgnoresOtherErrors() {
+        relay.onSendFailure(new ErrorMessage(new IllegalStateException("not a send failure")));
+        relay.onSendFailure(new ErrorMessage(new MessagingException(new GenericMessage<>("payload"), "no event id")));
+
+        verifyNoInteractions(citizenConsentOutboxRepository);
+    }
+
+    @Test
+    void relay_NothingToPublish() {
+        when(citizenConsentOutboxRepository.findByPublishedAtIsNullOrderByEventDateAsc(Limit.of(BATCH_SIZE)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(relay.relay())
+                .expectNext(0)
+                .verifyComplete();
+
+        verify(citizenConsentOutboxRepository, never()).markPublished(anyList(), any());
+    }
+
+    @Test
+    void relay_LockNotAcquired() {
+        when(lock.tryLock(eq(0L), anyLong(), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(relay.relay())
+                .expectNext(0)
+                .verifyComplete();
+
+        verify(citizenConsentOutboxRepository, never()).findByPublishedAtIsNullOrderByEventDateAsc(any());
+    }
+
+    private boolean acknowledge(Message<?> message) {
+        relay.onSendResult(message);
+        return true;
+    }
+
+    private static CitizenConsentChangeEvent event(String id, String fiscalCode) {
+        return CitizenConsentChangeEvent.builder()
+                .id(id)
+                .eventType(ConsentChangeType.STATE_CHANGED)
+                .fiscalCode(fiscalCode)
+                .tppId("tppId")
+                .tppState(true)
+                .eventDate(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package it.gov.pagopa.onboarding.citizen.faker;
+
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.CONSENTS;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.ENABLED_CONSENT_COUNT;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.FISCAL_CODE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.SCHEMA_VERSION;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TC_DATE;
+import static it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout.TPP_STATE;
+
+/**
+ * Synthetic {@code citizen_consents} dataset generator, to reproduce production-scale volumes locally.
+ *
+ * <p>Citizens are built through {@link CitizenConsentFaker}: each one has a distinct valid fiscal code, a number of
+ * consents drawn from {@link Settings#tppCountWeights()} among {@link Settings#tppPool()} TPPs, each enabled with
+ * probability {@link Settings#enabledRatio()}. Documents are stored as {@code CitizenConsentSchemaCallback} does,
+ * in the {@link Settings#schemaVersion()} layout and with {@code enabledConsentCount}.</p>
+ *
+ * <p>Batches are inserted with unordered {@code insertMany}, {@link Settings#parallelism()} at a time. Each batch
+ * has its own seed, so the same settings always generate the same dataset, whatever the insertion order.</p>
+ *
+ * <p>From tests, use {@link #insert(MongoCollection)}; from the command line, run {@link #main(String[])} with the
+ * test classpath, e.g. {@code uri=mongodb://localhost:27017 citizens=10000000 tppCountWeights=1:60,2:25,3:10,5:5}.</p>
+ */
+public class CitizenConsentDatasetGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(CitizenConsentDatasetGenerator.class);
+
+    /**
+     * @param citizens number of documents to generate
+     * @param tppCountWeights relative frequency of each number of consents per citizen
+     * @param tppPool number of distinct TPPs
+     * @param enabledRatio probability of each consent being enabled
+     * @param schemaVersion layout of {@code consents}, see {@link ConsentStorageLayout}
+     * @param batchSize documents per {@code insertMany}
+     * @param parallelism concurrent {@code insertMany}
+     * @param seed dataset seed
+     */
+    public record Settings(long citizens, Map<Integer, Integer> tppCountWeights, int tppPool, double enabledRatio,
+                           int schemaVersion, int batchSize, int parallelism, long seed) {
+
+        public static final Settings DEFAULT =
+                new Settings(100_000, Map.of(1, 60, 2, 25, 3, 10, 5, 5), 50, 0.8, ConsentStorageLayout.V1, 1_000, 8, 42);
+
+        public Settings {
+            if (tppCountWeights.keySet().stream().anyMatch(count -> count < 0 || count > tppPool)) {
+                throw new IllegalArgumentException("TPP counts must be between 0 and tppPool: " + tppCountWeights);
+            }
+            if (schemaVersion != ConsentStorageLayout.V1 && schemaVersion != ConsentStorageLayout.V2) {
+                throw new IllegalArgumentException("Unsupported consents schema version: " + schemaVersion);
+            }
+        }
+
+        /** It will override the {@link #DEFAULT} values with the {@code name=value} arguments */
+        public static Settings fromArgs(Map<String, String> args) {
+            return new Settings(
+                    Long.parseLong(args.getOrDefault("citizens", String.valueOf(DEFAULT.citizens()))),
+                    args.containsKey("tppCountWeights") ? parseWeights(args.get("tppCountWeights")) : DEFAULT.tppCountWeights(),
+                    Integer.parseInt(args.getOrDefault("tppPool", String.valueOf(DEFAULT.tppPool()))),
+                    Double.parseDouble(args.getOrDefault("enabledRatio", String.valueOf(DEFAULT.enabledRatio()))),
+                    Integer.parseInt(args.getOrDefault("schemaVersion", String.valueOf(DEFAULT.schemaVersion()))),
+                    Integer.parseInt(args.getOrDefault("batchSize", String.valueOf(DEFAULT.batchSize()))),
+                    Integer.parseInt(args.getOrDefault("parallelism", String.valueOf(DEFAULT.parallelism()))),
+                    Long.parseLong(args.getOrDefault("seed", String.valueOf(DEFAULT.seed()))));
+        }
+
+        /** Parses {@code count:weight} pairs separated by commas, e.g. {@code 1:60,2:25,3:10,5:5} */
+        static Map<Integer, Integer> parseWeights(String weights) {
+            Map<Integer, Integer> result = new LinkedHashMap<>();
+            for (String pair : weights.split(",")) {
+                String[] countAndWeight = pair.trim().split(":");
+                result.put(Integer.valueOf(countAndWeight[0].trim()), Integer.valueOf(countAndWeight[1].trim()));
+            }
+            return result;
+        }
+    }
+
+    private final Settings settings;
+    private final List<String> tppIds;
+    /** Number of consents for each unit of total weight */
+    private final int[] tppCounts;
+
+    public CitizenConsentDatasetGenerator(Settings settings) {
+        this.settings = settings;
+        this.tppIds = IntStream.range(0, settings.tppPool()).mapToObj(i -> "DATASET_TPP_%04d".formatted(i)).toList();
+        this.tppCounts = settings.tppCountWeights().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .flatMapToInt(e -> IntStream.range(0, e.getValue()).map(i -> e.getKey()))
+                .toArray();
+        if (tppCounts.length == 0) {
+            throw new IllegalArgumentException("No positive weight in " + settings.tppCountWeights());
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> arguments = Arrays.stream(args)
+                .map(arg -> arg.startsWith("--") ? arg.substring(2) : arg)
+                .map(arg -> arg.split("=", 2))
+                .collect(Collectors.toMap(nameValue -> nameValue[0], nameValue -> nameValue[1]));
+        String uri = arguments.getOrDefault("uri", "mongodb://localhost:27017");
+        String database = arguments.getOrDefault("database", "mil");
+        String collection = arguments.getOrDefault("collection", "citizen_consents");
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            long inserted = new CitizenConsentDatasetGenerator(Settings.fromArgs(arguments))
+                    .insert(client.getDatabase(database).getCollection(collection))
+                    .block();
+            log.info("[DATASET] Inserted {} documents into {}.{}", inserted, database, collection);
+        }
+    }
+
+    /** It will insert the whole dataset, returning the number of inserted documents */
+    public Mono<Long> insert(MongoCollection<Document> collection) {
+        long batches = (settings.citizens() + settings.batchSize() - 1) / settings.batchSize();
+        InsertManyOptions options = new InsertManyOptions().ordered(false);
+        long start = System.currentTimeMillis();
+        return Flux.range(0, Math.toIntExact(batches))
+                .flatMap(batch -> Mono.fromSupplier(() -> batch(batch))
+                        .flatMap(documents -> Mono.from(collection.insertMany(documents, options)))
+                        .map(result -> (long) result.getInsertedIds().size()), settings.parallelism())
+                .reduce(0L, Long::sum)
+                .doOnNext(inserted -> log.info("[DATASET] Inserted {} documents in {} ms", inserted, System.currentTimeMillis() - start));
+    }
+
+    /** Documents of the batch, always the same for the same settings */
+    public List<Document> batch(int batch) {
+        Random random = new Random(settings.seed() * 31 + batch);
+        long from = (long) batch * settings.batchSize();
+        long to = Math.min(from + settings.batchSize(), settings.citizens());
+        List<Document> documents = new ArrayList<>((int) (to - from));
+        for (long index = from; index < to; index++) {
+            documents.add(toDocument(citizen(index, random)));
+        }
+        return documents;
+    }
+
+    CitizenConsent citizen(long index, Random random) {
+        int tppCount = tppCounts[random.nextInt(tppCounts.length)];
+        List<String> citizenTppIds = new ArrayList<>(tppCount);
+        int first = random.nextInt(tppIds.size());
+        for (int i = 0; i < tppCount; i++) {
+            citizenTppIds.add(tppIds.get((first + i) % tppIds.size()));
+        }
+        return CitizenConsentFaker.mockInstance(
+                CitizenConsentFaker.fiscalCode(index, random), citizenTppIds, settings.enabledRatio(), random);
+    }
+
+    /** Same document written by Spring Data and {@code CitizenConsentSchemaCallback} */
+    Document toDocument(CitizenConsent citizenConsent) {
+        Document consents = new Document();
+        for (Map.Entry<String, ConsentDetails> entry : citizenConsent.getConsents().entrySet()) {
+            consents.append(entry.getKey(), new Document(TPP_STATE, entry.getValue().getTppState())
+                    .append(TC_DATE, ConsentStorageLayout.toDate(entry.getValue().getTcDate())));
+        }
+        Object layout = ConsentStorageLayout.toLayout(consents, settings.schemaVersion());
+        return new Document(FISCAL_CODE, citizenConsent.getFiscalCode())
+                .append(CONSENTS, layout)
+                .append(SCHEMA_VERSION, settings.schemaVersion())
+                .append(ENABLED_CONSENT_COUNT, ConsentStorageLayout.countEnabled(layout));
+    }
+}
@@ -0,0 +1,77 @@
+package it.gov.pagopa.onboarding.citizen.faker;
+
+import it.gov.pagopa.onboarding.citizen.model.converter.ConsentStorageLayout;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+class CitizenConsentDatasetGeneratorTest {
+
+    private static final Pattern FISCAL_CODE =
+            Pattern.compile("[A-Z]{6}[0-9]{2}[ABCDEHLMPRST][0-9]{2}[A-Z][0-9]{3}[A-Z]");
+
+    private static final CitizenConsentDatasetGenerator.Settings SETTINGS = new CitizenConsentDatasetGenerator.Settings(
+            2_500, Map.of(1, 1, 3, 1), 10, 0.5, ConsentStorageLayout.V2, 1_000, 2, 7);
+
+    @Test
+    void fiscalCodeHasValidFormatAndCheckCharacter() {
+        Random random = new Random(1);
+        Set<String> fiscalCodes = new HashSet<>();
+        for (long i = 0; i < 1_000; i++) {
+            String fiscalCode = CitizenConsentFaker.fiscalCode(i, random);
+            Assertions.assertTrue(FISCAL_CODE.matcher(fiscalCode).matches(), fiscalCode);
+            fiscalCodes.add(fiscalCode);
+        }
+        Assertions.assertEquals(1_000, fiscalCodes.size());
+    }
+
+    @Test
+    void batchIsDeterministic() {
+        CitizenConsentDatasetGenerator generator = new CitizenConsentDatasetGenerator(SETTINGS);
+
+        List<Document> batch = generator.batch(2);
+
+        Assertions.assertEquals(500, batch.size());
+        Assertions.assertEquals(
+                batch.stream().map(d -> d.getString(ConsentStorageLayout.FISCAL_CODE)).toList(),
+                new CitizenConsentDatasetGenerator(SETTINGS).batch(2).stream().map(d -> d.getString(ConsentStorageLayout.FISCAL_CODE)).toList());
+    }
+
+    @Test
+    void documentsFollowConfiguredLayoutAndDistribution() {
+        List<Document> batch = new CitizenConsentDatasetGenerator(SETTINGS).batch(0);
+
+        Set<Integer> consentCounts = batch.stream()
+                .map(d -> ((List<?>) d.get(ConsentStorageLayout.CONSENTS)).size())
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(Set.of(1, 3), consentCounts);
+        batch.forEach(d -> {
+            Assertions.assertEquals(ConsentStorageLayout.V2, d.getInteger(ConsentStorageLayout.SCHEMA_VERSION));
+            Assertions.assertEquals(ConsentStorageLayout.countEnabled(d.get(ConsentStorageLayout.CONSENTS)),
+                    d.getInteger(ConsentStorageLayout.ENABLED_CONSENT_COUNT));
+        });
+        int enabled = batch.stream().mapToInt(d -> d.getInteger(ConsentStorageLayout.ENABLED_CONSENT_COUNT)).sum();
+        int total = batch.stream().mapToInt(d -> ((List<?>) d.get(ConsentStorageLayout.CONSENTS)).size()).sum();
+        Assertions.assertEquals(0.5, (double) enabled / total, 0.05);
+    }
+
+    @Test
+    void settingsRejectTppCountAbovePool() {
+        Map<Integer, Integer> weights = Map.of(11, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CitizenConsentDatasetGenerator.Settings(
+                1, weights, 10, 0.5, ConsentStorageLayout.V1, 1, 1, 1));
+    }
+
+    @Test
+    void parseWeights() {
+        Assertions.assertEquals(Map.of(1, 60, 2, 40), CitizenConsentDatasetGenerator.Settings.parseWeights("1:60, 2:40"));
+    }
+}
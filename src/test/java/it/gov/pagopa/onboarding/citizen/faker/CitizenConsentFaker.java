@@ -5,10 +5,17 @@ import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 public class CitizenConsentFaker {
 
+    private static final String MONTHS = "ABCDEHLMPRST";
+    /** Check character value of each odd-position character, indexed by digit or letter ordinal */
+    private static final int[] ODD_CHECK_VALUES =
+            {1, 0, 5, 7, 9, 13, 15, 17, 19, 21, 2, 4, 18, 20, 11, 3, 6, 8, 12, 14, 16, 10, 22, 25, 24, 23};
+
     private CitizenConsentFaker() {}
 
     public static CitizenConsent mockInstance(Boolean bias) {
@@ -26,4 +33,58 @@ public class CitizenConsentFaker {
                 .consents(consents)
                 .build();
     }
+
+    /**
+     * @param fiscalCode citizen fiscal code
+     * @param tppIds TPPs of the consents
+     * @param enabledRatio probability of each consent being enabled
+     * @param random source of the consent states and dates
+     */
+    public static CitizenConsent mockInstance(String fiscalCode, List<String> tppIds, double enabledRatio, Random random) {
+        Map<String, ConsentDetails> consents = HashMap.newHashMap(tppIds.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (String tppId : tppIds) {
+            consents.put(tppId, ConsentDetails.builder()
+                    .tppState(random.nextDouble() < enabledRatio)
+                    .tcDate(now.minusMinutes(random.nextInt(2 * 365 * 24 * 60)))
+                    .build());
+        }
+
+        return CitizenConsent.builder()
+                .fiscalCode(fiscalCode)
+                .consents(consents)
+                .build();
+    }
+
+    /**
+     * Fiscal code with a valid format and check character.<br />
+     * Surname and name letters are derived from {@code index}, so that distinct indexes (up to 26^6) give distinct
+     * fiscal codes; birth date, gender and municipality are random.
+     */
+    public static String fiscalCode(long index, Random random) {
+        char[] code = new char[16];
+        long n = index;
+        for (int i = 5; i >= 0; i--, n /= 26) {
+            code[i] = (char) ('A' + n % 26);
+        }
+        setDigits(code, 6, random.nextInt(100), 2);
+        code[8] = MONTHS.charAt(random.nextInt(MONTHS.length()));
+        setDigits(code, 9, 1 + random.nextInt(28) + (random.nextBoolean() ? 40 : 0), 2);
+        code[11] = (char) ('A' + random.nextInt(26));
+        setDigits(code, 12, random.nextInt(1000), 3);
+
+        int sum = 0;
+        for (int i = 0; i < 15; i++) {
+            int ordinal = Character.isDigit(code[i]) ? code[i] - '0' : code[i] - 'A';
+            sum += i % 2 == 0 ? ODD_CHECK_VALUES[ordinal] : ordinal;
+        }
+        code[15] = (char) ('A' + sum % 26);
+        return new String(code);
+    }
+
+    private static void setDigits(char[] code, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--, value /= 10) {
+            code[i] = (char) ('0' + value % 10);
+        }
+    }
 }
@@ -3,17 +3,22 @@ package it.gov.pagopa.onboarding.citizen.integration;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
 import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
 import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.TestPropertySource;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -236,4 +241,94 @@ public class CitizenRepositoryQueryVerificationIT extends BaseIT {
 
         log.info("=== TEST COMPLETED - CHECK LOGS ABOVE FOR QUERY DETAILS ===");
     }
+
+    @Test
+    void testQueriesOnV2Layout() {
+        log.info("=== EXECUTING queries on v2 (array) layout ===");
+
+        String v2FiscalCode = "TESTCF00A00B000F";
+        Document v2Document = new Document("fiscalCode", v2FiscalCode)
+            .append("schemaVersion", 2)
+            .append("consents", List.of(
+                new Document("tppId", TPP_TEST).append("tppState", true).append("tcDate", new Date()),
+                new Document("tppId", TPP_DISABLED).append("tppState", false).append("tcDate", new Date())));
+
+        StepVerifier.create(mongoTemplate.insert(v2Document, COLLECTION_NAME))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByFiscalCode(v2FiscalCode))
+            .assertNext(consent -> {
+                assert consent.getConsents().size() == 2;
+                assert consent.getConsents().get(TPP_TEST).getTppState();
+            })
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByFiscalCodeAndTppId(v2FiscalCode, TPP_DISABLED))
+            .assertNext(consent -> {
+                assert consent.getConsents().size() == 1;
+                assert !consent.getConsents().get(TPP_DISABLED).getTppState();
+            })
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByFiscalCodeWithAtLeastOneConsent(v2FiscalCode))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByFiscalCodeInAndTppId(List.of(TEST_CF, TEST_CF_2, v2FiscalCode), TPP_TEST)
+                .collectMap(CitizenConsent::getFiscalCode, consent -> consent.getConsents().get(TPP_TEST).getTppState()))
+            .expectNext(Map.of(TEST_CF, true, v2FiscalCode, true))
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByTppIdEnabled(TPP_TEST))
+            .expectNextCount(2)
+            .verifyComplete();
+
+        StepVerifier.create(repository.countByTppIdEnabled(TPP_TEST))
+            .expectNext(2L)
+            .verifyComplete();
+
+        log.info("=== TEST COMPLETED - CHECK LOGS ABOVE FOR QUERY DETAILS ===");
+    }
+
+    @Test
+    void testMigrationRoundTrip() {
+        log.info("=== EXECUTING schema migration v1 -> v2 -> v1 ===");
+
+        StepVerifier.create(repository.findNotInSchemaVersion(2).collectList()
+                .flatMap(documents -> repository.migrateToSchemaVersion(documents, 2)))
+            .expectNext(2L)
+            .verifyComplete();
+
+        StepVerifier.create(repository.findNotInSchemaVersion(2))
+            .verifyComplete();
+
+        StepVerifier.create(mongoTemplate.count(
+                Query.query(Criteria.where("enabledConsentCount").gt(0)), COLLECTION_NAME))
+            .expectNext(1L)
+            .verifyComplete();
+
+        StepVerifier.create(repository.findFiscalCodesWithEnabledConsents())
+            .expectNext(TEST_CF)
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByFiscalCodeAndTppId(TEST_CF, TPP_TEST))
+            .assertNext(consent -> {
+                assert consent.getConsents().get(TPP_TEST).getTppState();
+            })
+            .verifyComplete();
+
+        StepVerifier.create(repository.findNotInSchemaVersion(1).collectList()
+                .flatMap(documents -> repository.migrateToSchemaVersion(documents, 1)))
+            .expectNext(2L)
+            .verifyComplete();
+
+        StepVerifier.create(repository.findByFiscalCode(TEST_CF))
+            .assertNext(consent -> {
+                assert consent.getConsents().size() == 2;
+            })
+            .verifyComplete();
+
+        log.info("=== TEST COMPLETED ===");
+    }
 }
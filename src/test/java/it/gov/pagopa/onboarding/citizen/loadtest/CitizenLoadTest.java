@@ -0,0 +1,307 @@
+package it.gov.pagopa.onboarding.citizen.loadtest;
+
+import it.gov.pagopa.common.loadtest.LatencyRecorder;
+import it.gov.pagopa.common.loadtest.OpenModelLoadGenerator;
+import it.gov.pagopa.common.loadtest.OpenModelLoadGenerator.Operation;
+import it.gov.pagopa.common.loadtest.OpenModelLoadGenerator.Report;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Load test of the {@code /emd/citizen} endpoints, run only by the {@code loadtest} Maven profile.
+ *
+ * <p>The application runs against a Mongo container, a Redis container and a {@link MockWebServer} standing in for
+ * {@code emd-tpp} ({@code /emd/tpp/{tppId}} and {@code /emd/tpp/list}), answering after {@code loadtest.tppLatencyMs}.
+ * After seeding {@code loadtest.citizens} citizens, the request mix is issued by an {@link OpenModelLoadGenerator}
+ * at each of the {@code loadtest.rates} arrival rates, for {@code loadtest.durationSeconds} each, stopping at the
+ * first rate missing the {@code loadtest.p99SloMs} p99 latency, the 1% error ratio or 95% of the target rate.</p>
+ *
+ * <p>With {@code loadtest.tppTransport=h2c} the stand-in only accepts cleartext HTTP/2 and the application connects
+ * to it through the {@code rest-client.http2} pool; with {@code http1} (default) through the HTTP/1.1 one. The
+ * {@code loadtest} profile runs both, for comparison.</p>
+ *
+ * <p>p50/p99/p999/max latencies of each rate, the peaks of the emd-tpp pool gauges (connections and, with HTTP/2,
+ * streams) and the maximum sustained throughput are logged and written in
+ * {@code loadtest.resultDir}, one file per transport.</p>
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class CitizenLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CitizenLoadTest.class);
+    private static final String REDIS_PASSWORD = "mypass";
+
+    private static final int CITIZENS = Integer.getInteger("loadtest.citizens", 1_000);
+    private static final List<Integer> RATES = Arrays.stream(System.getProperty("loadtest.rates", "50,100,200,400,800").split(","))
+            .map(String::trim).map(Integer::valueOf).toList();
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("loadtest.durationSeconds", 30));
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("loadtest.warmupSeconds", 10));
+    private static final long TPP_LATENCY_MS = Long.getLong("loadtest.tppLatencyMs", 20);
+    private static final double P99_SLO_MS = Double.parseDouble(System.getProperty("loadtest.p99SloMs", "200"));
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("loadtest.maxInFlight", 1_000);
+    private static final long SEED = Long.getLong("loadtest.seed", 42);
+    private static final String TPP_TRANSPORT = System.getProperty("loadtest.tppTransport", "http1");
+    private static final Path RESULT_DIR = Path.of(System.getProperty("loadtest.resultDir", "target/loadtest-results"));
+
+    private static final String TPP_POOL_NAME = "emd-citizen-http-pool";
+    private static final String POOL_METRICS_PREFIX = "reactor.netty.connection.provider.";
+    private static final Duration POOL_SAMPLING_INTERVAL = Duration.ofMillis(500);
+
+    private static final double MAX_ERROR_RATIO = 0.01;
+    private static final double MIN_ACHIEVED_RATIO = 0.95;
+
+    private static final List<String> TPP_IDS = IntStream.range(0, 5).mapToObj(i -> "LOADTEST_TPP_" + i).toList();
+
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer("mongo:8.0.15-noble");
+
+    @Container
+    private static final GenericContainer<?> redis =
+            new GenericContainer<>(DockerImageName.parse("redis:8.2.2-alpine"))
+                    .withExposedPorts(6379)
+                    .withCommand("redis-server --requirepass " + REDIS_PASSWORD);
+
+    private static final MockWebServer tpp = startTppStandIn();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379).toString());
+        registry.add("spring.data.redis.ssl.enabled", () -> "false");
+        registry.add("spring.data.redis.password", () -> REDIS_PASSWORD);
+
+        registry.add("spring.mongodb.uri", mongo::getReplicaSetUrl);
+
+        registry.add("rest-client.tpp.baseUrl", () -> tpp.url("/").toString());
+        registry.add("rest-client.http2.enabled", () -> String.valueOf(isHttp2()));
+        registry.add("rest-client.http2.mode", () -> "h2c");
+    }
+
+    @AfterAll
+    static void stopTppStandIn() throws IOException {
+        tpp.shutdown();
+    }
+
+    @Test
+    void maxThroughput() {
+        WebClient webClient = WebClient.builder().baseUrl("http://localhost:" + port).build();
+        seed(webClient);
+
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(operations(webClient), MAX_IN_FLIGHT, SEED);
+        log.info("[LOAD_TEST] Warming up at {} req/s for {}", RATES.getFirst(), WARMUP);
+        generator.run(RATES.getFirst(), WARMUP);
+
+        List<Report> reports = new ArrayList<>();
+        List<Map<String, Double>> poolMetrics = new ArrayList<>();
+        Report sustained = null;
+        for (int rate : RATES) {
+            Map<String, Double> pool = new ConcurrentHashMap<>();
+            Disposable poolSampler = Flux.interval(POOL_SAMPLING_INTERVAL).subscribe(t -> samplePool(pool));
+            Report report = generator.run(rate, DURATION);
+            poolSampler.dispose();
+            reports.add(report);
+            poolMetrics.add(new TreeMap<>(pool));
+            logReport(report, pool);
+            if (!isSustained(report)) {
+                break;
+            }
+            sustained = report;
+        }
+
+        log.info("[LOAD_TEST] Max sustained throughput with {} emd-tpp transport: {}", TPP_TRANSPORT,
+                sustained == null ? "none" : "%.1f req/s (target %d req/s)".formatted(sustained.achievedRate(), sustained.targetRate()));
+        writeResults(reports, poolMetrics, sustained);
+
+        Assertions.assertTrue(reports.getFirst().overall().errorRatio() <= MAX_ERROR_RATIO,
+                "Requests failing at the lowest rate: the environment is not healthy");
+    }
+
+    /** Creates the consents of {@link #CITIZENS} citizens, each towards one or two TPPs, populating the Bloom filter too */
+    private static void seed(WebClient webClient) {
+        log.info("[LOAD_TEST] Seeding {} citizens", CITIZENS);
+        Flux.range(0, CITIZENS)
+                .flatMap(i -> Flux.range(0, 1 + i % 2)
+                        .concatMap(j -> webClient.post()
+                                .uri("/emd/citizen/{fiscalCode}/{tppId}", fiscalCode(i), TPP_IDS.get((i + j) % TPP_IDS.size()))
+                                .retrieve()
+                                .toBodilessEntity()), 32)
+                .blockLast(Duration.ofMinutes(5));
+    }
+
+    /** Mostly Bloom filter lookups, some of them on unknown citizens, then enabled lists and some state switches */
+    private static List<Operation> operations(WebClient webClient) {
+        AtomicInteger cursor = new AtomicInteger();
+        return List.of(
+                new Operation("filter", 50, () -> get(webClient, "/emd/citizen/filter/{fiscalCode}", nextCitizen(cursor))),
+                new Operation("filter_unknown", 20, () -> get(webClient, "/emd/citizen/filter/{fiscalCode}", fiscalCode(CITIZENS + cursor.getAndIncrement()))),
+                new Operation("enabled_tpp_list", 15, () -> get(webClient, "/emd/citizen/list/{fiscalCode}/enabled/tpp", nextCitizen(cursor))),
+                new Operation("enabled_list", 5, () -> get(webClient, "/emd/citizen/list/{fiscalCode}/enabled", nextCitizen(cursor))),
+                new Operation("state_switch", 10, () -> {
+                    int citizen = Math.floorMod(cursor.getAndIncrement(), CITIZENS);
+                    return webClient.put()
+                            .uri("/emd/citizen/{fiscalCode}/{tppId}", fiscalCode(citizen), TPP_IDS.get(citizen % TPP_IDS.size()))
+                            .retrieve()
+                            .toBodilessEntity();
+                }));
+    }
+
+    private static Mono<?> get(WebClient webClient, String uri, String fiscalCode) {
+        return webClient.get().uri(uri, fiscalCode).retrieve().toBodilessEntity();
+    }
+
+    private static String nextCitizen(AtomicInteger cursor) {
+        return fiscalCode(Math.floorMod(cursor.getAndIncrement(), CITIZENS));
+    }
+
+    /** Syntactically valid fiscal code, distinct for each index */
+    static String fiscalCode(int index) {
+        char[] surnameAndName = new char[6];
+        for (int i = surnameAndName.length - 1, n = index; i >= 0; i--, n /= 26) {
+            surnameAndName[i] = (char) ('A' + n % 26);
+        }
+        return new String(surnameAndName) + "85T10A562S";
+    }
+
+    private static boolean isSustained(Report report) {
+        LatencyRecorder.Summary overall = report.overall();
+        return overall.p99Ms() <= P99_SLO_MS
+                && overall.errorRatio() <= MAX_ERROR_RATIO
+                && report.achievedRate() >= report.targetRate() * MIN_ACHIEVED_RATIO;
+    }
+
+    /** Keeps the maximum of each gauge of the emd-tpp connection pool, e.g. active connections and streams */
+    private static void samplePool(Map<String, Double> pool) {
+        Metrics.globalRegistry.getMeters().stream()
+                .filter(meter -> meter instanceof Gauge
+                        && meter.getId().getName().startsWith(POOL_METRICS_PREFIX)
+                        && TPP_POOL_NAME.equals(meter.getId().getTag("name")))
+                .forEach(meter -> pool.merge(meter.getId().getName().substring(POOL_METRICS_PREFIX.length()) + ".max",
+                        ((Gauge) meter).value(), Math::max));
+    }
+
+    private static void logReport(Report report, Map<String, Double> pool) {
+        log.info("[LOAD_TEST] Target {} req/s, achieved {} req/s, emd-tpp pool {}",
+                report.targetRate(), "%.1f".formatted(report.achievedRate()), new TreeMap<>(pool));
+        report.operations().forEach((name, s) -> log.info(
+                "[LOAD_TEST]   {}: count={} errors={} p50={}ms p99={}ms p999={}ms max={}ms",
+                name, s.count(), s.errors(), "%.2f".formatted(s.p50Ms()), "%.2f".formatted(s.p99Ms()),
+                "%.2f".formatted(s.p999Ms()), "%.2f".formatted(s.maxMs())));
+    }
+
+    private static void writeResults(List<Report> reports, List<Map<String, Double>> poolMetrics, Report sustained) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("settings", Map.of(
+                "tppTransport", TPP_TRANSPORT,
+                "citizens", CITIZENS,
+                "durationSeconds", DURATION.toSeconds(),
+                "tppLatencyMs", TPP_LATENCY_MS,
+                "p99SloMs", P99_SLO_MS,
+                "maxInFlight", MAX_IN_FLIGHT,
+                "seed", SEED));
+        json.put("maxThroughput", sustained == null ? null : sustained.achievedRate());
+        json.put("runs", IntStream.range(0, reports.size())
+                .mapToObj(i -> Map.of("report", reports.get(i), "tppPool", poolMetrics.get(i)))
+                .toList());
+        try {
+            Files.createDirectories(RESULT_DIR);
+            Path file = RESULT_DIR.resolve("citizen-load-test-" + TPP_TRANSPORT + ".json");
+            JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), json);
+            log.info("[LOAD_TEST] Results written in {}", file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** {@code emd-tpp} stand-in, answering every TPP as active after {@link #TPP_LATENCY_MS} */
+    private static MockWebServer startTppStandIn() {
+        MockWebServer server = new MockWebServer();
+        if (isHttp2()) {
+            server.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath() == null ? "" : request.getPath();
+                if (path.equals("/emd/tpp/list")) {
+                    return delayed(TPP_IDS.stream().map(CitizenLoadTest::tppJson).collect(Collectors.joining(",", "[", "]")));
+                } else if (path.startsWith("/emd/tpp/")) {
+                    return delayed(tppJson(path.substring("/emd/tpp/".length())));
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return server;
+    }
+
+    private static boolean isHttp2() {
+        return "h2c".equals(TPP_TRANSPORT);
+    }
+
+    private static MockResponse delayed(String body) {
+        return new MockResponse()
+                .setResponseCode(200)
+                .setBody(body)
+                .addHeader("Content-Type", "application/json")
+                .setHeadersDelay(TPP_LATENCY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static String tppJson(String tppId) {
+        return "{\"tppId\":\"" + tppId + "\",\"entityId\":\"ENTITY_" + tppId + "\",\"businessName\":\"Load test\"," +
+                "\"messageUrl\":\"https://example.com/message\",\"authenticationUrl\":\"https://example.com/auth\"," +
+                "\"authenticationType\":\"OAUTH2\",\"contact\":{\"name\":\"John Doe\",\"number\":\"+1234567890\"," +
+                "\"email\":\"contact@example.com\"},\"state\":true}";
+    }
+}
@@ -0,0 +1,103 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import com.mongodb.MongoClientSettings;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+class CitizenConsentCodecTest {
+
+    @Test
+    void decode_V1Document() {
+        Document source = new Document("_id", new ObjectId())
+                .append("fiscalCode", "fiscalCode")
+                .append("schemaVersion", 1)
+                .append("enabledConsentCount", 1)
+                .append("consents", new Document("tpp1", new Document("tppState", true).append("tcDate", new Date()))
+                        .append("tpp2", new Document("tppState", false).append("tcDate", new Date())));
+
+        Assertions.assertEquals(new CitizenConsentReadConverter().convert(source), decode(CitizenConsentCodec.FULL, source));
+    }
+
+    @Test
+    void decode_V2Document() {
+        Document source = new Document("_id", "customId")
+                .append("fiscalCode", "fiscalCode")
+                .append("schemaVersion", 2)
+                .append("consents", List.of(
+                        new Document("tppId", "tpp1").append("tppState", true).append("tcDate", new Date()),
+                        new Document("tppState", false).append("tcDate", new Date()).append("tppId", "tpp2")));
+
+        Assertions.assertEquals(new CitizenConsentReadConverter().convert(source), decode(CitizenConsentCodec.FULL, source));
+    }
+
+    @Test
+    void decode_WithoutTcDate() {
+        Document source = new Document("fiscalCode", "fiscalCode")
+                .append("consents", List.of(new Document("tppId", "tpp1").append("tppState", true).append("tcDate", new Date())));
+
+        CitizenConsent result = decode(CitizenConsentCodec.WITHOUT_TC_DATE, source);
+
+        Assertions.assertTrue(result.getConsents().get("tpp1").getTppState());
+        Assertions.assertNull(result.getConsents().get("tpp1").getTcDate());
+    }
+
+    @Test
+    void decode_ProjectionWithoutConsents() {
+        CitizenConsent result = decode(CitizenConsentCodec.FULL, new Document("fiscalCode", "fiscalCode").append("consents", null));
+
+        Assertions.assertNull(result.getId());
+        Assertions.assertEquals("fiscalCode", result.getFiscalCode());
+        Assertions.assertNull(result.getConsents());
+    }
+
+    @Test
+    void decode_ConsentsAreMutable() {
+        CitizenConsent result = decode(CitizenConsentCodec.FULL, new Document("fiscalCode", "fiscalCode").append("consents", List.of()));
+
+        Assertions.assertDoesNotThrow(() -> result.getConsents().put("tppId", null));
+    }
+
+    @Test
+    void decode_V2ConsentWithoutTppIdIsSkipped() {
+        Document source = new Document("fiscalCode", "fiscalCode")
+                .append("consents", List.of(
+                        new Document("tppId", "tpp1").append("tppState", true),
+                        new Document("tppState", true)));
+
+        CitizenConsent result = decode(CitizenConsentCodec.FULL, source);
+
+        Assertions.assertEquals(Set.of("tpp1"), result.getConsents().keySet());
+        Assertions.assertEquals(result.getConsents(), new CitizenConsentReadConverter().convert(source).getConsents());
+    }
+
+    @Test
+    void encode_NotSupported() {
+        BsonDocumentWriter writer = new BsonDocumentWriter(new BsonDocument());
+        CitizenConsent citizenConsent = new CitizenConsent();
+        EncoderContext encoderContext = EncoderContext.builder().build();
+
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> CitizenConsentCodec.FULL.encode(writer, citizenConsent, encoderContext));
+        Assertions.assertEquals(CitizenConsent.class, CitizenConsentCodec.FULL.getEncoderClass());
+    }
+
+    private static BsonDocument toBson(Document source) {
+        return source.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private static CitizenConsent decode(CitizenConsentCodec codec, Document source) {
+        return codec.decode(new BsonDocumentReader(toBson(source)), DecoderContext.builder().build());
+    }
+}
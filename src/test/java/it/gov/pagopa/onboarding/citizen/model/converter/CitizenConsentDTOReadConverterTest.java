@@ -0,0 +1,60 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.dto.mapper.CitizenConsentObjectToDTOMapper;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+class CitizenConsentDTOReadConverterTest {
+
+    private final CitizenConsentDTOReadConverter converter = new CitizenConsentDTOReadConverter();
+
+    @Test
+    void convert_V1Document() {
+        Document source = new Document("_id", new ObjectId())
+                .append("fiscalCode", "fiscalCode")
+                .append("consents", new Document("tppId", new Document("tppState", true).append("tcDate", new Date())));
+
+        CitizenConsentDTO result = converter.convert(source);
+
+        Assertions.assertEquals("fiscalCode", result.getFiscalCode());
+        Assertions.assertTrue(result.getConsents().get("tppId").getTppState());
+        Assertions.assertNotNull(result.getConsents().get("tppId").getTcDate());
+    }
+
+    @Test
+    void convert_V2Document() {
+        Document source = new Document("fiscalCode", "fiscalCode")
+                .append("schemaVersion", 2)
+                .append("consents", List.of(new Document("tppId", "tppId").append("tppState", false).append("tcDate", new Date())));
+
+        CitizenConsentDTO result = converter.convert(source);
+
+        Assertions.assertFalse(result.getConsents().get("tppId").getTppState());
+    }
+
+    @Test
+    void convert_SameResultOfDomainConverterAndMapper() {
+        Document source = new Document("fiscalCode", "fiscalCode")
+                .append("consents", new Document("tpp1", new Document("tppState", true).append("tcDate", new Date()))
+                        .append("tpp2", new Document("tppState", false).append("tcDate", new Date())));
+
+        CitizenConsentDTO expected = new CitizenConsentObjectToDTOMapper().map(new CitizenConsentReadConverter().convert(source));
+
+        Assertions.assertEquals(expected, converter.convert(source));
+    }
+
+    @Test
+    void convert_ConsentsAreMutable() {
+        Document source = new Document("fiscalCode", "fiscalCode").append("consents", List.of());
+
+        CitizenConsentDTO result = converter.convert(source);
+
+        Assertions.assertDoesNotThrow(() -> result.getConsents().put("tppId", null));
+    }
+}
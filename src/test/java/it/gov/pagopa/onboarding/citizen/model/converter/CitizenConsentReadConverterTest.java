@@ -0,0 +1,60 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+class CitizenConsentReadConverterTest {
+
+    private final CitizenConsentReadConverter converter = new CitizenConsentReadConverter();
+
+    @Test
+    void convert_V1Document() {
+        ObjectId id = new ObjectId();
+        Document source = new Document("_id", id)
+                .append("fiscalCode", "fiscalCode")
+                .append("consents", new Document("tppId", new Document("tppState", true).append("tcDate", new Date())));
+
+        CitizenConsent result = converter.convert(source);
+
+        Assertions.assertEquals(id.toHexString(), result.getId());
+        Assertions.assertEquals("fiscalCode", result.getFiscalCode());
+        Assertions.assertTrue(result.getConsents().get("tppId").getTppState());
+        Assertions.assertNotNull(result.getConsents().get("tppId").getTcDate());
+    }
+
+    @Test
+    void convert_V2Document() {
+        Document source = new Document("_id", "customId")
+                .append("fiscalCode", "fiscalCode")
+                .append("schemaVersion", 2)
+                .append("consents", List.of(new Document("tppId", "tppId").append("tppState", false).append("tcDate", new Date())));
+
+        CitizenConsent result = converter.convert(source);
+
+        Assertions.assertEquals("customId", result.getId());
+        Assertions.assertFalse(result.getConsents().get("tppId").getTppState());
+    }
+
+    @Test
+    void convert_ProjectionWithoutConsents() {
+        CitizenConsent result = converter.convert(new Document("fiscalCode", "fiscalCode"));
+
+        Assertions.assertNull(result.getId());
+        Assertions.assertNull(result.getConsents());
+    }
+
+    @Test
+    void convert_ConsentsAreMutable() {
+        Document source = new Document("fiscalCode", "fiscalCode").append("consents", List.of());
+
+        CitizenConsent result = converter.convert(source);
+
+        Assertions.assertDoesNotThrow(() -> result.getConsents().put("tppId", null));
+    }
+}
@@ -0,0 +1,53 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.faker.CitizenConsentFaker;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+import java.util.List;
+
+class CitizenConsentSchemaCallbackTest {
+
+    private static Document mappedDocument() {
+        return new Document("fiscalCode", "fiscalCode")
+                .append("consents", new Document("tppId", new Document("tppState", true).append("tcDate", new Date())));
+    }
+
+    @Test
+    void onBeforeSave_WritesV2() {
+        CitizenConsent entity = CitizenConsentFaker.mockInstance(true);
+        Document document = mappedDocument();
+
+        StepVerifier.create(Mono.from(new CitizenConsentSchemaCallback(2).onBeforeSave(entity, document, "citizen_consents")))
+                .expectNext(entity)
+                .verifyComplete();
+
+        Assertions.assertEquals(2, document.get("schemaVersion"));
+        Assertions.assertEquals(1, document.get("enabledConsentCount"));
+        List<?> consents = (List<?>) document.get("consents");
+        Assertions.assertEquals("tppId", ((Document) consents.get(0)).get("tppId"));
+    }
+
+    @Test
+    void onBeforeSave_WritesV1() {
+        Document document = mappedDocument();
+
+        StepVerifier.create(Mono.from(new CitizenConsentSchemaCallback(1).onBeforeSave(CitizenConsentFaker.mockInstance(true), document, "citizen_consents")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, document.get("schemaVersion"));
+        Assertions.assertEquals(1, document.get("enabledConsentCount"));
+        Assertions.assertInstanceOf(Document.class, document.get("consents"));
+    }
+
+    @Test
+    void constructor_UnsupportedVersion() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CitizenConsentSchemaCallback(3));
+    }
+}
@@ -0,0 +1,73 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.common.benchmark.AllocationBenchmark;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
+import it.gov.pagopa.onboarding.citizen.dto.mapper.CitizenConsentObjectToDTOMapper;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the heap allocated to build the response of a read endpoint from the stored document, between the
+ * previous path (domain converter, then {@link CitizenConsentObjectToDTOMapper}) and the direct DTO projection.
+ */
+@Slf4j
+class ConsentReadPathAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+    private static final int TPPS = 10;
+
+    private final CitizenConsentReadConverter domainConverter = new CitizenConsentReadConverter();
+    private final CitizenConsentObjectToDTOMapper mapper = new CitizenConsentObjectToDTOMapper();
+    private final CitizenConsentDTOReadConverter dtoConverter = new CitizenConsentDTOReadConverter();
+
+    @Test
+    void directProjectionAllocatesLessThanDomainCopy() {
+        Document source = citizenDocument();
+
+        double previous = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> consume(mapper.map(domainConverter.convert(source))));
+        double current = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> consume(dtoConverter.convert(source)));
+
+        log.info("Allocated bytes per consents read ({} TPPs): previous {}, current {}", TPPS, previous, current);
+        assertTrue(current < previous, "direct projection allocated %s bytes, domain copy %s".formatted(current, previous));
+    }
+
+    @Test
+    void singleConsentMappingAllocatesLessThanNarrowingTheAggregate() {
+        CitizenConsent citizenConsent = domainConverter.convert(citizenDocument());
+
+        double previous = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS, () -> {
+            Map<String, ConsentDetails> consents = new HashMap<>();
+            consents.put("tpp0", citizenConsent.getConsents().get("tpp0"));
+            consume(mapper.map(CitizenConsent.builder().fiscalCode(citizenConsent.getFiscalCode()).consents(consents).build()));
+        });
+        double current = AllocationBenchmark.bytesPerOperation(WARMUP, ITERATIONS,
+                () -> consume(mapper.map(citizenConsent.getFiscalCode(), "tpp0", citizenConsent.getConsents().get("tpp0"))));
+
+        log.info("Allocated bytes per single consent response: previous {}, current {}", previous, current);
+        assertTrue(current < previous, "single consent mapping allocated %s bytes, narrowing %s".formatted(current, previous));
+    }
+
+    private static Document citizenDocument() {
+        Document consents = new Document();
+        for (int i = 0; i < TPPS; i++) {
+            consents.append("tpp" + i, new Document("tppState", i % 2 == 0).append("tcDate", new Date()));
+        }
+        return new Document("fiscalCode", "RSSMRA98B18L049O").append("consents", consents);
+    }
+
+    private static void consume(CitizenConsentDTO dto) {
+        if (dto.getConsents().isEmpty()) {
+            throw new IllegalStateException("Unexpected empty consents");
+        }
+    }
+}
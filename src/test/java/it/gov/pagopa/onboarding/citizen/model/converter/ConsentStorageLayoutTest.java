@@ -0,0 +1,107 @@
+package it.gov.pagopa.onboarding.citizen.model.converter;
+
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+class ConsentStorageLayoutTest {
+
+    private static final LocalDateTime TC_DATE = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Date TC_DATE_BSON = Date.from(TC_DATE.atZone(ZoneId.systemDefault()).toInstant());
+
+    private static Document mapLayout() {
+        return new Document("tpp1", new Document("tppState", true).append("tcDate", TC_DATE_BSON))
+                .append("tpp2", new Document("tppState", false).append("tcDate", TC_DATE_BSON));
+    }
+
+    private static List<Document> arrayLayout() {
+        return List.of(
+                new Document("tppId", "tpp1").append("tppState", true).append("tcDate", TC_DATE_BSON),
+                new Document("tppId", "tpp2").append("tppState", false).append("tcDate", TC_DATE_BSON));
+    }
+
+    @Test
+    void readConsents_MapLayout() {
+        assertConsents(ConsentStorageLayout.readConsents(mapLayout()));
+    }
+
+    @Test
+    void readConsents_ArrayLayout() {
+        assertConsents(ConsentStorageLayout.readConsents(arrayLayout()));
+    }
+
+    @Test
+    void readConsents_Null() {
+        Assertions.assertNull(ConsentStorageLayout.readConsents(null));
+    }
+
+    @Test
+    void toLayout_MapToArray() {
+        Assertions.assertEquals(arrayLayout(), ConsentStorageLayout.toLayout(mapLayout(), ConsentStorageLayout.V2));
+    }
+
+    @Test
+    void toLayout_ArrayToMap() {
+        Assertions.assertEquals(mapLayout(), ConsentStorageLayout.toLayout(arrayLayout(), ConsentStorageLayout.V1));
+    }
+
+    @Test
+    void toLayout_SameLayoutIsStable() {
+        Assertions.assertEquals(arrayLayout(), ConsentStorageLayout.toLayout(arrayLayout(), ConsentStorageLayout.V2));
+        Assertions.assertEquals(mapLayout(), ConsentStorageLayout.toLayout(mapLayout(), ConsentStorageLayout.V1));
+        Assertions.assertNull(ConsentStorageLayout.toLayout(null, ConsentStorageLayout.V2));
+    }
+
+    @Test
+    void countEnabled_BothLayouts() {
+        Assertions.assertEquals(1, ConsentStorageLayout.countEnabled(mapLayout()));
+        Assertions.assertEquals(1, ConsentStorageLayout.countEnabled(arrayLayout()));
+        Assertions.assertEquals(0, ConsentStorageLayout.countEnabled(null));
+        Assertions.assertEquals(0, ConsentStorageLayout.countEnabled(new Document("tpp1", new Document("tppState", null))));
+    }
+
+    @Test
+    void containsConsent_BothLayouts() {
+        Assertions.assertTrue(ConsentStorageLayout.containsConsent(mapLayout(), "tpp2"));
+        Assertions.assertTrue(ConsentStorageLayout.containsConsent(arrayLayout(), "tpp2"));
+        Assertions.assertFalse(ConsentStorageLayout.containsConsent(mapLayout(), "tpp3"));
+        Assertions.assertFalse(ConsentStorageLayout.containsConsent(arrayLayout(), "tpp3"));
+        Assertions.assertFalse(ConsentStorageLayout.containsConsent(null, "tpp1"));
+    }
+
+    @Test
+    void withConsent_KeepsExistingConsents() {
+        ConsentDetails details = ConsentDetails.builder().tppState(true).tcDate(TC_DATE).build();
+        Document original = mapLayout();
+
+        Object array = ConsentStorageLayout.withConsent(original, "tpp3", details, ConsentStorageLayout.V2);
+
+        Assertions.assertEquals(mapLayout(), original);
+        Assertions.assertEquals(3, ((List<?>) array).size());
+        Assertions.assertEquals(new Document("tppId", "tpp3").append("tppState", true).append("tcDate", TC_DATE_BSON),
+                ((List<?>) array).get(2));
+        Assertions.assertEquals(new Document("tpp3", new Document("tppState", true).append("tcDate", TC_DATE_BSON)),
+                ConsentStorageLayout.withConsent(null, "tpp3", details, ConsentStorageLayout.V1));
+    }
+
+    @Test
+    void toLayout_UnsupportedVersion() {
+        Document consents = mapLayout();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ConsentStorageLayout.toLayout(consents, 3));
+    }
+
+    private static void assertConsents(Map<String, ConsentDetails> consents) {
+        Assertions.assertEquals(2, consents.size());
+        Assertions.assertTrue(consents.get("tpp1").getTppState());
+        Assertions.assertFalse(consents.get("tpp2").getTppState());
+        Assertions.assertEquals(TC_DATE, consents.get("tpp1").getTcDate());
+    }
+}
@@ -1,20 +1,45 @@
 package it.gov.pagopa.onboarding.citizen.repository;
 
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
 import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscriber;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Mockito.when;
@@ -95,6 +120,92 @@ class CitizenSpecificRepositoryImplTest {
         );
     }
 
+    @Test
+    void testFindByFiscalCodeWithAtLeastOneConsent_EnabledCount() {
+        String fiscalCode = "hashedCode";
+        ReflectionTestUtils.setField(repository, "enabledCountReadEnabled", true);
+
+        when(mongoTemplate.findOne(Mockito.any(Query.class), Mockito.eq(CitizenConsent.class)))
+                .thenReturn(Mono.just(CitizenConsent.builder().fiscalCode(fiscalCode).build()));
+
+        StepVerifier.create(repository.findByFiscalCodeWithAtLeastOneConsent(fiscalCode))
+                .expectNextMatches(result -> result.getFiscalCode().equals(fiscalCode))
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        Mockito.verify(mongoTemplate).findOne(query.capture(), Mockito.eq(CitizenConsent.class));
+        Assertions.assertEquals(new Document("$gt", 0), query.getValue().getQueryObject().get("enabledConsentCount"));
+        Mockito.verify(mongoTemplate, Mockito.never()).aggregate(
+                Mockito.any(Aggregation.class), Mockito.anyString(), Mockito.eq(CitizenConsent.class));
+    }
+
+    @Test
+    void testFindFiscalCodesWithEnabledConsents() {
+        FindPublisher<CitizenConsent> publisher = mockCitizenConsentsFind(
+                createMockCitizenConsent("enabled", "tpp1"),
+                CitizenConsent.builder().fiscalCode("disabled")
+                        .consents(Map.of("tpp1", ConsentDetails.builder().tppState(false).build())).build(),
+                CitizenConsent.builder().fiscalCode("noConsents").build());
+
+        StepVerifier.create(repository.findFiscalCodesWithEnabledConsents())
+                .expectNext("enabled")
+                .verifyComplete();
+
+        ArgumentCaptor<Bson> projection = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(publisher).projection(projection.capture());
+        Assertions.assertEquals(new BsonDocument("fiscalCode", new BsonInt32(1)).append("consents", new BsonInt32(1)),
+                projection.getValue().toBsonDocument());
+    }
+
+    @Test
+    void testFindByFiscalCode() {
+        CitizenConsent citizenConsent = createMockCitizenConsent("fc1", "tpp1");
+        FindPublisher<CitizenConsent> publisher = mockCitizenConsentsFind(citizenConsent);
+
+        StepVerifier.create(repository.findByFiscalCode("fc1"))
+                .expectNext(citizenConsent)
+                .verifyComplete();
+
+        Mockito.verify(publisher).first();
+    }
+
+    /** Mocks the codec-decoded {@code citizen_consents} collection, whose finds emit the given citizens */
+    @SuppressWarnings("unchecked")
+    private FindPublisher<CitizenConsent> mockCitizenConsentsFind(CitizenConsent... citizens) {
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        MongoCollection<CitizenConsent> citizenConsents = Mockito.mock(MongoCollection.class);
+        FindPublisher<CitizenConsent> publisher = Mockito.mock(FindPublisher.class);
+        when(mongoTemplate.getCollection("citizen_consents")).thenReturn(Mono.just(collection));
+        when(collection.getCodecRegistry()).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        when(collection.withCodecRegistry(Mockito.any())).thenReturn(collection);
+        when(collection.withDocumentClass(CitizenConsent.class)).thenReturn(citizenConsents);
+        Mockito.lenient().when(citizenConsents.find()).thenReturn(publisher);
+        Mockito.lenient().when(citizenConsents.find(Mockito.any(Bson.class))).thenReturn(publisher);
+        Mockito.lenient().when(publisher.projection(Mockito.any())).thenReturn(publisher);
+        Mockito.lenient().when(publisher.first()).thenReturn(Mono.justOrEmpty(citizens.length > 0 ? citizens[0] : null));
+        Mockito.lenient().doAnswer(invocation -> {
+            Flux.just(citizens).subscribe(invocation.<Subscriber<CitizenConsent>>getArgument(0));
+            return null;
+        }).when(publisher).subscribe(Mockito.any());
+        return publisher;
+    }
+
+    @Test
+    void testFindFiscalCodesWithEnabledConsents_EnabledCount() {
+        ReflectionTestUtils.setField(repository, "enabledCountReadEnabled", true);
+        when(mongoTemplate.find(Mockito.any(Query.class), Mockito.eq(Document.class), Mockito.eq("citizen_consents")))
+                .thenReturn(Flux.just(new Document("fiscalCode", "enabled")));
+
+        StepVerifier.create(repository.findFiscalCodesWithEnabledConsents())
+                .expectNext("enabled")
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        Mockito.verify(mongoTemplate).find(query.capture(), Mockito.eq(Document.class), Mockito.eq("citizen_consents"));
+        Assertions.assertEquals(new Document("enabledConsentCount", new Document("$gt", 0)), query.getValue().getQueryObject());
+        Assertions.assertEquals(new Document("fiscalCode", 1).append("_id", 0), query.getValue().getFieldsObject());
+    }
+
     @Test
     void testFindByFiscalCodeAndTppId_TppIdNull() {
         String hashedFiscalCode = "hashedCode";
@@ -203,4 +314,180 @@ class CitizenSpecificRepositoryImplTest {
                 .verifyComplete();
 
     }
+
+    @Test
+    void testFindDTOByTppIdEnabled() {
+        CitizenConsentDTO citizenConsentDTO = CitizenConsentDTO.builder().fiscalCode("hashedCode").build();
+        when(mongoTemplate.aggregate(
+                Mockito.any(Aggregation.class),
+                Mockito.eq("citizen_consents"),
+                Mockito.eq(CitizenConsentDTO.class)
+        )).thenReturn(Flux.just(citizenConsentDTO));
+
+        StepVerifier.create(repository.findDTOByTppIdEnabled("tpp1"))
+                .expectNext(citizenConsentDTO)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindDTOByFiscalCodeAndTppId() {
+        CitizenConsentDTO citizenConsentDTO = CitizenConsentDTO.builder().fiscalCode("hashedCode").build();
+        when(mongoTemplate.aggregate(
+                Mockito.any(Aggregation.class),
+                Mockito.eq("citizen_consents"),
+                Mockito.eq(CitizenConsentDTO.class)
+        )).thenReturn(Flux.just(citizenConsentDTO));
+
+        StepVerifier.create(repository.findDTOByFiscalCodeAndTppId("hashedCode", "tpp1"))
+                .expectNext(citizenConsentDTO)
+                .verifyComplete();
+        StepVerifier.create(repository.findDTOByFiscalCodeAndTppId("hashedCode", null))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindDTOByFiscalCode() {
+        CitizenConsentDTO citizenConsentDTO = CitizenConsentDTO.builder().fiscalCode("hashedCode").build();
+        when(mongoTemplate.findOne(Mockito.any(Query.class), Mockito.eq(CitizenConsentDTO.class), Mockito.eq("citizen_consents")))
+                .thenReturn(Mono.just(citizenConsentDTO));
+
+        StepVerifier.create(repository.findDTOByFiscalCode("hashedCode"))
+                .expectNext(citizenConsentDTO)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        Mockito.verify(mongoTemplate).findOne(query.capture(), Mockito.eq(CitizenConsentDTO.class), Mockito.eq("citizen_consents"));
+        Assertions.assertEquals(new Document("fiscalCode", 1).append("consents", 1), query.getValue().getFieldsObject());
+    }
+
+    @Test
+    void testCountByTppIdEnabled() {
+        when(mongoTemplate.count(Mockito.any(Query.class), Mockito.eq("citizen_consents")))
+                .thenReturn(Mono.just(2L));
+
+        StepVerifier.create(repository.countByTppIdEnabled("tpp1"))
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testMigrateToSchemaVersion() {
+        ReactiveBulkOperations bulkOperations = Mockito.mock(ReactiveBulkOperations.class);
+        BulkWriteResult bulkWriteResult = Mockito.mock(BulkWriteResult.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, "citizen_consents")).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(bulkWriteResult));
+        when(bulkWriteResult.getModifiedCount()).thenReturn(1);
+
+        Document document = new Document("_id", "1")
+                .append("consents", new Document("tpp1", new Document("tppState", true)));
+
+        StepVerifier.create(repository.migrateToSchemaVersion(List.of(document), 2))
+                .expectNext(1L)
+                .verifyComplete();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        Mockito.verify(bulkOperations).updateOne(Mockito.any(Query.class), update.capture());
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        Assertions.assertEquals(2, set.get("schemaVersion"));
+        Assertions.assertEquals(1, set.get("enabledConsentCount"));
+    }
+
+    @Test
+    void testFindByFiscalCodeInAndTppId() {
+        CitizenConsent citizenConsent = createMockCitizenConsent("fc1", "tpp1");
+        when(mongoTemplate.aggregate(
+                Mockito.any(Aggregation.class),
+                Mockito.eq("citizen_consents"),
+                Mockito.eq(CitizenConsent.class)
+        )).thenReturn(Flux.just(citizenConsent));
+
+        StepVerifier.create(repository.findByFiscalCodeInAndTppId(List.of("fc1", "fc2"), "tpp1"))
+                .expectNext(citizenConsent)
+                .verifyComplete();
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        Mockito.verify(mongoTemplate).aggregate(aggregation.capture(), Mockito.eq("citizen_consents"), Mockito.eq(CitizenConsent.class));
+        Assertions.assertEquals(2, aggregation.getValue().getPipeline().getOperations().size());
+    }
+
+    @Test
+    void testFindByFiscalCodeInAndTppId_EmptyInput() {
+        StepVerifier.create(repository.findByFiscalCodeInAndTppId(List.of(), "tpp1"))
+                .verifyComplete();
+        StepVerifier.create(repository.findByFiscalCodeInAndTppId(List.of("fc1"), null))
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testFindRawByFiscalCodeIn() {
+        Document citizen = new Document("fiscalCode", "fc1");
+        when(mongoTemplate.find(Mockito.any(Query.class), Mockito.eq(Document.class), Mockito.eq("citizen_consents")))
+                .thenReturn(Flux.just(citizen));
+
+        StepVerifier.create(repository.findRawByFiscalCodeIn(List.of("fc1", "fc2")))
+                .expectNext(citizen)
+                .verifyComplete();
+
+        StepVerifier.create(repository.findRawByFiscalCodeIn(List.of()))
+                .verifyComplete();
+        Mockito.verify(mongoTemplate).find(Mockito.any(Query.class), Mockito.eq(Document.class), Mockito.eq("citizen_consents"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPutConsents() {
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        when(mongoTemplate.getCollection("citizen_consents")).thenReturn(Mono.just(collection));
+        when(collection.bulkWrite(Mockito.anyList(), Mockito.any(BulkWriteOptions.class)))
+                .thenReturn(Mono.just(Mockito.mock(BulkWriteResult.class)));
+
+        Document existing = new Document("_id", "1").append("fiscalCode", "fc1")
+                .append("consents", new Document("tpp1", new Document("tppState", true)));
+        Document created = new Document("fiscalCode", "fc2");
+        ConsentDetails details = ConsentDetails.builder().tppState(true).tcDate(LocalDateTime.now()).build();
+
+        StepVerifier.create(repository.putConsents(List.of(existing, created),
+                        List.of(Map.of("tpp2", details), Map.of("tpp2", details, "tpp3", details))))
+                .expectNext(List.of())
+                .verifyComplete();
+
+        ArgumentCaptor<List<WriteModel<Document>>> models = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).bulkWrite(models.capture(), Mockito.any(BulkWriteOptions.class));
+        UpdateOneModel<Document> update = (UpdateOneModel<Document>) models.getValue().get(0);
+        Assertions.assertEquals(existing.get("consents"), ((Document) update.getFilter()).get("consents"));
+        Assertions.assertTrue(update.getOptions().isUpsert());
+        Document set = ((Document) update.getUpdate()).get("$set", Document.class);
+        Assertions.assertEquals(2, set.get("enabledConsentCount"));
+        InsertOneModel<Document> insert = (InsertOneModel<Document>) models.getValue().get(1);
+        Assertions.assertEquals("fc2", insert.getDocument().getString("fiscalCode"));
+        Assertions.assertEquals(2, insert.getDocument().get("enabledConsentCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPutConsents_WriteErrors() {
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        MongoBulkWriteException exception = Mockito.mock(MongoBulkWriteException.class);
+        List<BulkWriteError> errors = List.of(new BulkWriteError(11000, "duplicate", new BsonDocument(), 0));
+        when(exception.getWriteErrors()).thenReturn(errors);
+        when(mongoTemplate.getCollection("citizen_consents")).thenReturn(Mono.just(collection));
+        when(collection.bulkWrite(Mockito.anyList(), Mockito.any(BulkWriteOptions.class))).thenReturn(Mono.error(exception));
+
+        ConsentDetails details = ConsentDetails.builder().tppState(true).tcDate(LocalDateTime.now()).build();
+
+        StepVerifier.create(repository.putConsents(List.of(new Document("fiscalCode", "fc1")), List.of(Map.of("tpp1", details))))
+                .expectNext(errors)
+                .verifyComplete();
+    }
+
+    @Test
+    void testMigrateToSchemaVersion_Empty() {
+        StepVerifier.create(repository.migrateToSchemaVersion(List.of(), 2))
+                .expectNext(0L)
+                .verifyComplete();
+
+        Mockito.verifyNoInteractions(mongoTemplate);
+    }
 }
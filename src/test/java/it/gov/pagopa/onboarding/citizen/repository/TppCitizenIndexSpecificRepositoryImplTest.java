@@ -0,0 +1,126 @@
+package it.gov.pagopa.onboarding.citizen.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.TppCitizenIndex;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TppCitizenIndexSpecificRepositoryImplTest {
+
+    private static final CitizenConsent CITIZEN = CitizenConsent.builder()
+            .fiscalCode("fiscalCode")
+            .consents(Map.of("tppId", ConsentDetails.builder().tppState(true).tcDate(LocalDateTime.now()).build()))
+            .build();
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private ReactiveBulkOperations bulkOperations;
+    @Mock
+    private BulkWriteResult bulkWriteResult;
+
+    @InjectMocks
+    private TppCitizenIndexSpecificRepositoryImpl repository;
+
+    private void bulkWriteSucceeds() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TppCitizenIndex.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.just(bulkWriteResult));
+        when(bulkWriteResult.getUpserts()).thenReturn(List.of());
+        when(bulkWriteResult.getModifiedCount()).thenReturn(1);
+    }
+
+    @Test
+    void upsertAll_OverwritesEntries() {
+        bulkWriteSucceeds();
+
+        StepVerifier.create(repository.upsertAll(List.of(CITIZEN)))
+                .expectNext(1L)
+                .verifyComplete();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(any(Query.class), update.capture());
+        assertTrue(update.getValue().getUpdateObject().containsKey("$set"));
+        // an upsert brings a removed citizen back
+        assertEquals(new Document("removed", 1), update.getValue().getUpdateObject().get("$unset"));
+        verify(bulkOperations, never()).updateOne(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    void upsertAllIndexedBefore_DoesNotOverwriteNewerEntries() {
+        bulkWriteSucceeds();
+        LocalDateTime indexedBefore = LocalDateTime.now().minusMinutes(1);
+
+        StepVerifier.create(repository.upsertAllIndexedBefore(List.of(CITIZEN), indexedBefore))
+                .expectNext(1L)
+                .verifyComplete();
+
+        // the existing entry is overwritten only if indexed before the cutoff
+        ArgumentCaptor<Query> overwriteQuery = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> overwrite = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).updateOne(overwriteQuery.capture(), overwrite.capture());
+        Document filter = overwriteQuery.getValue().getQueryObject();
+        assertEquals("fiscalCode", filter.get("fiscalCode"));
+        assertEquals("tppId", filter.get("tppId"));
+        assertEquals(List.of(
+                        new Document("indexedAt", new Document("$lt", indexedBefore)),
+                        new Document("indexedAt", null)),
+                filter.get("$or"));
+        assertTrue(overwrite.getValue().getUpdateObject().containsKey("$set"));
+
+        // a missing entry is inserted, an existing one is left as is
+        ArgumentCaptor<Query> insertQuery = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> insert = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(insertQuery.capture(), insert.capture());
+        assertEquals(new Document("fiscalCode", "fiscalCode").append("tppId", "tppId"), insertQuery.getValue().getQueryObject());
+        assertEquals(Set.of("$setOnInsert"), insert.getValue().getUpdateObject().keySet());
+    }
+
+    @Test
+    void markRemoved_LeavesTombstones() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(TppCitizenIndex.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(2, 2L, null)));
+
+        StepVerifier.create(repository.markRemoved("fiscalCode"))
+                .expectNext(2L)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(TppCitizenIndex.class));
+        assertEquals(new Document("fiscalCode", "fiscalCode"), query.getValue().getQueryObject());
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(false, set.get("tppState"));
+        assertEquals(true, set.get("removed"));
+        assertNotNull(set.get("indexedAt"));
+    }
+}
@@ -0,0 +1,36 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Status;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class BloomFilterHealthIndicatorTest {
+
+    private final BloomFilterInitializer bloomFilterInitializer = mock(BloomFilterInitializer.class);
+    private final BloomFilterHealthIndicator healthIndicator = new BloomFilterHealthIndicator(bloomFilterInitializer);
+
+    @Test
+    void downUntilInitialized() {
+        given(bloomFilterInitializer.isInitialized()).willReturn(false);
+
+        StepVerifier.create(healthIndicator.health())
+                .consumeNextWith(h -> {
+                    assertThat(h.getStatus()).isEqualTo(Status.DOWN);
+                    assertThat(h.getDetails()).containsEntry("initialized", false);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void upWhenInitialized() {
+        given(bloomFilterInitializer.isInitialized()).willReturn(true);
+
+        StepVerifier.create(healthIndicator.health())
+                .consumeNextWith(h -> assertThat(h.getStatus()).isEqualTo(Status.UP))
+                .verifyComplete();
+    }
+}
@@ -1,7 +1,5 @@
 package it.gov.pagopa.onboarding.citizen.service;
 
-import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
-import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
 import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,16 +12,20 @@ import org.redisson.api.RLockReactive;
 import org.redisson.api.RedissonReactiveClient;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
-
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith({SpringExtension.class, MockitoExtension.class})
@@ -54,25 +56,18 @@ class BloomFilterInitializerTest {
 
         when(redissonClient.getBloomFilter(REDDIS_BF_NAME)).thenReturn(bloomFilter);
         when(redissonClient.getLock(REDIS_LOCK_NAME)).thenReturn(lock);
-        when(lock.tryLock(0, 60, TimeUnit.SECONDS)).thenReturn(Mono.just(true));
+        lenient().when(lock.tryLock(eq(0L), eq(60L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        lenient().when(lock.unlock(anyLong())).thenReturn(Mono.empty());
         bloomFilterInitializer = new BloomFilterInitializer(redissonClient, citizenRepository);
+        ReflectionTestUtils.setField(bloomFilterInitializer, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(bloomFilterInitializer, "falseProbability", 0.01);
     }
 
     private void mockCommonDependencies() {
         when(bloomFilter.contains("fiscalCode")).thenReturn(Mono.just(true));
-        when(lock.tryLock(0, 60, TimeUnit.SECONDS)).thenReturn(Mono.just(true));
-
-        Map<String, ConsentDetails> consents = new HashMap<>();
-        consents.put("test", ConsentDetails.builder().tppState(true).build());
 
         when(bloomFilter.isExists()).thenReturn(Mono.just(true));
-        when(citizenRepository.findAll()).thenReturn(Flux.just(
-                CitizenConsent.builder()
-                        .id("id")
-                        .fiscalCode("fiscalCode")
-                        .consents(consents)
-                        .build()
-        ));
+        when(citizenRepository.findFiscalCodesWithEnabledConsents()).thenReturn(Flux.just("fiscalCode"));
         when(bloomFilter.add(anyString())).thenReturn(Mono.just(true));
     }
 
@@ -82,9 +77,36 @@ class BloomFilterInitializerTest {
 
         bloomFilterInitializer.initialize();
 
+        assertTrue(bloomFilterInitializer.isInitialized());
         StepVerifier.create(bloomFilter.contains("fiscalCode"))
                 .expectNext(true)
                 .verifyComplete();
+        verify(bloomFilter).add("fiscalCode");
+        verify(lock).unlock(anyLong());
+    }
+
+    @Test
+    void testInitializeCompletingOnNonBlockingThread() {
+        when(bloomFilter.isExists()).thenReturn(Mono.just(true).publishOn(Schedulers.parallel()));
+        when(citizenRepository.findFiscalCodesWithEnabledConsents()).thenReturn(Flux.just("fiscalCode"));
+        when(bloomFilter.add(anyString())).thenReturn(Mono.just(true));
+
+        bloomFilterInitializer.initialize();
+
+        await().atMost(Duration.ofSeconds(5)).until(bloomFilterInitializer::isInitialized);
+        verify(bloomFilter).add("fiscalCode");
+        verify(lock).unlock(anyLong());
+    }
+
+    @Test
+    void testInitializeLockNotAcquired() {
+        when(lock.tryLock(eq(0L), eq(60L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(false));
+
+        bloomFilterInitializer.initialize();
+
+        assertTrue(bloomFilterInitializer.isInitialized());
+        verify(bloomFilter, never()).isExists();
+        verify(lock, never()).unlock(anyLong());
     }
 
     @Test
@@ -94,10 +116,27 @@ class BloomFilterInitializerTest {
         when(bloomFilter.tryInit(1000L, 0.01)).thenReturn(Mono.just(true));
 
         bloomFilterInitializer.resetBloomFilter();
+        bloomFilterInitializer.awaitReset();
 
         StepVerifier.create(bloomFilter.contains("fiscalCode"))
                 .expectNext(true)
                 .verifyComplete();
+        verify(bloomFilter).delete();
+        verify(lock).unlock(anyLong());
+    }
+
+    @Test
+    void testAwaitResetWaitsForResetInProgress() {
+        mockCommonDependencies();
+        when(bloomFilter.delete()).thenReturn(Mono.delay(Duration.ofMillis(100)).then(Mono.just(true)));
+        when(bloomFilter.tryInit(1000L, 0.01)).thenReturn(Mono.just(true));
+
+        bloomFilterInitializer.resetBloomFilter();
+        verify(lock, never()).unlock(anyLong());
+        bloomFilterInitializer.awaitReset();
+
+        verify(bloomFilter).add("fiscalCode");
+        verify(lock).unlock(anyLong());
     }
 }
 
@@ -8,8 +8,11 @@ import org.redisson.api.RBloomFilterReactive;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class BloomFilterServiceImplTest {
@@ -42,6 +45,23 @@ class BloomFilterServiceImplTest {
         verify(bloomFilter).add("12345");
     }
 
+    @Test
+    void testAddAll() {
+        List<String> values = List.of("12345", "67890");
+        when(bloomFilter.add(values)).thenReturn(Mono.just(2L));
+        StepVerifier.create(bloomFilterService.addAll(values))
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testAddAllEmpty() {
+        StepVerifier.create(bloomFilterService.addAll(List.of()))
+                .expectNext(0L)
+                .verifyComplete();
+        verifyNoInteractions(bloomFilter);
+    }
+
     @Test
     void testMightContainFound() {
         when(bloomFilter.contains(anyString())).thenReturn(Mono.just(true));
@@ -0,0 +1,204 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.common.web.exception.ClientExceptionWithBody;
+import it.gov.pagopa.onboarding.citizen.configuration.ExceptionMap;
+import it.gov.pagopa.onboarding.citizen.connector.tpp.TppConnectorImpl;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkItemDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentBulkOutcomeDTO.Outcome;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.faker.TppDTOFaker;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CitizenConsentBulkServiceImplTest {
+
+    private static final String TPP_ID = "tppId";
+    private static final int DUPLICATE_KEY = 11000;
+    private static final String NEW = "RSSMRA85T10A562S";
+    private static final String PRESENT = "MLXHZZ43A70H203T";
+    private static final String EXISTING = "BNCGLI80A01H501U";
+    private static final String CONFLICT = "VRDLGU70B02F205X";
+    private static final String FISCAL_CODE_A = "FRRMRC90C03L219A";
+    private static final String FISCAL_CODE_B = "GLLPLA75D04G273B";
+    private static final String FISCAL_CODE_C = "BRNLCU60E05D612C";
+
+    @Mock
+    private CitizenRepository citizenRepository;
+    @Mock
+    private TppConnectorImpl tppConnector;
+    @Mock
+    private BloomFilterServiceImpl bloomFilterService;
+    @Mock
+    private TppCitizenIndexService tppCitizenIndexService;
+    @Mock
+    private CitizenConsentOutboxService citizenConsentOutboxService;
+
+    private CitizenConsentBulkServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new CitizenConsentBulkServiceImpl(citizenRepository, new ExceptionMap(), tppConnector,
+                bloomFilterService, tppCitizenIndexService, citizenConsentOutboxService, 10, 2, 3);
+        when(tppConnector.get(TPP_ID)).thenReturn(Mono.just(TppDTOFaker.mockInstance()));
+        when(tppCitizenIndexService.indexConsents(anyList())).thenReturn(Mono.empty());
+        when(bloomFilterService.addAll(anyCollection())).thenReturn(Mono.just(1L));
+        when(citizenConsentOutboxService.putConsents(any(), anyList(), anyList())).thenAnswer(invocation ->
+                citizenRepository.putConsents(invocation.getArgument(1), invocation.getArgument(2)));
+    }
+
+    @Test
+    void createCitizenConsents_OutcomePerItem() {
+        Document withConsent = new Document("_id", "id1").append("fiscalCode", PRESENT)
+                .append("consents", new Document(TPP_ID, new Document("tppState", true)));
+        Document withoutConsent = new Document("_id", "id2").append("fiscalCode", EXISTING)
+                .append("consents", new Document("otherTpp", new Document("tppState", true)));
+        when(citizenRepository.findRawByFiscalCodeIn(anyCollection())).thenReturn(Flux.just(withConsent, withoutConsent));
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.just(List.of(
+                new BulkWriteError(DUPLICATE_KEY, "duplicate", new BsonDocument(), 2))));
+
+        Flux<CitizenConsentBulkItemDTO> items = Flux.just(item(NEW), item(PRESENT), item(" "),
+                item(EXISTING), item(NEW), item(CONFLICT));
+
+        StepVerifier.create(service.createCitizenConsents(TPP_ID, items).flatMapMany(outcomes -> outcomes))
+                .expectNext(outcome(0, NEW, Outcome.CREATED))
+                .expectNext(outcome(1, PRESENT, Outcome.ALREADY_PRESENT))
+                .expectNext(outcome(2, " ", Outcome.INVALID))
+                .expectNext(outcome(3, EXISTING, Outcome.ADDED))
+                .expectNext(outcome(4, NEW, Outcome.DUPLICATE))
+                .expectNext(outcome(5, CONFLICT, Outcome.CONFLICT))
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> written = ArgumentCaptor.forClass(List.class);
+        verify(citizenRepository).putConsents(written.capture(), anyList());
+        assertEquals(List.of(NEW, EXISTING, CONFLICT),
+                written.getValue().stream().map(citizen -> citizen.getString("fiscalCode")).toList());
+        verify(tppCitizenIndexService).indexConsents(argThat(citizens -> citizens.stream()
+                .map(CitizenConsent::getFiscalCode).toList().equals(List.of(NEW, EXISTING))));
+        verify(bloomFilterService).addAll(List.of(NEW, EXISTING));
+        verify(citizenConsentOutboxService).putConsents(eq(ConsentChangeType.CREATED), eq(written.getValue()), anyList());
+    }
+
+    @Test
+    void createCitizenConsents_ChunksKeepRequestOrder() {
+        service = new CitizenConsentBulkServiceImpl(citizenRepository, new ExceptionMap(), tppConnector,
+                bloomFilterService, tppCitizenIndexService, citizenConsentOutboxService, 2, 2, 3);
+        when(citizenRepository.findRawByFiscalCodeIn(anyCollection())).thenReturn(Flux.empty());
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(service.createCitizenConsents(TPP_ID, Flux.just(item(FISCAL_CODE_A), item(FISCAL_CODE_B), item(FISCAL_CODE_C)))
+                        .flatMapMany(outcomes -> outcomes))
+                .expectNext(outcome(0, FISCAL_CODE_A, Outcome.CREATED))
+                .expectNext(outcome(1, FISCAL_CODE_B, Outcome.CREATED))
+                .expectNext(outcome(2, FISCAL_CODE_C, Outcome.CREATED))
+                .verifyComplete();
+
+        verify(citizenRepository).findRawByFiscalCodeIn(List.of(FISCAL_CODE_A, FISCAL_CODE_B));
+        verify(citizenRepository).findRawByFiscalCodeIn(List.of(FISCAL_CODE_C));
+    }
+
+    @Test
+    void createCitizenConsents_ChunkErrorMarksItemsFailed() {
+        when(citizenRepository.findRawByFiscalCodeIn(anyCollection())).thenReturn(Flux.empty());
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.error(new RuntimeException("boom")));
+
+        StepVerifier.create(service.createCitizenConsents(TPP_ID, Flux.just(item(FISCAL_CODE_A), item(null), item("malformed")))
+                        .flatMapMany(outcomes -> outcomes))
+                .expectNext(outcome(0, FISCAL_CODE_A, Outcome.FAILED))
+                .expectNext(outcome(1, null, Outcome.INVALID))
+                .expectNext(outcome(2, "malformed", Outcome.INVALID))
+                .verifyComplete();
+
+        verify(citizenRepository).findRawByFiscalCodeIn(List.of(FISCAL_CODE_A));
+        verify(bloomFilterService, never()).addAll(anyCollection());
+    }
+
+    @Test
+    void createCitizenConsents_BloomFilterErrorIsSwallowed() {
+        when(citizenRepository.findRawByFiscalCodeIn(anyCollection())).thenReturn(Flux.empty());
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+        when(bloomFilterService.addAll(anyCollection())).thenReturn(Mono.error(new RuntimeException("boom")));
+
+        StepVerifier.create(service.createCitizenConsents(TPP_ID, Flux.just(item(FISCAL_CODE_A))).flatMapMany(outcomes -> outcomes))
+                .expectNext(outcome(0, FISCAL_CODE_A, Outcome.CREATED))
+                .verifyComplete();
+    }
+
+    @Test
+    void createCitizenConsents_TppNotFound() {
+        when(tppConnector.get(TPP_ID)).thenReturn(Mono.error(new RuntimeException("not found")));
+
+        StepVerifier.create(service.createCitizenConsents(TPP_ID, Flux.just(item(FISCAL_CODE_A))))
+                .expectErrorMatches(throwable -> throwable instanceof ClientExceptionWithBody exception
+                        && "TPP_NOT_FOUND".equals(exception.getCode()))
+                .verify();
+
+        verify(citizenRepository, never()).findRawByFiscalCodeIn(any(Collection.class));
+    }
+
+    @Test
+    void getCitizenConsentsStatus_StatePerFiscalCode() {
+        when(citizenRepository.findByFiscalCodeInAndTppId(anyCollection(), eq(TPP_ID))).thenReturn(Flux.just(
+                citizen("enabled", true),
+                citizen("disabled", false)));
+
+        StepVerifier.create(service.getCitizenConsentsStatus(TPP_ID, List.of("enabled", "disabled", "missing")))
+                .expectNext(Map.of("enabled", true, "disabled", false, "missing", false))
+                .verifyComplete();
+
+        verify(citizenRepository).findByFiscalCodeInAndTppId(List.of("enabled", "disabled", "missing"), TPP_ID);
+    }
+
+    @Test
+    void getCitizenConsentsStatus_TooManyFiscalCodes() {
+        StepVerifier.create(service.getCitizenConsentsStatus(TPP_ID, List.of("a", "b", "c", "d")))
+                .expectErrorMatches(throwable -> throwable instanceof ClientExceptionWithBody exception
+                        && "TOO_MANY_FISCAL_CODES".equals(exception.getCode()))
+                .verify();
+
+        verify(citizenRepository, never()).findByFiscalCodeInAndTppId(anyCollection(), any());
+    }
+
+    private static CitizenConsent citizen(String fiscalCode, boolean tppState) {
+        return CitizenConsent.builder()
+                .fiscalCode(fiscalCode)
+                .consents(Map.of(TPP_ID, ConsentDetails.builder().tppState(tppState).build()))
+                .build();
+    }
+
+    private static CitizenConsentBulkItemDTO item(String fiscalCode) {
+        return new CitizenConsentBulkItemDTO(fiscalCode);
+    }
+
+    private static CitizenConsentBulkOutcomeDTO outcome(long index, String fiscalCode, Outcome outcome) {
+        return new CitizenConsentBulkOutcomeDTO(index, fiscalCode, outcome);
+    }
+}
@@ -0,0 +1,210 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsentChangeEvent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenConsentOutboxRepository;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CitizenConsentOutboxServiceImplTest {
+
+    private static final String FISCAL_CODE = "fiscalCode";
+    private static final Map<String, ConsentDetails> CONSENTS = Map.of("tpp1", ConsentDetails.builder().tppState(true).build());
+
+    @Mock
+    private CitizenConsentOutboxRepository citizenConsentOutboxRepository;
+    @Mock
+    private CitizenRepository citizenRepository;
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    @Mock
+    private ObjectProvider<TransactionalOperator> transactionalOperators;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionalOperators.getObject()).thenReturn(transactionalOperator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void saveAllSucceeds() {
+        when(citizenConsentOutboxRepository.saveAll(anyIterable())).thenAnswer(invocation ->
+                Flux.fromIterable((Iterable<CitizenConsentChangeEvent>) invocation.getArgument(0)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordWith_WritesOneEventPerConsentInTransaction() {
+        saveAllSucceeds();
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, true);
+        LocalDateTime tcDate = LocalDateTime.now();
+
+        StepVerifier.create(service.recordWith(Mono.just("SAVED"), ConsentChangeType.STATE_CHANGED, FISCAL_CODE, Map.of(
+                        "tpp1", ConsentDetails.builder().tppState(false).tcDate(tcDate).build(),
+                        "tpp2", ConsentDetails.builder().tppState(true).tcDate(tcDate).build())))
+                .expectNext("SAVED")
+                .verifyComplete();
+
+        verify(transactionalOperator).transactional(any(Mono.class));
+        ArgumentCaptor<List<CitizenConsentChangeEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(citizenConsentOutboxRepository).saveAll(events.capture());
+        assertEquals(2, events.getValue().size());
+        events.getValue().forEach(event -> {
+            assertEquals(ConsentChangeType.STATE_CHANGED, event.getEventType());
+            assertEquals(FISCAL_CODE, event.getFiscalCode());
+            assertEquals(tcDate, event.getTcDate());
+            assertEquals("tpp2".equals(event.getTppId()), event.getTppState());
+            assertNotNull(event.getEventDate());
+            assertNull(event.getPublishedAt());
+        });
+    }
+
+    @Test
+    void recordWith_EmptyMutationRecordsEvents() {
+        saveAllSucceeds();
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, true);
+
+        StepVerifier.create(service.recordWith(Mono.<Void>empty(), ConsentChangeType.DELETED, FISCAL_CODE, CONSENTS))
+                .verifyComplete();
+
+        verify(citizenConsentOutboxRepository).saveAll(anyIterable());
+    }
+
+    @Test
+    void recordWith_ErrorIsPropagated() {
+        when(citizenConsentOutboxRepository.saveAll(anyIterable())).thenReturn(Flux.error(new RuntimeException("boom")));
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, true);
+
+        StepVerifier.create(service.recordWith(Mono.just("SAVED"), ConsentChangeType.CREATED, FISCAL_CODE, CONSENTS))
+                .verifyErrorMessage("boom");
+    }
+
+    @Test
+    void recordWith_RetriesTransientTransactionErrors() {
+        saveAllSucceeds();
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, true);
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> mutation = Mono.defer(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                MongoException writeConflict = new MongoException(112, "WriteConflict");
+                writeConflict.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+                return Mono.error(writeConflict);
+            }
+            return Mono.just("SAVED");
+        });
+
+        StepVerifier.create(service.recordWith(mutation, ConsentChangeType.CREATED, FISCAL_CODE, CONSENTS))
+                .expectNext("SAVED")
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        verify(citizenConsentOutboxRepository, times(1)).saveAll(anyIterable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordWith_DisabledRunsMutationOnly() {
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, false);
+
+        StepVerifier.create(service.recordWith(Mono.just("SAVED"), ConsentChangeType.DELETED, FISCAL_CODE, CONSENTS))
+                .expectNext("SAVED")
+                .verifyComplete();
+
+        verify(citizenConsentOutboxRepository, never()).saveAll(anyIterable());
+        verify(transactionalOperator, never()).transactional(any(Mono.class));
+        // no transaction manager is required when the outbox is disabled
+        verify(transactionalOperators, never()).getObject();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putConsents_RecordsEventsOfWrittenCitizensOnly() {
+        saveAllSucceeds();
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, true);
+        List<Document> citizens = List.of(new Document("fiscalCode", "fc0"), new Document("fiscalCode", "fc1"), new Document("fiscalCode", "fc2"));
+        List<Map<String, ConsentDetails>> consents = List.of(CONSENTS, CONSENTS, CONSENTS);
+        // the failing citizen rolls the first round back, the second round writes the others
+        when(citizenRepository.putConsents(anyList(), anyList()))
+                .thenReturn(Mono.just(List.of(new BulkWriteError(11000, "duplicate", new BsonDocument(), 1))))
+                .thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(service.putConsents(ConsentChangeType.STATE_CHANGED, citizens, consents))
+                .assertNext(errors -> {
+                    assertEquals(1, errors.size());
+                    assertEquals(11000, errors.get(0).getCode());
+                    assertEquals(2, errors.get(0).getIndex());
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<List<Document>> written = ArgumentCaptor.forClass(List.class);
+        verify(citizenRepository, times(2)).putConsents(written.capture(), anyList());
+        assertEquals(citizens, written.getAllValues().get(0));
+        assertEquals(List.of(citizens.get(0), citizens.get(2)), written.getAllValues().get(1));
+        verify(transactionalOperator, times(2)).transactional(any(Mono.class));
+
+        ArgumentCaptor<List<CitizenConsentChangeEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(citizenConsentOutboxRepository).saveAll(events.capture());
+        assertEquals(List.of("fc0", "fc2"), events.getValue().stream().map(CitizenConsentChangeEvent::getFiscalCode).toList());
+        events.getValue().forEach(event -> assertEquals(ConsentChangeType.STATE_CHANGED, event.getEventType()));
+    }
+
+    @Test
+    void putConsents_AllFailingRecordsNothing() {
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, true);
+        when(citizenRepository.putConsents(anyList(), anyList()))
+                .thenReturn(Mono.just(List.of(new BulkWriteError(11000, "duplicate", new BsonDocument(), 0))));
+
+        StepVerifier.create(service.putConsents(ConsentChangeType.CREATED, List.of(new Document("fiscalCode", "fc0")), List.of(CONSENTS)))
+                .assertNext(errors -> assertEquals(0, errors.get(0).getIndex()))
+                .verifyComplete();
+
+        verify(citizenRepository, times(1)).putConsents(anyList(), anyList());
+        verify(citizenConsentOutboxRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putConsents_DisabledWritesOnly() {
+        CitizenConsentOutboxServiceImpl service = new CitizenConsentOutboxServiceImpl(citizenConsentOutboxRepository, citizenRepository, transactionalOperators, false);
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(service.putConsents(ConsentChangeType.CREATED, List.of(new Document("fiscalCode", "fc0")), List.of(CONSENTS)))
+                .expectNext(List.of())
+                .verifyComplete();
+
+        verify(citizenConsentOutboxRepository, never()).saveAll(anyIterable());
+        verify(transactionalOperator, never()).transactional(any(Mono.class));
+    }
+}
@@ -0,0 +1,147 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentStateUpdateDTO;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CitizenConsentStateUpdateServiceImplTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Mock
+    private CitizenRepository citizenRepository;
+    @Mock
+    private BloomFilterServiceImpl bloomFilterService;
+    @Mock
+    private TppCitizenIndexService tppCitizenIndexService;
+    @Mock
+    private CitizenConsentOutboxService citizenConsentOutboxService;
+
+    private CitizenConsentStateUpdateServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new CitizenConsentStateUpdateServiceImpl(citizenRepository, bloomFilterService, tppCitizenIndexService,
+                citizenConsentOutboxService, 1);
+        when(citizenRepository.findRawByFiscalCodeIn(anyCollection())).thenReturn(Flux.empty());
+        when(tppCitizenIndexService.indexConsents(anyList())).thenReturn(Mono.empty());
+        when(bloomFilterService.addAll(anyCollection())).thenReturn(Mono.just(1L));
+        when(citizenConsentOutboxService.putConsents(any(), anyList(), anyList())).thenAnswer(invocation ->
+                citizenRepository.putConsents(invocation.getArgument(1), invocation.getArgument(2)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateStates_MergesUpdatesByCitizen() {
+        Document existing = new Document("_id", "id1").append("fiscalCode", "fc1")
+                .append("consents", new Document("tpp1", new Document("tppState", true)));
+        when(citizenRepository.findRawByFiscalCodeIn(anyCollection())).thenReturn(Flux.just(existing));
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(service.updateStates(List.of(
+                        update("fc1", "tpp1", true),
+                        update("fc2", "tpp1", true),
+                        update("fc1", "tpp1", false),
+                        update("fc1", "tpp2", false),
+                        update(null, "tpp1", true))))
+                .expectNext(Set.of())
+                .verifyComplete();
+
+        ArgumentCaptor<List<Document>> citizens = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Map<String, ConsentDetails>>> consents = ArgumentCaptor.forClass(List.class);
+        verify(citizenRepository).putConsents(citizens.capture(), consents.capture());
+        assertEquals(List.of(existing, new Document("fiscalCode", "fc2")), citizens.getValue());
+        assertEquals(Set.of("tpp1", "tpp2"), consents.getValue().get(0).keySet());
+        assertFalse(consents.getValue().get(0).get("tpp1").getTppState());
+        verify(bloomFilterService).addAll(List.of("fc2"));
+        verify(citizenConsentOutboxService).putConsents(eq(ConsentChangeType.STATE_CHANGED), eq(citizens.getValue()), eq(consents.getValue()));
+    }
+
+    @Test
+    void updateStates_RetriesConflicts() {
+        when(citizenRepository.putConsents(anyList(), anyList()))
+                .thenReturn(Mono.just(List.of(new BulkWriteError(DUPLICATE_KEY, "duplicate", new BsonDocument(), 1))))
+                .thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(service.updateStates(List.of(update("fc1", "tpp1", true), update("fc2", "tpp1", true))))
+                .expectNext(Set.of())
+                .verifyComplete();
+
+        verify(citizenRepository, times(2)).putConsents(anyList(), anyList());
+        verify(citizenRepository).findRawByFiscalCodeIn(List.of("fc2"));
+        verify(tppCitizenIndexService, times(2)).indexConsents(anyList());
+    }
+
+    @Test
+    void updateStates_ReportsFailures() {
+        when(citizenRepository.putConsents(anyList(), anyList()))
+                .thenReturn(Mono.just(List.of(new BulkWriteError(DUPLICATE_KEY, "duplicate", new BsonDocument(), 0))))
+                .thenReturn(Mono.just(List.of(new BulkWriteError(DUPLICATE_KEY, "duplicate", new BsonDocument(), 0))));
+
+        StepVerifier.create(service.updateStates(List.of(update("fc1", "tpp1", true))))
+                .expectNext(Set.of("fc1"))
+                .verifyComplete();
+
+        verify(citizenRepository, times(2)).putConsents(anyList(), anyList());
+    }
+
+    @Test
+    void updateStates_WriteErrorFailsEveryCitizen() {
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.error(new RuntimeException("boom")));
+
+        StepVerifier.create(service.updateStates(List.of(update("fc1", "tpp1", true), update("fc2", "tpp1", false))))
+                .assertNext(failed -> assertTrue(failed.containsAll(List.of("fc1", "fc2"))))
+                .verifyComplete();
+
+        verify(bloomFilterService, never()).addAll(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateStates_DisabledConsentsAreNotAddedToBloomFilter() {
+        when(citizenRepository.putConsents(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(service.updateStates(List.of(update("fc1", "tpp1", false))))
+                .expectNext(Set.of())
+                .verifyComplete();
+
+        ArgumentCaptor<List<CitizenConsent>> indexed = ArgumentCaptor.forClass(List.class);
+        verify(tppCitizenIndexService).indexConsents(indexed.capture());
+        assertEquals("fc1", indexed.getValue().get(0).getFiscalCode());
+        verify(bloomFilterService).addAll(List.of());
+    }
+
+    private static CitizenConsentStateUpdateDTO update(String fiscalCode, String tppId, boolean tppState) {
+        return new CitizenConsentStateUpdateDTO(fiscalCode, tppId, tppState);
+    }
+}
@@ -7,6 +7,7 @@ import it.gov.pagopa.onboarding.citizen.dto.CitizenConsentDTO;
 import it.gov.pagopa.onboarding.citizen.dto.TppDTO;
 import it.gov.pagopa.onboarding.citizen.dto.TppIdList;
 import it.gov.pagopa.onboarding.citizen.dto.mapper.CitizenConsentObjectToDTOMapper;
+import it.gov.pagopa.onboarding.citizen.enums.ConsentChangeType;
 import it.gov.pagopa.onboarding.citizen.faker.CitizenConsentFaker;
 import it.gov.pagopa.onboarding.citizen.faker.TppDTOFaker;
 import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
@@ -38,6 +39,8 @@ import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @ExtendWith({SpringExtension.class, MockitoExtension.class})
@@ -61,6 +64,12 @@ class CitizenServiceTest {
     @MockitoBean
     TppConnectorImpl tppConnector;
 
+    @MockitoBean
+    TppCitizenIndexService tppCitizenIndexService;
+
+    @MockitoBean
+    CitizenConsentOutboxService citizenConsentOutboxService;
+
     @Autowired
     CitizenConsentObjectToDTOMapper dtoMapper;
 
@@ -72,6 +81,13 @@ class CitizenServiceTest {
     private static final CitizenConsent CITIZEN_CONSENT_2 = CitizenConsentFaker.mockInstance(true);
     private static final TppDTO TPP_DTO = TppDTOFaker.mockInstance();
 
+    @BeforeEach
+    void setUp() {
+        when(tppCitizenIndexService.indexConsent(anyString(), anyString(), any())).thenReturn(Mono.empty());
+        when(tppCitizenIndexService.removeCitizen(anyString())).thenReturn(Mono.empty());
+        when(citizenConsentOutboxService.recordWith(any(), any(), anyString(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     @Test
     void createCitizenConsent_Ok() {
 
@@ -124,6 +140,7 @@ class CitizenServiceTest {
                 })
                 .verifyComplete();
 
+        Mockito.verify(citizenConsentOutboxService).recordWith(any(), eq(ConsentChangeType.CREATED), eq(FISCAL_CODE), argThat(consents -> consents.containsKey(TPP_ID_2)));
         CITIZEN_CONSENT.getConsents().remove(TPP_ID_2);
     }
 
@@ -155,6 +172,8 @@ class CitizenServiceTest {
                     assertNotEquals(TPP_STATE, response.getConsents().get(TPP_ID).getTppState());
                 })
                 .verifyComplete();
+
+        Mockito.verify(citizenConsentOutboxService).recordWith(any(), eq(ConsentChangeType.STATE_CHANGED), eq(FISCAL_CODE), argThat(consents -> consents.containsKey(TPP_ID)));
     }
 
     @Test
@@ -184,8 +203,8 @@ class CitizenServiceTest {
     @Test
     void getConsentStatus_Ok() {
 
-        when(citizenRepository.findByFiscalCodeAndTppId(FISCAL_CODE, TPP_ID))
-                .thenReturn(Mono.just(CITIZEN_CONSENT));
+        when(citizenRepository.findDTOByFiscalCodeAndTppId(FISCAL_CODE, TPP_ID))
+                .thenReturn(Mono.just(dtoMapper.map(CITIZEN_CONSENT)));
 
         StepVerifier.create(citizenService.getCitizenConsentStatus(FISCAL_CODE, TPP_ID))
                 .assertNext(Assertions::assertNotNull)
@@ -195,7 +214,7 @@ class CitizenServiceTest {
     @Test
     void getConsentStatus_Ko_CitizenNotOnboarded() {
 
-        when(citizenRepository.findByFiscalCodeAndTppId(FISCAL_CODE, TPP_ID))
+        when(citizenRepository.findDTOByFiscalCodeAndTppId(FISCAL_CODE, TPP_ID))
                 .thenReturn(Mono.empty());
 
         StepVerifier.create(citizenService.getCitizenConsentStatus(FISCAL_CODE, TPP_ID))
@@ -243,8 +262,8 @@ class CitizenServiceTest {
     @Test
     void get_Ok() {
 
-        when(citizenRepository.findByFiscalCode(FISCAL_CODE))
-                .thenReturn(Mono.just(CITIZEN_CONSENT));
+        when(citizenRepository.findDTOByFiscalCode(FISCAL_CODE))
+                .thenReturn(Mono.just(dtoMapper.map(CITIZEN_CONSENT)));
 
         StepVerifier.create(citizenService.getCitizenConsentsList(FISCAL_CODE))
                 .assertNext(response -> {
@@ -265,10 +284,7 @@ class CitizenServiceTest {
                 .consents(consents)
                 .build();
 
-        CitizenConsentDTO expectedDTO = dtoMapper.map(citizenConsent);
-        expectedDTO.getConsents().remove("Tpp2"); // Filter out disabled TPP
-
-        when(citizenRepository.findByFiscalCode(FISCAL_CODE)).thenReturn(Mono.just(citizenConsent));
+        when(citizenRepository.findDTOByFiscalCode(FISCAL_CODE)).thenReturn(Mono.just(dtoMapper.map(citizenConsent)));
 
         StepVerifier.create(citizenService.getCitizenConsentsListEnabled(FISCAL_CODE))
                 .assertNext(response -> {
@@ -286,7 +302,7 @@ class CitizenServiceTest {
                 .consents(new HashMap<>())
                 .build();
 
-        when(citizenRepository.findByFiscalCode(FISCAL_CODE)).thenReturn(Mono.just(citizenConsent));
+        when(citizenRepository.findDTOByFiscalCode(FISCAL_CODE)).thenReturn(Mono.just(dtoMapper.map(citizenConsent)));
 
         StepVerifier.create(citizenService.getCitizenConsentsListEnabled(FISCAL_CODE))
                 .assertNext(response -> {
@@ -299,7 +315,7 @@ class CitizenServiceTest {
 
     @Test
     void getCitizenConsentsListEnabled_NotOnboarded() {
-        when(citizenRepository.findByFiscalCode(FISCAL_CODE)).thenReturn(Mono.empty());
+        when(citizenRepository.findDTOByFiscalCode(FISCAL_CODE)).thenReturn(Mono.empty());
 
         StepVerifier.create(citizenService.getCitizenConsentsListEnabled(FISCAL_CODE))
                 .expectErrorMatches(throwable -> throwable instanceof ClientExceptionWithBody &&
@@ -319,7 +335,7 @@ class CitizenServiceTest {
                 .consents(Map.of(TPP_ID, ConsentDetails.builder().tppState(true).tcDate(LocalDateTime.now()).build()))
                 .build();
 
-        when(citizenRepository.findByTppIdEnabled(TPP_ID)).thenReturn(Flux.just(citizenConsent1, citizenConsent2));
+        when(citizenRepository.findDTOByTppIdEnabled(TPP_ID)).thenReturn(Flux.just(dtoMapper.map(citizenConsent1), dtoMapper.map(citizenConsent2)));
 
         StepVerifier.create(citizenService.getCitizenEnabled(TPP_ID))
                 .assertNext(response -> {
@@ -331,9 +347,50 @@ class CitizenServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void getCitizenEnabled_FromReverseIndex() {
+        CitizenConsentDTO citizenConsentDTO = CitizenConsentDTO.builder()
+                .fiscalCode("FiscalCode1")
+                .consents(Map.of(TPP_ID, CitizenConsentDTO.ConsentDTO.builder().tppState(true).tcDate(LocalDateTime.now()).build()))
+                .build();
+
+        when(tppCitizenIndexService.isReadEnabled()).thenReturn(true);
+        when(tppCitizenIndexService.findCitizenEnabled(TPP_ID)).thenReturn(Flux.just(citizenConsentDTO));
+
+        StepVerifier.create(citizenService.getCitizenEnabled(TPP_ID))
+                .assertNext(response -> {
+                    assertEquals(1, response.size());
+                    assertEquals("FiscalCode1", response.get(0).getFiscalCode());
+                })
+                .verifyComplete();
+
+        Mockito.verify(citizenRepository, Mockito.never()).findDTOByTppIdEnabled(anyString());
+    }
+
+    @Test
+    void countCitizenEnabled_FromCollection() {
+        when(citizenRepository.countByTppIdEnabled(TPP_ID)).thenReturn(Mono.just(3L));
+
+        StepVerifier.create(citizenService.countCitizenEnabled(TPP_ID))
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void countCitizenEnabled_FromReverseIndex() {
+        when(tppCitizenIndexService.isReadEnabled()).thenReturn(true);
+        when(tppCitizenIndexService.countCitizenEnabled(TPP_ID)).thenReturn(Mono.just(5L));
+
+        StepVerifier.create(citizenService.countCitizenEnabled(TPP_ID))
+                .expectNext(5L)
+                .verifyComplete();
+
+        Mockito.verify(citizenRepository, Mockito.never()).countByTppIdEnabled(anyString());
+    }
+
     @Test
     void getCitizenEnabled_Empty() {
-        when(citizenRepository.findByTppIdEnabled(TPP_ID)).thenReturn(Flux.empty());
+        when(citizenRepository.findDTOByTppIdEnabled(TPP_ID)).thenReturn(Flux.empty());
 
         StepVerifier.create(citizenService.getCitizenEnabled(TPP_ID))
                 .assertNext(response -> {
@@ -360,6 +417,26 @@ class CitizenServiceTest {
                     assertEquals(0, response.getConsents().size());
                 })
                 .verifyComplete();
+
+        Mockito.verify(tppCitizenIndexService).removeCitizen(FISCAL_CODE);
+        Mockito.verify(citizenConsentOutboxService).recordWith(any(), eq(ConsentChangeType.DELETED), eq(FISCAL_CODE), eq(citizenConsent.getConsents()));
+    }
+
+    @Test
+    void updateChannelState_Ko_OutboxError() {
+        CitizenConsent citizenConsent = CitizenConsentFaker.mockInstance(true);
+
+        when(citizenRepository.findByFiscalCode(FISCAL_CODE))
+                .thenReturn(Mono.just(citizenConsent));
+        when(citizenRepository.save(any()))
+                .thenReturn(Mono.just(citizenConsent));
+        when(citizenConsentOutboxService.recordWith(any(), any(), anyString(), any()))
+                .thenReturn(Mono.error(new RuntimeException("outbox")));
+
+        StepVerifier.create(citizenService.switchState(FISCAL_CODE, TPP_ID))
+                .verifyErrorMessage("outbox");
+
+        Mockito.verify(tppCitizenIndexService, Mockito.never()).indexConsent(anyString(), anyString(), any());
     }
 
 
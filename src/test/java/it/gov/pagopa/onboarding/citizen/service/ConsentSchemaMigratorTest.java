@@ -0,0 +1,68 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsentSchemaMigratorTest {
+
+    @Mock
+    private RedissonReactiveClient redissonClient;
+    @Mock
+    private RLockReactive lock;
+    @Mock
+    private CitizenRepository citizenRepository;
+
+    private ConsentSchemaMigrator migrator;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redissonClient.getLock(anyString())).thenReturn(lock);
+        when(lock.unlock(anyLong())).thenReturn(Mono.empty());
+        migrator = new ConsentSchemaMigrator(redissonClient, citizenRepository, 2, true, 2, 0);
+    }
+
+    @Test
+    void migrate_InBatches() {
+        when(lock.tryLock(eq(0L), eq(-1L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(citizenRepository.findNotInSchemaVersion(2)).thenReturn(Flux.just(new Document(), new Document(), new Document()));
+        when(citizenRepository.migrateToSchemaVersion(anyList(), eq(2))).thenReturn(Mono.just(2L), Mono.just(1L));
+
+        StepVerifier.create(migrator.migrate())
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(citizenRepository, times(2)).migrateToSchemaVersion(anyList(), eq(2));
+        verify(lock).unlock(anyLong());
+    }
+
+    @Test
+    void migrate_LockNotAcquired() {
+        when(lock.tryLock(eq(0L), eq(-1L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(migrator.migrate())
+                .verifyComplete();
+
+        verify(citizenRepository, never()).findNotInSchemaVersion(2);
+    }
+}
@@ -0,0 +1,120 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import it.gov.pagopa.common.kafka.utils.KafkaConstants;
+import it.gov.pagopa.common.utils.MemoryAppender;
+import it.gov.pagopa.common.utils.Utils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ErrorNotifierServiceImplTest {
+
+    private static MemoryAppender memoryAppender;
+
+    private StreamBridge streamBridge;
+    private ErrorNotifierServiceImpl errorNotifierService;
+
+    @BeforeAll
+    static void configureMemoryAppender() {
+        memoryAppender = new MemoryAppender();
+        memoryAppender.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        memoryAppender.start();
+        ((Logger) LoggerFactory.getLogger(ErrorNotifierServiceImpl.class.getName())).addAppender(memoryAppender);
+    }
+
+    @BeforeEach
+    void setUp() {
+        memoryAppender.reset();
+        streamBridge = Mockito.mock(StreamBridge.class);
+        errorNotifierService = new ErrorNotifierServiceImpl(streamBridge, "emd-citizen", "broker:9093", "consent-topic", "consent-group");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void notifyCitizenConsentStateUpdate_PublishesErrorHeaders() {
+        when(streamBridge.send(eq("errorNotifier-out-0"), any())).thenReturn(true);
+        Message<String> message = MessageBuilder.withPayload("{\"fiscalCode\":\"fiscalCode\"}")
+                .setHeader(KafkaHeaders.RECEIVED_KEY, "fiscalCode")
+                .setHeader(KafkaConstants.ERROR_MSG_HEADER_RETRY, "2".getBytes(StandardCharsets.UTF_8))
+                .build();
+
+        StepVerifier.create(errorNotifierService.notifyCitizenConsentStateUpdate(message, "description", true, new RuntimeException("boom")))
+                .expectNext(true)
+                .verifyComplete();
+
+        ArgumentCaptor<Message<String>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge).send(eq("errorNotifier-out-0"), sent.capture());
+        Message<String> errorMessage = sent.getValue();
+        assertEquals(message.getPayload(), errorMessage.getPayload());
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_SRC_TYPE, "kafka");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_SRC_SERVER, "broker:9093");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_SRC_TOPIC, "consent-topic");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_GROUP, "consent-group");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_DESCRIPTION, "description");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_RETRYABLE, "true");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_RETRY, "2");
+        assertHeader(errorMessage, KafkaConstants.ERROR_MSG_HEADER_APPLICATION_NAME, "emd-citizen");
+        assertTrue(new String(errorMessage.getHeaders().get(KafkaConstants.ERROR_MSG_HEADER_STACKTRACE, byte[].class), StandardCharsets.UTF_8)
+                .contains("boom"));
+        assertEquals("fiscalCode", errorMessage.getHeaders().get(KafkaHeaders.KEY));
+    }
+
+    @Test
+    void notify_SendFailure() {
+        when(streamBridge.send(eq("errorNotifier-out-0"), any())).thenReturn(false);
+        Message<String> message = MessageBuilder.withPayload("{\"fiscalCode\":\"FISCALCODE\"}")
+                .setHeader(KafkaHeaders.RECEIVED_KEY, "FISCALCODE".getBytes(StandardCharsets.UTF_8))
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, 1)
+                .setHeader(KafkaHeaders.OFFSET, 7L)
+                .build();
+
+        StepVerifier.create(errorNotifierService.notify("kafka", "server", "topic", "group", message, "description", false, false, null))
+                .expectNext(false)
+                .verifyComplete();
+
+        // neither the payload nor the plain key (a fiscal code) are logged
+        ILoggingEvent failureLog = memoryAppender.getLoggedEvents().stream()
+                .filter(event -> event.getFormattedMessage().contains("Something gone wrong"))
+                .findFirst().orElseThrow();
+        assertTrue(failureLog.getFormattedMessage().contains(
+                "(partition: 1, offset: 7, id: %s)".formatted(Utils.createSHA256("FISCALCODE"))));
+        assertFalse(failureLog.getFormattedMessage().contains("FISCALCODE"));
+    }
+
+    @Test
+    void notify_NotAcknowledged() {
+        when(streamBridge.send(eq("errorNotifier-out-0"), any())).thenThrow(new MessageDeliveryException("Broker not available"));
+        Message<String> message = MessageBuilder.withPayload("payload").build();
+
+        StepVerifier.create(errorNotifierService.notify("kafka", "server", "topic", "group", message, "description", false, false, null))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    private static void assertHeader(Message<String> message, String header, String expected) {
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), message.getHeaders().get(header, byte[].class));
+    }
+}
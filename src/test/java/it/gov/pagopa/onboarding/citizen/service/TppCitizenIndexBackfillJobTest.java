@@ -0,0 +1,112 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.onboarding.citizen.faker.CitizenConsentFaker;
+import it.gov.pagopa.onboarding.citizen.repository.CitizenRepository;
+import it.gov.pagopa.onboarding.citizen.repository.TppCitizenIndexRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TppCitizenIndexBackfillJobTest {
+
+    @Mock
+    private RedissonReactiveClient redissonClient;
+    @Mock
+    private RLockReactive lock;
+    @Mock
+    private CitizenRepository citizenRepository;
+    @Mock
+    private TppCitizenIndexRepository tppCitizenIndexRepository;
+    @Mock
+    private TppCitizenIndexService tppCitizenIndexService;
+
+    private TppCitizenIndexBackfillJob backfillJob;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redissonClient.getLock(anyString())).thenReturn(lock);
+        when(lock.unlock(anyLong())).thenReturn(Mono.empty());
+        when(tppCitizenIndexService.isWriteEnabled()).thenReturn(true);
+        backfillJob = new TppCitizenIndexBackfillJob(redissonClient, citizenRepository, tppCitizenIndexRepository,
+                tppCitizenIndexService, false, 2);
+    }
+
+    @Test
+    void backfill_IndexesInBatchesAndPrunes() {
+        when(lock.tryLock(eq(0L), eq(-1L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(citizenRepository.findAll()).thenReturn(Flux.just(
+                CitizenConsentFaker.mockInstance(true),
+                CitizenConsentFaker.mockInstance(false),
+                CitizenConsentFaker.mockInstance(true)));
+        when(tppCitizenIndexService.indexCitizens(anyList(), any(LocalDateTime.class))).thenReturn(Mono.just(2L), Mono.just(1L));
+        when(tppCitizenIndexRepository.deleteByIndexedAtBefore(any(LocalDateTime.class))).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(backfillJob.backfill())
+                .expectNext(3L)
+                .verifyComplete();
+
+        // entries written since the run started are neither overwritten nor pruned
+        ArgumentCaptor<LocalDateTime> indexedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(tppCitizenIndexService, times(2)).indexCitizens(anyList(), indexedBefore.capture());
+        verify(tppCitizenIndexRepository).deleteByIndexedAtBefore(indexedBefore.getValue());
+        assertEquals(indexedBefore.getAllValues().get(0), indexedBefore.getAllValues().get(1));
+        verify(lock).unlock(anyLong());
+    }
+
+    @Test
+    void backfill_SkippedWithWritesDisabled() {
+        when(tppCitizenIndexService.isWriteEnabled()).thenReturn(false);
+
+        StepVerifier.create(backfillJob.backfill())
+                .verifyComplete();
+
+        verify(redissonClient, never()).getLock(anyString());
+        verify(citizenRepository, never()).findAll();
+        verify(tppCitizenIndexRepository, never()).deleteByIndexedAtBefore(any(LocalDateTime.class));
+    }
+
+    @Test
+    void backfill_LockNotAcquired() {
+        when(lock.tryLock(eq(0L), eq(-1L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(backfillJob.backfill())
+                .verifyComplete();
+
+        verify(citizenRepository, never()).findAll();
+        verify(lock, never()).unlock(anyLong());
+    }
+
+    @Test
+    void backfill_ErrorReleasesLockWithoutPruning() {
+        when(lock.tryLock(eq(0L), eq(-1L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(citizenRepository.findAll()).thenReturn(Flux.error(new RuntimeException("boom")));
+
+        StepVerifier.create(backfillJob.backfill())
+                .verifyError(RuntimeException.class);
+
+        verify(tppCitizenIndexRepository, never()).deleteByIndexedAtBefore(any(LocalDateTime.class));
+        verify(lock).unlock(anyLong());
+    }
+}
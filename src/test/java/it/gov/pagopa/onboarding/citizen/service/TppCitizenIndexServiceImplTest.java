@@ -0,0 +1,165 @@
+package it.gov.pagopa.onboarding.citizen.service;
+
+import it.gov.pagopa.onboarding.citizen.model.CitizenConsent;
+import it.gov.pagopa.onboarding.citizen.model.ConsentDetails;
+import it.gov.pagopa.onboarding.citizen.model.TppCitizenIndex;
+import it.gov.pagopa.onboarding.citizen.repository.TppCitizenIndexRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TppCitizenIndexServiceImplTest {
+
+    private static final String FISCAL_CODE = "fiscalCode";
+    private static final String TPP_ID = "tppId";
+
+    @Mock
+    private TppCitizenIndexRepository tppCitizenIndexRepository;
+
+    private TppCitizenIndexServiceImpl enabledService;
+    private TppCitizenIndexServiceImpl disabledService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        enabledService = new TppCitizenIndexServiceImpl(tppCitizenIndexRepository, true, true);
+        disabledService = new TppCitizenIndexServiceImpl(tppCitizenIndexRepository, false, false);
+    }
+
+    @Test
+    void indexConsent_WritesEntry() {
+        when(tppCitizenIndexRepository.upsertAll(anyList())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(enabledService.indexConsent(FISCAL_CODE, TPP_ID, consent(true)))
+                .verifyComplete();
+
+        verify(tppCitizenIndexRepository).upsertAll(anyList());
+    }
+
+    @Test
+    void indexConsent_ErrorIsSwallowed() {
+        when(tppCitizenIndexRepository.upsertAll(anyList())).thenReturn(Mono.error(new RuntimeException("boom")));
+
+        StepVerifier.create(enabledService.indexConsent(FISCAL_CODE, TPP_ID, consent(true)))
+                .verifyComplete();
+    }
+
+    @Test
+    void indexConsent_WriteDisabled() {
+        StepVerifier.create(disabledService.indexConsent(FISCAL_CODE, TPP_ID, consent(true)))
+                .verifyComplete();
+
+        verify(tppCitizenIndexRepository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    void indexConsents_WritesEntriesInOneCall() {
+        when(tppCitizenIndexRepository.upsertAll(anyList())).thenReturn(Mono.error(new RuntimeException("boom")));
+
+        StepVerifier.create(enabledService.indexConsents(List.of(citizen(FISCAL_CODE), citizen("other"))))
+                .verifyComplete();
+
+        verify(tppCitizenIndexRepository).upsertAll(argThat(citizens -> citizens.size() == 2));
+    }
+
+    @Test
+    void indexConsents_WriteDisabled() {
+        StepVerifier.create(disabledService.indexConsents(List.of(citizen(FISCAL_CODE))))
+                .verifyComplete();
+
+        verify(tppCitizenIndexRepository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    void removeCitizen_MarksEntriesRemoved() {
+        when(tppCitizenIndexRepository.markRemoved(FISCAL_CODE)).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(enabledService.removeCitizen(FISCAL_CODE))
+                .verifyComplete();
+
+        verify(tppCitizenIndexRepository).markRemoved(FISCAL_CODE);
+    }
+
+    @Test
+    void removeCitizen_WriteDisabled() {
+        StepVerifier.create(disabledService.removeCitizen(FISCAL_CODE))
+                .verifyComplete();
+
+        verify(tppCitizenIndexRepository, never()).markRemoved(anyString());
+    }
+
+    @Test
+    void findCitizenEnabled_MapsEntriesToDTO() {
+        LocalDateTime tcDate = LocalDateTime.now();
+        when(tppCitizenIndexRepository.findByTppIdAndTppStateTrue(TPP_ID)).thenReturn(Flux.just(
+                TppCitizenIndex.builder().fiscalCode(FISCAL_CODE).tppId(TPP_ID).tppState(true).tcDate(tcDate).build()));
+
+        StepVerifier.create(enabledService.findCitizenEnabled(TPP_ID))
+                .assertNext(dto -> {
+                    assertEquals(FISCAL_CODE, dto.getFiscalCode());
+                    assertEquals(1, dto.getConsents().size());
+                    assertTrue(dto.getConsents().get(TPP_ID).getTppState());
+                    assertEquals(tcDate, dto.getConsents().get(TPP_ID).getTcDate());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void countCitizenEnabled() {
+        when(tppCitizenIndexRepository.countByTppIdAndTppStateTrue(TPP_ID)).thenReturn(Mono.just(4L));
+
+        StepVerifier.create(enabledService.countCitizenEnabled(TPP_ID))
+                .expectNext(4L)
+                .verifyComplete();
+        assertTrue(enabledService.isReadEnabled());
+    }
+
+    @Test
+    void indexCitizens_DelegatesToRepository() {
+        LocalDateTime indexedBefore = LocalDateTime.now();
+        when(tppCitizenIndexRepository.upsertAllIndexedBefore(List.of(), indexedBefore)).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(enabledService.indexCitizens(List.of(), indexedBefore))
+                .expectNext(0L)
+                .verifyComplete();
+        verify(tppCitizenIndexRepository).upsertAllIndexedBefore(List.of(), indexedBefore);
+        verify(tppCitizenIndexRepository, never()).upsertAll(anyList());
+        assertTrue(enabledService.isWriteEnabled());
+    }
+
+    @Test
+    void indexCitizens_WriteDisabled() {
+        StepVerifier.create(disabledService.indexCitizens(List.of(citizen(FISCAL_CODE)), LocalDateTime.now()))
+                .expectNext(0L)
+                .verifyComplete();
+        verify(tppCitizenIndexRepository, never()).upsertAllIndexedBefore(anyList(), any(LocalDateTime.class));
+        assertFalse(disabledService.isWriteEnabled());
+    }
+
+    private static ConsentDetails consent(boolean state) {
+        return ConsentDetails.builder().tppState(state).tcDate(LocalDateTime.now()).build();
+    }
+
+    private static CitizenConsent citizen(String fiscalCode) {
+        return CitizenConsent.builder().fiscalCode(fiscalCode).consents(Map.of(TPP_ID, consent(true))).build();
+    }
+}